@@ -0,0 +1,72 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link HashAlgorithm#hash(String)} of each algorithm on typical keys.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar HashAlgorithmBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HashAlgorithmBenchmark {
+
+  private static final int KEY_COUNT = 1024;
+
+  @Param({"NATIVE_HASH", "CRC32_HASH", "FNV1_64_HASH", "FNV1A_64_HASH",
+      "FNV1_32_HASH", "FNV1A_32_HASH", "KETAMA_HASH"})
+  private HashAlgorithm algorithm;
+
+  private String[] keys;
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = new String[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = "benchmark:user:" + (i * 7919);
+    }
+  }
+
+  @Benchmark
+  public long hash() {
+    index = (index + 1) & (KEY_COUNT - 1);
+    return algorithm.hash(keys[index]);
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares ketama ring lookups of {@link ArcusKetamaNodeLocator} with the
+ * previous lookup over a {@code TreeMap} guarded by a {@code ReentrantLock},
+ * and measures {@link ArcusKetamaNodeLocator#getPrimary(String)} including
+ * the hashing of the key.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar KetamaLocatorBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KetamaLocatorBenchmark {
+
+  private static final int HASH_COUNT = 4096;
+
+  @Param({"100"})
+  private int nodeCount;
+
+  private ArcusKetamaNodeLocator locator;
+  private TreeMap<Long, SortedSet<MemcachedNode>> treeMap;
+  private final Lock lock = new ReentrantLock();
+  private long[] hashes;
+  private String[] keys;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    List<MemcachedNode> nodes = new ArrayList<>(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      LinkedBlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+      InetSocketAddress sa = new InetSocketAddress("10.0." + (i / 250) + "." + (i % 250 + 1),
+          11211);
+      nodes.add(new AsciiMemcachedNodeImpl("node" + i, sa, 16,
+          queue, queue, queue, 0L, false));
+    }
+    locator = new ArcusKetamaNodeLocator(nodes);
+    treeMap = new TreeMap<>(locator.getKetamaNodes());
+
+    hashes = new long[HASH_COUNT];
+    keys = new String[HASH_COUNT];
+    for (int i = 0; i < HASH_COUNT; i++) {
+      keys[i] = "benchmark:key:" + i;
+      hashes[i] = HashAlgorithm.KETAMA_HASH.hash(keys[i]);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    long next(long[] hashes) {
+      index = (index + 1) & (HASH_COUNT - 1);
+      return hashes[index];
+    }
+
+    String next(String[] keys) {
+      index = (index + 1) & (HASH_COUNT - 1);
+      return keys[index];
+    }
+  }
+
+  private MemcachedNode treeMapLookup(long hash) {
+    lock.lock();
+    try {
+      if (treeMap.isEmpty()) {
+        return null;
+      }
+      Map.Entry<Long, SortedSet<MemcachedNode>> entry = treeMap.ceilingEntry(hash);
+      if (entry == null) {
+        entry = treeMap.firstEntry();
+      }
+      return entry.getValue().first();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Benchmark
+  public MemcachedNode treeMap(Cursor cursor) {
+    return treeMapLookup(cursor.next(hashes));
+  }
+
+  @Benchmark
+  public MemcachedNode ketamaRing(Cursor cursor) {
+    return locator.getNodeForKey(cursor.next(hashes));
+  }
+
+  @Benchmark
+  @Threads(8)
+  public MemcachedNode treeMapContended(Cursor cursor) {
+    return treeMapLookup(cursor.next(hashes));
+  }
+
+  @Benchmark
+  @Threads(8)
+  public MemcachedNode ketamaRingContended(Cursor cursor) {
+    return locator.getNodeForKey(cursor.next(hashes));
+  }
+
+  @Benchmark
+  public MemcachedNode getPrimary(Cursor cursor) {
+    return locator.getPrimary(cursor.next(keys));
+  }
+}
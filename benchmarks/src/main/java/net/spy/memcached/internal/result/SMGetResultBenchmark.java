@@ -0,0 +1,92 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal.result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.collection.SMGetElement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures merging the sorted results of the nodes of a sort-merge get
+ * through {@link SMGetResult#mergeSMGetElements(List)}.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar SMGetResultBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SMGetResultBenchmark {
+
+  @Param({"4", "32"})
+  private int nodes;
+
+  @Param({"100", "1000"})
+  private int count;
+
+  @Param({"false", "true"})
+  private boolean unique;
+
+  private List<List<SMGetElement<Object>>> nodeResults;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(7);
+    nodeResults = new ArrayList<>(nodes);
+    for (int n = 0; n < nodes; n++) {
+      // each node returns up to count elements in bkey order, from 10 keys.
+      List<SMGetElement<Object>> result = new ArrayList<>(count);
+      long bkey = random.nextInt(10);
+      for (int i = 0; i < count; i++) {
+        String key = "benchmark:btree:" + n + ":" + (i % 10);
+        result.add(new SMGetElement<>(key, bkey, null, "value"));
+        bkey += 1 + random.nextInt(nodes);
+      }
+      nodeResults.add(result);
+    }
+  }
+
+  @Benchmark
+  public List<SMGetElement<Object>> merge() {
+    SMGetResult<Object> result = new SMGetResult<>(count, unique, false);
+    for (List<SMGetElement<Object>> each : nodeResults) {
+      result.mergeSMGetElements(each);
+    }
+    return result.getFinalResult();
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the front cache storages on the hit path and on the hit ratio
+ * of a zipfian workload over ten times more keys than the cache holds.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar FrontCacheBenchmark
+ * </pre>
+ *
+ * The hit ratio of {@code zipf} is {@code hits / (hits + misses)} of its counters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrontCacheBenchmark {
+
+  private static final int MAX_ELEMENTS = 10000;
+  private static final int KEY_SPACE = 10 * MAX_ELEMENTS;
+  private static final int SEQUENCE_SIZE = 1 << 20;
+  private static final int HOT_KEYS = 1024;
+
+  @Param({"tinylfu", "ehcache"})
+  private String cacheType;
+
+  private FrontCache cache;
+  private String[] keys;
+  private String[] sequence;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    FrontCacheFactory factory = "ehcache".equals(cacheType)
+        ? EhcacheFrontCache.FACTORY : TinyLfuFrontCache.FACTORY;
+    cache = factory.create("benchmark-" + cacheType, MAX_ELEMENTS, 0, 3600);
+
+    keys = new String[KEY_SPACE];
+    for (int i = 0; i < KEY_SPACE; i++) {
+      keys[i] = "benchmark:key:" + i;
+    }
+    sequence = zipfSequence(0.99, new Random(7));
+    for (int i = 0; i < HOT_KEYS; i++) {
+      cache.put(keys[i], keys[i], keys[i].length());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    cache.close();
+  }
+
+  private String[] zipfSequence(double skew, Random random) {
+    double[] cdf = new double[KEY_SPACE];
+    double sum = 0;
+    for (int i = 0; i < KEY_SPACE; i++) {
+      sum += 1.0 / Math.pow(i + 1, skew);
+      cdf[i] = sum;
+    }
+    String[] seq = new String[SEQUENCE_SIZE];
+    for (int i = 0; i < SEQUENCE_SIZE; i++) {
+      int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      // scatter the popular keys over the key space.
+      seq[i] = keys[(int) ((index * 0x9e3779b1L) % KEY_SPACE)];
+    }
+    return seq;
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    int next(int mask) {
+      index = (index + 1) & mask;
+      return index;
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long hits;
+    public long misses;
+  }
+
+  @Benchmark
+  public Object hit(Cursor cursor) {
+    return cache.get(keys[cursor.next(HOT_KEYS - 1)]);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Object hitContended(Cursor cursor) {
+    return cache.get(keys[cursor.next(HOT_KEYS - 1)]);
+  }
+
+  @Benchmark
+  public Object zipf(Cursor cursor, Counters counters) {
+    String key = sequence[cursor.next(SEQUENCE_SIZE - 1)];
+    Object value = cache.get(key);
+    if (value == null) {
+      counters.misses++;
+      cache.put(key, key, key.length());
+    } else {
+      counters.hits++;
+    }
+    return value;
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.DefaultConnectionFactory;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures moving encoded operations from the write queue of a node to its
+ * channel through {@link TCPMemcachedNodeImpl#fillWriteBuffer(boolean)} and
+ * {@link TCPMemcachedNodeImpl#writeSome()}, copying into the write buffer or
+ * with a gathering write.
+ *
+ * <p>The channel discards what is written, and the operations keep their
+ * encoded commands, so only the write path is measured. Results are per
+ * operation.</p>
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar FillWriteBufferBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FillWriteBufferBenchmark {
+
+  private static final int OPS = 64;
+
+  @Param({"copy", "gather"})
+  private String mode;
+
+  @Param({"32", "1024"})
+  private int commandSize;
+
+  private TCPMemcachedNodeImpl node;
+  private BlockingQueue<Operation> readQ;
+  private Operation[] ops;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    readQ = new ArrayBlockingQueue<>(OPS * 2);
+    BlockingQueue<Operation> writeQ = new ArrayBlockingQueue<>(OPS * 2);
+    BlockingQueue<Operation> inputQ = new ArrayBlockingQueue<>(OPS * 2);
+    node = new AsciiMemcachedNodeImpl("node", new InetSocketAddress(11211),
+        DefaultConnectionFactory.DEFAULT_READ_BUFFER_SIZE, readQ, writeQ, inputQ, 0L, false);
+    if ("gather".equals(mode)) {
+      node.setGatheringWrite(DefaultConnectionFactory.DEFAULT_MAX_GATHERING_WRITE_BUFFERS,
+          DefaultConnectionFactory.DEFAULT_MAX_GATHERING_WRITE_BYTES);
+    }
+    node.setChannel(new DiscardChannel());
+
+    byte[] command = new byte[commandSize];
+    ops = new Operation[OPS];
+    for (int i = 0; i < OPS; i++) {
+      ops[i] = new EncodedOperation(command);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPS)
+  public int writeOperations() throws IOException {
+    for (Operation op : ops) {
+      node.addOpToWriteQ(op);
+    }
+    int written = 0;
+    do {
+      node.fillWriteBuffer(false);
+      written += node.writeSome();
+    } while (node.getBytesRemainingToWrite() > 0 || node.hasWriteOp());
+    readQ.clear();
+    return written;
+  }
+
+  /**
+   * Operation that always writes the same encoded command.
+   */
+  private static final class EncodedOperation extends BaseOperationImpl {
+    private final ByteBuffer command;
+
+    private EncodedOperation(byte[] command) {
+      this.command = ByteBuffer.wrap(command);
+    }
+
+    @Override
+    public void initialize() {
+      ((Buffer) command).clear();
+      setBuffer(command);
+    }
+
+    @Override
+    public void readFromBuffer(ByteBuffer data) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isBulkOperation() {
+      return false;
+    }
+
+    @Override
+    public boolean isPipeOperation() {
+      return false;
+    }
+
+    @Override
+    public boolean isIdempotentOperation() {
+      return true;
+    }
+  }
+
+  /**
+   * Connected channel discarding everything written to it.
+   */
+  private static final class DiscardChannel extends SocketChannel {
+
+    private DiscardChannel() {
+      super(SelectorProvider.provider());
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      int n = src.remaining();
+      ((Buffer) src).position(src.limit());
+      return n;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      long n = 0;
+      for (int i = offset; i < offset + length; i++) {
+        n += write(srcs[i]);
+      }
+      return n;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+      return 0;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) {
+      return 0;
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+
+    @Override
+    public boolean isConnectionPending() {
+      return false;
+    }
+
+    @Override
+    public boolean connect(SocketAddress remote) {
+      return true;
+    }
+
+    @Override
+    public boolean finishConnect() {
+      return true;
+    }
+
+    @Override
+    public SocketChannel bind(SocketAddress local) {
+      return this;
+    }
+
+    @Override
+    public <T> SocketChannel setOption(SocketOption<T> name, T value) {
+      return this;
+    }
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) {
+      return null;
+    }
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public SocketChannel shutdownInput() {
+      return this;
+    }
+
+    @Override
+    public SocketChannel shutdownOutput() {
+      return this;
+    }
+
+    @Override
+    public Socket socket() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+      return null;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+      return null;
+    }
+
+    @Override
+    protected void implCloseSelectableChannel() {
+    }
+
+    @Override
+    protected void implConfigureBlocking(boolean block) {
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.collection.BTreeGet;
+import net.spy.memcached.collection.BTreeInsert;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.ops.CollectionGetOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Mutator;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the ASCII command encoding done by {@code initialize()} of
+ * the operations the client sends most.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar AsciiEncodingBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AsciiEncodingBenchmark {
+
+  private static final int BULK_KEYS = 100;
+  private static final int VALUE_SIZE = 100;
+
+  private final AsciiOperationFactory opFactory = new AsciiOperationFactory();
+
+  private Operation get;
+  private Operation mget;
+  private Operation set;
+  private Operation incr;
+  private Operation delete;
+  private Operation bopInsert;
+  private Operation bopGet;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LinkedBlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    MemcachedNode node = new AsciiMemcachedNodeImpl("node", new InetSocketAddress(11211),
+        16, queue, queue, queue, 0L, false);
+    node.setVersion("1.13.0");
+
+    List<String> keys = new ArrayList<>(BULK_KEYS);
+    for (int i = 0; i < BULK_KEYS; i++) {
+      keys.add("benchmark:key:" + i);
+    }
+    byte[] value = new byte[VALUE_SIZE];
+
+    get = opFactory.get("benchmark:key", NO_GET_CALLBACK);
+    mget = opFactory.get(keys, NO_GET_CALLBACK, true);
+    set = opFactory.store(StoreType.set, "benchmark:key", 0, 60, value, NO_CALLBACK);
+    incr = opFactory.mutate(Mutator.incr, "benchmark:counter", 1, 0, 60, NO_CALLBACK);
+    delete = opFactory.delete("benchmark:key", NO_CALLBACK);
+    BTreeInsert<Object> insert = new BTreeInsert<>(null, null, null, null);
+    bopInsert = opFactory.collectionInsert("benchmark:btree", "1024", insert, value, NO_CALLBACK);
+    BTreeGet bget = new BTreeGet(0L, 1000L, ElementFlagFilter.DO_NOT_FILTER, 0, 50,
+        false, false);
+    bopGet = opFactory.collectionGet("benchmark:btree", bget, NO_COLLECTION_CALLBACK);
+
+    for (Operation op : new Operation[]{get, mget, set, incr, delete, bopInsert, bopGet}) {
+      op.setHandlingNode(node);
+    }
+  }
+
+  private static ByteBuffer initialize(Operation op) {
+    op.initialize();
+    return op.getBuffer();
+  }
+
+  @Benchmark
+  public ByteBuffer get() {
+    return initialize(get);
+  }
+
+  @Benchmark
+  public ByteBuffer mget100() {
+    return initialize(mget);
+  }
+
+  @Benchmark
+  public ByteBuffer set() {
+    return initialize(set);
+  }
+
+  @Benchmark
+  public ByteBuffer incr() {
+    return initialize(incr);
+  }
+
+  @Benchmark
+  public ByteBuffer delete() {
+    return initialize(delete);
+  }
+
+  @Benchmark
+  public ByteBuffer bopInsert() {
+    return initialize(bopInsert);
+  }
+
+  @Benchmark
+  public ByteBuffer bopGet() {
+    return initialize(bopGet);
+  }
+
+  private static final OperationCallback NO_CALLBACK = new OperationCallback() {
+    @Override
+    public void receivedStatus(OperationStatus status) {
+    }
+
+    @Override
+    public void complete() {
+    }
+  };
+
+  private static final GetOperation.Callback NO_GET_CALLBACK = new GetOperation.Callback() {
+    @Override
+    public void gotData(String key, int flags, byte[] data) {
+    }
+
+    @Override
+    public void receivedStatus(OperationStatus status) {
+    }
+
+    @Override
+    public void complete() {
+    }
+  };
+
+  private static final CollectionGetOperation.Callback NO_COLLECTION_CALLBACK =
+      new CollectionGetOperation.Callback() {
+        @Override
+        public void gotData(String subkey, int flags, byte[] data, byte[] eflag) {
+        }
+
+        @Override
+        public void receivedStatus(OperationStatus status) {
+        }
+
+        @Override
+        public void complete() {
+        }
+      };
+}
@@ -0,0 +1,210 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.collection.BTreeGet;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.ops.CollectionGetOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of ASCII responses by {@code readFromBuffer}.
+ *
+ * <p>An operation can't be read twice, so each invocation includes
+ * creating the operation, but not encoding its command.</p>
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar AsciiParsingBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AsciiParsingBenchmark {
+
+  private static final int BULK_KEYS = 100;
+  private static final int VALUE_SIZE = 100;
+  private static final int ELEMENTS = 50;
+
+  private final AsciiOperationFactory opFactory = new AsciiOperationFactory();
+  private final byte[] value = new byte[VALUE_SIZE];
+
+  private MemcachedNode node;
+  private List<String> keys;
+  private BTreeGet bget;
+  private ByteBuffer getResponse;
+  private ByteBuffer mgetResponse;
+  private ByteBuffer storeResponse;
+  private ByteBuffer bopGetResponse;
+  private int received;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    LinkedBlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    node = new AsciiMemcachedNodeImpl("node", new InetSocketAddress(11211),
+        16, queue, queue, queue, 0L, false);
+    node.setVersion("1.13.0");
+    bget = new BTreeGet(0L, 1000L, ElementFlagFilter.DO_NOT_FILTER, 0, ELEMENTS, false, false);
+
+    String data = new String(new char[VALUE_SIZE]).replace('\0', 'v');
+    keys = new ArrayList<>(BULK_KEYS);
+    StringBuilder mget = new StringBuilder();
+    for (int i = 0; i < BULK_KEYS; i++) {
+      String key = "benchmark:key:" + i;
+      keys.add(key);
+      mget.append("VALUE ").append(key).append(" 0 ").append(VALUE_SIZE).append("\r\n")
+          .append(data).append("\r\n");
+    }
+    StringBuilder bop = new StringBuilder("VALUE 0 " + ELEMENTS + "\r\n");
+    for (int i = 0; i < ELEMENTS; i++) {
+      bop.append(i).append(" 0x0A0B 10 0123456789\r\n");
+    }
+
+    getResponse = direct("VALUE benchmark:key 0 " + VALUE_SIZE + "\r\n" + data + "\r\nEND\r\n");
+    mgetResponse = direct(mget + "END\r\n");
+    storeResponse = direct("STORED\r\n");
+    bopGetResponse = direct(bop + "END\r\n");
+
+    // sanity check of the responses.
+    received = 0;
+    if (read(newMGet(), mgetResponse) != OperationState.COMPLETE || received != BULK_KEYS) {
+      throw new IllegalStateException("Unexpected mget response handling: " + received);
+    }
+    received = 0;
+    if (read(newBopGet(), bopGetResponse) != OperationState.COMPLETE || received != ELEMENTS) {
+      throw new IllegalStateException("Unexpected bop get response handling: " + received);
+    }
+  }
+
+  private static ByteBuffer direct(String s) {
+    byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer bb = ByteBuffer.allocateDirect(b.length);
+    bb.put(b);
+    ((Buffer) bb).flip();
+    return bb;
+  }
+
+  private OperationState read(Operation op, ByteBuffer response) throws IOException {
+    op.setHandlingNode(node);
+    op.writeComplete();
+    ((Buffer) response).rewind();
+    op.readFromBuffer(response);
+    return op.getState();
+  }
+
+  private Operation newMGet() {
+    return opFactory.get(keys, getCallback, true);
+  }
+
+  private Operation newBopGet() {
+    return opFactory.collectionGet("benchmark:btree", bget, collectionCallback);
+  }
+
+  @Benchmark
+  public OperationState get() throws IOException {
+    return read(opFactory.get("benchmark:key", getCallback), getResponse);
+  }
+
+  @Benchmark
+  public OperationState mget100() throws IOException {
+    return read(newMGet(), mgetResponse);
+  }
+
+  @Benchmark
+  public OperationState set() throws IOException {
+    return read(opFactory.store(StoreType.set, "benchmark:key", 0, 60, value, callback),
+        storeResponse);
+  }
+
+  @Benchmark
+  public OperationState bopGet() throws IOException {
+    return read(newBopGet(), bopGetResponse);
+  }
+
+  private final OperationCallback callback = new OperationCallback() {
+    @Override
+    public void receivedStatus(OperationStatus status) {
+    }
+
+    @Override
+    public void complete() {
+    }
+  };
+
+  private final GetOperation.Callback getCallback = new GetOperation.Callback() {
+    @Override
+    public void gotData(String key, int flags, byte[] data) {
+      received++;
+    }
+
+    @Override
+    public void receivedStatus(OperationStatus status) {
+    }
+
+    @Override
+    public void complete() {
+    }
+  };
+
+  private final CollectionGetOperation.Callback collectionCallback =
+      new CollectionGetOperation.Callback() {
+        @Override
+        public void gotData(String subkey, int flags, byte[] data, byte[] eflag) {
+          received++;
+        }
+
+        @Override
+        public void receivedStatus(OperationStatus status) {
+        }
+
+        @Override
+        public void complete() {
+        }
+      };
+}
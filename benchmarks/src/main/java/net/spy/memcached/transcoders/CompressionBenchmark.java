@@ -0,0 +1,143 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the compression codecs on JSON-like values, against the stream
+ * based GZIP compression transcoders used before codecs were pluggable.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar CompressionBenchmark -prof gc
+ * </pre>
+ *
+ * The compressed size of each codec is printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+
+  @Param({"gzip-stream", "gzip", "lz4"})
+  private String codec;
+
+  @Param({"20000", "200000"})
+  private int size;
+
+  private CompressionCodec compressionCodec;
+  private byte[] data;
+  private byte[] compressed;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    if ("lz4".equals(codec)) {
+      compressionCodec = Lz4CompressionCodec.INSTANCE;
+    } else if ("gzip".equals(codec)) {
+      compressionCodec = GzipCompressionCodec.INSTANCE;
+    } else {
+      compressionCodec = STREAM_GZIP;
+    }
+    data = jsonLikeValue(size, new Random(7));
+    compressed = compressionCodec.compress(data);
+    System.out.printf("%n%s: %d -> %d bytes%n", codec, data.length, compressed.length);
+  }
+
+  @Benchmark
+  public byte[] compress() {
+    return compressionCodec.compress(data);
+  }
+
+  @Benchmark
+  public byte[] decompress() throws IOException {
+    return compressionCodec.decompress(compressed);
+  }
+
+  private static byte[] jsonLikeValue(int size, Random random) {
+    String[] names = {"kim", "lee", "park", "choi", "jung", "kang", "cho", "yoon"};
+    StringBuilder sb = new StringBuilder(size + 128);
+    sb.append('[');
+    while (sb.length() < size) {
+      sb.append("{\"id\":").append(random.nextInt(1000000))
+          .append(",\"name\":\"").append(names[random.nextInt(names.length)])
+          .append("\",\"score\":").append(random.nextInt(100))
+          .append(",\"active\":").append(random.nextBoolean())
+          .append("},");
+    }
+    sb.setLength(size - 1);
+    sb.append(']');
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * GZIP compression through new streams per call, as done before codecs.
+   */
+  private static final CompressionCodec STREAM_GZIP = new CompressionCodec() {
+    @Override
+    public int getId() {
+      return GzipCompressionCodec.ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] in) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+        gz.write(in);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      return bos.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] in) throws IOException {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(in))) {
+        byte[] buf = new byte[8192];
+        int r;
+        while ((r = gis.read(buf)) > 0) {
+          bos.write(buf, 0, r);
+        }
+      }
+      return bos.toByteArray();
+    }
+  };
+}
@@ -0,0 +1,193 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.spy.memcached.CachedData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encoding and decoding of every transcoder.
+ *
+ * <p>The object transcoders are run over a string, a long, a small object
+ * and an object large enough to be compressed by the default threshold.
+ * The integer and long transcoders are run separately.</p>
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar TranscoderBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranscoderBenchmark {
+
+  @State(Scope.Thread)
+  public static class ObjectTranscoder {
+
+    @Param({"serializing", "collection", "json", "genericJson", "whalin", "whalinV1"})
+    private String transcoder;
+
+    @Param({"string", "long", "object", "largeObject"})
+    private String valueType;
+
+    private Transcoder<Object> tc;
+    private Object value;
+    private CachedData encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      switch (valueType) {
+        case "string":
+          value = "benchmark value of a typical length for a cache item";
+          break;
+        case "long":
+          value = 1234567890123L;
+          break;
+        case "object":
+          value = User.sample(0, 4);
+          break;
+        default:
+          value = User.sample(0, 3000);
+      }
+      tc = transcoder(transcoder, value.getClass());
+      encoded = tc.encode(value);
+      if (!Objects.equals(value, tc.decode(encoded))) {
+        throw new IllegalStateException(transcoder + " can't decode " + valueType);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Transcoder<Object> transcoder(String name, Class<?> valueClass) {
+      switch (name) {
+        case "serializing":
+          return SerializingTranscoder.forKV().build();
+        case "collection":
+          return SerializingTranscoder.forCollection().maxSize(CachedData.MAX_SIZE).build();
+        case "json":
+          return new JsonSerializingTranscoder<>((Class<Object>) valueClass);
+        case "genericJson":
+          return new GenericJsonSerializingTranscoder(new ObjectMapper(), "@class",
+              CachedData.MAX_SIZE);
+        case "whalin":
+          return new WhalinTranscoder();
+        case "whalinV1":
+          return new WhalinV1Transcoder();
+        default:
+          throw new IllegalArgumentException(name);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class NumberTranscoder {
+    private final IntegerTranscoder intTc = new IntegerTranscoder();
+    private final LongTranscoder longTc = new LongTranscoder();
+    private final CachedData encodedInt = intTc.encode(1234567);
+    private final CachedData encodedLong = longTc.encode(1234567890123L);
+  }
+
+  @Benchmark
+  public CachedData encode(ObjectTranscoder state) {
+    return state.tc.encode(state.value);
+  }
+
+  @Benchmark
+  public Object decode(ObjectTranscoder state) {
+    return state.tc.decode(state.encoded);
+  }
+
+  @Benchmark
+  public CachedData encodeInteger(NumberTranscoder state) {
+    return state.intTc.encode(1234567);
+  }
+
+  @Benchmark
+  public Integer decodeInteger(NumberTranscoder state) {
+    return state.intTc.decode(state.encodedInt);
+  }
+
+  @Benchmark
+  public CachedData encodeLong(NumberTranscoder state) {
+    return state.longTc.encode(1234567890123L);
+  }
+
+  @Benchmark
+  public Long decodeLong(NumberTranscoder state) {
+    return state.longTc.decode(state.encodedLong);
+  }
+
+  /**
+   * Value object that is both serializable and a Jackson bean.
+   */
+  public static class User implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public long id;
+    public String name;
+    public int score;
+    public List<String> tags = new ArrayList<>();
+
+    static User sample(long id, int tagCount) {
+      User user = new User();
+      user.id = id;
+      user.name = "user" + id;
+      user.score = 42;
+      for (int i = 0; i < tagCount; i++) {
+        user.tags.add("tag-" + i);
+      }
+      return user;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof User)) {
+        return false;
+      }
+      User other = (User) o;
+      return id == other.id && score == other.score
+          && Objects.equals(name, other.name) && Objects.equals(tags, other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, name, score, tags);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.v2;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the executors that decode the result of a v2 get and complete its future:
+ * the shared completion pool, an executor given by the caller and
+ * {@link AsyncArcusCommands#DIRECT_COMPLETION} on the IO thread.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar CompletionExecutorBenchmark
+ * </pre>
+ *
+ * The benchmark thread plays the IO thread, completing the operation and
+ * then waiting for the future. {@code completeBatch} completes the responses
+ * of one read together before waiting for them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompletionExecutorBenchmark {
+
+  private static final int BATCH = 32;
+
+  @Param({"shared", "caller", "direct"})
+  private String executor;
+
+  private ExecutorService callerPool;
+  private Executor completionExecutor;
+  private Transcoder<Object> tc;
+  private CachedData data;
+  private Operation op;
+  private final ArcusFutureImpl<?>[] batch = new ArcusFutureImpl<?>[BATCH];
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    switch (executor) {
+      case "shared":
+        completionExecutor = ArcusExecutors.COMPLETION_EXECUTOR;
+        break;
+      case "caller":
+        callerPool = Executors.newSingleThreadExecutor();
+        completionExecutor = callerPool;
+        break;
+      case "direct":
+        completionExecutor = AsyncArcusCommands.DIRECT_COMPLETION;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown executor: " + executor);
+    }
+    tc = new SerializingTranscoder();
+    data = tc.encode("benchmark value of a typical length for a cache item");
+    op = new AsciiOperationFactory().noop(new OperationCallback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+      }
+
+      @Override
+      public void complete() {
+      }
+    });
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (callerPool != null) {
+      callerPool.shutdown();
+    }
+  }
+
+  private ArcusFutureImpl<Object> newFuture() {
+    AbstractArcusResult<CachedData> result = new AbstractArcusResult<>(new AtomicReference<>());
+    ArcusFutureImpl<Object> future = new ArcusFutureImpl<>(result,
+        r -> r == null ? null : tc.decode((CachedData) r), completionExecutor);
+    future.setOp(op);
+    result.set(data);
+    return future;
+  }
+
+  @Benchmark
+  public Object complete() {
+    ArcusFutureImpl<Object> future = newFuture();
+    future.complete();
+    return future.join();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public Object completeBatch() {
+    for (int i = 0; i < BATCH; i++) {
+      batch[i] = newFuture();
+      batch[i].complete();
+    }
+    Object last = null;
+    for (ArcusFutureImpl<?> future : batch) {
+      last = future.join();
+    }
+    return last;
+  }
+}
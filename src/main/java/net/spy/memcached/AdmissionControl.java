@@ -0,0 +1,154 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the operations outstanding to a node or a client and the bytes
+ * of their encoded requests. An operation is outstanding from the time it is
+ * added to a node until it completes.
+ *
+ * <p>The admission control of a node has the one of its client as parent,
+ * so an operation is admitted only if both have room for it. An operation
+ * larger than the byte limit is admitted when no bytes are outstanding,
+ * so that it is not rejected forever.</p>
+ */
+public final class AdmissionControl {
+
+  private final int maxOps;
+  private final long maxBytes;
+  private final AdmissionControl parent;
+  private final AdmissionControl root;
+  private final AtomicInteger ops = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
+  // Callers blocked in acquire(), guarded by the root.
+  private volatile int waiters = 0;
+
+  /**
+   * @param maxOps   the maximum number of outstanding operations, or 0 for no limit
+   * @param maxBytes the maximum number of outstanding bytes, or 0 for no limit
+   * @param parent   the admission control to acquire from too, or null
+   */
+  AdmissionControl(int maxOps, long maxBytes, AdmissionControl parent) {
+    this.maxOps = maxOps;
+    this.maxBytes = maxBytes;
+    this.parent = parent;
+    this.root = parent == null ? this : parent.root;
+  }
+
+  /**
+   * Try to admit an operation of the given size without blocking.
+   *
+   * @return true if the operation is admitted and must be released later
+   */
+  public boolean tryAcquire(int size) {
+    if (!tryAcquireLocal(size)) {
+      return false;
+    }
+    if (parent != null && !parent.tryAcquire(size)) {
+      releaseLocal(size);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Admit an operation of the given size, waiting up to the given time for room.
+   *
+   * @return true if the operation is admitted and must be released later
+   */
+  public boolean acquire(int size, long timeout, TimeUnit unit) throws InterruptedException {
+    if (tryAcquire(size)) {
+      return true;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (root) {
+      root.waiters++;
+      try {
+        while (!tryAcquire(size)) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          root.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+        }
+        return true;
+      } finally {
+        root.waiters--;
+      }
+    }
+  }
+
+  /**
+   * Release an operation of the given size admitted before.
+   */
+  public void release(int size) {
+    for (AdmissionControl ac = this; ac != null; ac = ac.parent) {
+      ac.releaseLocal(size);
+    }
+    if (root.waiters > 0) {
+      synchronized (root) {
+        root.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Get the number of operations admitted and not released yet.
+   */
+  public int getOutstandingOps() {
+    return ops.get();
+  }
+
+  /**
+   * Get the number of bytes of the operations admitted and not released yet.
+   */
+  public long getOutstandingBytes() {
+    return bytes.get();
+  }
+
+  private boolean tryAcquireLocal(int size) {
+    while (true) {
+      int o = ops.get();
+      if (maxOps > 0 && o >= maxOps) {
+        return false;
+      }
+      if (ops.compareAndSet(o, o + 1)) {
+        break;
+      }
+    }
+    while (true) {
+      long b = bytes.get();
+      if (maxBytes > 0 && b > 0 && b + size > maxBytes) {
+        ops.decrementAndGet();
+        return false;
+      }
+      if (bytes.compareAndSet(b, b + size)) {
+        return true;
+      }
+    }
+  }
+
+  private void releaseLocal(int size) {
+    ops.decrementAndGet();
+    bytes.addAndGet(-size);
+  }
+}
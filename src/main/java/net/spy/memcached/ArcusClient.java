@@ -36,6 +36,7 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -326,7 +327,8 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 
     CacheManager exe = new CacheManager(hostPorts, serviceCode, cfb, poolSize, waitTimeForConnect);
     exe.start();
-    return new ArcusClientPool(poolSize, exe.getAC());
+    return new ArcusClientPool(poolSize, exe.getAC(), cfb.getPoolBulkFanOutKeys(),
+        cfb.getPoolClientPick());
   }
 
   /**
@@ -460,6 +462,14 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     return new AsyncArcusCommands<>(() -> this);
   }
 
+  /**
+   * @param completionExecutor executor that decodes and combines results,
+   *                           or {@link AsyncArcusCommands#DIRECT_COMPLETION}
+   */
+  public <T> AsyncArcusCommands<T> asyncCommands(Executor completionExecutor) {
+    return new AsyncArcusCommands<>(() -> this, completionExecutor);
+  }
+
   @Override
   public CollectionFuture<Boolean> asyncSetAttr(String key, Attributes attrs) {
     final CountDownLatch latch = new CountDownLatch(1);
@@ -619,6 +629,27 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     return key + "#" + index;
   }
 
+  /**
+   * Add a collection get operation for the given future. If hedged reads are
+   * enabled and the get does not delete the elements, the get may be sent
+   * to another node of the replica group as well.
+   */
+  private void addCollectionGetOp(final String k, final CollectionGet collectionGet,
+                                  final CollectionFuture<?> rv,
+                                  CollectionGetOperation.Callback cb) {
+    HedgedReads hedgedReads = getMemcachedConnection().getHedgedReads();
+    if (hedgedReads != null && !collectionGet.isDelete()) {
+      hedgedReads.start(cb, c -> opFact.collectionGet(k, collectionGet, c), op -> {
+        rv.setOperation(op);
+        addOp(k, op);
+      });
+      return;
+    }
+    Operation op = opFact.collectionGet(k, collectionGet, cb);
+    rv.setOperation(op);
+    addOp(k, op);
+  }
+
   /**
    * Generic get operation for list items. Public methods for list items call this method.
    *
@@ -634,7 +665,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     final CollectionGetFuture<List<T>> rv =
             new CollectionGetFuture<>(latch, operationTimeout);
 
-    Operation op = opFact.collectionGet(k, collectionGet,
+    addCollectionGetOp(k, collectionGet, rv,
         new CollectionGetOperation.Callback() {
           private final List<CachedData> cachedDataList = new ArrayList<>();
           private final GetResult<List<T>> result = new LopGetResultImpl<>(cachedDataList, tc);
@@ -658,8 +689,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
             cachedDataList.add(new CachedData(flags, data, tc.getMaxSize()));
           }
         });
-    rv.setOperation(op);
-    addOp(k, op);
     return rv;
   }
 
@@ -690,7 +719,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     final CollectionGetFuture<Set<T>> rv =
             new CollectionGetFuture<>(latch, operationTimeout);
 
-    Operation op = opFact.collectionGet(k, collectionGet,
+    addCollectionGetOp(k, collectionGet, rv,
         new CollectionGetOperation.Callback() {
           private final HashSet<CachedData> cachedDataSet = new HashSet<>();
           private final GetResult<Set<T>> result = new SopGetResultImpl<>(cachedDataSet, tc);
@@ -715,8 +744,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
           }
         });
 
-    rv.setOperation(op);
-    addOp(k, op);
     return rv;
   }
 
@@ -734,7 +761,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     final CollectionGetFuture<Map<Long, Element<T>>> rv =
             new CollectionGetFuture<>(latch, operationTimeout);
 
-    Operation op = opFact.collectionGet(k, collectionGet,
+    addCollectionGetOp(k, collectionGet, rv,
         new CollectionGetOperation.Callback() {
           private final HashMap<Long, CachedData> cachedDataMap = new HashMap<>();
           private final GetResult<Map<Long, Element<T>>> result =
@@ -759,8 +786,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
             cachedDataMap.put(Long.parseLong(bKey), new CachedData(flags, data, eflag, tc.getMaxSize()));
           }
         });
-    rv.setOperation(op);
-    addOp(k, op);
     return rv;
   }
 
@@ -778,7 +803,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     final CollectionGetFuture<Map<String, T>> rv =
             new CollectionGetFuture<>(latch, operationTimeout);
 
-    Operation op = opFact.collectionGet(k, collectionGet,
+    addCollectionGetOp(k, collectionGet, rv,
         new CollectionGetOperation.Callback() {
           private final HashMap<String, CachedData> cachedDataMap = new HashMap<>();
           private final GetResult<Map<String, T>> result
@@ -803,8 +828,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
             cachedDataMap.put(mkey, new CachedData(flags, data, eflag, tc.getMaxSize()));
           }
         });
-    rv.setOperation(op);
-    addOp(k, op);
     return rv;
   }
 
@@ -2248,7 +2271,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     final CollectionGetFuture<Map<ByteArrayBKey, Element<T>>> rv
             = new CollectionGetFuture<>(latch, operationTimeout);
 
-    Operation op = opFact.collectionGet(k, collectionGet,
+    addCollectionGetOp(k, collectionGet, rv,
         new CollectionGetOperation.Callback() {
           private final HashMap<ByteArrayBKey, CachedData> cachedDataMap = new HashMap<>();
           private final GetResult<Map<ByteArrayBKey, Element<T>>> result =
@@ -2274,8 +2297,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
                     new CachedData(flags, data, eflag, tc.getMaxSize()));
           }
         });
-    rv.setOperation(op);
-    addOp(k, op);
     return rv;
   }
 
@@ -18,14 +18,20 @@
 package net.spy.memcached;
 
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 import net.spy.memcached.collection.Attributes;
 import net.spy.memcached.collection.BTreeGetResult;
@@ -43,6 +49,8 @@ import net.spy.memcached.internal.BulkFuture;
 import net.spy.memcached.internal.CollectionFuture;
 import net.spy.memcached.internal.CollectionGetBulkFuture;
 import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.internal.MergedBulkFuture;
+import net.spy.memcached.internal.MergedCollectionGetBulkFuture;
 import net.spy.memcached.internal.OperationFuture;
 import net.spy.memcached.internal.SMGetFuture;
 import net.spy.memcached.ops.CollectionOperationStatus;
@@ -59,12 +67,37 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
   private final int poolSize;
   private final ArcusClient[] client;
   private final Random rand;
+  private final int bulkFanOutKeys;
+  private final ClientPick pick;
 
   public ArcusClientPool(int poolSize, ArcusClient[] client) {
+    this(poolSize, client, 0, ClientPick.RANDOM);
+  }
+
+  public ArcusClientPool(int poolSize, ArcusClient[] client, ClientPick pick) {
+    this(poolSize, client, 0, pick);
+  }
+
+  /**
+   * @param poolSize       the number of clients
+   * @param client         the clients of the pool
+   * @param bulkFanOutKeys the number of keys from which a bulk get is split
+   *                       across all clients, or 0 to run it on one client
+   * @param pick           how the client of a request is picked
+   */
+  public ArcusClientPool(int poolSize, ArcusClient[] client, int bulkFanOutKeys,
+                         ClientPick pick) {
 
     this.poolSize = poolSize;
     this.client = client;
+    this.bulkFanOutKeys = bulkFanOutKeys;
+    this.pick = pick;
     rand = new Random();
+    if (pick == ClientPick.LEAST_LOADED) {
+      for (ArcusClient c : client) {
+        c.getMemcachedConnection().countOutstandingOps();
+      }
+    }
   }
 
   /**
@@ -73,6 +106,17 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
    * @return ArcusClient
    */
   ArcusClient getClient() {
+    if (pick == ClientPick.LEAST_LOADED && poolSize > 1) {
+      ThreadLocalRandom r = ThreadLocalRandom.current();
+      int first = r.nextInt(poolSize);
+      int second = r.nextInt(poolSize - 1);
+      if (second >= first) {
+        second++;
+      }
+      return client[first].getMemcachedConnection().getOutstandingOps()
+          <= client[second].getMemcachedConnection().getOutstandingOps()
+          ? client[first] : client[second];
+    }
     return client[rand.nextInt(poolSize)];
   }
 
@@ -85,10 +129,77 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
     return client;
   }
 
+  /**
+   * Split the keys of a bulk get into one part per client.
+   * The keys of each node are spread evenly over the parts.
+   *
+   * @return the parts, or null if the bulk get should run on one client
+   */
+  private List<List<String>> splitKeys(Collection<String> keys) {
+    if (bulkFanOutKeys == 0 || poolSize < 2 || keys == null
+        || keys.size() < bulkFanOutKeys || new HashSet<>(keys).size() != keys.size()) {
+      return null;
+    }
+
+    NodeLocator locator = client[0].getMemcachedConnection().getLocator();
+    Map<MemcachedNode, List<String>> groups = new HashMap<>();
+    for (String key : keys) {
+      if (key == null) {
+        return null;
+      }
+      groups.computeIfAbsent(locator.getPrimary(key), n -> new ArrayList<>()).add(key);
+    }
+
+    List<List<String>> parts = new ArrayList<>(poolSize);
+    for (int i = 0; i < poolSize; i++) {
+      parts.add(new ArrayList<>());
+    }
+    int first = 0;
+    for (List<String> group : groups.values()) {
+      int size = group.size();
+      for (int i = 0; i < poolSize; i++) {
+        parts.get((first + i) % poolSize)
+            .addAll(group.subList(size * i / poolSize, size * (i + 1) / poolSize));
+      }
+      first++;
+    }
+    return parts;
+  }
+
+  /**
+   * Send each part of a bulk get by its own client.
+   * If a client fails to send its part, the parts already sent are cancelled.
+   */
+  private <F extends Future<?>> List<F> fanOut(List<List<String>> parts,
+                                               BiFunction<ArcusClient, List<String>, F> get) {
+    List<F> futures = new ArrayList<>(poolSize);
+    try {
+      for (int i = 0; i < poolSize; i++) {
+        if (!parts.get(i).isEmpty()) {
+          futures.add(get.apply(client[i], parts.get(i)));
+        }
+      }
+    } catch (RuntimeException e) {
+      for (F f : futures) {
+        f.cancel(true);
+      }
+      throw e;
+    }
+    return futures;
+  }
+
   public <T> AsyncArcusCommands<T> asyncCommands() {
     return new AsyncArcusCommands<>(this::getClient);
   }
 
+  /**
+   * @param completionExecutor executor that decodes and combines results,
+   *                           or {@link AsyncArcusCommands#DIRECT_COMPLETION}
+   */
+  public <T> AsyncArcusCommands<T> asyncCommands(Executor completionExecutor) {
+    return new AsyncArcusCommands<>(this::getClient, completionExecutor);
+  }
+
   @Override
   public void shutdown() {
     for (ArcusClient ac : client) {
@@ -298,12 +409,35 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
   @Override
   public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
                                                      Transcoder<T> tc) {
-    return this.getClient().asyncGetBulk(keys, tc);
+    List<List<String>> parts = splitKeys(keys);
+    if (parts == null) {
+      return this.getClient().asyncGetBulk(keys, tc);
+    }
+    return new MergedBulkFuture<>(fanOut(parts, (c, part) -> c.asyncGetBulk(part, tc)),
+        client[0].operationTimeout);
   }
 
   @Override
   public BulkFuture<Map<String, Object>> asyncGetBulk(Collection<String> keys) {
-    return this.getClient().asyncGetBulk(keys);
+    List<List<String>> parts = splitKeys(keys);
+    if (parts == null) {
+      return this.getClient().asyncGetBulk(keys);
+    }
+    return new MergedBulkFuture<>(fanOut(parts, (c, part) -> c.asyncGetBulk(part)),
+        client[0].operationTimeout);
+  }
+
+  @Override
+  public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
+                                                     Transcoder<T> tc,
+                                                     BulkGetListener<T> listener) {
+    return this.getClient().asyncGetBulk(keys, tc, listener);
+  }
+
+  @Override
+  public BulkFuture<Map<String, Object>> asyncGetBulk(Collection<String> keys,
+                                                      BulkGetListener<Object> listener) {
+    return this.getClient().asyncGetBulk(keys, listener);
   }
 
   @Deprecated
@@ -328,12 +462,22 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
   @Override
   public <T> BulkFuture<Map<String, CASValue<T>>> asyncGetsBulk(Collection<String> keys,
                                                                 Transcoder<T> tc) {
-    return this.getClient().asyncGetsBulk(keys, tc);
+    List<List<String>> parts = splitKeys(keys);
+    if (parts == null) {
+      return this.getClient().asyncGetsBulk(keys, tc);
+    }
+    return new MergedBulkFuture<>(fanOut(parts, (c, part) -> c.asyncGetsBulk(part, tc)),
+        client[0].operationTimeout);
   }
 
   @Override
   public BulkFuture<Map<String, CASValue<Object>>> asyncGetsBulk(Collection<String> keys) {
-    return this.getClient().asyncGetsBulk(keys);
+    List<List<String>> parts = splitKeys(keys);
+    if (parts == null) {
+      return this.getClient().asyncGetsBulk(keys);
+    }
+    return new MergedBulkFuture<>(fanOut(parts, (c, part) -> c.asyncGetsBulk(part)),
+        client[0].operationTimeout);
   }
 
   @Deprecated
@@ -1440,8 +1584,14 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
   public CollectionGetBulkFuture<Map<String, BTreeGetResult<ByteArrayBKey, Object>>>
       asyncBopGetBulk(List<String> keyList, byte[] from, byte[] to,
                       ElementFlagFilter eFlagFilter, int offset, int count) {
-    return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
-            offset, count);
+    List<List<String>> parts = splitKeys(keyList);
+    if (parts == null) {
+      return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
+              offset, count);
+    }
+    return new MergedCollectionGetBulkFuture<>(fanOut(parts,
+        (c, part) -> c.asyncBopGetBulk(part, from, to, eFlagFilter, offset, count)),
+        client[0].operationTimeout);
   }
 
   @Override
@@ -1449,16 +1599,28 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
           List<String> keyList, byte[] from, byte[] to,
           ElementFlagFilter eFlagFilter, int offset, int count,
           Transcoder<T> tc) {
-    return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
-            offset, count, tc);
+    List<List<String>> parts = splitKeys(keyList);
+    if (parts == null) {
+      return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
+              offset, count, tc);
+    }
+    return new MergedCollectionGetBulkFuture<>(fanOut(parts,
+        (c, part) -> c.asyncBopGetBulk(part, from, to, eFlagFilter, offset, count, tc)),
+        client[0].operationTimeout);
   }
 
   @Override
   public CollectionGetBulkFuture<Map<String, BTreeGetResult<Long, Object>>> asyncBopGetBulk(
           List<String> keyList, long from, long to,
           ElementFlagFilter eFlagFilter, int offset, int count) {
-    return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
-            offset, count);
+    List<List<String>> parts = splitKeys(keyList);
+    if (parts == null) {
+      return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
+              offset, count);
+    }
+    return new MergedCollectionGetBulkFuture<>(fanOut(parts,
+        (c, part) -> c.asyncBopGetBulk(part, from, to, eFlagFilter, offset, count)),
+        client[0].operationTimeout);
   }
 
   @Override
@@ -1466,8 +1628,14 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
           List<String> keyList, long from, long to,
           ElementFlagFilter eFlagFilter, int offset, int count,
           Transcoder<T> tc) {
-    return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
-            offset, count, tc);
+    List<List<String>> parts = splitKeys(keyList);
+    if (parts == null) {
+      return this.getClient().asyncBopGetBulk(keyList, from, to, eFlagFilter,
+              offset, count, tc);
+    }
+    return new MergedCollectionGetBulkFuture<>(fanOut(parts,
+        (c, part) -> c.asyncBopGetBulk(part, from, to, eFlagFilter, offset, count, tc)),
+        client[0].operationTimeout);
   }
 
   @Override
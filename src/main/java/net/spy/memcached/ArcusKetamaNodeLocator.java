@@ -57,7 +57,10 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
   private final HashAlgorithm hashAlg = HashAlgorithm.KETAMA_HASH;
   private final ArcusKetamaNodeLocatorConfiguration config;
 
+  /* guards every change of the hash ring, which may come from any IO loop */
   private final Lock lock = new ReentrantLock();
+  /* lock-free snapshot of ketamaNodes, republished on every change */
+  private volatile KetamaRing<MemcachedNode> ring;
   private final boolean enableShardKey;
 
   public ArcusKetamaNodeLocator(List<MemcachedNode> nodes) {
@@ -80,6 +83,7 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
 
     // ketamaNodes.size() < numReps*nodes.size() : hash collision
     assert ketamaNodes.size() <= numReps * nodes.size();
+    ring = KetamaRing.of(ketamaNodes);
 
     /* ENABLE_MIGRATION if */
     existNodes = new HashSet<>();
@@ -94,6 +98,7 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
                                  ArcusKetamaNodeLocatorConfiguration conf) {
     super();
     ketamaNodes = smn;
+    ring = KetamaRing.of(ketamaNodes);
     allNodes = an;
     config = conf;
     enableShardKey = conf.isShardKeyEnabled();
@@ -180,19 +185,7 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
   }
 
   MemcachedNode getNodeForKey(long hash) {
-    lock.lock();
-    try {
-      if (ketamaNodes.isEmpty()) {
-        return null;
-      }
-      Map.Entry<Long, SortedSet<MemcachedNode>> entry = ketamaNodes.ceilingEntry(hash);
-      if (entry == null) {
-        entry = ketamaNodes.firstEntry();
-      }
-      return entry.getValue().first();
-    } finally {
-      lock.unlock();
-    }
+    return ring.get(hash);
   }
 
   public Iterator<MemcachedNode> getSequence(String k) {
@@ -252,6 +245,7 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
         clearMigration();
       }
       /* ENABLE_MIGRATION end */
+      ring = KetamaRing.of(ketamaNodes);
       lock.unlock();
     }
   }
@@ -463,6 +457,7 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
         getLogger().info("Migration " + migrationType + " has been finished.");
         clearMigration();
       }
+      ring = KetamaRing.of(ketamaNodes);
       lock.unlock();
     }
   }
@@ -544,6 +539,7 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
       }
       migrationLastPoint = epoint;
     } finally {
+      ring = KetamaRing.of(ketamaNodes);
       lock.unlock();
     }
     getLogger().info("Applied JOIN range. spoint=" + spoint + ", epoint=" + epoint);
@@ -565,18 +561,24 @@ public final class ArcusKetamaNodeLocator extends SpyObject implements NodeLocat
       }
       migrationLastPoint = spoint;
     } finally {
+      ring = KetamaRing.of(ketamaNodes);
       lock.unlock();
     }
     getLogger().info("Applied LEAVE range. spoint=" + spoint + ", epoint=" + epoint);
   }
 
   public void updateMigration(Long spoint, Long epoint) {
-    if (migrationInProgress && needToMigrateRange(spoint, epoint)) {
-      if (migrationType == MigrationType.JOIN) {
-        migrateJoinHashRange(spoint, epoint);
-      } else {
-        migrateLeaveHashRange(spoint, epoint);
+    lock.lock();
+    try {
+      if (migrationInProgress && needToMigrateRange(spoint, epoint)) {
+        if (migrationType == MigrationType.JOIN) {
+          migrateJoinHashRange(spoint, epoint);
+        } else {
+          migrateLeaveHashRange(spoint, epoint);
+        }
       }
+    } finally {
+      lock.unlock();
     }
   }
   /* ENABLE_MIGRATION end */
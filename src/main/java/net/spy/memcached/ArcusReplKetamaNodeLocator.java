@@ -61,7 +61,10 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
   private final HashAlgorithm hashAlg = HashAlgorithm.KETAMA_HASH;
   private final ArcusReplKetamaNodeLocatorConfiguration config;
 
+  /* guards every change of the hash ring, which may come from any IO loop */
   private final Lock lock = new ReentrantLock();
+  /* lock-free snapshot of ketamaGroups, republished on every change */
+  private volatile KetamaRing<MemcachedReplicaGroup> ring;
   private final boolean enableShardKey;
 
   public ArcusReplKetamaNodeLocator(List<MemcachedNode> nodes,
@@ -93,6 +96,7 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
     }
     // ketamaNodes.size() < numReps*nodes.size() : hash collision
     assert ketamaGroups.size() <= (numReps * allGroups.size());
+    ring = KetamaRing.of(ketamaGroups);
 
     // prepare toDeleteGroups
     toDeleteGroups = new HashSet<>();
@@ -112,6 +116,7 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
                                      ArcusReplKetamaNodeLocatorConfiguration conf) {
     super();
     ketamaGroups = kg;
+    ring = KetamaRing.of(ketamaGroups);
     allGroups = ag;
     allNodes = an;
     toDeleteGroups = new HashSet<>();
@@ -188,23 +193,23 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
   }
 
   private MemcachedNode getNodeForKey(long hash, ReplicaPick pick) {
+    MemcachedReplicaGroup rg = ring.get(hash);
+    if (rg == null) {
+      return null;
+    }
+    if (pick == ReplicaPick.MASTER) {
+      return rg.getNodeByReplicaPick(pick);
+    }
+    // slave picks rotate the slave index of the group, which is not thread-safe.
     lock.lock();
     try {
-      if (ketamaGroups.isEmpty()) {
-        return null;
-      }
-      Map.Entry<Long, SortedSet<MemcachedReplicaGroup>> entry = ketamaGroups.ceilingEntry(hash);
-      if (entry == null) {
-        entry = ketamaGroups.firstEntry();
-      }
-      MemcachedReplicaGroup rg = entry.getValue().first();
-      // return a node (master / slave) for the replica pick request.
       return rg.getNodeByReplicaPick(pick);
     } finally {
       lock.unlock();
     }
   }
 
+
   public Iterator<MemcachedNode> getSequence(String k) {
     return new ReplKetamaIterator(k, ReplicaPick.MASTER, allGroups.size());
   }
@@ -295,6 +300,7 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
         clearMigration();
       }
       /* ENABLE_MIGRATION end */
+      ring = KetamaRing.of(ketamaGroups);
       lock.unlock();
     }
   }
@@ -601,6 +607,7 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
         getLogger().info("Migration " + migrationType + " has been finished.");
         clearMigration();
       }
+      ring = KetamaRing.of(ketamaGroups);
       lock.unlock();
     }
   }
@@ -699,6 +706,7 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
       }
       migrationLastPoint = epoint;
     } finally {
+      ring = KetamaRing.of(ketamaGroups);
       lock.unlock();
     }
     getLogger().info("Applied JOIN range. spoint=" + spoint + ", epoint=" + epoint);
@@ -720,18 +728,24 @@ public final class ArcusReplKetamaNodeLocator extends SpyObject implements NodeL
       }
       migrationLastPoint = spoint;
     } finally {
+      ring = KetamaRing.of(ketamaGroups);
       lock.unlock();
     }
     getLogger().info("Applied LEAVE range. spoint=" + spoint + ", epoint=" + epoint);
   }
 
   public void updateMigration(Long spoint, Long epoint) {
-    if (migrationInProgress && needToMigrateRange(spoint, epoint)) {
-      if (migrationType == MigrationType.JOIN) {
-        migrateJoinHashRange(spoint, epoint);
-      } else {
-        migrateLeaveHashRange(spoint, epoint);
+    lock.lock();
+    try {
+      if (migrationInProgress && needToMigrateRange(spoint, epoint)) {
+        if (migrationType == MigrationType.JOIN) {
+          migrateJoinHashRange(spoint, epoint);
+        } else {
+          migrateLeaveHashRange(spoint, epoint);
+        }
       }
+    } finally {
+      lock.unlock();
     }
   }
   /* ENABLE_MIGRATION end */
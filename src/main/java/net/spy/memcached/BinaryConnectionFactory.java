@@ -58,13 +58,20 @@ public class BinaryConnectionFactory extends DefaultConnectionFactory {
                                            SocketAddress sa,
                                            int bufSize) {
     boolean doAuth = false;
-    return new BinaryMemcachedNodeImpl(name,
+    BinaryMemcachedNodeImpl node = new BinaryMemcachedNodeImpl(name,
             sa, bufSize,
             createReadOperationQueue(),
             createWriteOperationQueue(),
             createOperationQueue(),
             getOpQueueMaxBlockTime(),
             doAuth);
+    if (useGatheringWrite()) {
+      node.setGatheringWrite(getMaxGatheringWriteBuffers(), getMaxGatheringWriteBytes());
+    }
+    if (getMaxReadBufSize() > bufSize) {
+      node.setElasticReadBuffer(DirectBufferPool.getShared(), getMaxReadBufSize());
+    }
+    return node;
   }
 
   @Override
@@ -0,0 +1,56 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.List;
+
+import net.spy.memcached.internal.result.GetResult;
+import net.spy.memcached.ops.OperationStatus;
+
+/**
+ * Listener of a bulk get, given the values of keys as they arrive
+ * instead of waiting for the whole result.
+ *
+ * <p>Methods are called on the IO thread, so they must not block.
+ * Values are decoded when {@link GetResult#getDecodedValue()} is called,
+ * which is better done on another thread for large values.</p>
+ *
+ * @param <T> the type of values
+ * @see MemcachedClient#asyncGetBulk(java.util.Collection, net.spy.memcached.transcoders.Transcoder,
+ *      BulkGetListener)
+ */
+public interface BulkGetListener<T> {
+
+  /**
+   * The value of a key has arrived. Keys not found are not given.
+   *
+   * @param key    the key
+   * @param result the value of the key, decoded on demand
+   */
+  void gotValue(String key, GetResult<T> result);
+
+  /**
+   * A group of keys requested from a node is answered, or has failed.
+   * Every key of the bulk get belongs to one completed group.
+   *
+   * @param node   the node the keys were requested from
+   * @param keys   the keys of the group
+   * @param status the status of the group
+   */
+  void nodeCompleted(MemcachedNode node, List<String> keys, OperationStatus status);
+}
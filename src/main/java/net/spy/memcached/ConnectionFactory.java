@@ -27,6 +27,7 @@ import java.util.concurrent.BlockingQueue;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.plugin.FrontCacheFactory;
 import net.spy.memcached.transcoders.Transcoder;
 
 /**
@@ -92,6 +93,12 @@ public interface ConnectionFactory {
    */
   long getOperationTimeout();
 
+  /**
+   * Get the time in milliseconds after which the client expires an
+   * operation that has not completed, or 0 if operations are not expired.
+   */
+  long getOperationDeadline();
+
   /**
    * If true, the IO thread should be a daemon thread.
    */
@@ -155,11 +162,148 @@ public interface ConnectionFactory {
    */
   boolean shouldOptimize();
 
+  /**
+   * If true, concurrent gets of the same key share one get operation.
+   */
+  boolean shouldCoalesceGets();
+
+  /**
+   * If true, latencies of operations are recorded per node and API type.
+   */
+  boolean isLatencyStatsEnabled();
+
+  /**
+   * Get the time in milliseconds after which a completed operation is logged
+   * as slow, or 0 if slow operations are not logged.
+   */
+  long getSlowOperationThreshold();
+
+  /**
+   * Get the maximum number of slow operations logged per second.
+   */
+  int getMaxSlowOperationLogsPerSecond();
+
+  /**
+   * If true, reads not answered in time are sent again to another node
+   * of the replica group.
+   */
+  boolean isHedgedReadEnabled();
+
+  /**
+   * Get the time in milliseconds after which a read is hedged,
+   * or 0 to hedge it after the 95th percentile latency of its node.
+   */
+  long getHedgedReadDelay();
+
+  /**
+   * Get the maximum ratio of hedged reads to reads.
+   */
+  double getHedgedReadBudget();
+
+  /**
+   * If true, operations are not sent to a node while its circuit breaker is open.
+   */
+  boolean isCircuitBreakerEnabled();
+
+  /**
+   * Get the percentage of timed out or slow operations that opens the circuit breaker.
+   */
+  int getCircuitBreakerFailureRate();
+
+  /**
+   * Get the latency in milliseconds from which an operation counts as failed
+   * by the circuit breaker, or 0 to use the operation timeout.
+   */
+  long getCircuitBreakerSlowCallThreshold();
+
+  /**
+   * Get the time in milliseconds a circuit breaker stays open before probing the node.
+   */
+  long getCircuitBreakerOpenDuration();
+
+  /**
+   * Get the number of operations a window of a circuit breaker needs
+   * before its failure rate opens the breaker.
+   */
+  int getCircuitBreakerMinimumCalls();
+
+  /**
+   * Get the number of continuous timeouts of a node that opens its circuit breaker.
+   */
+  int getCircuitBreakerContinuousTimeouts();
+
+  /**
+   * Get the maximum number of operations outstanding to a node, or 0 for no limit.
+   */
+  int getMaxOutstandingOpsPerNode();
+
+  /**
+   * Get the maximum number of operations outstanding to all nodes, or 0 for no limit.
+   */
+  int getMaxOutstandingOps();
+
+  /**
+   * Get the maximum number of request bytes outstanding to a node, or 0 for no limit.
+   */
+  long getMaxOutstandingBytesPerNode();
+
+  /**
+   * Get the maximum number of request bytes outstanding to all nodes, or 0 for no limit.
+   */
+  long getMaxOutstandingBytes();
+
+  /**
+   * If true, v2 async commands fail right away with {@link OperationQueueFullException}
+   * instead of waiting for room in the queue of a node.
+   */
+  boolean shouldFailFastOnFullQueue();
+
   /**
    * Get the read buffer size set at construct time.
    */
   int getReadBufSize();
 
+  /**
+   * Get the size up to which the read buffer of a connection grows while reads fill it,
+   * or 0 to keep the read buffer size. Elastic read buffers are taken from
+   * {@link DirectBufferPool#getShared()} and given back while no operation is read.
+   */
+  int getMaxReadBufSize();
+
+  /**
+   * If true, operation buffers are written to the socket with a gathering
+   * write instead of being copied into the node's write buffer first.
+   */
+  boolean useGatheringWrite();
+
+  /**
+   * Get the maximum number of operation buffers in one gathering write.
+   */
+  int getMaxGatheringWriteBuffers();
+
+  /**
+   * Get the number of pending bytes after which no more operation buffers
+   * are added to a gathering write.
+   */
+  int getMaxGatheringWriteBytes();
+
+  /**
+   * Get the number of IO loops, each of which owns a selector
+   * and handles IO over a shard of the memcached nodes.
+   */
+  int getIOLoopCount();
+
+  /**
+   * Get the IO loop group shared with other connections, or null if the
+   * connection runs its own IO loops.
+   */
+  IOLoopGroup getIOLoopGroup();
+
+  /**
+   * Get the number of connections to each memcached node.
+   */
+  int getConnectionsPerNode();
+
   /**
    * Get the hash algorithm to be used.
    */
@@ -197,6 +341,16 @@ public interface ConnectionFactory {
    */
   int getFrontCacheExpireTime();
 
+  /**
+   * get the maximum total data length of front cache elements, or 0 if unbounded.
+   */
+  long getMaxFrontCacheBytes();
+
+  /**
+   * get the factory of the front cache storage.
+   */
+  FrontCacheFactory getFrontCacheFactory();
+
   /**
    * get front cache name
    */
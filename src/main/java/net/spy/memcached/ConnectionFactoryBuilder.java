@@ -31,6 +31,9 @@ import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.plugin.EhcacheFrontCache;
+import net.spy.memcached.plugin.FrontCacheFactory;
+import net.spy.memcached.plugin.TinyLfuFrontCache;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
 import net.spy.memcached.transcoders.Transcoder;
@@ -58,8 +61,31 @@ public class ConnectionFactoryBuilder {
 
   private Locator locator = Locator.ARCUSCONSISTENT;
   private long opTimeout = -1;
+  private long opDeadline = DefaultConnectionFactory.DEFAULT_OPERATION_DEADLINE;
   private boolean isDaemon = true;
   private boolean shouldOptimize = false;
+  private boolean coalesceGets = false;
+  private boolean latencyStats = false;
+  private long slowOpThreshold = DefaultConnectionFactory.DEFAULT_SLOW_OPERATION_THRESHOLD;
+  private int maxSlowOpLogsPerSecond =
+          DefaultConnectionFactory.DEFAULT_MAX_SLOW_OPERATION_LOGS_PER_SECOND;
+  private boolean hedgedRead = false;
+  private long hedgedReadDelay = DefaultConnectionFactory.DEFAULT_HEDGED_READ_DELAY;
+  private double hedgedReadBudget = DefaultConnectionFactory.DEFAULT_HEDGED_READ_BUDGET;
+  private boolean circuitBreaker = false;
+  private int breakerFailureRate = DefaultConnectionFactory.DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE;
+  private long breakerSlowCallThreshold =
+          DefaultConnectionFactory.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD;
+  private long breakerOpenDuration = DefaultConnectionFactory.DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+  private int breakerMinimumCalls = DefaultConnectionFactory.DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS;
+  private int breakerContinuousTimeouts =
+          DefaultConnectionFactory.DEFAULT_CIRCUIT_BREAKER_CONTINUOUS_TIMEOUTS;
+  private int maxOutstandingOpsPerNode = DefaultConnectionFactory.DEFAULT_MAX_OUTSTANDING_OPS;
+  private int maxOutstandingOps = DefaultConnectionFactory.DEFAULT_MAX_OUTSTANDING_OPS;
+  private long maxOutstandingBytesPerNode =
+          DefaultConnectionFactory.DEFAULT_MAX_OUTSTANDING_BYTES;
+  private long maxOutstandingBytes = DefaultConnectionFactory.DEFAULT_MAX_OUTSTANDING_BYTES;
+  private boolean failFastOnFullQueue = DefaultConnectionFactory.DEFAULT_FAIL_FAST_ON_FULL_QUEUE;
   private boolean useNagle = false;
   private boolean keepAlive = false;
   private boolean dnsCacheTtlCheck = true;
@@ -67,6 +93,17 @@ public class ConnectionFactoryBuilder {
   private long maxReconnectDelay = 1;
 
   private int readBufSize = -1;
+  private int maxReadBufSize = DefaultConnectionFactory.DEFAULT_MAX_READ_BUFFER_SIZE;
+  private boolean gatheringWrite = false;
+  private int maxGatheringWriteBuffers =
+          DefaultConnectionFactory.DEFAULT_MAX_GATHERING_WRITE_BUFFERS;
+  private int maxGatheringWriteBytes =
+          DefaultConnectionFactory.DEFAULT_MAX_GATHERING_WRITE_BYTES;
+  private int ioLoopCount = DefaultConnectionFactory.DEFAULT_IO_LOOP_COUNT;
+  private IOLoopGroup ioLoopGroup = DefaultConnectionFactory.DEFAULT_IO_LOOP_GROUP;
+  private int connectionsPerNode = DefaultConnectionFactory.DEFAULT_CONNECTIONS_PER_NODE;
+  private int poolBulkFanOutKeys = 0;
+  private ClientPick poolClientPick = ClientPick.RANDOM;
   private HashAlgorithm hashAlg = HashAlgorithm.KETAMA_HASH;
   private AuthDescriptor authDescriptor = null;
   private long opQueueMaxBlockTime = -1;
@@ -76,6 +113,9 @@ public class ConnectionFactoryBuilder {
 
   private int maxFrontCacheElements = DefaultConnectionFactory.DEFAULT_MAX_FRONTCACHE_ELEMENTS;
   private int frontCacheExpireTime = DefaultConnectionFactory.DEFAULT_FRONTCACHE_EXPIRETIME;
+  private long maxFrontCacheBytes = DefaultConnectionFactory.DEFAULT_MAX_FRONTCACHE_BYTES;
+  private FrontCacheFactory frontCacheFactory =
+      DefaultConnectionFactory.DEFAULT_FRONT_CACHE_FACTORY;
   private String frontCacheName;
 
   private byte delimiter = DefaultConnectionFactory.DEFAULT_DELIMITER;
@@ -241,6 +281,20 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the operation deadline in milliseconds, 0 to disable it.
+   * An operation not completed within the deadline is expired by a timer
+   * of the client and completed with a timeout, even if no one waits on it.
+   */
+  public ConnectionFactoryBuilder setOpDeadline(long t) {
+    if (t < 0) {
+      throw new IllegalArgumentException("Operation deadline must not be negative.");
+    }
+
+    opDeadline = t;
+    return this;
+  }
+
   /**
    * Set the daemon state of the IO thread (defaults to true).
    */
@@ -257,6 +311,189 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set to true to coalesce concurrent gets of the same key (defaults to false).
+   * A get of a key whose get is in flight attaches to the pending get
+   * and receives its result instead of sending its own get. Cancelling one of
+   * the coalesced gets cancels the pending get only if no other get waits for it.
+   */
+  public ConnectionFactoryBuilder setCoalesceGets(boolean c) {
+    coalesceGets = c;
+    return this;
+  }
+
+  /**
+   * Set to true to record latencies of operations per node and API type
+   * (defaults to false). Recording costs a clock read and an atomic increment
+   * per operation.
+   */
+  public ConnectionFactoryBuilder setLatencyStats(boolean enable) {
+    latencyStats = enable;
+    return this;
+  }
+
+  /**
+   * Set the time in milliseconds after which a completed operation is logged
+   * with the time spent in each step of its lifecycle, 0 to disable it.
+   */
+  public ConnectionFactoryBuilder setSlowOpThreshold(long t) {
+    if (t < 0) {
+      throw new IllegalArgumentException("Slow operation threshold must not be negative.");
+    }
+
+    slowOpThreshold = t;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of slow operations logged per second (defaults to 10).
+   */
+  public ConnectionFactoryBuilder setMaxSlowOpLogsPerSecond(int count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Slow operation log rate must be positive.");
+    }
+
+    maxSlowOpLogsPerSecond = count;
+    return this;
+  }
+
+  /**
+   * Set to true to send a read not answered in time again to another node
+   * of its replica group, and take the first answer (defaults to false).
+   * Applies to get, gets, bulk get and collection get of replicated clusters.
+   */
+  public ConnectionFactoryBuilder setHedgedRead(boolean enable) {
+    hedgedRead = enable;
+    return this;
+  }
+
+  /**
+   * Set the time in milliseconds after which a read is hedged,
+   * 0 to hedge it after the 95th percentile latency of its node (defaults to 0).
+   */
+  public ConnectionFactoryBuilder setHedgedReadDelay(long delay) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("Hedged read delay must not be negative.");
+    }
+
+    hedgedReadDelay = delay;
+    return this;
+  }
+
+  /**
+   * Set the maximum ratio of hedged reads to reads (defaults to 0.05).
+   */
+  public ConnectionFactoryBuilder setHedgedReadBudget(double ratio) {
+    if (!(ratio > 0 && ratio <= 1)) {
+      throw new IllegalArgumentException("Hedged read budget must be in (0, 1].");
+    }
+
+    hedgedReadBudget = ratio;
+    return this;
+  }
+
+  /**
+   * Set to true to stop sending operations to a node that times out or answers slowly
+   * (defaults to false). Operations for the node are redistributed to other nodes
+   * with FailureMode.Redistribute, and cancelled otherwise.
+   */
+  public ConnectionFactoryBuilder setCircuitBreaker(boolean enable) {
+    circuitBreaker = enable;
+    return this;
+  }
+
+  /**
+   * Set the percentage of failed operations that opens a circuit breaker (defaults to 50),
+   * and the latency in milliseconds from which an operation fails
+   * (defaults to 0, the operation timeout).
+   */
+  public ConnectionFactoryBuilder setCircuitBreakerThresholds(int failureRate,
+                                                              long slowCallThreshold) {
+    if (failureRate <= 0 || failureRate > 100) {
+      throw new IllegalArgumentException("Failure rate must be in (0, 100].");
+    }
+    if (slowCallThreshold < 0) {
+      throw new IllegalArgumentException("Slow call threshold must not be negative.");
+    }
+
+    breakerFailureRate = failureRate;
+    breakerSlowCallThreshold = slowCallThreshold;
+    return this;
+  }
+
+  /**
+   * Set the time in milliseconds a circuit breaker stays open
+   * before probing the node (defaults to 5000).
+   */
+  public ConnectionFactoryBuilder setCircuitBreakerOpenDuration(long duration) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("Open duration must be positive.");
+    }
+
+    breakerOpenDuration = duration;
+    return this;
+  }
+
+  /**
+   * Set the number of operations a window of a circuit breaker needs before
+   * its failure rate opens the breaker (defaults to 20), and the number of
+   * continuous timeouts of a node that opens its breaker (defaults to 20).
+   */
+  public ConnectionFactoryBuilder setCircuitBreakerCallThresholds(int minimumCalls,
+                                                                  int continuousTimeouts) {
+    if (minimumCalls <= 0) {
+      throw new IllegalArgumentException("Minimum calls must be positive.");
+    }
+    if (continuousTimeouts <= 0) {
+      throw new IllegalArgumentException("Continuous timeouts must be positive.");
+    }
+
+    breakerMinimumCalls = minimumCalls;
+    breakerContinuousTimeouts = continuousTimeouts;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of operations outstanding to a node and to all nodes
+   * (defaults to 0, no limit). An operation is outstanding from the time it is added
+   * until it completes. Operations over the limit wait for the op queue max block time
+   * and then fail with {@link OperationQueueFullException}.
+   */
+  public ConnectionFactoryBuilder setMaxOutstandingOps(int perNode, int perClient) {
+    if (perNode < 0 || perClient < 0) {
+      throw new IllegalArgumentException("Max outstanding ops must not be negative.");
+    }
+
+    maxOutstandingOpsPerNode = perNode;
+    maxOutstandingOps = perClient;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of request bytes outstanding to a node and to all nodes
+   * (defaults to 0, no limit). Operations over the limit wait for the op queue max
+   * block time and then fail with {@link OperationQueueFullException}.
+   */
+  public ConnectionFactoryBuilder setMaxOutstandingBytes(long perNode, long perClient) {
+    if (perNode < 0 || perClient < 0) {
+      throw new IllegalArgumentException("Max outstanding bytes must not be negative.");
+    }
+
+    maxOutstandingBytesPerNode = perNode;
+    maxOutstandingBytes = perClient;
+    return this;
+  }
+
+  /**
+   * Set whether v2 async commands fail right away with {@link OperationQueueFullException}
+   * when the queue of a node is full or an outstanding limit is reached (defaults to false).
+   * If false, they wait for the op queue max block time like the other commands.
+   */
+  public ConnectionFactoryBuilder setFailFastOnFullQueue(boolean failFast) {
+    failFastOnFullQueue = failFast;
+    return this;
+  }
+
   /**
    * Set the read buffer size.
    */
@@ -269,6 +506,121 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the size up to which the read buffer of a connection grows while large
+   * responses are read (defaults to 0, a fixed read buffer). Elastic read buffers are
+   * taken from a direct buffer pool shared by all clients and given back to it
+   * while the connection has no response to read.
+   */
+  public ConnectionFactoryBuilder setMaxReadBufferSize(int to) {
+    if (to < 0) {
+      throw new IllegalArgumentException("Max read buffer size must not be negative.");
+    }
+
+    maxReadBufSize = to;
+    return this;
+  }
+
+  /**
+   * Set to true if operation buffers should be written to the socket
+   * with a gathering write instead of being copied into the write buffer.
+   */
+  public ConnectionFactoryBuilder setGatheringWrite(boolean to) {
+    gatheringWrite = to;
+    return this;
+  }
+
+  /**
+   * Set the limits of one gathering write: the maximum number of operation
+   * buffers and the number of bytes after which no more buffers are added.
+   */
+  public ConnectionFactoryBuilder setGatheringWriteLimits(int maxBuffers, int maxBytes) {
+    if (maxBuffers <= 0 || maxBytes <= 0) {
+      throw new IllegalArgumentException("Gathering write limits must be positive.");
+    }
+
+    maxGatheringWriteBuffers = maxBuffers;
+    maxGatheringWriteBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * Set the number of IO loops. Each loop owns a selector and handles
+   * IO over a shard of the memcached nodes in its own thread.
+   */
+  public ConnectionFactoryBuilder setIOLoopCount(int count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("IO loop count must be positive.");
+    }
+
+    ioLoopCount = count;
+    return this;
+  }
+
+  /**
+   * Set the IO loop group whose threads handle the IO of the connection.
+   * A group can be set to the builders of many clients, so that their memcached
+   * nodes are handled by a fixed set of threads and selectors. The IO loop count
+   * and the IO thread of each client are not used with a group.
+   */
+  public ConnectionFactoryBuilder setIOLoopGroup(IOLoopGroup group) {
+    if (group == null) {
+      throw new IllegalArgumentException("IO loop group must not be null.");
+    }
+
+    ioLoopGroup = group;
+    return this;
+  }
+
+  /**
+   * Set the number of connections to each memcached node.
+   * Operations on a single key are sent over the connection picked by the key,
+   * and the others are spread over the connections in round-robin order.
+   */
+  public ConnectionFactoryBuilder setConnectionsPerNode(int count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Connections per node must be positive.");
+    }
+
+    connectionsPerNode = count;
+    return this;
+  }
+
+  /**
+   * Set the number of keys from which a bulk get of an ArcusClientPool is split
+   * by node across all clients of the pool and run in parallel
+   * (defaults to 0, a bulk get runs on one client).
+   */
+  public ConnectionFactoryBuilder setPoolBulkFanOutKeys(int keys) {
+    if (keys < 0) {
+      throw new IllegalArgumentException("Pool bulk fan out keys must not be negative.");
+    }
+
+    poolBulkFanOutKeys = keys;
+    return this;
+  }
+
+  public int getPoolBulkFanOutKeys() {
+    return poolBulkFanOutKeys;
+  }
+
+  /**
+   * Set how an ArcusClientPool picks the client of a request (defaults to RANDOM).
+   * LEAST_LOADED counts the outstanding operations of each client to compare them.
+   */
+  public ConnectionFactoryBuilder setPoolClientPick(ClientPick pick) {
+    if (pick == null) {
+      throw new IllegalArgumentException("Pool client pick must not be null.");
+    }
+
+    poolClientPick = pick;
+    return this;
+  }
+
+  public ClientPick getPoolClientPick() {
+    return poolClientPick;
+  }
+
   /**
    * Set the hash algorithm.
    */
@@ -402,6 +754,34 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the maximum total data length of front cache elements in bytes.
+   * Elements are weighed by the length of their data when it is positive.
+   * Should not be negative number, and 0 means unbounded.
+   */
+  public ConnectionFactoryBuilder setMaxFrontCacheBytes(long to) {
+    if (to < 0) {
+      throw new IllegalArgumentException("Max bytes of front cache must not be negative.");
+    }
+
+    maxFrontCacheBytes = to;
+    return this;
+  }
+
+  /**
+   * Set the factory of the front cache storage.
+   * The default is {@link TinyLfuFrontCache#FACTORY},
+   * and {@link EhcacheFrontCache#FACTORY} uses ehcache instead.
+   */
+  public ConnectionFactoryBuilder setFrontCacheFactory(FrontCacheFactory factory) {
+    if (factory == null) {
+      throw new IllegalArgumentException("Front cache factory must not be null.");
+    }
+
+    frontCacheFactory = factory;
+    return this;
+  }
+
   /**
    * Set front cache copyOnRead property
    */
@@ -610,12 +990,52 @@ public class ConnectionFactoryBuilder {
                 super.getOperationTimeout() : opTimeout;
       }
 
+      @Override
+      public long getOperationDeadline() {
+        return opDeadline;
+      }
+
       @Override
       public int getReadBufSize() {
         return readBufSize == -1 ?
                 super.getReadBufSize() : readBufSize;
       }
 
+      @Override
+      public int getMaxReadBufSize() {
+        return maxReadBufSize;
+      }
+
+      @Override
+      public boolean useGatheringWrite() {
+        return gatheringWrite;
+      }
+
+      @Override
+      public int getMaxGatheringWriteBuffers() {
+        return maxGatheringWriteBuffers;
+      }
+
+      @Override
+      public int getMaxGatheringWriteBytes() {
+        return maxGatheringWriteBytes;
+      }
+
+      @Override
+      public int getIOLoopCount() {
+        return ioLoopCount;
+      }
+
+      @Override
+      public IOLoopGroup getIOLoopGroup() {
+        return ioLoopGroup;
+      }
+
+      @Override
+      public int getConnectionsPerNode() {
+        return connectionsPerNode;
+      }
+
       @Override
       public boolean isDaemon() {
         return isDaemon;
@@ -626,6 +1046,96 @@ public class ConnectionFactoryBuilder {
         return shouldOptimize;
       }
 
+      @Override
+      public boolean shouldCoalesceGets() {
+        return coalesceGets;
+      }
+
+      @Override
+      public boolean isLatencyStatsEnabled() {
+        return latencyStats;
+      }
+
+      @Override
+      public long getSlowOperationThreshold() {
+        return slowOpThreshold;
+      }
+
+      @Override
+      public int getMaxSlowOperationLogsPerSecond() {
+        return maxSlowOpLogsPerSecond;
+      }
+
+      @Override
+      public boolean isHedgedReadEnabled() {
+        return hedgedRead;
+      }
+
+      @Override
+      public long getHedgedReadDelay() {
+        return hedgedReadDelay;
+      }
+
+      @Override
+      public double getHedgedReadBudget() {
+        return hedgedReadBudget;
+      }
+
+      @Override
+      public boolean isCircuitBreakerEnabled() {
+        return circuitBreaker;
+      }
+
+      @Override
+      public int getCircuitBreakerFailureRate() {
+        return breakerFailureRate;
+      }
+
+      @Override
+      public long getCircuitBreakerSlowCallThreshold() {
+        return breakerSlowCallThreshold;
+      }
+
+      @Override
+      public long getCircuitBreakerOpenDuration() {
+        return breakerOpenDuration;
+      }
+
+      @Override
+      public int getCircuitBreakerMinimumCalls() {
+        return breakerMinimumCalls;
+      }
+
+      @Override
+      public int getCircuitBreakerContinuousTimeouts() {
+        return breakerContinuousTimeouts;
+      }
+
+      @Override
+      public int getMaxOutstandingOpsPerNode() {
+        return maxOutstandingOpsPerNode;
+      }
+
+      @Override
+      public int getMaxOutstandingOps() {
+        return maxOutstandingOps;
+      }
+
+      @Override
+      public long getMaxOutstandingBytesPerNode() {
+        return maxOutstandingBytesPerNode;
+      }
+
+      @Override
+      public long getMaxOutstandingBytes() {
+        return maxOutstandingBytes;
+      }
+
+      @Override
+      public boolean shouldFailFastOnFullQueue() {
+        return failFastOnFullQueue;
+      }
+
       @Override
       public boolean useNagleAlgorithm() {
         return useNagle;
@@ -682,6 +1192,16 @@ public class ConnectionFactoryBuilder {
         return frontCacheExpireTime;
       }
 
+      @Override
+      public long getMaxFrontCacheBytes() {
+        return maxFrontCacheBytes;
+      }
+
+      @Override
+      public FrontCacheFactory getFrontCacheFactory() {
+        return frontCacheFactory;
+      }
+
       @Override
       public String getFrontCacheName() {
         if (frontCacheName == null) {
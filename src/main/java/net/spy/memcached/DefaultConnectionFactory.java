@@ -36,6 +36,9 @@ import net.spy.memcached.auth.ScramSaslClientProvider;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.plugin.FrontCacheFactory;
+import net.spy.memcached.plugin.TinyLfuFrontCache;
+import net.spy.memcached.protocol.TCPMemcachedNodeImpl;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryMemcachedNodeImpl;
@@ -89,6 +92,38 @@ public class DefaultConnectionFactory extends SpyObject
    */
   public static final int DEFAULT_READ_BUFFER_SIZE = 16384;
 
+  /**
+   * Default maximum size of an elastic read buffer.
+   * Read buffers are fixed unless it is set.
+   */
+  public static final int DEFAULT_MAX_READ_BUFFER_SIZE = 0;
+
+  /**
+   * The maximum number of operation buffers written by one gathering write.
+   */
+  public static final int DEFAULT_MAX_GATHERING_WRITE_BUFFERS = 64;
+
+  /**
+   * The number of pending bytes after which no more operation buffers
+   * are added to a gathering write.
+   */
+  public static final int DEFAULT_MAX_GATHERING_WRITE_BYTES = 256 * 1024;
+
+  /**
+   * The number of IO loops handling the memcached nodes.
+   */
+  public static final int DEFAULT_IO_LOOP_COUNT = 1;
+
+  /**
+   * The IO loop group shared with other connections (none).
+   */
+  public static final IOLoopGroup DEFAULT_IO_LOOP_GROUP = null;
+
+  /**
+   * The number of connections to each memcached node.
+   */
+  public static final int DEFAULT_CONNECTIONS_PER_NODE = 1;
+
   /**
    * Default operation timeout in milliseconds.
    *
@@ -98,6 +133,78 @@ public class DefaultConnectionFactory extends SpyObject
    */
   public static final long DEFAULT_OPERATION_TIMEOUT = 700L;
 
+  /**
+   * Default operation deadline in milliseconds.
+   * Operations are not expired by the client unless it is set.
+   */
+  public static final long DEFAULT_OPERATION_DEADLINE = 0L;
+
+  /**
+   * Default threshold in milliseconds of slow operations.
+   * Slow operations are not logged unless it is set.
+   */
+  public static final long DEFAULT_SLOW_OPERATION_THRESHOLD = 0L;
+
+  /**
+   * Default maximum number of slow operations logged per second.
+   */
+  public static final int DEFAULT_MAX_SLOW_OPERATION_LOGS_PER_SECOND = 10;
+
+  /**
+   * Default delay in milliseconds of hedged reads.
+   * Reads are hedged after the 95th percentile latency of their node unless it is set.
+   */
+  public static final long DEFAULT_HEDGED_READ_DELAY = 0L;
+
+  /**
+   * Default maximum ratio of hedged reads to reads.
+   */
+  public static final double DEFAULT_HEDGED_READ_BUDGET = 0.05;
+
+  /**
+   * Default percentage of failed operations that opens a circuit breaker.
+   */
+  public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE = 50;
+
+  /**
+   * Default latency in milliseconds of failed operations of a circuit breaker.
+   * The operation timeout is used unless it is set.
+   */
+  public static final long DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD = 0L;
+
+  /**
+   * Default time in milliseconds a circuit breaker stays open.
+   */
+  public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = 5000L;
+
+  /**
+   * Default number of operations a window of a circuit breaker needs
+   * before its failure rate counts.
+   */
+  public static final int DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS = 20;
+
+  /**
+   * Default number of continuous timeouts that opens a circuit breaker.
+   */
+  public static final int DEFAULT_CIRCUIT_BREAKER_CONTINUOUS_TIMEOUTS = 20;
+
+  /**
+   * Default maximum number of outstanding operations of a node or a client.
+   * Operations are limited only by the operation queue length unless it is set.
+   */
+  public static final int DEFAULT_MAX_OUTSTANDING_OPS = 0;
+
+  /**
+   * Default maximum number of outstanding request bytes of a node or a client.
+   */
+  public static final long DEFAULT_MAX_OUTSTANDING_BYTES = 0L;
+
+  /**
+   * Default for failing v2 async commands fast when the queue of a node is full.
+   * They wait for room like the other commands unless it is set.
+   */
+  public static final boolean DEFAULT_FAIL_FAST_ON_FULL_QUEUE = false;
+
   /**
    * Maximum amount of time (in seconds) to wait between reconnect attempts.
    */
@@ -123,6 +230,16 @@ public class DefaultConnectionFactory extends SpyObject
    */
   public static final int DEFAULT_FRONTCACHE_EXPIRETIME = 5;
 
+  /**
+   * Maximum total data length of front cache elements. 0 means unbounded.
+   */
+  public static final long DEFAULT_MAX_FRONTCACHE_BYTES = 0L;
+
+  /**
+   * Default front cache storage : W-TinyLFU cache
+   */
+  public static final FrontCacheFactory DEFAULT_FRONT_CACHE_FACTORY = TinyLfuFrontCache.FACTORY;
+
   /**
    * Default front cache name
    */
@@ -208,8 +325,9 @@ public class DefaultConnectionFactory extends SpyObject
       }
     }
 
+    TCPMemcachedNodeImpl node;
     if (of instanceof AsciiOperationFactory) {
-      return new AsciiMemcachedNodeImpl(name,
+      node = new AsciiMemcachedNodeImpl(name,
               sa, bufSize,
               createReadOperationQueue(),
               createWriteOperationQueue(),
@@ -217,7 +335,7 @@ public class DefaultConnectionFactory extends SpyObject
               getOpQueueMaxBlockTime(),
               doAuth);
     } else if (of instanceof BinaryOperationFactory) {
-      return new BinaryMemcachedNodeImpl(name,
+      node = new BinaryMemcachedNodeImpl(name,
               sa, bufSize,
               createReadOperationQueue(),
               createWriteOperationQueue(),
@@ -228,6 +346,13 @@ public class DefaultConnectionFactory extends SpyObject
       throw new IllegalStateException(
               "Unhandled operation factory type " + of);
     }
+    if (useGatheringWrite()) {
+      node.setGatheringWrite(getMaxGatheringWriteBuffers(), getMaxGatheringWriteBytes());
+    }
+    if (getMaxReadBufSize() > bufSize) {
+      node.setElasticReadBuffer(DirectBufferPool.getShared(), getMaxReadBufSize());
+    }
+    return node;
   }
 
   public MemcachedConnection createConnection(String name,
@@ -276,10 +401,38 @@ public class DefaultConnectionFactory extends SpyObject
     return readBufSize;
   }
 
+  public int getMaxReadBufSize() {
+    return DEFAULT_MAX_READ_BUFFER_SIZE;
+  }
+
   public HashAlgorithm getHashAlg() {
     return hashAlg;
   }
 
+  public boolean useGatheringWrite() {
+    return false;
+  }
+
+  public int getMaxGatheringWriteBuffers() {
+    return DEFAULT_MAX_GATHERING_WRITE_BUFFERS;
+  }
+
+  public int getMaxGatheringWriteBytes() {
+    return DEFAULT_MAX_GATHERING_WRITE_BYTES;
+  }
+
+  public int getIOLoopCount() {
+    return DEFAULT_IO_LOOP_COUNT;
+  }
+
+  public IOLoopGroup getIOLoopGroup() {
+    return DEFAULT_IO_LOOP_GROUP;
+  }
+
+  public int getConnectionsPerNode() {
+    return DEFAULT_CONNECTIONS_PER_NODE;
+  }
+
   public OperationFactory getOperationFactory() {
     return new AsciiOperationFactory();
   }
@@ -288,6 +441,10 @@ public class DefaultConnectionFactory extends SpyObject
     return DEFAULT_OPERATION_TIMEOUT;
   }
 
+  public long getOperationDeadline() {
+    return DEFAULT_OPERATION_DEADLINE;
+  }
+
   public boolean isDaemon() {
     return false;
   }
@@ -326,6 +483,78 @@ public class DefaultConnectionFactory extends SpyObject
     return false;
   }
 
+  public boolean shouldCoalesceGets() {
+    return false;
+  }
+
+  public boolean isLatencyStatsEnabled() {
+    return false;
+  }
+
+  public long getSlowOperationThreshold() {
+    return DEFAULT_SLOW_OPERATION_THRESHOLD;
+  }
+
+  public int getMaxSlowOperationLogsPerSecond() {
+    return DEFAULT_MAX_SLOW_OPERATION_LOGS_PER_SECOND;
+  }
+
+  public boolean isHedgedReadEnabled() {
+    return false;
+  }
+
+  public long getHedgedReadDelay() {
+    return DEFAULT_HEDGED_READ_DELAY;
+  }
+
+  public double getHedgedReadBudget() {
+    return DEFAULT_HEDGED_READ_BUDGET;
+  }
+
+  public boolean isCircuitBreakerEnabled() {
+    return false;
+  }
+
+  public int getCircuitBreakerFailureRate() {
+    return DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE;
+  }
+
+  public long getCircuitBreakerSlowCallThreshold() {
+    return DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD;
+  }
+
+  public long getCircuitBreakerOpenDuration() {
+    return DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+  }
+
+  public int getCircuitBreakerMinimumCalls() {
+    return DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS;
+  }
+
+  public int getCircuitBreakerContinuousTimeouts() {
+    return DEFAULT_CIRCUIT_BREAKER_CONTINUOUS_TIMEOUTS;
+  }
+
+  public int getMaxOutstandingOpsPerNode() {
+    return DEFAULT_MAX_OUTSTANDING_OPS;
+  }
+
+  public int getMaxOutstandingOps() {
+    return DEFAULT_MAX_OUTSTANDING_OPS;
+  }
+
+  public long getMaxOutstandingBytesPerNode() {
+    return DEFAULT_MAX_OUTSTANDING_BYTES;
+  }
+
+  public long getMaxOutstandingBytes() {
+    return DEFAULT_MAX_OUTSTANDING_BYTES;
+  }
+
+  public boolean shouldFailFastOnFullQueue() {
+    return DEFAULT_FAIL_FAST_ON_FULL_QUEUE;
+  }
+
   public long getMaxReconnectDelay() {
     return DEFAULT_MAX_RECONNECT_DELAY;
   }
@@ -350,6 +579,14 @@ public class DefaultConnectionFactory extends SpyObject
     return DEFAULT_FRONTCACHE_EXPIRETIME;
   }
 
+  public long getMaxFrontCacheBytes() {
+    return DEFAULT_MAX_FRONTCACHE_BYTES;
+  }
+
+  public FrontCacheFactory getFrontCacheFactory() {
+    return DEFAULT_FRONT_CACHE_FACTORY;
+  }
+
   @Override
   public String getFrontCacheName() {
     return DEFAULT_FRONT_CACHE_NAME;
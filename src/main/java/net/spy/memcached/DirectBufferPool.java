@@ -0,0 +1,149 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers in power of two size classes.
+ *
+ * <p>Buffers are acquired with a capacity rounded up to their size class
+ * and released back to be reused. Released buffers are kept only up to a
+ * maximum number of bytes, the others are left to the garbage collector.
+ * Buffers larger than the largest size class are not pooled.</p>
+ */
+public final class DirectBufferPool {
+
+  private static final int MIN_SIZE_SHIFT = 12;
+  private static final int MAX_SIZE_SHIFT = 24;
+  private static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+  private static final DirectBufferPool SHARED =
+      new DirectBufferPool(MAX_SIZE_SHIFT, DEFAULT_MAX_POOLED_BYTES);
+
+  private final int maxSizeShift;
+  private final long maxPooledBytes;
+  private final List<Queue<ByteBuffer>> free;
+  private final AtomicLong pooledBytes = new AtomicLong();
+  private final AtomicLong borrowedBytes = new AtomicLong();
+  private final AtomicLong acquireCount = new AtomicLong();
+  private final AtomicLong allocateCount = new AtomicLong();
+
+  /**
+   * @param maxSizeShift   the largest size class is {@code 1 << maxSizeShift} bytes
+   * @param maxPooledBytes the maximum number of bytes of buffers kept for reuse
+   */
+  DirectBufferPool(int maxSizeShift, long maxPooledBytes) {
+    this.maxSizeShift = maxSizeShift;
+    this.maxPooledBytes = maxPooledBytes;
+    free = new ArrayList<>(maxSizeShift + 1);
+    for (int i = 0; i <= maxSizeShift; i++) {
+      free.add(new ConcurrentLinkedQueue<>());
+    }
+  }
+
+  /**
+   * Get the pool shared by all clients.
+   */
+  public static DirectBufferPool getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Acquire a cleared buffer of at least the given size.
+   */
+  public ByteBuffer acquire(int size) {
+    acquireCount.incrementAndGet();
+    int shift = sizeShiftOf(size);
+    ByteBuffer buf = null;
+    if (shift <= maxSizeShift) {
+      buf = free.get(shift).poll();
+    }
+    if (buf == null) {
+      allocateCount.incrementAndGet();
+      buf = ByteBuffer.allocateDirect(shift <= maxSizeShift ? 1 << shift : size);
+    } else {
+      pooledBytes.addAndGet(-buf.capacity());
+      ((Buffer) buf).clear();
+    }
+    borrowedBytes.addAndGet(buf.capacity());
+    return buf;
+  }
+
+  /**
+   * Release a buffer acquired from this pool.
+   */
+  public void release(ByteBuffer buf) {
+    borrowedBytes.addAndGet(-buf.capacity());
+    give(buf);
+  }
+
+  /**
+   * Give a buffer not acquired from this pool, to be reused if it fits a size class.
+   */
+  public void give(ByteBuffer buf) {
+    int capacity = buf.capacity();
+    int shift = sizeShiftOf(capacity);
+    if (!buf.isDirect() || shift > maxSizeShift || 1 << shift != capacity) {
+      return;
+    }
+    if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+      pooledBytes.addAndGet(-capacity);
+      return;
+    }
+    free.get(shift).offer(buf);
+  }
+
+  private static int sizeShiftOf(int size) {
+    return Math.max(MIN_SIZE_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+  }
+
+  /**
+   * Get the number of bytes of buffers kept for reuse.
+   */
+  public long getPooledBytes() {
+    return pooledBytes.get();
+  }
+
+  /**
+   * Get the number of bytes of buffers acquired and not released yet.
+   */
+  public long getBorrowedBytes() {
+    return borrowedBytes.get();
+  }
+
+  /**
+   * Get the number of buffers acquired.
+   */
+  public long getAcquireCount() {
+    return acquireCount.get();
+  }
+
+  /**
+   * Get the number of buffers allocated because none was kept for reuse.
+   */
+  public long getAllocateCount() {
+    return allocateCount.get();
+  }
+}
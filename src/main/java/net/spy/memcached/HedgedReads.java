@@ -0,0 +1,333 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/* ENABLE_REPLICATION if */
+package net.spy.memcached;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.internal.BasicThreadFactory;
+import net.spy.memcached.ops.CollectionGetOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.GetsOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+
+/**
+ * Hedged reads across the members of a replica group.
+ *
+ * <p>A read started through {@link #start} is sent to its node as usual.
+ * If it has not answered after the hedge delay, the same read is sent to
+ * another active member of the replica group of the node. The first of the
+ * two operations to answer wins and its results are given to the callback
+ * of the caller. A losing hedge is cancelled. A losing primary is
+ * superseded, so that the future holding it completes with the results of
+ * the hedge and is not cancelled or timed out later by it.</p>
+ *
+ * <p>The delay is either fixed or the 95th percentile latency of the node
+ * over the last second. Hedges are limited to a ratio of the reads started,
+ * so a slow replica group can not double the load of the cache cluster.</p>
+ */
+final class HedgedReads extends SpyObject {
+
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final int MIN_SAMPLES = 20;
+  private static final double PERCENTILE = 95.0;
+  // A hedge costs one credit and each read earns a share of one.
+  private static final long CREDIT = 1000;
+  private static final long MAX_CREDITS = 10 * CREDIT;
+
+  private final MemcachedConnection conn;
+  private final long delayNanos;
+  private final long creditsPerRead;
+  private final AtomicLong credits = new AtomicLong();
+  private final ConcurrentHashMap<MemcachedNode, NodeLatency> latencies =
+      new ConcurrentHashMap<>();
+  private final ScheduledThreadPoolExecutor timer;
+  private final AtomicLong hedgeCount = new AtomicLong();
+  private final AtomicLong hedgeWinCount = new AtomicLong();
+
+  /**
+   * @param conn        the connection to send the reads through
+   * @param name        the name of the connection
+   * @param delayMillis the delay of hedges in milliseconds,
+   *                    or 0 to use the 95th percentile latency of the node
+   * @param budget      the maximum ratio of hedges to reads
+   */
+  HedgedReads(MemcachedConnection conn, String name, long delayMillis, double budget) {
+    this.conn = conn;
+    this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    this.creditsPerRead = Math.round(budget * CREDIT);
+    timer = new ScheduledThreadPoolExecutor(1,
+        new BasicThreadFactory(name + " (hedged reads)", true));
+  }
+
+  /**
+   * Create a read with a callback forwarding the results of the winner
+   * to the callback of the caller, and add it. If replication is not
+   * enabled, the read is created with the callback of the caller.
+   *
+   * @param cb       the callback of the caller
+   * @param createOp creates the read operation with the given callback
+   * @param addOp    adds the read operation to the connection
+   * @return the read operation, which is the one to hold in the future
+   */
+  Operation start(OperationCallback cb, Function<Callback, Operation> createOp,
+                  Consumer<Operation> addOp) {
+    if (!conn.getArcusReplEnabled()) {
+      Operation op = createOp.apply(new Callback(null, cb));
+      addOp.accept(op);
+      return op;
+    }
+    HedgedRead read = new HedgedRead(cb, createOp);
+    Operation op = read.newOperation();
+    read.primary = op;
+    addOp.accept(op);
+    earnCredits();
+
+    MemcachedNode node = op.getHandlingNode();
+    if (node != null && read.winner.get() == null) {
+      long delay = delayOf(node);
+      if (delay >= 0) {
+        try {
+          timer.schedule(() -> hedge(read), delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+          // shutting down
+        }
+      }
+    }
+    return op;
+  }
+
+  private long delayOf(MemcachedNode node) {
+    if (delayNanos > 0) {
+      return delayNanos;
+    }
+    NodeLatency latency = latencies.get(node);
+    return latency == null ? -1 : latency.p95Nanos;
+  }
+
+  private void hedge(HedgedRead read) {
+    if (read.winner.get() != null) {
+      return;
+    }
+    MemcachedNode node = read.primary.getHandlingNode();
+    MemcachedNode hedgeNode = node == null ? null : conn.getHedgeNode(node);
+    if (hedgeNode == null || !takeCredit()) {
+      return;
+    }
+    Operation op = read.newOperation();
+    read.hedge = op;
+    hedgeCount.incrementAndGet();
+    try {
+      conn.addOperation(hedgeNode, op);
+    } catch (RuntimeException e) {
+      getLogger().debug("Failed to add hedged read %s: %s", op, e.getMessage());
+      op.cancel("failed to add the hedged read");
+      return;
+    }
+    Operation winner = read.winner.get();
+    if (winner != null && winner != op) {
+      op.cancel("read answered by another node");
+    }
+  }
+
+  private void earnCredits() {
+    long current = credits.get();
+    while (current < MAX_CREDITS
+        && !credits.compareAndSet(current, Math.min(MAX_CREDITS, current + creditsPerRead))) {
+      current = credits.get();
+    }
+  }
+
+  private boolean takeCredit() {
+    long current = credits.get();
+    while (current >= CREDIT) {
+      if (credits.compareAndSet(current, current - CREDIT)) {
+        return true;
+      }
+      current = credits.get();
+    }
+    return false;
+  }
+
+  private void recordLatency(MemcachedNode node, long latencyNanos) {
+    NodeLatency latency = latencies.get(node);
+    if (latency == null) {
+      latency = latencies.computeIfAbsent(node, k -> new NodeLatency());
+    }
+    latency.record(latencyNanos);
+  }
+
+  /**
+   * Get the number of hedged reads sent.
+   */
+  long getHedgeCount() {
+    return hedgeCount.get();
+  }
+
+  /**
+   * Get the number of hedged reads that answered before their primary.
+   */
+  long getHedgeWinCount() {
+    return hedgeWinCount.get();
+  }
+
+  void shutdown() {
+    timer.shutdownNow();
+  }
+
+  /**
+   * Latency of the reads of a node over the last window.
+   */
+  private static final class NodeLatency {
+    private final AtomicReference<OperationLatencyStats.Histogram> window =
+        new AtomicReference<>(new OperationLatencyStats.Histogram());
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private volatile long p95Nanos = -1;
+
+    void record(long latencyNanos) {
+      window.get().record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+      long now = System.nanoTime();
+      long start = windowStart.get();
+      if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+        OperationLatencyStats.Histogram last =
+            window.getAndSet(new OperationLatencyStats.Histogram());
+        if (last.getTotalCount() >= MIN_SAMPLES) {
+          p95Nanos = TimeUnit.MICROSECONDS.toNanos(last.getValueAtPercentile(PERCENTILE));
+        }
+      }
+    }
+  }
+
+  /**
+   * A read sent to a node and possibly hedged to another one.
+   */
+  private final class HedgedRead {
+    private final OperationCallback cb;
+    private final Function<Callback, Operation> createOp;
+    private final AtomicReference<Operation> winner = new AtomicReference<>();
+    private final long startTime = System.nanoTime();
+    private volatile Operation primary;
+    private volatile Operation hedge;
+
+    private HedgedRead(OperationCallback cb, Function<Callback, Operation> createOp) {
+      this.cb = cb;
+      this.createOp = createOp;
+    }
+
+    private Operation newOperation() {
+      Callback callback = new Callback(this, cb);
+      Operation op = createOp.apply(callback);
+      callback.op = op;
+      return op;
+    }
+
+    // The first operation to answer wins, except a hedge that is cancelled.
+    private boolean accept(Operation op) {
+      Operation w = winner.get();
+      if (w != null) {
+        return w == op;
+      }
+      if (op != primary && op.isCancelled()) {
+        return false;
+      }
+      if (!winner.compareAndSet(null, op)) {
+        return winner.get() == op;
+      }
+      if (op == primary) {
+        MemcachedNode node = op.getHandlingNode();
+        if (node != null && !op.isCancelled()) {
+          recordLatency(node, System.nanoTime() - startTime);
+        }
+        Operation h = hedge;
+        if (h != null) {
+          h.cancel("read answered by another node");
+        }
+      } else {
+        hedgeWinCount.incrementAndGet();
+        primary.supersede();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Callback of a hedged read operation, forwarding the results
+   * to the callback of the caller if the operation wins.
+   */
+  static final class Callback implements GetOperation.Callback, GetsOperation.Callback,
+      CollectionGetOperation.Callback {
+    private final HedgedRead read;
+    private final OperationCallback cb;
+    private volatile Operation op;
+
+    private Callback(HedgedRead read, OperationCallback cb) {
+      this.read = read;
+      this.cb = cb;
+    }
+
+    private boolean accept() {
+      return read == null || read.accept(op);
+    }
+
+    @Override
+    public void receivedStatus(OperationStatus status) {
+      if (accept()) {
+        cb.receivedStatus(status);
+      }
+    }
+
+    @Override
+    public void complete() {
+      if (accept()) {
+        cb.complete();
+      }
+    }
+
+    @Override
+    public void gotData(String key, int flags, byte[] data) {
+      if (accept()) {
+        ((GetOperation.Callback) cb).gotData(key, flags, data);
+      }
+    }
+
+    @Override
+    public void gotData(String key, int flags, long cas, byte[] data) {
+      if (accept()) {
+        ((GetsOperation.Callback) cb).gotData(key, flags, cas, data);
+      }
+    }
+
+    @Override
+    public void gotData(String subkey, int flags, byte[] data, byte[] eflag) {
+      if (accept()) {
+        ((CollectionGetOperation.Callback) cb).gotData(subkey, flags, data, eflag);
+      }
+    }
+  }
+}
+/* ENABLE_REPLICATION end */
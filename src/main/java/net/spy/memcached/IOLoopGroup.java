@@ -0,0 +1,256 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.spy.memcached.compat.SpyThread;
+
+/**
+ * A fixed set of IO loops shared by many memcached connections.
+ *
+ * <p>Each loop owns a selector and a thread, and handles the memcached nodes
+ * of every connection that has a part in it. A connection set with a group
+ * through {@link ConnectionFactoryBuilder#setIOLoopGroup(IOLoopGroup)} has one
+ * part in each loop, and does not start threads of its own. So the clients
+ * of many service codes can share a few IO threads.</p>
+ *
+ * <p>The group is shut down after all clients using it are shut down.</p>
+ */
+public final class IOLoopGroup {
+
+  private final Loop[] loops;
+  private final AtomicInteger nextHome = new AtomicInteger();
+
+  /**
+   * @param name   the prefix of the names of the IO threads
+   * @param count  the number of IO loops
+   * @param daemon true if the IO threads are daemon threads
+   * @throws IOException if a selector cannot be opened
+   */
+  public IOLoopGroup(String name, int count, boolean daemon) throws IOException {
+    if (count <= 0) {
+      throw new IllegalArgumentException("IO loop count must be positive.");
+    }
+    loops = new Loop[count];
+    try {
+      for (int i = 0; i < count; i++) {
+        loops[i] = new Loop();
+      }
+    } catch (IOException e) {
+      for (Loop loop : loops) {
+        if (loop != null) {
+          loop.selector.close();
+        }
+      }
+      throw e;
+    }
+    for (int i = 0; i < count; i++) {
+      loops[i].setName(name + " (loop " + i + ")");
+      loops[i].setDaemon(daemon);
+      loops[i].start();
+    }
+  }
+
+  public IOLoopGroup(int count) throws IOException {
+    this("Memcached IO loop group", count, true);
+  }
+
+  public int getLoopCount() {
+    return loops.length;
+  }
+
+  Loop getLoop(int index) {
+    return loops[index];
+  }
+
+  /**
+   * Get the loop of the first part of a connection.
+   * The first parts of the connections are spread over the loops.
+   */
+  int nextHome() {
+    return (nextHome.getAndIncrement() & Integer.MAX_VALUE) % loops.length;
+  }
+
+  /**
+   * Stop the IO threads and close the selectors.
+   */
+  public void shutdown() {
+    for (Loop loop : loops) {
+      loop.running = false;
+      loop.selector.wakeup();
+    }
+    for (Loop loop : loops) {
+      if (loop == Thread.currentThread()) {
+        continue;
+      }
+      try {
+        loop.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+  }
+
+  /**
+   * The part of a connection handled by a loop.
+   * Each call handles only the nodes of the part.
+   */
+  interface Member {
+
+    /**
+     * Handle the operations added to the nodes before selecting.
+     *
+     * @return the longest time to select in milliseconds, or 0 to wait for an event
+     */
+    long beforeSelect() throws IOException;
+
+    /**
+     * Handle a selected key of a node of the part.
+     */
+    void handleKey(SelectionKey sk);
+
+    /**
+     * Check a key of a node of the part after too many empty selects.
+     */
+    void checkKey(SelectionKey sk);
+
+    /**
+     * Handle the timeouts and reconnects of the nodes after selecting.
+     */
+    void afterSelect() throws IOException;
+  }
+
+  /**
+   * An IO loop handling the nodes of the members in its thread.
+   */
+  static final class Loop extends SpyThread {
+    private final Selector selector;
+    private final List<Member> members = new CopyOnWriteArrayList<>();
+    private final Map<MemcachedNode, Member> owners = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+    private int emptySelects = 0;
+
+    private Loop() throws IOException {
+      selector = Selector.open();
+    }
+
+    Selector getSelector() {
+      return selector;
+    }
+
+    void addMember(Member member) {
+      members.add(member);
+      selector.wakeup();
+    }
+
+    void removeMember(Member member) {
+      members.remove(member);
+    }
+
+    void own(MemcachedNode node, Member member) {
+      owners.put(node, member);
+    }
+
+    void disown(MemcachedNode node) {
+      owners.remove(node);
+    }
+
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          handleIO();
+        } catch (IOException | IllegalStateException | ConcurrentModificationException e) {
+          if (running) {
+            getLogger().warn("Problem handling memcached IO", e);
+          }
+        }
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        getLogger().warn("exception while closing selector", e);
+      }
+    }
+
+    private void handleIO() throws IOException {
+      long delay = 0;
+      for (Member member : members) {
+        long d = beforeSelect(member);
+        if (d > 0 && (delay == 0 || d < delay)) {
+          delay = d;
+        }
+      }
+
+      selector.select(delay);
+      Set<SelectionKey> selectedKeys = selector.selectedKeys();
+      if (selectedKeys.isEmpty()) {
+        if (++emptySelects > MemcachedConnection.DOUBLE_CHECK_EMPTY) {
+          getLogger().info("Reached to the double check of emptySelect.");
+          emptySelects = 0;
+          for (Map.Entry<MemcachedNode, Member> e : owners.entrySet()) {
+            SelectionKey sk = e.getKey().getSk();
+            if (sk != null && sk.selector() == selector) {
+              e.getValue().checkKey(sk);
+            }
+          }
+        }
+      } else {
+        emptySelects = 0;
+        for (SelectionKey sk : selectedKeys) {
+          Object attachment = sk.attachment();
+          Member member = attachment == null ? null : owners.get(attachment);
+          if (member != null) {
+            member.handleKey(sk);
+          }
+        }
+        selectedKeys.clear();
+      }
+
+      for (Member member : members) {
+        try {
+          member.afterSelect();
+        } catch (IOException | IllegalStateException | ConcurrentModificationException e) {
+          getLogger().warn("Problem handling memcached IO", e);
+        }
+      }
+    }
+
+    // A member failing does not stop the others.
+    private long beforeSelect(Member member) {
+      try {
+        return member.beforeSelect();
+      } catch (IOException | IllegalStateException | ConcurrentModificationException e) {
+        getLogger().warn("Problem handling memcached IO", e);
+        return 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,430 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationException;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.OperationTimestamp;
+import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.protocol.BaseOperationImpl;
+
+/**
+ * Gets in flight by key, for coalescing concurrent gets of the same key.
+ *
+ * <p>A get started through {@link #start} is registered for its keys until
+ * it completes, and later gets of those keys attach to it instead of sending
+ * their own get. Each caller of a get, the one that started it included,
+ * receives its own view of the shared operation. Cancelling a view detaches
+ * only its caller, and the shared operation is cancelled when the last
+ * caller has left.</p>
+ */
+public final class InFlightGets {
+
+  private final ConcurrentHashMap<String, InFlightGet> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Find the get in flight for the key.
+   *
+   * @return the get, or null if no get of the key is in flight
+   */
+  public InFlightGet find(String key) {
+    return inFlight.get(key);
+  }
+
+  /**
+   * Create a get of the keys, register it for the keys that have
+   * no get in flight yet and add it. If the get can not be added,
+   * it is cancelled so that the gets attached to it complete.
+   *
+   * @param keys     the keys of the get
+   * @param cb       the callback of the caller
+   * @param createOp creates the get operation with the given callback
+   * @param addOp    adds the get operation, given with the view of the caller,
+   *                 to the connection
+   * @return the view of the get operation for the caller
+   */
+  public Operation start(Collection<String> keys, GetOperation.Callback cb,
+                         Function<GetOperation.Callback, Operation> createOp,
+                         BiConsumer<Operation, Operation> addOp) {
+    InFlightGet get = new InFlightGet();
+    Operation op = createOp.apply(get);
+    get.op = op;
+    Waiter leader = get.attachWaiter(null, cb, view -> { });
+    for (String key : keys) {
+      if (inFlight.putIfAbsent(key, get) == null) {
+        get.registeredKeys.add(key);
+      }
+    }
+    try {
+      addOp.accept(leader, op);
+    } catch (RuntimeException e) {
+      op.cancel("failed to add the operation");
+      throw e;
+    }
+    return leader;
+  }
+
+  int size() {
+    return inFlight.size();
+  }
+
+  /**
+   * A get in flight, forwarding its results to the callers attached to it.
+   * The callbacks are called outside of the lock of the get.
+   */
+  public final class InFlightGet implements GetOperation.Callback {
+    private final List<String> registeredKeys = new ArrayList<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final Map<String, Data> data = new HashMap<>();
+    private volatile Operation op;
+    private OperationStatus status;
+    private boolean completed;
+    private boolean abandoned;
+
+    private InFlightGet() {
+    }
+
+    public Operation getOperation() {
+      return op;
+    }
+
+    /**
+     * Attach the callback for the key. If the get has already completed,
+     * its results are given to the callback right away.
+     *
+     * @return the view of the get operation for the caller,
+     * or null if every caller of the get has left and it was cancelled
+     */
+    public Operation attach(String key, GetOperation.Callback cb) {
+      return attach(key, cb, view -> { });
+    }
+
+    /**
+     * Attach the callback for the key, giving the view of the get operation
+     * to the caller before the callback is called.
+     *
+     * @see #attach(String, GetOperation.Callback)
+     */
+    public Operation attach(String key, GetOperation.Callback cb, Consumer<Operation> setView) {
+      return attachWaiter(key, cb, setView);
+    }
+
+    private Waiter attachWaiter(String key, GetOperation.Callback cb,
+                                Consumer<Operation> setView) {
+      Waiter w = new Waiter(this, key, cb);
+      setView.accept(w);
+      // the results given so far are replayed before the next ones.
+      synchronized (w) {
+        Data d;
+        OperationStatus s;
+        boolean done;
+        synchronized (this) {
+          if (abandoned) {
+            return null;
+          }
+          d = key == null ? null : data.get(key);
+          s = status;
+          done = completed;
+          if (!done) {
+            waiters.add(w);
+          }
+        }
+        if (d != null) {
+          cb.gotData(key, d.flags, d.bytes);
+        }
+        if (s != null) {
+          cb.receivedStatus(s);
+        }
+        if (done) {
+          w.done = true;
+          cb.complete();
+        }
+      }
+      return w;
+    }
+
+    private boolean detach(Waiter w) {
+      boolean last;
+      synchronized (this) {
+        if (completed || !waiters.remove(w)) {
+          return false;
+        }
+        last = waiters.isEmpty();
+        if (last) {
+          // later gets of the keys do not attach to a get to be cancelled.
+          abandoned = true;
+          for (String key : registeredKeys) {
+            inFlight.remove(key, this);
+          }
+        }
+      }
+      w.detached = true;
+      synchronized (w) {
+        w.done = true;
+        w.cb.receivedStatus(BaseOperationImpl.CANCELLED);
+        w.cb.complete();
+      }
+      if (last) {
+        op.cancel("by application.");
+      }
+      return true;
+    }
+
+    @Override
+    public void gotData(String key, int flags, byte[] bytes) {
+      List<Waiter> targets;
+      synchronized (this) {
+        data.put(key, new Data(flags, bytes));
+        targets = new ArrayList<>(waiters);
+      }
+      for (Waiter w : targets) {
+        if (w.key == null || w.key.equals(key)) {
+          w.gotData(key, flags, bytes);
+        }
+      }
+    }
+
+    @Override
+    public void receivedStatus(OperationStatus s) {
+      List<Waiter> targets;
+      synchronized (this) {
+        status = s;
+        targets = new ArrayList<>(waiters);
+      }
+      for (Waiter w : targets) {
+        w.receivedStatus(s);
+      }
+    }
+
+    @Override
+    public void complete() {
+      List<Waiter> targets;
+      synchronized (this) {
+        completed = true;
+        for (String key : registeredKeys) {
+          inFlight.remove(key, this);
+        }
+        targets = new ArrayList<>(waiters);
+        waiters.clear();
+      }
+      for (Waiter w : targets) {
+        w.complete();
+      }
+    }
+  }
+
+  /**
+   * The view of a get in flight for one of its callers.
+   * It reads the state of the shared operation, and cancelling it detaches
+   * only its caller. The callbacks of the caller are called one at a time
+   * under the lock of the view, and none of them after the caller has left.
+   */
+  private static final class Waiter implements Operation, GetOperation.Callback {
+    private final InFlightGet get;
+    private final String key;
+    private final GetOperation.Callback cb;
+    private volatile boolean detached;
+    private boolean done;
+
+    private Waiter(InFlightGet get, String key, GetOperation.Callback cb) {
+      this.get = get;
+      this.key = key;
+      this.cb = cb;
+    }
+
+    @Override
+    public synchronized void gotData(String k, int flags, byte[] bytes) {
+      if (!done) {
+        cb.gotData(k, flags, bytes);
+      }
+    }
+
+    @Override
+    public synchronized void receivedStatus(OperationStatus s) {
+      if (!done) {
+        cb.receivedStatus(s);
+      }
+    }
+
+    @Override
+    public synchronized void complete() {
+      if (!done) {
+        done = true;
+        cb.complete();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return get.op.toString();
+    }
+
+    public boolean isCancelled() {
+      return detached || get.op.isCancelled();
+    }
+
+    public boolean hasErrored() {
+      return get.op.hasErrored();
+    }
+
+    public OperationException getException() {
+      return get.op.getException();
+    }
+
+    public OperationCallback getCallback() {
+      return cb;
+    }
+
+    public boolean cancel(String cause) {
+      return get.detach(this);
+    }
+
+    public String getCancelCause() {
+      return detached ? "Cancelled (by application.)" : get.op.getCancelCause();
+    }
+
+    public boolean isTimedOut() {
+      return get.op.isTimedOut();
+    }
+
+    public boolean timeOut(String cause) {
+      throw new UnsupportedOperationException();
+    }
+
+    public boolean supersede() {
+      throw new UnsupportedOperationException();
+    }
+
+    public OperationState getState() {
+      return get.op.getState();
+    }
+
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    public ByteBuffer getBuffer() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void writing() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void writeComplete() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void initialize() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void readFromBuffer(ByteBuffer data) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    public void handleRead(ByteBuffer data) {
+      throw new UnsupportedOperationException();
+    }
+
+    public MemcachedNode getHandlingNode() {
+      return get.op.getHandlingNode();
+    }
+
+    public void setHandlingNode(MemcachedNode to) {
+      throw new UnsupportedOperationException();
+    }
+
+    public OperationType getOperationType() {
+      return get.op.getOperationType();
+    }
+
+    public boolean isWriteOperation() {
+      return get.op.isWriteOperation();
+    }
+
+    public boolean isReadOperation() {
+      return get.op.isReadOperation();
+    }
+
+    public boolean isBulkOperation() {
+      return get.op.isBulkOperation();
+    }
+
+    public boolean isPipeOperation() {
+      return get.op.isPipeOperation();
+    }
+
+    public boolean isIdempotentOperation() {
+      return get.op.isIdempotentOperation();
+    }
+
+    /* ENABLE_MIGRATION if */
+    public RedirectHandler getAndClearRedirectHandler() {
+      throw new UnsupportedOperationException();
+    }
+    /* ENABLE_MIGRATION end */
+
+    public APIType getAPIType() {
+      return get.op.getAPIType();
+    }
+
+    public void setLatencyStats(OperationLatencyStats stats) {
+      throw new UnsupportedOperationException();
+    }
+
+    public void setSlowOperationLogger(SlowOperationLogger logger) {
+      throw new UnsupportedOperationException();
+    }
+
+    public void setAdmission(AdmissionControl admission, int size) {
+      throw new UnsupportedOperationException();
+    }
+
+    public long getTimestamp(OperationTimestamp point) {
+      return get.op.getTimestamp(point);
+    }
+  }
+
+  private static final class Data {
+    private final int flags;
+    private final byte[] bytes;
+
+    private Data(int flags, byte[] bytes) {
+      this.flags = flags;
+      this.bytes = bytes;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Immutable snapshot of a ketama hash ring.
+ *
+ * <p>The hash points are kept in a sorted {@code long[]} with the owner of
+ * each point in a parallel array, so a lookup is a binary search without
+ * boxing or locking. Locators build a new snapshot whenever their ring
+ * changes and publish it through a volatile field.</p>
+ *
+ * @param <T> the owner of a hash point, a node or a replica group
+ */
+final class KetamaRing<T> {
+
+  private static final KetamaRing<?> EMPTY = new KetamaRing<>(new long[0], new Object[0]);
+
+  private final long[] points;
+  private final Object[] owners;
+
+  private KetamaRing(long[] points, Object[] owners) {
+    this.points = points;
+    this.owners = owners;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> KetamaRing<T> empty() {
+    return (KetamaRing<T>) EMPTY;
+  }
+
+  /**
+   * Build a snapshot of the given ring. The owner of a point shared by
+   * more than one owner is the first one of its set.
+   */
+  static <T> KetamaRing<T> of(SortedMap<Long, SortedSet<T>> ring) {
+    if (ring.isEmpty()) {
+      return empty();
+    }
+    long[] points = new long[ring.size()];
+    Object[] owners = new Object[ring.size()];
+    int i = 0;
+    for (Map.Entry<Long, SortedSet<T>> entry : ring.entrySet()) {
+      points[i] = entry.getKey();
+      owners[i] = entry.getValue().first();
+      i++;
+    }
+    return new KetamaRing<>(points, owners);
+  }
+
+  /**
+   * Get the owner of the first point at or after the given hash,
+   * wrapping around to the first point of the ring.
+   *
+   * @return the owner, or null if the ring is empty
+   */
+  @SuppressWarnings("unchecked")
+  T get(long hash) {
+    int length = points.length;
+    if (length == 0) {
+      return null;
+    }
+    int index = Arrays.binarySearch(points, hash);
+    if (index < 0) {
+      index = -index - 1;
+      if (index == length) {
+        index = 0;
+      }
+    }
+    return (T) owners[index];
+  }
+
+  int size() {
+    return points.length;
+  }
+}
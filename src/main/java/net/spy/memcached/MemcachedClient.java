@@ -26,6 +26,7 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -132,6 +133,10 @@ public class MemcachedClient extends SpyThread
 
   protected final KeyValidator keyValidator;
 
+  private final InFlightGets inFlightGets;
+
+  private final boolean failFastOnFullQueue;
+
   private static final String DEFAULT_MEMCACHED_CLIENT_NAME = "MemcachedClient";
 
   public static final int GET_BULK_CHUNK_SIZE = 200;
@@ -214,9 +219,15 @@ public class MemcachedClient extends SpyThread
     assert conn != null : "Connection factory failed to make a connection";
     operationTimeout = cf.getOperationTimeout();
     keyValidator = new KeyValidator(cf.getDelimiter());
+    inFlightGets = cf.shouldCoalesceGets() ? new InFlightGets() : null;
+    failFastOnFullQueue = cf.shouldFailFastOnFullQueue();
     setName("Memcached IO over " + conn);
     setDaemon(cf.isDaemon());
-    start();
+    conn.startIOLoops(getName(), cf.isDaemon());
+    // the threads of an IO loop group handle the IO instead.
+    if (!conn.usesIOLoopGroup()) {
+      start();
+    }
   }
 
   /**
@@ -283,11 +294,25 @@ public class MemcachedClient extends SpyThread
     return opFact;
   }
 
+  /**
+   * (internal use) Get the gets in flight, or null if get coalescing is disabled.
+   */
+  public InFlightGets getInFlightGets() {
+    return inFlightGets;
+  }
+
+  /**
+   * (internal use) Whether v2 async commands fail right away when the queue of a node is full.
+   */
+  public boolean shouldFailFastOnFullQueue() {
+    return failFastOnFullQueue;
+  }
+
   protected void checkState() {
     if (shuttingDown) {
       throw new IllegalStateException("Shutting down");
     }
-    assert isAlive() : "IO Thread is not running.";
+    assert conn.usesIOLoopGroup() || isAlive() : "IO Thread is not running.";
   }
 
   /**
@@ -311,6 +336,25 @@ public class MemcachedClient extends SpyThread
     return op;
   }
 
+  /**
+   * (internal use) Add a raw operation without waiting for room in the queue of its node.
+   *
+   * @param key the key the operation is operating upon
+   * @param op  the operation to perform
+   * @return false if the operation is not added because the node or the client
+   *         has as many outstanding operations as allowed
+   */
+  public boolean tryAddOp(final String key, final Operation op) {
+    keyValidator.validateKey(key);
+    checkState();
+    return conn.tryAddOperation(key, op);
+  }
+
+  public boolean tryAddOp(final MemcachedNode node, final Operation op) {
+    checkState();
+    return conn.tryAddOperation(node, op);
+  }
+
   protected void addOpMap(final Map<String, Operation> opMap) {
     checkState();
     for (Map.Entry<String, Operation> me : opMap.entrySet()) {
@@ -850,23 +894,47 @@ public class MemcachedClient extends SpyThread
     final CountDownLatch latch = new CountDownLatch(1);
     final GetFuture<T> future = new GetFuture<>(latch, operationTimeout);
 
-    Operation op = opFact.get(key,
-        new GetOperation.Callback() {
-          private GetResult<T> result = null;
+    GetOperation.Callback cb = new GetOperation.Callback() {
+      private GetResult<T> result = null;
 
-          public void receivedStatus(OperationStatus status) {
-            future.set(result, status);
-          }
+      public void receivedStatus(OperationStatus status) {
+        future.set(result, status);
+      }
 
-          public void gotData(String k, int flags, byte[] data) {
-            assert key.equals(k) : "Wrong key returned";
-            result = new GetResultImpl<>(new CachedData(flags, data, tc.getMaxSize()), tc);
-          }
+      public void gotData(String k, int flags, byte[] data) {
+        assert key.equals(k) : "Wrong key returned";
+        result = new GetResultImpl<>(new CachedData(flags, data, tc.getMaxSize()), tc);
+      }
 
-          public void complete() {
-            latch.countDown();
-          }
-        });
+      public void complete() {
+        latch.countDown();
+      }
+    };
+    if (inFlightGets != null) {
+      // attach to the get of the key in flight, if any.
+      InFlightGets.InFlightGet inFlight = inFlightGets.find(key);
+      if (inFlight != null) {
+        checkState();
+        if (inFlight.attach(key, cb, future::setOperation) != null) {
+          return future;
+        }
+      }
+      inFlightGets.start(Collections.singletonList(key), cb, c -> opFact.get(key, c),
+          (view, op) -> {
+            future.setOperation(view);
+            addOp(key, op);
+          });
+      return future;
+    }
+    HedgedReads hedgedReads = conn.getHedgedReads();
+    if (hedgedReads != null) {
+      hedgedReads.start(cb, c -> opFact.get(key, c), op -> {
+        future.setOperation(op);
+        addOp(key, op);
+      });
+      return future;
+    }
+    Operation op = opFact.get(key, cb);
     future.setOperation(op);
     addOp(key, op);
     return future;
@@ -901,24 +969,32 @@ public class MemcachedClient extends SpyThread
     final CountDownLatch latch = new CountDownLatch(1);
     final GetFuture<CASValue<T>> rv = new GetFuture<>(latch, operationTimeout);
 
-    Operation op = opFact.gets(key,
-        new GetsOperation.Callback() {
-          private GetResult<CASValue<T>> val = null;
+    GetsOperation.Callback cb = new GetsOperation.Callback() {
+      private GetResult<CASValue<T>> val = null;
 
-          public void receivedStatus(OperationStatus status) {
-            rv.set(val, status);
-          }
+      public void receivedStatus(OperationStatus status) {
+        rv.set(val, status);
+      }
 
-          public void gotData(String k, int flags, long cas, byte[] data) {
-            assert key.equals(k) : "Wrong key returned";
-            assert cas > 0 : "CAS was less than zero:  " + cas;
-            val = new GetsResultImpl<>(cas, new CachedData(flags, data, tc.getMaxSize()), tc);
-          }
+      public void gotData(String k, int flags, long cas, byte[] data) {
+        assert key.equals(k) : "Wrong key returned";
+        assert cas > 0 : "CAS was less than zero:  " + cas;
+        val = new GetsResultImpl<>(cas, new CachedData(flags, data, tc.getMaxSize()), tc);
+      }
 
-          public void complete() {
-            latch.countDown();
-          }
-        });
+      public void complete() {
+        latch.countDown();
+      }
+    };
+    HedgedReads hedgedReads = conn.getHedgedReads();
+    if (hedgedReads != null) {
+      hedgedReads.start(cb, c -> opFact.gets(key, c), op -> {
+        rv.setOperation(op);
+        addOp(key, op);
+      });
+      return rv;
+    }
+    Operation op = opFact.gets(key, cb);
     rv.setOperation(op);
     addOp(key, op);
     return rv;
@@ -1115,6 +1191,12 @@ public class MemcachedClient extends SpyThread
    */
   public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
                                                      Iterator<Transcoder<T>> tcIter) {
+    return asyncGetBulk(keys, tcIter, null);
+  }
+
+  private <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
+                                                      Iterator<Transcoder<T>> tcIter,
+                                                      final BulkGetListener<T> listener) {
     final Map<String, GetResult<T>> rvMap = new ConcurrentHashMap<>();
 
     // This map does not need to be a ConcurrentHashMap
@@ -1128,16 +1210,79 @@ public class MemcachedClient extends SpyThread
       }
     }
 
+    // Keys of gets in flight attach to them instead of being sent.
+    Map<String, InFlightGets.InFlightGet> attached = Collections.emptyMap();
+    Collection<String> keysToSend = keys;
+    if (inFlightGets != null) {
+      attached = new HashMap<>();
+      keysToSend = new ArrayList<>(keys.size());
+      for (String key : keys) {
+        InFlightGets.InFlightGet inFlight = inFlightGets.find(key);
+        if (inFlight != null) {
+          attached.put(key, inFlight);
+        } else {
+          keysToSend.add(key);
+        }
+      }
+    }
+
     // Grouping keys by memcached node
     Collection<Map.Entry<MemcachedNode, List<String>>> arrangedKey
-            = groupingKeys(keys, GET_BULK_CHUNK_SIZE, APIType.GET);
-    final CountDownLatch latch = new CountDownLatch(arrangedKey.size());
+            = groupingKeys(keysToSend, GET_BULK_CHUNK_SIZE, APIType.GET);
+    final CountDownLatch latch = new CountDownLatch(arrangedKey.size() + attached.size());
+
+    checkState();
+    HedgedReads hedgedReads = conn.getHedgedReads();
+    List<Operation> ops = new ArrayList<>(arrangedKey.size());
+    for (Map.Entry<String, InFlightGets.InFlightGet> entry : attached.entrySet()) {
+      final String key = entry.getKey();
+      final MemcachedNode node = entry.getValue().getOperation().getHandlingNode();
+      GetOperation.Callback cb = bulkGetCallback(rvMap, tcMap, latch, listener, node,
+          Collections.singletonList(key));
+      Operation op = entry.getValue().attach(key, cb);
+      if (op == null) {
+        // the get in flight was cancelled, so the key is sent by itself.
+        op = inFlightGets.start(Collections.singletonList(key), cb, c -> opFact.get(key, c),
+            (view, o) -> addOp(key, o));
+      }
+      ops.add(op);
+    }
+    for (Map.Entry<MemcachedNode, List<String>> entry : arrangedKey) {
+      final MemcachedNode node = entry.getKey();
+      final List<String> keyList = entry.getValue();
+      final boolean enabledMGetOp = node != null && node.enabledMGetOp();
+      GetOperation.Callback cb = bulkGetCallback(rvMap, tcMap, latch, listener, node, keyList);
+
+      Operation op;
+      if (inFlightGets != null) {
+        op = inFlightGets.start(keyList, cb, c -> opFact.get(keyList, c, enabledMGetOp),
+            (view, o) -> conn.addOperation(node, o));
+      } else if (hedgedReads != null) {
+        op = hedgedReads.start(cb, c -> opFact.get(keyList, c, enabledMGetOp),
+            o -> conn.addOperation(node, o));
+      } else {
+        op = opFact.get(keyList, cb, enabledMGetOp);
+        conn.addOperation(node, op);
+      }
+      ops.add(op);
+    }
+    return new BulkGetFuture<>(rvMap, ops, latch, operationTimeout);
+  }
+
+  private <T> GetOperation.Callback bulkGetCallback(final Map<String, GetResult<T>> rvMap,
+                                                    final Map<String, Transcoder<T>> tcMap,
+                                                    final CountDownLatch latch,
+                                                    final BulkGetListener<T> listener,
+                                                    final MemcachedNode node,
+                                                    final List<String> keyList) {
+    return new GetOperation.Callback() {
+      private OperationStatus lastStatus = null;
 
-    GetOperation.Callback cb = new GetOperation.Callback() {
       public void receivedStatus(OperationStatus status) {
         if (!status.isSuccess()) {
           getLogger().warn("Unsuccessful get:  %s", status);
         }
+        lastStatus = status;
         // Nothing to do here because the user MUST search the result Map instance.
       }
 
@@ -1146,29 +1291,62 @@ public class MemcachedClient extends SpyThread
         GetResult<T> result
                 = new GetResultImpl<>(new CachedData(flags, data, tc.getMaxSize()), tc);
         rvMap.put(k, result);
+        if (listener != null) {
+          try {
+            listener.gotValue(k, result);
+          } catch (RuntimeException e) {
+            getLogger().warn("Bulk get listener failed on " + k, e);
+          }
+        }
       }
 
       public void complete() {
+        if (listener != null) {
+          try {
+            listener.nodeCompleted(node, keyList, lastStatus);
+          } catch (RuntimeException e) {
+            getLogger().warn("Bulk get listener failed on completion", e);
+          }
+        }
         latch.countDown();
       }
     };
+  }
 
-    checkState();
-    List<Operation> ops = new ArrayList<>(arrangedKey.size());
-    for (Map.Entry<MemcachedNode, List<String>> entry : arrangedKey) {
-      MemcachedNode node = entry.getKey();
-      List<String> keyList = entry.getValue();
+  /**
+   * Asynchronously get a bunch of objects from the cache, giving the value of each key
+   * to the listener as soon as it arrives. The listener is also told when the keys
+   * requested from a node are answered, so results can be used before a slow node
+   * answers. The returned future holds all the values once every node answered.
+   * Values are read from the cache servers, not from the front cache.
+   *
+   * @param <T>
+   * @param keys     the keys to request
+   * @param tc       the transcoder to serialize and deserialize values
+   * @param listener the listener called on the IO thread as the values arrive
+   * @return a Future result of that fetch
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
+                                                     Transcoder<T> tc,
+                                                     BulkGetListener<T> listener) {
+    return asyncGetBulk(keys, new SingleElementInfiniteIterator<>(tc), listener);
+  }
 
-      Operation op;
-      if (node == null) {
-        op = opFact.get(keyList, cb, false);
-      } else {
-        op = opFact.get(keyList, cb, node.enabledMGetOp());
-      }
-      conn.addOperation(node, op);
-      ops.add(op);
-    }
-    return new BulkGetFuture<>(rvMap, ops, latch, operationTimeout);
+  /**
+   * Asynchronously get a bunch of objects from the cache and decode them with the
+   * default transcoder, giving the value of each key to the listener as soon as it arrives.
+   *
+   * @param keys     the keys to request
+   * @param listener the listener called on the IO thread as the values arrive
+   * @return a Future result of that fetch
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  public BulkFuture<Map<String, Object>> asyncGetBulk(Collection<String> keys,
+                                                      BulkGetListener<Object> listener) {
+    return asyncGetBulk(keys, transcoder, listener);
   }
 
   /**
@@ -1290,18 +1468,21 @@ public class MemcachedClient extends SpyThread
     // Now that we know how many servers it breaks down into, and the latch
     // is all set up, convert all of these strings collections to operations
     checkState();
+    HedgedReads hedgedReads = conn.getHedgedReads();
     List<Operation> ops = new ArrayList<>(arrangedKey.size());
     for (Map.Entry<MemcachedNode, List<String>> entry : arrangedKey) {
-      MemcachedNode node = entry.getKey();
-      List<String> keyList = entry.getValue();
+      final MemcachedNode node = entry.getKey();
+      final List<String> keyList = entry.getValue();
+      final boolean enabledMGetsOp = node != null && node.enabledMGetsOp();
 
       Operation op;
-      if (node == null) {
-        op = opFact.gets(keyList, cb, false);
+      if (hedgedReads != null) {
+        op = hedgedReads.start(cb, c -> opFact.gets(keyList, c, enabledMGetsOp),
+            o -> conn.addOperation(node, o));
       } else {
-        op = opFact.gets(keyList, cb, node.enabledMGetsOp());
+        op = opFact.gets(keyList, cb, enabledMGetsOp);
+        conn.addOperation(node, op);
       }
-      conn.addOperation(node, op);
       ops.add(op);
     }
     return new BulkGetFuture<>(rvMap, ops, latch, operationTimeout);
@@ -2140,7 +2321,11 @@ public class MemcachedClient extends SpyThread
       // But always begin the shutdown sequence
       setName(baseName + " - SHUTTING DOWN (telling client)");
       running = false;
-      conn.wakeUpSelector();
+      if (conn.usesIOLoopGroup()) {
+        conn.shutdownInIOLoopGroup();
+      } else {
+        conn.wakeUpSelector();
+      }
       setName(baseName + " - SHUTTING DOWN (informed client)");
     }
     return rv;
@@ -2220,6 +2405,28 @@ public class MemcachedClient extends SpyThread
     return this.conn;
   }
 
+  /**
+   * Get the latencies of operations per node and API type recorded since
+   * the client is created or the latencies are reset.
+   *
+   * @return latencies, or an empty list if they are not recorded
+   * @see ConnectionFactoryBuilder#setLatencyStats(boolean)
+   */
+  public List<OperationLatency> getOperationLatencies() {
+    OperationLatencyStats stats = conn.getLatencyStats();
+    return stats == null ? Collections.<OperationLatency>emptyList() : stats.snapshot();
+  }
+
+  /**
+   * Drop the latencies of operations recorded so far.
+   */
+  public void resetOperationLatencies() {
+    OperationLatencyStats stats = conn.getLatencyStats();
+    if (stats != null) {
+      stats.reset();
+    }
+  }
+
   /**
    * get current added queue size for mbean.
    *
@@ -105,6 +105,13 @@ public interface MemcachedClientIF {
 
   BulkFuture<Map<String, Object>> asyncGetBulk(Collection<String> keys);
 
+  <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
+                                              Transcoder<T> tc,
+                                              BulkGetListener<T> listener);
+
+  BulkFuture<Map<String, Object>> asyncGetBulk(Collection<String> keys,
+                                               BulkGetListener<Object> listener);
+
   <T> BulkFuture<Map<String, T>> asyncGetBulk(Transcoder<T> tc,
                                               String... keys);
 
@@ -31,27 +31,33 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.security.sasl.SaslClient;
 
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.auth.AuthException;
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.compat.SpyThread;
 import net.spy.memcached.compat.log.LoggerFactory;
 import net.spy.memcached.internal.ReconnDelay;
 import net.spy.memcached.ops.APIType;
@@ -62,6 +68,7 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationException;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.OperationTimestamp;
 import net.spy.memcached.ops.OperationType;
 
 import static net.spy.memcached.auth.ScramSaslClient.ScramSaslClientFactory;
@@ -71,11 +78,10 @@ import static net.spy.memcached.auth.ScramSaslClient.ScramSaslClientFactory;
  */
 public final class MemcachedConnection extends SpyObject {
 
-  private int emptySelects = 0;
   // The number of empty selects we'll allow before assuming we may have
   // missed one and should check the current selectors.  This generally
   // indicates a bug, but we'll check it nonetheless.
-  private static final int DOUBLE_CHECK_EMPTY = 256;
+  static final int DOUBLE_CHECK_EMPTY = 256;
   // The number of empty selects we'll allow before blowing up.  It's too
   // easy to write a bug that causes it to loop uncontrollably.  This helps
   // find those bugs and often works around them.
@@ -85,17 +91,48 @@ public final class MemcachedConnection extends SpyObject {
   private final int timeoutDurationThreshold;
 
   private final String connName;
-  private Selector selector = null;
   private final NodeLocator locator;
   private final FailureMode failureMode;
   // If true, optimization will collapse multiple sequential get ops
   private final boolean optimizeGetOp;
 
-  // AddedQueue is used to track the QueueAttachments for which operations
-  // have recently been queued.
-  private final ConcurrentLinkedQueue<MemcachedNode> addedQueue;
-  // reconnectQueue contains the attachments that need to be reconnected
-  private final ReconnectQueue reconnectQueue;
+  // The first loop is driven by the MemcachedClient thread and also applies
+  // the node changes. The others run in their own threads.
+  // With an IO loop group, all loops are parts of the loops of the group.
+  private final IOLoop[] ioLoops;
+  private final IOLoopGroup ioLoopGroup;
+  private volatile boolean shutdownRequested = false;
+  private final Map<MemcachedNode, IOLoop> nodeLoops = new ConcurrentHashMap<>();
+  // Held for read by the other loops while handling IO, and for write
+  // by the first loop while applying the node changes.
+  private final ReentrantReadWriteLock loopsLock = new ReentrantReadWriteLock();
+  // The locator holds the first connection of each node. When a node has
+  // more than one connection, operations are spread over all of them.
+  private final int connectionsPerNode;
+  private final Map<MemcachedNode, NodeConnections> nodeConnections = new ConcurrentHashMap<>();
+  private final Map<MemcachedNode, MemcachedNode> extraConnectionOwners =
+          new ConcurrentHashMap<>();
+  // Expires operations not completed within the deadline, if one is set.
+  private final long opDeadline;
+  private final OperationTimeoutWheel timeoutWheel;
+  private final OperationLatencyStats latencyStats;
+  private final SlowOperationLogger slowOpLogger;
+  // Circuit breakers of the nodes, if enabled.
+  private final ConcurrentHashMap<MemcachedNode, NodeCircuitBreaker> circuitBreakers;
+  private final int breakerFailureRate;
+  private final long breakerSlowCallNanos;
+  private final long breakerOpenNanos;
+  private final int breakerMinCalls;
+  private final int breakerContinuousTimeouts;
+  // Admission control of all nodes, if outstanding operations are limited or counted.
+  private volatile AdmissionControl admission;
+  private final int maxOutstandingOpsPerNode;
+  private final long maxOutstandingBytesPerNode;
+  /* ENABLE_REPLICATION if */
+  private final HedgedReads hedgedReads;
+  // Latencies of the nodes are recorded if any read picks a replica by them.
+  private final boolean recordNodeLatency;
+  /* ENABLE_REPLICATION end */
   private final AtomicReference<List<InetSocketAddress>> cacheNodesChange
           = new AtomicReference<>(null);
   /* ENABLE_MIGRATION if */
@@ -110,7 +147,6 @@ public final class MemcachedConnection extends SpyObject {
   private final AuthDescriptor authDescriptor;
   private final Collection<ConnectionObserver> connObservers =
           new ConcurrentLinkedQueue<>();
-  private final Set<MemcachedNode> nodesNeedVersionOp = new HashSet<>();
 
   /* ENABLE_MIGRATION if */
   private boolean arcusMigrEnabled = false;
@@ -121,7 +157,11 @@ public final class MemcachedConnection extends SpyObject {
 
   /* ENABLE_REPLICATION if */
   private boolean arcusReplEnabled;
-  private final Set<MemcachedReplicaGroup> delayedSwitchoverGroups = new LinkedHashSet<>();
+  private final Set<MemcachedReplicaGroup> delayedSwitchoverGroups =
+          Collections.newSetFromMap(new ConcurrentHashMap<MemcachedReplicaGroup, Boolean>());
+  // All nodes of a replica group are handled by the same loop,
+  // so that switchover moves operations within one thread.
+  private final Map<String, IOLoop> groupLoops = new HashMap<>();
   /* ENABLE_REPLICATION end */
 
   /**
@@ -144,19 +184,101 @@ public final class MemcachedConnection extends SpyObject {
     authDescriptor = f.getAuthDescriptor();
     connName = name;
     connObservers.addAll(obs);
-    addedQueue = new ConcurrentLinkedQueue<>();
     failureMode = fm;
     optimizeGetOp = f.shouldOptimize();
     opFactory = opfactory;
     timeoutExceptionThreshold = f.getTimeoutExceptionThreshold();
     timeoutDurationThreshold = f.getTimeoutDurationThreshold();
-    selector = Selector.open();
+    connectionsPerNode = Math.max(1, f.getConnectionsPerNode());
+    opDeadline = f.getOperationDeadline();
+    timeoutWheel = opDeadline > 0
+        ? new OperationTimeoutWheel(opDeadline, OperationTimeoutWheel.DEFAULT_TICK_MILLIS,
+            this::recordCircuitTimeout)
+        : null;
+    latencyStats = f.isLatencyStatsEnabled() ? new OperationLatencyStats() : null;
+    slowOpLogger = f.getSlowOperationThreshold() > 0
+        ? new SlowOperationLogger(TimeUnit.MILLISECONDS.toNanos(f.getSlowOperationThreshold()),
+            f.getMaxSlowOperationLogsPerSecond())
+        : null;
+    circuitBreakers = f.isCircuitBreakerEnabled() ? new ConcurrentHashMap<>() : null;
+    breakerFailureRate = f.getCircuitBreakerFailureRate();
+    breakerSlowCallNanos = TimeUnit.MILLISECONDS.toNanos(f.getCircuitBreakerSlowCallThreshold() > 0
+        ? f.getCircuitBreakerSlowCallThreshold() : f.getOperationTimeout());
+    breakerOpenNanos = TimeUnit.MILLISECONDS.toNanos(f.getCircuitBreakerOpenDuration());
+    breakerMinCalls = f.getCircuitBreakerMinimumCalls();
+    breakerContinuousTimeouts = f.getCircuitBreakerContinuousTimeouts();
+    maxOutstandingOpsPerNode = f.getMaxOutstandingOpsPerNode();
+    maxOutstandingBytesPerNode = f.getMaxOutstandingBytesPerNode();
+    admission = maxOutstandingOpsPerNode > 0 || maxOutstandingBytesPerNode > 0
+        || f.getMaxOutstandingOps() > 0 || f.getMaxOutstandingBytes() > 0
+        ? new AdmissionControl(f.getMaxOutstandingOps(), f.getMaxOutstandingBytes(), null)
+        : null;
+    /* ENABLE_REPLICATION if */
+    hedgedReads = f.isHedgedReadEnabled()
+        ? new HedgedReads(this, name, f.getHedgedReadDelay(), f.getHedgedReadBudget())
+        : null;
+    boolean latencyPick = false;
+    for (APIType apiType : APIType.values()) {
+      latencyPick |= f.getAPIReadPriority(apiType) == ReadPriority.LATENCY;
+    }
+    recordNodeLatency = latencyPick;
+    if (recordNodeLatency && admission == null) {
+      // the latency pick weighs the operations outstanding to each node.
+      admission = new AdmissionControl(0, 0, null);
+    }
+    /* ENABLE_REPLICATION end */
+    ioLoopGroup = f.getIOLoopGroup();
+    if (ioLoopGroup == null) {
+      ioLoops = new IOLoop[Math.max(1, f.getIOLoopCount())];
+      for (int i = 0; i < ioLoops.length; i++) {
+        ioLoops[i] = new IOLoop(f.getMaxReconnectDelay(), null);
+      }
+    } else {
+      ioLoops = new IOLoop[ioLoopGroup.getLoopCount()];
+      int home = ioLoopGroup.nextHome();
+      for (int i = 0; i < ioLoops.length; i++) {
+        ioLoops[i] = new IOLoop(f.getMaxReconnectDelay(),
+            ioLoopGroup.getLoop((home + i) % ioLoops.length));
+        ioLoops[i].member = new GroupMember(ioLoops[i], i == 0);
+      }
+    }
     List<MemcachedNode> connections = new ArrayList<>(a.size());
     for (SocketAddress sa : a) {
       connections.add(makeMemcachedNode(connName, sa));
     }
     locator = f.createLocator(connections);
-    reconnectQueue = new ReconnectQueue(f.getMaxReconnectDelay());
+    /* ENABLE_REPLICATION if */
+    syncConnectionReplicaGroups();
+    /* ENABLE_REPLICATION end */
+  }
+
+  /**
+   * Start the threads of the IO loops other than the first one,
+   * which is driven by the caller of {@link #handleIO()},
+   * and the thread expiring operations if a deadline is set.
+   * With an IO loop group, all loops join the loops of the group instead.
+   */
+  void startIOLoops(String name, boolean daemon) {
+    if (timeoutWheel != null) {
+      timeoutWheel.setName(name + " (timer)");
+      timeoutWheel.setDaemon(true);
+      timeoutWheel.start();
+    }
+    if (ioLoopGroup != null) {
+      for (IOLoop loop : ioLoops) {
+        loop.thread = loop.shared;
+        loop.member.active = true;
+        loop.shared.addMember(loop.member);
+      }
+      return;
+    }
+    for (int i = 1; i < ioLoops.length; i++) {
+      IOLoopThread t = new IOLoopThread(ioLoops[i]);
+      t.setName(name + " (loop " + i + ")");
+      t.setDaemon(daemon);
+      ioLoops[i].thread = t;
+      t.start();
+    }
   }
 
   /* ENABLE_REPLICATION if */
@@ -170,6 +292,36 @@ public final class MemcachedConnection extends SpyObject {
   boolean getArcusReplEnabled() {
     return arcusReplEnabled;
   }
+
+  HedgedReads getHedgedReads() {
+    return hedgedReads;
+  }
+
+  /**
+   * Get another active node of the replica group of the given connection
+   * to send a hedged read to, or null if there is none.
+   */
+  MemcachedNode getHedgeNode(MemcachedNode qa) {
+    MemcachedNode node = ownerOf(qa);
+    MemcachedReplicaGroup group = node.getReplicaGroup();
+    if (group == null) {
+      return null;
+    }
+    List<MemcachedNode> candidates = new ArrayList<>(group.getSlaveNodes());
+    MemcachedNode master = group.getMasterNode();
+    if (master != null) {
+      candidates.add(master);
+    }
+    int size = candidates.size();
+    int start = size > 1 ? ThreadLocalRandom.current().nextInt(size) : 0;
+    for (int i = 0; i < size; i++) {
+      MemcachedNode candidate = candidates.get((start + i) % size);
+      if (candidate != node && candidate.isActive()) {
+        return candidate;
+      }
+    }
+    return null;
+  }
   /* ENABLE_REPLICATION end */
 
   /* ENABLE_MIGRATION if */
@@ -186,8 +338,11 @@ public final class MemcachedConnection extends SpyObject {
   }
   /* ENABLE_MIGRATION end */
 
-  private boolean selectorsMakeSense() {
+  private boolean selectorsMakeSense(IOLoop loop) {
     for (MemcachedNode qa : locator.getAll()) {
+      if (loopOf(qa) != loop) {
+        continue;
+      }
       if (qa.getSk() != null && qa.getSk().isValid()) {
         if (qa.getChannel().isConnected()) {
           int sops = qa.getSk().interestOps();
@@ -214,10 +369,10 @@ public final class MemcachedConnection extends SpyObject {
     return true;
   }
 
-  private void addVersionOpToVersionAbsentNodes() {
-    List<MemcachedNode> nodes = new ArrayList<>(nodesNeedVersionOp);
-    List<MemcachedNode> retryNodes = new ArrayList<>(nodesNeedVersionOp.size());
-    nodesNeedVersionOp.clear();
+  private void addVersionOpToVersionAbsentNodes(IOLoop loop) {
+    List<MemcachedNode> nodes = new ArrayList<>(loop.nodesNeedVersionOp);
+    List<MemcachedNode> retryNodes = new ArrayList<>(nodes.size());
+    loop.nodesNeedVersionOp.removeAll(nodes);
 
     for (MemcachedNode qa : nodes) {
       try {
@@ -227,110 +382,205 @@ public final class MemcachedConnection extends SpyObject {
         retryNodes.add(qa);
       }
     }
-    nodesNeedVersionOp.addAll(retryNodes);
+    loop.nodesNeedVersionOp.addAll(retryNodes);
   }
 
   /**
    * MemcachedClient calls this method to handle IO over the connections.
    */
   public void handleIO() throws IOException {
-    // add versionOp to the node that need it.
-    addVersionOpToVersionAbsentNodes();
-
-    // Deal with all of the stuff that's been added, but may not be marked writable.
-    handleInputQueue();
-    getLogger().debug("Done dealing with queue.");
+    IOLoop loop = ioLoops[0];
+    if (loop.thread == null) {
+      loop.thread = Thread.currentThread();
+    }
+    handleIO(loop, true);
+  }
 
-    long delay = 0;
-    if (cacheNodesChange.get() != null) {
-      delay = 1;
-    } else if (!reconnectQueue.isEmpty()) {
-      delay = reconnectQueue.getMinDelayMillis();
+  // The other loops hold the loops lock for read while touching their nodes,
+  // but not while selecting, so that the first loop can pause them at any time.
+  private void handleIO(IOLoop loop, boolean coordinator) throws IOException {
+    long delay;
+    lockLoop(coordinator);
+    try {
+      delay = prepareSelect(loop, coordinator);
+    } finally {
+      unlockLoop(coordinator);
     }
     getLogger().debug("Selecting with delay of %sms", delay);
-    assert selectorsMakeSense() : "Selectors don't make sense.";
+    Selector selector = loop.selector;
     int selected = selector.select(delay);
     Set<SelectionKey> selectedKeys = selector.selectedKeys();
 
-    if (selectedKeys.isEmpty()) {
-      getLogger().debug("No selectors ready, interrupted: " + Thread.interrupted());
-      if (++emptySelects > DOUBLE_CHECK_EMPTY) {
-        getLogger().info(
-            "Reached to the double check of emptySelect. Selected with delay of %dms", delay);
-        for (SelectionKey sk : selector.keys()) {
-          getLogger().info("%s has %s, interested in %s",
-                  sk, sk.readyOps(), sk.interestOps());
-          if (sk.readyOps() != 0) {
-            getLogger().info("%s has a ready op, handling IO", sk);
+    lockLoop(coordinator);
+    try {
+      if (selectedKeys.isEmpty()) {
+        getLogger().debug("No selectors ready, interrupted: " + Thread.interrupted());
+        if (++loop.emptySelects > DOUBLE_CHECK_EMPTY) {
+          getLogger().info(
+              "Reached to the double check of emptySelect. Selected with delay of %dms", delay);
+          for (SelectionKey sk : selector.keys()) {
+            checkKey(sk);
+          }
+          assert loop.emptySelects < EXCESSIVE_EMPTY : "Too many empty selects";
+        }
+      } else {
+        getLogger().debug("Selected %d, selected %d keys", selected, selectedKeys.size());
+        loop.emptySelects = 0;
+
+        for (SelectionKey sk : selectedKeys) {
+          // the node may have been removed by the first loop while selecting.
+          if (sk.isValid() && sk.attachment() != null) {
             handleIO(sk);
-          } else {
-            lostConnection((MemcachedNode) sk.attachment(),
-                ReconnDelay.DEFAULT, "too many empty selects");
           }
         }
-        assert emptySelects < EXCESSIVE_EMPTY : "Too many empty selects";
+        selectedKeys.clear();
       }
-    } else {
-      getLogger().debug("Selected %d, selected %d keys", selected, selectedKeys.size());
-      emptySelects = 0;
 
-      for (SelectionKey sk : selectedKeys) {
-        handleIO(sk);
-      }
-      selectedKeys.clear();
+      finishSelect(loop, coordinator);
+    } finally {
+      unlockLoop(coordinator);
     }
+  }
 
+  private void lockLoop(boolean coordinator) {
+    if (!coordinator && ioLoops.length > 1) {
+      loopsLock.readLock().lock();
+    }
+  }
+
+  private void unlockLoop(boolean coordinator) {
+    if (!coordinator && ioLoops.length > 1) {
+      loopsLock.readLock().unlock();
+    }
+  }
+
+  // Handle the queued work of the loop, and get the time to select.
+  private long prepareSelect(IOLoop loop, boolean coordinator) {
+    // add versionOp to the node that need it.
+    addVersionOpToVersionAbsentNodes(loop);
+
+    // Run the tasks handed over by the other loops.
+    Runnable task;
+    while ((task = loop.tasks.poll()) != null) {
+      task.run();
+    }
+
+    // Deal with all of the stuff that's been added, but may not be marked writable.
+    handleInputQueue(loop);
+    getLogger().debug("Done dealing with queue.");
+
+    long delay = 0;
+    if (coordinator && cacheNodesChange.get() != null) {
+      delay = 1;
+    } else if (!loop.reconnectQueue.isEmpty()) {
+      delay = loop.reconnectQueue.getMinDelayMillis();
+    }
+    assert selectorsMakeSense(loop) : "Selectors don't make sense.";
+    return delay;
+  }
+
+  private void checkKey(SelectionKey sk) {
+    getLogger().info("%s has %s, interested in %s",
+            sk, sk.readyOps(), sk.interestOps());
+    if (sk.readyOps() != 0) {
+      getLogger().info("%s has a ready op, handling IO", sk);
+      handleIO(sk);
+    } else {
+      lostConnection((MemcachedNode) sk.attachment(),
+          ReconnDelay.DEFAULT, "too many empty selects");
+    }
+  }
+
+  // Handle the timeouts, the node changes and the reconnects after selecting.
+  private void finishSelect(IOLoop loop, boolean coordinator) throws IOException {
     // see if any connections blew up with large number of timeouts
-    for (SelectionKey sk : selector.keys()) {
-      Object attachment = sk.attachment();
-      // attachment might be null, because some node has already closed the channel to reconnect.
-      if (attachment == null) {
-        continue;
+    if (loop.shared == null) {
+      for (SelectionKey sk : loop.selector.keys()) {
+        Object attachment = sk.attachment();
+        // attachment might be null, because some node has already closed the channel to reconnect.
+        if (attachment != null) {
+          checkContinuousTimeout((MemcachedNode) attachment);
+        }
       }
-      MemcachedNode mn = (MemcachedNode) attachment;
-      if (mn.getContinuousTimeout() > timeoutExceptionThreshold &&
-          (timeoutDurationThreshold == 0 || mn.getTimeoutDuration() > timeoutDurationThreshold)) {
-        getLogger().warn(
-            "%s exceeded continuous timeout threshold. >%s(count), >%s(duration) (%s)",
-            mn.getNodeName(),
-            timeoutExceptionThreshold, timeoutDurationThreshold, mn.getOpQueueStatus());
-        lostConnection(mn, ReconnDelay.DEFAULT, "continuous timeout");
+    } else {
+      for (MemcachedNode mn : loop.nodes) {
+        if (mn.getChannel() != null) {
+          checkContinuousTimeout(mn);
+        }
       }
     }
 
-    // Deal with the memcached server group that's been added by CacheManager.
-    handleCacheNodesChange();
+    if (coordinator) {
+      // Deal with the memcached server group that's been added by CacheManager.
+      handleCacheNodesChange();
+    }
 
-    if (!reconnectQueue.isEmpty()) {
-      attemptReconnects();
+    if (!loop.reconnectQueue.isEmpty()) {
+      attemptReconnects(loop);
+    }
+  }
+
+  private void checkContinuousTimeout(MemcachedNode mn) {
+    if (mn.getContinuousTimeout() > timeoutExceptionThreshold &&
+        (timeoutDurationThreshold == 0 || mn.getTimeoutDuration() > timeoutDurationThreshold)) {
+      getLogger().warn(
+          "%s exceeded continuous timeout threshold. >%s(count), >%s(duration) (%s)",
+          mn.getNodeName(),
+          timeoutExceptionThreshold, timeoutDurationThreshold, mn.getOpQueueStatus());
+      lostConnection(mn, ReconnDelay.DEFAULT, "continuous timeout");
     }
   }
 
   private void handleNodesToRemove(final List<MemcachedNode> nodesToRemove) {
     for (MemcachedNode node : nodesToRemove) {
       getLogger().info("old memcached node removed %s", node);
-      reconnectQueue.remove(node);
-
-      /* ENABLE_MIGRATION if */
-      if (mgType == MigrationType.LEAVE) {
-        if (node.hasReadOp()) {
-          redistributeOperationsForMigration(node.destroyReadQueue(false));
+      MemcachedNode[] connections = connectionsOf(node);
+      for (MemcachedNode qa : connections) {
+        removeConnection(qa);
+        if (latencyStats != null) {
+          latencyStats.remove(qa);
         }
-        if (node.hasWriteOp()) {
-          redistributeOperationsForMigration(node.destroyWriteQueue(false));
+      }
+      if (circuitBreakers != null) {
+        circuitBreakers.remove(node);
+      }
+      // The locator has closed the first connection.
+      for (int i = 1; i < connections.length; i++) {
+        extraConnectionOwners.remove(connections[i]);
+        try {
+          connections[i].closeChannel();
+        } catch (IOException e) {
+          getLogger().warn("IOException trying to close a socket", e);
         }
-        redistributeOperationsForMigration(node.destroyInputQueue());
-        continue;
       }
-      /* ENABLE_MIGRATION end */
+      nodeConnections.remove(node);
+    }
+  }
+
+  private void removeConnection(MemcachedNode node) {
+    loopOf(node).reconnectQueue.remove(node);
+    loopOf(node).disown(node);
+    releaseLoop(node);
 
-      // removing node is not related to failure mode.
-      // so, cancel operations regardless of failure mode.
-      String cause = "node removed.";
-      cancelOperations(node.destroyReadQueue(false), cause);
-      cancelOperations(node.destroyWriteQueue(false), cause);
-      cancelOperations(node.destroyInputQueue(), cause);
+    /* ENABLE_MIGRATION if */
+    if (mgType == MigrationType.LEAVE) {
+      if (node.hasReadOp()) {
+        redistributeOperationsForMigration(node.destroyReadQueue(false));
+      }
+      if (node.hasWriteOp()) {
+        redistributeOperationsForMigration(node.destroyWriteQueue(false));
+      }
+      redistributeOperationsForMigration(node.destroyInputQueue());
+      return;
     }
+    /* ENABLE_MIGRATION end */
+
+    // removing node is not related to failure mode.
+    // so, cancel operations regardless of failure mode.
+    String cause = "node removed.";
+    cancelOperations(node.destroyReadQueue(false), cause);
+    cancelOperations(node.destroyWriteQueue(false), cause);
+    cancelOperations(node.destroyInputQueue(), cause);
   }
 
   private void updateConnections(List<InetSocketAddress> addrs) throws IOException {
@@ -456,7 +706,7 @@ public final class MemcachedConnection extends SpyObject {
           } else {
             // ZK event occurs before cache server response.
             oldGroup.setMasterCandidateByAddr(newMasterAddr.getIPPort());
-            if (oldMasterNode.hasNonIdempotentOperationInReadQ()) {
+            if (hasNonIdempotentOperationInReadQ(oldMasterNode)) {
               // delay to change role and move operations
               // by the time switchover timeout occurs or
               // "SWITCHOVER", "REPL_SLAVE" response received.
@@ -514,6 +764,7 @@ public final class MemcachedConnection extends SpyObject {
     }
     // Update the hash.
     ((ArcusReplKetamaNodeLocator) locator).update(attachNodes, removeNodes, changeRoleGroups);
+    syncConnectionReplicaGroups();
 
     // do task after locator update
     for (Task task : taskList) {
@@ -560,7 +811,39 @@ public final class MemcachedConnection extends SpyObject {
     }
 
     if (from.moveOperations(to, cancelNonIdempotent) > 0) {
-      addedQueue.offer(to);
+      loopOf(to).addedQueue.offer(to);
+    }
+  }
+
+  private void moveNodeOperations(MemcachedNode from, MemcachedNode to,
+                                  boolean cancelNonIdempotent) {
+    for (MemcachedNode qa : connectionsOf(from)) {
+      moveOperations(qa, to, cancelNonIdempotent);
+    }
+  }
+
+  private void queueNodeReconnect(MemcachedNode node, ReconnDelay type, String cause) {
+    for (MemcachedNode qa : connectionsOf(node)) {
+      queueReconnect(qa, type, cause);
+    }
+  }
+
+  private boolean hasNonIdempotentOperationInReadQ(MemcachedNode node) {
+    for (MemcachedNode qa : connectionsOf(node)) {
+      if (qa.hasNonIdempotentOperationInReadQ()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // The locator sets the replica group only on the first connection of a node.
+  private void syncConnectionReplicaGroups() {
+    for (NodeConnections conns : nodeConnections.values()) {
+      MemcachedReplicaGroup group = conns.nodes[0].getReplicaGroup();
+      for (int i = 1; i < conns.nodes.length; i++) {
+        conns.nodes[i].setReplicaGroup(group);
+      }
     }
   }
   /* ENABLE_REPLICATION end */
@@ -580,6 +863,27 @@ public final class MemcachedConnection extends SpyObject {
 
   private MemcachedNode makeMemcachedNode(String name,
                                           SocketAddress sa) throws IOException {
+    MemcachedNode node = openConnection(name, sa);
+    // connections of a node share its admission control.
+    AdmissionControl ac = admission;
+    AdmissionControl nodeAdmission = ac == null ? null
+        : new AdmissionControl(maxOutstandingOpsPerNode, maxOutstandingBytesPerNode, ac);
+    node.setAdmissionControl(nodeAdmission);
+    if (connectionsPerNode > 1) {
+      MemcachedNode[] nodes = new MemcachedNode[connectionsPerNode];
+      nodes[0] = node;
+      for (int i = 1; i < nodes.length; i++) {
+        nodes[i] = openConnection(name, sa);
+        nodes[i].setAdmissionControl(nodeAdmission);
+        extraConnectionOwners.put(nodes[i], node);
+      }
+      nodeConnections.put(node, new NodeConnections(nodes));
+    }
+    return node;
+  }
+
+  private MemcachedNode openConnection(String name,
+                                       SocketAddress sa) throws IOException {
     MemcachedNode qa = connFactory.createMemcachedNode(name, sa, connFactory.getReadBufSize());
     SocketChannel ch = SocketChannel.open();
     ch.configureBlocking(false);
@@ -590,6 +894,8 @@ public final class MemcachedConnection extends SpyObject {
     // ch.setOption(StandardSocketOptions.TCP_NODELAY, !f.useNagleAlgorithm());
     // ch.setOption(StandardSocketOptions.SO_REUSEADDR, true);
     qa.setChannel(ch);
+    IOLoop loop = assignLoop(qa);
+    loop.own(qa);
     int ops = 0;
     // Initially I had attempted to skirt this by queueing every
     // connect, but it considerably slowed down start time.
@@ -601,10 +907,7 @@ public final class MemcachedConnection extends SpyObject {
         getLogger().info("new memcached node added %s to connect queue", qa);
         ops = SelectionKey.OP_CONNECT;
       }
-      qa.setSk(ch.register(selector, ops, qa));
-      assert ch.isConnected()
-              || qa.getSk().interestOps() == SelectionKey.OP_CONNECT
-              : "Not connected, and not wanting to connect";
+      register(loop, qa, ch, ops);
     } catch (SocketException e) {
       getLogger().warn("new memcached socket error on initial connect");
       queueReconnect(qa, ReconnDelay.DEFAULT, "initial connection error");
@@ -612,6 +915,36 @@ public final class MemcachedConnection extends SpyObject {
     return qa;
   }
 
+  // A selector is registered with only by the thread of its loop, since a loop
+  // may be selecting without the loops lock. The other threads hand it over.
+  private void register(final IOLoop loop, final MemcachedNode qa,
+                        final SocketChannel ch, final int ops) throws ClosedChannelException {
+    Thread owner = loop.thread;
+    if (owner == Thread.currentThread() || (owner == null && loop.shared == null)) {
+      qa.setSk(ch.register(loop.selector, ops, qa));
+      assert ch.isConnected()
+              || qa.getSk().interestOps() == SelectionKey.OP_CONNECT
+              : "Not connected, and not wanting to connect";
+      return;
+    }
+    loop.tasks.offer(new Runnable() {
+      @Override
+      public void run() {
+        // the channel may have been closed to reconnect in the meantime.
+        if (qa.getChannel() != ch || !ch.isOpen()) {
+          return;
+        }
+        try {
+          qa.setSk(ch.register(loop.selector, ops, qa));
+          loop.addedQueue.offer(qa);
+        } catch (ClosedChannelException e) {
+          getLogger().warn("Channel closed before registered: %s", qa);
+        }
+      }
+    });
+    loop.wakeup();
+  }
+
   private void prepareAuthentication(final MemcachedNode node) {
     if (authDescriptor == null) {
       return;
@@ -661,7 +994,7 @@ public final class MemcachedConnection extends SpyObject {
       @Override
       public void complete() {
         if (authDone) {
-          addedQueue.offer(node);
+          loopOf(node).addedQueue.offer(node);
           return;
         }
 
@@ -695,20 +1028,53 @@ public final class MemcachedConnection extends SpyObject {
       @Override
       public void complete() {
         if (node.getVersion() == null) {
-          nodesNeedVersionOp.add(node);
+          loopOf(node).nodesNeedVersionOp.add(node);
         }
       }
     });
 
     node.insertOp(op);
-    addedQueue.offer(node);
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    IOLoop loop = loopOf(node);
+    loop.addedQueue.offer(node);
+    loop.wakeup();
     getLogger().debug("Added %s to writeQ of %s", op, node);
   }
 
   // Handle the memcached server group that's been added by CacheManager.
   void handleCacheNodesChange() throws IOException {
+    boolean changed = cacheNodesChange.get() != null;
+    /* ENABLE_MIGRATION if */
+    changed = changed || alterNodesChange.get() != null;
+    /* ENABLE_MIGRATION end */
+    if (!changed) {
+      return;
+    }
+    // The other loops are paused while the nodes are changed,
+    // so that their nodes and queues can be touched from this thread.
+    pauseOtherLoops();
+    try {
+      applyCacheNodesChange();
+    } finally {
+      resumeOtherLoops();
+    }
+  }
+
+  // The other loops do not hold the loops lock while selecting,
+  // so it is taken as soon as they finish handling their nodes.
+  private void pauseOtherLoops() {
+    if (ioLoops.length == 1) {
+      return;
+    }
+    loopsLock.writeLock().lock();
+  }
+
+  private void resumeOtherLoops() {
+    if (loopsLock.isWriteLockedByCurrentThread()) {
+      loopsLock.writeLock().unlock();
+    }
+  }
+
+  private void applyCacheNodesChange() throws IOException {
     /* ENABLE_MIGRATION if */
     /*
      * handleCacheNodesChange() and handleAlterNodesChange() have been integrated
@@ -762,7 +1128,7 @@ public final class MemcachedConnection extends SpyObject {
       alterNodesChange.set(old);
     }
     /* ENABLE_MIGRATION end */
-    selector.wakeup();
+    ioLoops[0].wakeup();
   }
 
   /* ENABLE_MIGRATION if */
@@ -779,7 +1145,7 @@ public final class MemcachedConnection extends SpyObject {
         getLogger().info("Ignored previous alter nodes change.");
       }
       delayedAlterNodesChange.set(null);
-      selector.wakeup();
+      ioLoops[0].wakeup();
     }
   }
 
@@ -798,6 +1164,9 @@ public final class MemcachedConnection extends SpyObject {
       }
     }
     locator.prepareMigration(alterNodes, mgType);
+    /* ENABLE_REPLICATION if */
+    syncConnectionReplicaGroups();
+    /* ENABLE_REPLICATION end */
     mgInProgress = true;
   }
 
@@ -830,6 +1199,9 @@ public final class MemcachedConnection extends SpyObject {
 
     // Update the hash.
     locator.updateAlter(attachNodes, removeNodes);
+    /* ENABLE_REPLICATION if */
+    syncConnectionReplicaGroups();
+    /* ENABLE_REPLICATION end */
 
     // Remove the unavailable nodes.
     handleNodesToRemove(removeNodes);
@@ -846,8 +1218,8 @@ public final class MemcachedConnection extends SpyObject {
       group.setDelayedSwitchover(false);
       ((ArcusReplKetamaNodeLocator) locator).switchoverReplGroup(group);
 
-      moveOperations(oldMaster, group.getMasterNode(), true);
-      queueReconnect(oldMaster, ReconnDelay.IMMEDIATE,
+      moveNodeOperations(oldMaster, group.getMasterNode(), true);
+      queueNodeReconnect(oldMaster, ReconnDelay.IMMEDIATE,
               "Discarded all pending reading state operation to move operations.");
 
       iterator.remove();
@@ -865,7 +1237,8 @@ public final class MemcachedConnection extends SpyObject {
   }
 
   // Handle any requests that have been made against the client.
-  private void handleInputQueue() {
+  private void handleInputQueue(IOLoop loop) {
+    ConcurrentLinkedQueue<MemcachedNode> addedQueue = loop.addedQueue;
     if (!addedQueue.isEmpty()) {
       getLogger().debug("Handling queue");
       // If there's stuff in the added queue.  Try to process it.
@@ -958,7 +1331,7 @@ public final class MemcachedConnection extends SpyObject {
         final SocketChannel channel = qa.getChannel();
         if (channel.finishConnect()) {
           connected(qa);
-          addedQueue.offer(qa);
+          loopOf(qa).addedQueue.offer(qa);
           if (qa.getWbuf().hasRemaining()) {
             handleWrites(qa);
           }
@@ -1026,67 +1399,86 @@ public final class MemcachedConnection extends SpyObject {
     Operation currentOp = qa.getCurrentReadOp();
     ByteBuffer rbuf = qa.getRbuf();
     final SocketChannel channel = qa.getChannel();
-    int read = channel.read(rbuf);
-    while (read > 0) {
-      getLogger().debug("Read %d bytes", read);
-      ((Buffer) rbuf).flip();
-      while (rbuf.remaining() > 0) {
-        if (currentOp == null) {
-          throw new IllegalStateException("No read operation.");
+    try {
+      int read = channel.read(rbuf);
+      while (read > 0) {
+        getLogger().debug("Read %d bytes", read);
+        boolean filled = !rbuf.hasRemaining();
+        ((Buffer) rbuf).flip();
+        while (rbuf.remaining() > 0) {
+          if (currentOp == null) {
+            throw new IllegalStateException("No read operation.");
+          }
+          currentOp.readFromBuffer(rbuf);
+          if (currentOp.getState() == OperationState.COMPLETE) {
+            getLogger().debug("Completed read op: %s and giving the next %d bytes",
+                    currentOp, rbuf.remaining());
+            Operation op = qa.removeCurrentReadOp();
+            assert op == currentOp : "Expected to pop " + currentOp + " got " + op;
+            /* ENABLE_REPLICATION if */
+            if (recordNodeLatency) {
+              ownerOf(qa).recordLatency(
+                  System.nanoTime() - op.getTimestamp(OperationTimestamp.CREATED));
+            }
+            /* ENABLE_REPLICATION end */
+            if (circuitBreakers != null) {
+              recordCircuit(ownerOf(qa), op);
+            }
+            currentOp = qa.getCurrentReadOp();
+          /* ENABLE_REPLICATION if */
+          } else if (currentOp.getState() == OperationState.NEED_SWITCHOVER) {
+            break;
+          /* ENABLE_REPLICATION end */
+          /* ENABLE_MIGRATION if */
+          } else if (currentOp.getState() == OperationState.REDIRECT) {
+            Operation op = qa.removeCurrentReadOp();
+            assert op == currentOp : "Expected to pop " + currentOp + " got " + op;
+            if (currentOp == qa.getCurrentWriteOp()) { // partially written
+              qa.removeCurrentWriteOp();
+            }
+            redirectOperation(currentOp);
+            currentOp = qa.getCurrentReadOp();
+          }
+          /* ENABLE_MIGRATION end */
         }
-        currentOp.readFromBuffer(rbuf);
-        if (currentOp.getState() == OperationState.COMPLETE) {
-          getLogger().debug("Completed read op: %s and giving the next %d bytes",
-                  currentOp, rbuf.remaining());
-          Operation op = qa.removeCurrentReadOp();
-          assert op == currentOp : "Expected to pop " + currentOp + " got " + op;
-          currentOp = qa.getCurrentReadOp();
         /* ENABLE_REPLICATION if */
-        } else if (currentOp.getState() == OperationState.NEED_SWITCHOVER) {
-          break;
-        /* ENABLE_REPLICATION end */
-        /* ENABLE_MIGRATION if */
-        } else if (currentOp.getState() == OperationState.REDIRECT) {
-          Operation op = qa.removeCurrentReadOp();
-          assert op == currentOp : "Expected to pop " + currentOp + " got " + op;
-          if (currentOp == qa.getCurrentWriteOp()) { // partially written
-            qa.removeCurrentWriteOp();
+        if (currentOp != null && currentOp.getState() == OperationState.NEED_SWITCHOVER) {
+          ((Buffer) rbuf).clear();
+          MemcachedReplicaGroup group = qa.getReplicaGroup();
+          if (group.isDelayedSwitchover() && group.getMasterNode() == ownerOf(qa)) {
+            clearDelayedSwitchoverGroup(group);
+            ((ArcusReplKetamaNodeLocator) locator).switchoverReplGroup(group);
+
+            moveOperations(qa, group.getMasterNode(), false);
+          } else {
+            moveOperations(qa, group.getMasterCandidate(), false);
           }
-          redirectOperation(currentOp);
-          currentOp = qa.getCurrentReadOp();
+          queueReconnect(qa, ReconnDelay.IMMEDIATE,
+                  "Discarded all pending reading state operation to move operations.");
+          break;
         }
-        /* ENABLE_MIGRATION end */
-      }
-      /* ENABLE_REPLICATION if */
-      if (currentOp != null && currentOp.getState() == OperationState.NEED_SWITCHOVER) {
+        /* ENABLE_REPLICATION end */
         ((Buffer) rbuf).clear();
-        MemcachedReplicaGroup group = qa.getReplicaGroup();
-        if (group.isDelayedSwitchover() && group.getMasterNode() == qa) {
-          clearDelayedSwitchoverGroup(group);
-          ((ArcusReplKetamaNodeLocator) locator).switchoverReplGroup(group);
-
-          moveOperations(qa, group.getMasterNode(), false);
-        } else {
-          moveOperations(qa, group.getMasterCandidate(), false);
+        if (filled) {
+          // more data may be pending, such as a large value.
+          rbuf = qa.expandRbuf();
         }
-        queueReconnect(qa, ReconnDelay.IMMEDIATE,
-                "Discarded all pending reading state operation to move operations.");
-        break;
+        read = channel.read(rbuf);
       }
-      /* ENABLE_REPLICATION end */
-      ((Buffer) rbuf).clear();
-      read = channel.read(rbuf);
-    }
-    if (read < 0) {
-      // our model is to keep the connection alive for future ops
-      // so we'll queue a reconnect if disconnected via an IOException
-      throw new IOException("Disconnected unexpected, will reconnect.");
+      if (read < 0) {
+        // our model is to keep the connection alive for future ops
+        // so we'll queue a reconnect if disconnected via an IOException
+        throw new IOException("Disconnected unexpected, will reconnect.");
+      }
+    } finally {
+      // the buffer is given back even if reading fails, as the node reconnects then.
+      qa.releaseRbuf();
     }
     /* ENABLE_REPLICATION if */
     if (arcusReplEnabled) {
       if (currentOp == null) { // readQ is empty
         MemcachedReplicaGroup group = qa.getReplicaGroup();
-        if (group.isDelayedSwitchover() && group.getMasterNode() == qa) {
+        if (group.isDelayedSwitchover() && group.getMasterNode() == ownerOf(qa)) {
           clearDelayedSwitchoverGroup(group);
           ((ArcusReplKetamaNodeLocator) locator).switchoverReplGroup(group);
 
@@ -1119,15 +1511,10 @@ public final class MemcachedConnection extends SpyObject {
     locator.updateMigration(rh.getMigrationBasePoint(), rh.getMigrationEndPoint());
 
     // Redirect operation
-    boolean success;
     if (rh instanceof RedirectHandler.RedirectHandlerSingleKey) {
-      success = redirectSingleKeyOperation((RedirectHandler.RedirectHandlerSingleKey) rh, op);
+      redirectSingleKeyOperation((RedirectHandler.RedirectHandlerSingleKey) rh, op);
     } else {
-      success = redirectMultiKeyOperation((RedirectHandler.RedirectHandlerMultiKey) rh, op);
-    }
-    if (success) {
-      Selector s = selector.wakeup();
-      assert s == selector : "Wakeup returned the wrong selector.";
+      redirectMultiKeyOperation((RedirectHandler.RedirectHandlerMultiKey) rh, op);
     }
   }
 
@@ -1156,8 +1543,7 @@ public final class MemcachedConnection extends SpyObject {
       op.cancel("Redirect failure. Inactive node.");
       return false;
     }
-    node.addOpToWriteQ(op);
-    addedQueue.offer(node);
+    addOpToWriteQ(node, op);
     return true;
   }
 
@@ -1198,17 +1584,36 @@ public final class MemcachedConnection extends SpyObject {
       }
       ops.put(node, clonedOp);
     }
+    // the cloned operations answer for the original, so its admission is released.
+    op.supersede();
     if (ops.isEmpty()) {
       return false;
     }
     for (Map.Entry<MemcachedNode, Operation> entry : ops.entrySet()) {
-      node = entry.getKey();
-      node.addOpToWriteQ(entry.getValue());
-      addedQueue.offer(node);
+      addOpToWriteQ(entry.getKey(), entry.getValue());
     }
     return true;
   }
 
+  // The write queue of a node is touched only by the loop that owns the node.
+  private void addOpToWriteQ(final MemcachedNode node, final Operation op) {
+    final IOLoop loop = loopOf(node);
+    if (ioLoops.length == 1 || loop.thread == Thread.currentThread()
+        || loopsLock.isWriteLockedByCurrentThread()) {
+      node.addOpToWriteQ(op);
+      loop.addedQueue.offer(node);
+    } else {
+      loop.tasks.offer(new Runnable() {
+        @Override
+        public void run() {
+          node.addOpToWriteQ(op);
+          loop.addedQueue.offer(node);
+        }
+      });
+    }
+    loop.wakeup();
+  }
+
   public MemcachedNode findNodeByOwner(String owner) {
     return locator.getOwnerNode(owner, mgType);
   }
@@ -1231,6 +1636,7 @@ public final class MemcachedConnection extends SpyObject {
   }
 
   private void queueReconnect(MemcachedNode qa, ReconnDelay type, String cause) {
+    ReconnectQueue reconnectQueue = loopOf(qa).reconnectQueue;
     if (reconnectQueue.contains(qa)) {
       reconnectQueue.replace(qa, type);
       return;
@@ -1239,7 +1645,7 @@ public final class MemcachedConnection extends SpyObject {
     /* ENABLE_REPLICATION if */
     if (arcusReplEnabled) {
       MemcachedReplicaGroup group = qa.getReplicaGroup();
-      if (group.isDelayedSwitchover() && group.getMasterNode() == qa) {
+      if (group.isDelayedSwitchover() && group.getMasterNode() == ownerOf(qa)) {
         clearDelayedSwitchoverGroup(group);
         ((ArcusReplKetamaNodeLocator) locator).switchoverReplGroup(group);
 
@@ -1258,6 +1664,14 @@ public final class MemcachedConnection extends SpyObject {
       getLogger().warn("IOException trying to close a socket", e);
     }
 
+    if (circuitBreakers != null && type == ReconnDelay.DEFAULT) {
+      NodeCircuitBreaker breaker = circuitBreakers.get(ownerOf(qa));
+      if (breaker != null) {
+        // the operations waiting for their answers are lost.
+        breaker.recordLost(qa.getReadQueueSize());
+      }
+    }
+
     // Need to do a little queue management.
     qa.setupResend(cause);
 
@@ -1285,9 +1699,14 @@ public final class MemcachedConnection extends SpyObject {
       if (op instanceof KeyedOperation) {
         KeyedOperation ko = (KeyedOperation) op;
         int added = 0;
+        // the clones answer for the original, so its admission is released.
+        op.supersede();
         for (String k : ko.getKeys()) {
           for (Operation newop : opFactory.clone(ko)) {
-            addOperation(k, newop);
+            // the IO thread must not wait for room in the queue of a node.
+            if (!tryAddOperation(k, newop)) {
+              newop.cancel("operation queue full");
+            }
             added++;
           }
         }
@@ -1301,7 +1720,6 @@ public final class MemcachedConnection extends SpyObject {
 
   /* ENABLE_MIGRATION if */
   private void redistributeOperationsForMigration(Collection<Operation> ops) {
-    boolean success = false;
     for (Operation op : ops) {
       if (op instanceof KeyedOperation) {
         KeyedOperation ko = (KeyedOperation) op;
@@ -1309,19 +1727,15 @@ public final class MemcachedConnection extends SpyObject {
 
         if (keys.size() == 1) {
           String key = keys.toArray()[0].toString();
-          success = success || redirectSingleKeyOperation(key, op);
+          redirectSingleKeyOperation(key, op);
         } else {
           Map<MemcachedNode, List<String>> nodeByKeys = groupKeysByNode(keys, op);
-          success = success || redirectMultiKeyOperation(nodeByKeys, op);
+          redirectMultiKeyOperation(nodeByKeys, op);
         }
       } else {
         op.cancel("by redistribution.");
       }
     }
-    if (success) {
-      Selector s = selector.wakeup();
-      assert s == selector : "Wakeup returned the wrong selector.";
-    }
   }
 
   public Map<MemcachedNode, List<String>> groupKeysByNode(Collection<String> keys,
@@ -1343,12 +1757,12 @@ public final class MemcachedConnection extends SpyObject {
   }
   /* ENABLE_MIGRATION end */
 
-  private void attemptReconnects() {
+  private void attemptReconnects(IOLoop loop) {
     final List<MemcachedNode> rereQueue = new ArrayList<>();
     final long nanoTime = System.nanoTime();
     SocketChannel ch = null;
     MemcachedNode node;
-    while ((node = reconnectQueue.popReady(nanoTime)) != null) {
+    while ((node = loop.reconnectQueue.popReady(nanoTime)) != null) {
       if (node.getChannel() != null) {
         // Below the code cannot be executed.
         // Because the reconnect queue are not allowed to add the same node.
@@ -1372,11 +1786,11 @@ public final class MemcachedConnection extends SpyObject {
         if (ch.connect(node.getSocketAddress())) {
           getLogger().info("Immediately reconnected to %s", node);
           connected(node);
-          addedQueue.offer(node);
+          loop.addedQueue.offer(node);
         } else {
           ops = SelectionKey.OP_CONNECT;
         }
-        node.setSk(ch.register(selector, ops, node));
+        node.setSk(ch.register(loop.selector, ops, node));
         assert node.getChannel() == ch : "Channel was lost.";
       } catch (SocketException e) {
         getLogger().warn("Error on reconnect", e);
@@ -1418,6 +1832,8 @@ public final class MemcachedConnection extends SpyObject {
         pick = ReplicaPick.SLAVE;
       } else if (readPriority == ReadPriority.RR) {
         pick = ReplicaPick.RR;
+      } else if (readPriority == ReadPriority.LATENCY) {
+        pick = ReplicaPick.LATENCY;
       }
     }
     return pick;
@@ -1431,6 +1847,8 @@ public final class MemcachedConnection extends SpyObject {
         pick = ReplicaPick.SLAVE;
       } else if (readPriority == ReadPriority.RR) {
         pick = ReplicaPick.RR;
+      } else if (readPriority == ReadPriority.LATENCY) {
+        pick = ReplicaPick.LATENCY;
       }
     }
     return pick;
@@ -1502,32 +1920,168 @@ public final class MemcachedConnection extends SpyObject {
       return;
     }
     node.insertOp(o);
-    addedQueue.offer(node);
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    IOLoop loop = loopOf(node);
+    loop.addedQueue.offer(node);
+    loop.wakeup();
     getLogger().debug("Added %s to %s", o, node);
   }
 
-  public void addOperation(final MemcachedNode node, final Operation o) {
+  public void addOperation(MemcachedNode node, final Operation o) {
+    addOperation(node, o, true);
+  }
+
+  /**
+   * Add an operation to the given connection without waiting for room in its queue.
+   *
+   * @param key the key the operation is operating upon
+   * @param o   the operation
+   * @return false if the operation is not added because the queue of the node is full
+   *         or the node or the client has as many outstanding operations as allowed
+   */
+  public boolean tryAddOperation(final String key, final Operation o) {
+    return tryAddOperation(findNodeByKey(key, o), o);
+  }
+
+  /**
+   * Add an operation to the given node without waiting for room in its queue.
+   *
+   * @return false if the operation is not added because the queue of the node is full
+   *         or the node or the client has as many outstanding operations as allowed
+   */
+  public boolean tryAddOperation(MemcachedNode node, final Operation o) {
+    return addOperation(node, o, false);
+  }
+
+  private boolean addOperation(MemcachedNode node, final Operation o, boolean block) {
     if (node == null) {
       o.cancel("no node");
-      return;
+      return true;
+    }
+    NodeCircuitBreaker.Permit permit = NodeCircuitBreaker.Permit.ALLOW;
+    if (circuitBreakers != null && node.isActive()) {
+      permit = acquireCircuit(node, o);
+      if (permit == NodeCircuitBreaker.Permit.REJECT) {
+        o.setHandlingNode(node);
+        o.cancel("circuit breaker open");
+        return true;
+      }
+    }
+    if (permit != NodeCircuitBreaker.Permit.PROBE) {
+      return enqueueOperation(node, o, block);
+    }
+    boolean added = false;
+    try {
+      added = enqueueOperation(node, o, block);
+    } finally {
+      // a probe that is not sent gives its permit back.
+      if (!added || o.isCancelled()) {
+        circuitBreakers.get(ownerOf(node)).release(o);
+      }
+    }
+    return added;
+  }
+
+  private boolean enqueueOperation(MemcachedNode node, final Operation o, boolean block) {
+    if (connectionsPerNode > 1) {
+      NodeConnections conns = nodeConnections.get(node);
+      if (conns != null) {
+        node = conns.next(o);
+      }
     }
     if (node.isAuthFailed()) {
       o.setHandlingNode(node);
       o.cancel("authentication failed");
-      return;
+      return true;
     }
     if (!node.isActive() && failureMode == FailureMode.Cancel) {
       o.setHandlingNode(node);
       o.cancel("inactive node");
-      return;
+      return true;
+    }
+    if (latencyStats != null) {
+      o.setLatencyStats(latencyStats);
+    }
+    if (slowOpLogger != null) {
+      o.setSlowOperationLogger(slowOpLogger);
     }
-    node.addOpToInputQ(o);
-    addedQueue.offer(node);
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    if (block) {
+      node.addOpToInputQ(o);
+    } else if (!node.tryAddOpToInputQ(o)) {
+      return false;
+    }
+    if (timeoutWheel != null) {
+      timeoutWheel.add(o, opDeadline);
+    }
+    IOLoop loop = loopOf(node);
+    loop.addedQueue.offer(node);
+    loop.wakeup();
     getLogger().debug("Added %s to %s", o, node);
+    return true;
+  }
+
+  /**
+   * Check the circuit breaker of the node without changing its state.
+   *
+   * @return true if operations may be sent to the node
+   */
+  private boolean isCircuitAvailable(MemcachedNode node) {
+    MemcachedNode owner = ownerOf(node);
+    NodeCircuitBreaker breaker = circuitBreakers.get(owner);
+    return breaker == null || breaker.isAvailable(getContinuousTimeout(owner));
+  }
+
+  /**
+   * Ask the circuit breaker of the node for a permit to send the operation.
+   * The operation is the probe of the node if its breaker is half open.
+   *
+   * @return the permit given to the operation
+   */
+  private NodeCircuitBreaker.Permit acquireCircuit(MemcachedNode node, Operation o) {
+    MemcachedNode owner = ownerOf(node);
+    NodeCircuitBreaker breaker = circuitBreakers.get(owner);
+    if (breaker == null) {
+      breaker = circuitBreakers.computeIfAbsent(owner, n -> new NodeCircuitBreaker(
+          n.getNodeName(), breakerFailureRate, breakerSlowCallNanos, breakerOpenNanos,
+          breakerMinCalls, breakerContinuousTimeouts));
+    }
+    NodeCircuitBreaker.Permit permit = breaker.acquire(o, getContinuousTimeout(owner));
+    if (permit == NodeCircuitBreaker.Permit.PROBE) {
+      getLogger().info("Probing %s with %s to close its circuit breaker.",
+          owner.getNodeName(), o);
+    }
+    return permit;
+  }
+
+  private int getContinuousTimeout(MemcachedNode owner) {
+    int continuousTimeouts = 0;
+    for (MemcachedNode qa : connectionsOf(owner)) {
+      continuousTimeouts = Math.max(continuousTimeouts, qa.getContinuousTimeout());
+    }
+    return continuousTimeouts;
+  }
+
+  private void recordCircuit(MemcachedNode node, Operation op) {
+    NodeCircuitBreaker breaker = circuitBreakers.get(node);
+    // an operation expired by the timeout wheel is recorded when it expires.
+    if (breaker != null && !op.isTimedOut() && breaker.record(op,
+        System.nanoTime() - op.getTimestamp(OperationTimestamp.CREATED), false)) {
+      // closed by the probe.
+      for (MemcachedNode qa : connectionsOf(node)) {
+        qa.setContinuousTimeout(false);
+      }
+    }
+  }
+
+  // Called by the timeout wheel for an operation expired before its answer.
+  private void recordCircuitTimeout(Operation op) {
+    MemcachedNode node = op.getHandlingNode();
+    if (circuitBreakers == null || node == null) {
+      return;
+    }
+    NodeCircuitBreaker breaker = circuitBreakers.get(ownerOf(node));
+    if (breaker != null) {
+      breaker.record(op, System.nanoTime() - op.getTimestamp(OperationTimestamp.CREATED), true);
+    }
   }
 
   public void addOperations(final Map<MemcachedNode, Operation> ops) {
@@ -1537,8 +2091,8 @@ public final class MemcachedConnection extends SpyObject {
   }
 
   public void wakeUpSelector() {
-    if (selector != null) {
-      selector.wakeup();
+    for (IOLoop loop : ioLoops) {
+      loop.wakeup();
     }
   }
 
@@ -1546,6 +2100,33 @@ public final class MemcachedConnection extends SpyObject {
    * Shut down all the connections.
    */
   public void shutdown() throws IOException {
+    if (timeoutWheel != null) {
+      timeoutWheel.shutdown();
+    }
+    /* ENABLE_REPLICATION if */
+    if (hedgedReads != null) {
+      hedgedReads.shutdown();
+    }
+    /* ENABLE_REPLICATION end */
+    if (ioLoopGroup != null) {
+      leaveIOLoopGroup();
+    }
+    for (int i = 1; i < ioLoops.length; i++) {
+      ioLoops[i].running = false;
+      ioLoops[i].wakeup();
+    }
+    for (int i = 1; i < ioLoops.length && ioLoopGroup == null; i++) {
+      Thread t = ioLoops[i].thread;
+      if (t == null || t == Thread.currentThread()) {
+        continue;
+      }
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
     for (MemcachedNode qa : locator.getAll()) {
       try {
         qa.shutdown();
@@ -1553,8 +2134,47 @@ public final class MemcachedConnection extends SpyObject {
         getLogger().error("Exception closing channel: %s", qa, e);
       }
     }
-    selector.close();
-    getLogger().debug("Shut down selector %s", selector);
+    if (ioLoopGroup != null) {
+      getLogger().info("Shut down memcached connection");
+      return;
+    }
+    for (IOLoop loop : ioLoops) {
+      loop.selector.close();
+      getLogger().debug("Shut down selector %s", loop.selector);
+    }
+  }
+
+  // The other parts are paused, so that no thread of the group
+  // touches the nodes of this connection after leaving.
+  private void leaveIOLoopGroup() {
+    pauseOtherLoops();
+    try {
+      for (IOLoop loop : ioLoops) {
+        loop.member.active = false;
+        loop.shared.removeMember(loop.member);
+        for (MemcachedNode node : loop.nodes) {
+          loop.shared.disown(node);
+        }
+      }
+    } finally {
+      resumeOtherLoops();
+    }
+  }
+
+  /**
+   * Get whether the IO of this connection is handled by an IO loop group.
+   */
+  boolean usesIOLoopGroup() {
+    return ioLoopGroup != null;
+  }
+
+  /**
+   * Shut down this connection from the thread of its first loop in the IO loop group,
+   * as the MemcachedClient thread does when it stops.
+   */
+  void shutdownInIOLoopGroup() {
+    shutdownRequested = true;
+    ioLoops[0].wakeup();
   }
 
   @Override
@@ -1662,14 +2282,14 @@ public final class MemcachedConnection extends SpyObject {
     if (node == null) {
       return null;
     }
-    if (node.isActive()) {
+    if (node.isActive() && (circuitBreakers == null || isCircuitAvailable(node))) {
       return node;
     }
     if (failureMode == FailureMode.Redistribute) {
       Iterator<MemcachedNode> iter = getNodeSequence(key, apiType);
       while (iter.hasNext()) {
         MemcachedNode n = iter.next();
-        if (n != null && n.isActive()) {
+        if (n != null && n.isActive() && (circuitBreakers == null || isCircuitAvailable(n))) {
           node = n;
           break;
         }
@@ -1690,14 +2310,14 @@ public final class MemcachedConnection extends SpyObject {
     if (node == null) {
       return null;
     }
-    if (node.isActive()) {
+    if (node.isActive() && (circuitBreakers == null || isCircuitAvailable(node))) {
       return node;
     }
     if (failureMode == FailureMode.Redistribute) {
       Iterator<MemcachedNode> iter = getNodeSequence(key, op);
       while (iter.hasNext()) {
         MemcachedNode n = iter.next();
-        if (n != null && n.isActive()) {
+        if (n != null && n.isActive() && (circuitBreakers == null || isCircuitAvailable(n))) {
           node = n;
           break;
         }
@@ -1707,7 +2327,325 @@ public final class MemcachedConnection extends SpyObject {
   }
 
   public int getAddedQueueSize() {
-    return addedQueue.size();
+    int size = 0;
+    for (IOLoop loop : ioLoops) {
+      size += loop.addedQueue.size();
+    }
+    return size;
+  }
+
+  /**
+   * Get the latencies of operations recorded by this connection,
+   * or null if they are not recorded.
+   */
+  public OperationLatencyStats getLatencyStats() {
+    return latencyStats;
+  }
+
+  /**
+   * Get the admission control of all nodes of this connection,
+   * or null if outstanding operations are neither limited nor counted.
+   */
+  public AdmissionControl getAdmissionControl() {
+    return admission;
+  }
+
+  /**
+   * Count the operations outstanding to the nodes of this connection from now on,
+   * if they are neither limited nor counted yet.
+   */
+  synchronized void countOutstandingOps() {
+    if (admission != null) {
+      return;
+    }
+    AdmissionControl ac = new AdmissionControl(0, 0, null);
+    admission = ac;
+    // nodes made from now on take their admission control from the field.
+    for (MemcachedNode node : locator.getAll()) {
+      AdmissionControl nodeAdmission = new AdmissionControl(0, 0, ac);
+      for (MemcachedNode conn : connectionsOf(node)) {
+        conn.setAdmissionControl(nodeAdmission);
+      }
+    }
+  }
+
+  /**
+   * Get the number of operations added to the nodes of this connection and
+   * not completed yet, or 0 if they are neither limited nor counted.
+   */
+  public int getOutstandingOps() {
+    AdmissionControl ac = admission;
+    return ac == null ? 0 : ac.getOutstandingOps();
+  }
+
+  /**
+   * Get all the connections of the given node. The first one is the node itself.
+   */
+  public List<MemcachedNode> getNodeConnections(MemcachedNode node) {
+    return Collections.unmodifiableList(Arrays.asList(connectionsOf(node)));
+  }
+
+  private MemcachedNode[] connectionsOf(MemcachedNode node) {
+    if (connectionsPerNode > 1) {
+      NodeConnections conns = nodeConnections.get(node);
+      if (conns != null) {
+        return conns.nodes;
+      }
+    }
+    return new MemcachedNode[]{node};
+  }
+
+  // Get the node held by the locator for the given connection.
+  private MemcachedNode ownerOf(MemcachedNode qa) {
+    if (connectionsPerNode > 1) {
+      MemcachedNode owner = extraConnectionOwners.get(qa);
+      if (owner != null) {
+        return owner;
+      }
+    }
+    return qa;
+  }
+
+  private IOLoop loopOf(MemcachedNode node) {
+    if (ioLoops.length == 1) {
+      return ioLoops[0];
+    }
+    IOLoop loop = nodeLoops.get(node);
+    // The node has already been removed from the locator.
+    return loop != null ? loop : ioLoops[0];
+  }
+
+  // Called while the other loops are paused.
+  private IOLoop assignLoop(MemcachedNode node) {
+    if (ioLoops.length == 1) {
+      return ioLoops[0];
+    }
+    IOLoop loop = nodeLoops.get(node);
+    if (loop != null) {
+      return loop;
+    }
+    /* ENABLE_REPLICATION if */
+    if (node.getSocketAddress() instanceof ArcusReplNodeAddress) {
+      String groupName = ((ArcusReplNodeAddress) node.getSocketAddress()).getGroupName();
+      loop = groupLoops.get(groupName);
+      if (loop == null) {
+        loop = leastLoadedLoop();
+        groupLoops.put(groupName, loop);
+      }
+    }
+    /* ENABLE_REPLICATION end */
+    if (loop == null) {
+      loop = leastLoadedLoop();
+    }
+    loop.nodeCount++;
+    nodeLoops.put(node, loop);
+    return loop;
+  }
+
+  private void releaseLoop(MemcachedNode node) {
+    IOLoop loop = nodeLoops.remove(node);
+    if (loop != null) {
+      loop.nodeCount--;
+    }
+  }
+
+  private IOLoop leastLoadedLoop() {
+    IOLoop least = ioLoops[0];
+    for (IOLoop loop : ioLoops) {
+      if (loop.nodeCount < least.nodeCount) {
+        least = loop;
+      }
+    }
+    return least;
+  }
+
+  /**
+   * The connections of a node. An operation on a single key is sent over the
+   * connection picked by the key, so that the operations on a key are handled
+   * in order. The other operations are spread in round-robin order.
+   */
+  private static final class NodeConnections {
+    private final MemcachedNode[] nodes;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private NodeConnections(MemcachedNode[] nodes) {
+      this.nodes = nodes;
+    }
+
+    private MemcachedNode next(Operation o) {
+      int start;
+      Collection<String> keys = o instanceof KeyedOperation
+          ? ((KeyedOperation) o).getKeys() : null;
+      if (keys != null && keys.size() == 1) {
+        start = keys.iterator().next().hashCode() & Integer.MAX_VALUE;
+      } else {
+        start = next.getAndIncrement() & Integer.MAX_VALUE;
+      }
+      for (int i = 0; i < nodes.length; i++) {
+        MemcachedNode node = nodes[(start + i) % nodes.length];
+        if (node.isActive()) {
+          return node;
+        }
+      }
+      return nodes[start % nodes.length];
+    }
+  }
+
+  /**
+   * An IO event loop over the selector of a shard of the memcached nodes.
+   */
+  private static final class IOLoop {
+    private final Selector selector;
+    // The loop of the group this loop is a part of, or null.
+    private final IOLoopGroup.Loop shared;
+    private GroupMember member;
+    // The nodes of a part of a group loop, whose selector has the nodes of others.
+    private final Set<MemcachedNode> nodes = ConcurrentHashMap.newKeySet();
+    // AddedQueue is used to track the QueueAttachments for which operations
+    // have recently been queued.
+    private final ConcurrentLinkedQueue<MemcachedNode> addedQueue =
+            new ConcurrentLinkedQueue<>();
+    // reconnectQueue contains the attachments that need to be reconnected
+    private final ReconnectQueue reconnectQueue;
+    private final Set<MemcachedNode> nodesNeedVersionOp =
+            Collections.newSetFromMap(new ConcurrentHashMap<MemcachedNode, Boolean>());
+    // Tasks handed over by the other loops.
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private int emptySelects = 0;
+    // the number of assigned nodes, only changed while the other loops are paused.
+    private int nodeCount = 0;
+    private volatile Thread thread;
+    private volatile boolean running = true;
+
+    private IOLoop(long maxReconnectDelay, IOLoopGroup.Loop shared) throws IOException {
+      this.shared = shared;
+      selector = shared == null ? Selector.open() : shared.getSelector();
+      reconnectQueue = new ReconnectQueue(maxReconnectDelay);
+    }
+
+    private void own(MemcachedNode node) {
+      if (shared != null) {
+        nodes.add(node);
+        shared.own(node, member);
+      }
+    }
+
+    private void disown(MemcachedNode node) {
+      if (shared != null) {
+        nodes.remove(node);
+        shared.disown(node);
+      }
+    }
+
+    private void wakeup() {
+      Selector s = selector.wakeup();
+      assert s == selector : "Wakeup returned the wrong selector.";
+    }
+  }
+
+  /**
+   * A loop of this connection handled by a loop of the group.
+   * The first loop applies the node changes as the MemcachedClient thread does,
+   * and the others hold the loops lock for read as the IO loop threads do.
+   */
+  private final class GroupMember implements IOLoopGroup.Member {
+    private final IOLoop loop;
+    private final boolean coordinator;
+    private volatile boolean active = false;
+
+    private GroupMember(IOLoop loop, boolean coordinator) {
+      this.loop = loop;
+      this.coordinator = coordinator;
+    }
+
+    @Override
+    public long beforeSelect() throws IOException {
+      if (!lock()) {
+        return 0;
+      }
+      try {
+        return prepareSelect(loop, coordinator);
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public void handleKey(SelectionKey sk) {
+      if (!lock()) {
+        return;
+      }
+      try {
+        handleIO(sk);
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public void checkKey(SelectionKey sk) {
+      if (!lock()) {
+        return;
+      }
+      try {
+        MemcachedConnection.this.checkKey(sk);
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public void afterSelect() throws IOException {
+      if (!lock()) {
+        return;
+      }
+      try {
+        finishSelect(loop, coordinator);
+      } finally {
+        unlock();
+      }
+      if (coordinator && shutdownRequested) {
+        shutdown();
+      }
+    }
+
+    private boolean lock() {
+      if (!coordinator) {
+        loopsLock.readLock().lock();
+      }
+      if (!active) {
+        unlock();
+        return false;
+      }
+      return true;
+    }
+
+    private void unlock() {
+      if (!coordinator) {
+        loopsLock.readLock().unlock();
+      }
+    }
+  }
+
+  private final class IOLoopThread extends SpyThread {
+    private final IOLoop loop;
+
+    private IOLoopThread(IOLoop loop) {
+      this.loop = loop;
+    }
+
+    @Override
+    public void run() {
+      while (loop.running) {
+        try {
+          handleIO(loop, false);
+        } catch (IOException | IllegalStateException | ConcurrentModificationException e) {
+          if (loop.running) {
+            getLogger().warn("Problem handling memcached IO", e);
+          }
+        }
+      }
+    }
   }
 
   public static class ReconnectQueue {
@@ -1808,7 +2746,7 @@ public final class MemcachedConnection extends SpyObject {
     }
 
     public void doTask() {
-      queueReconnect(node, delay, cause);
+      queueNodeReconnect(node, delay, cause);
     }
   }
 
@@ -1822,7 +2760,7 @@ public final class MemcachedConnection extends SpyObject {
     }
 
     public void doTask() {
-      moveOperations(from, to, true);
+      moveNodeOperations(from, to, true);
     }
   }
   /* ENABLE_REPLICATION end */
@@ -111,6 +111,18 @@ public interface MemcachedNode {
    */
   void addOpToInputQ(Operation op);
 
+  /**
+   * Add an operation to the queue without waiting for room.
+   *
+   * @return false if the queue is full or the operation is not admitted
+   */
+  boolean tryAddOpToInputQ(Operation op);
+
+  /**
+   * Set the admission control of the operations added to the queue.
+   */
+  void setAdmissionControl(AdmissionControl admission);
+
   /**
    * Add an operation to the write queue. It is used to process operation in prior to
    * operations in input queue. For example, when the switchover occurs,
@@ -141,6 +153,18 @@ public interface MemcachedNode {
    */
   ByteBuffer getRbuf();
 
+  /**
+   * Get a larger read buffer after a read filled the current one, if the read
+   * buffer is elastic. The current one must be cleared.
+   */
+  ByteBuffer expandRbuf();
+
+  /**
+   * Give back the read buffer if it is expanded or no operation is read,
+   * if the read buffer is elastic. The read buffer must be cleared.
+   */
+  void releaseRbuf();
+
   /**
    * Get the buffer used for writing data to this node.
    */
@@ -285,6 +309,21 @@ public interface MemcachedNode {
    */
   String getOpQueueStatus();
 
+  /**
+   * Get the number of operations in the input queue.
+   */
+  int getInputQueueSize();
+
+  /**
+   * Get the number of operations in the write queue.
+   */
+  int getWriteQueueSize();
+
+  /**
+   * Get the number of operations in the read queue.
+   */
+  int getReadQueueSize();
+
   /* ENABLE_REPLICATION if */
   void setReplicaGroup(MemcachedReplicaGroup g);
 
@@ -293,5 +332,25 @@ public interface MemcachedNode {
   int moveOperations(final MemcachedNode toNode, boolean cancelNonIdempotent);
 
   boolean hasNonIdempotentOperationInReadQ();
+
+  /**
+   * Record the latency of an operation completed by this node.
+   *
+   * @param latencyNanos time from the creation of the operation to its completion
+   */
+  void recordLatency(long latencyNanos);
+
+  /**
+   * Get the moving average of the latencies recorded for this node
+   * in nanoseconds, or 0 if none is recorded yet. The average decays
+   * while no latency is recorded.
+   */
+  long getLatencyEwma();
+
+  /**
+   * Get the number of operations added to this node and not completed yet,
+   * or 0 if they are not counted.
+   */
+  int getOutstandingOpCount();
   /* ENABLE_REPLICATION end */
 }
@@ -54,6 +54,14 @@ public final class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
+  public boolean tryAddOpToInputQ(Operation op) {
+    throw new UnsupportedOperationException();
+  }
+
+  public void setAdmissionControl(AdmissionControl admission) {
+    throw new UnsupportedOperationException();
+  }
+
   public boolean addOpToWriteQ(Operation op) {
     throw new UnsupportedOperationException();
   }
@@ -98,6 +106,14 @@ public final class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
+  public ByteBuffer expandRbuf() {
+    throw new UnsupportedOperationException();
+  }
+
+  public void releaseRbuf() {
+    throw new UnsupportedOperationException();
+  }
+
   public int getReconnectCount() {
     return root.getReconnectCount();
   }
@@ -236,6 +252,21 @@ public final class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public int getInputQueueSize() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getWriteQueueSize() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getReadQueueSize() {
+    throw new UnsupportedOperationException();
+  }
+
   /* ENABLE_REPLICATION if */
   public void setReplicaGroup(MemcachedReplicaGroup g) {
     throw new UnsupportedOperationException();
@@ -253,5 +284,17 @@ public final class MemcachedNodeROImpl implements MemcachedNode {
   public boolean hasNonIdempotentOperationInReadQ() {
     throw new UnsupportedOperationException();
   }
+
+  public void recordLatency(long latencyNanos) {
+    throw new UnsupportedOperationException();
+  }
+
+  public long getLatencyEwma() {
+    throw new UnsupportedOperationException();
+  }
+
+  public int getOutstandingOpCount() {
+    throw new UnsupportedOperationException();
+  }
   /* ENABLE_REPLICATION end */
 }
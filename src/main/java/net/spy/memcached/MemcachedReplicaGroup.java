@@ -21,17 +21,18 @@ package net.spy.memcached;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import net.spy.memcached.compat.SpyObject;
 
 public abstract class MemcachedReplicaGroup extends SpyObject {
   protected final String group;
-  protected MemcachedNode masterNode;
+  protected volatile MemcachedNode masterNode;
   protected List<MemcachedNode> slaveNodes = new ArrayList<>(MAX_REPL_SLAVE_SIZE);
   private int nextSlaveIndex = -1;
-  protected MemcachedNode masterCandidate;
+  protected volatile MemcachedNode masterCandidate;
   private final StringBuilder sb = new StringBuilder();
-  private boolean delayedSwitchover = false;
+  private volatile boolean delayedSwitchover = false;
 
   public static final int MAX_REPL_SLAVE_SIZE = 2;
   public static final int MAX_REPL_GROUP_SIZE = MAX_REPL_SLAVE_SIZE + 1;
@@ -122,6 +123,12 @@ public abstract class MemcachedReplicaGroup extends SpyObject {
           node = masterNode;
         }
         break;
+      case LATENCY:
+        node = getLessLoadedNode();
+        if (node == null) {
+          node = masterNode;
+        }
+        break;
       default: // This case never exist.
         break;
     }
@@ -176,6 +183,43 @@ public abstract class MemcachedReplicaGroup extends SpyObject {
     return node;
   }
 
+  // Power of two choices: pick two active nodes at random and
+  // take the one with the lower expected latency.
+  private MemcachedNode getLessLoadedNode() {
+    int size = slaveNodes.size() + (masterNode == null ? 0 : 1);
+    if (size == 0) {
+      return null;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    MemcachedNode a = getActiveNode(first, size);
+    if (a == null || size == 1) {
+      return a;
+    }
+    MemcachedNode b = getActiveNode((first + 1 + random.nextInt(size - 1)) % size, size);
+    if (b == null || b == a) {
+      return a;
+    }
+    return expectedLatency(b) < expectedLatency(a) ? b : a;
+  }
+
+  // Get the first active node from the given index of master and slaves.
+  private MemcachedNode getActiveNode(int index, int size) {
+    for (int i = 0; i < size; i++) {
+      int n = (index + i) % size;
+      MemcachedNode node = n < slaveNodes.size() ? slaveNodes.get(n) : masterNode;
+      if (node.isActive()) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  private static double expectedLatency(MemcachedNode node) {
+    // nodes without latencies yet are tried first.
+    return (double) node.getLatencyEwma() * (node.getOutstandingOpCount() + 1);
+  }
+
   public abstract boolean changeRole();
 
   public static String getGroupNameFromNode(final MemcachedNode node) {
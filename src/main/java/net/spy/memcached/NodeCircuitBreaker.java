@@ -0,0 +1,266 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.ops.Operation;
+
+/**
+ * Circuit breaker of a node.
+ *
+ * <p>The breaker is closed while the node answers in time. It opens when
+ * the ratio of operations timed out, slower than the slow call threshold or
+ * lost with the connection reaches the failure rate within a window of at
+ * least the minimum number of calls, or when the node has as many continuous
+ * timeouts as allowed. While open, operations are not sent to the node.
+ * After the open duration, the next operation added to the node is sent as
+ * a probe: the breaker closes if it is answered in time, and opens again
+ * otherwise. A probe that is not sent or is cancelled before its answer
+ * gives its permit back, so that the next operation probes instead.</p>
+ *
+ * <p>State changes happen when the breaker is asked for a permit or told
+ * about a result, so a breaker of an idle node does not change.
+ * {@link #isAvailable} only reads the state, for choosing a node.</p>
+ */
+final class NodeCircuitBreaker extends SpyObject {
+
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  enum Permit {
+    /** Send the operation. */
+    ALLOW,
+    /** Do not send the operation. */
+    REJECT,
+    /** Send the operation as the probe of the node. */
+    PROBE
+  }
+
+  private final String nodeName;
+  private final int failureRate;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final int minCalls;
+  private final int maxContinuousTimeouts;
+  private final AtomicReference<Status> status =
+      new AtomicReference<>(new Status(State.CLOSED, System.nanoTime()));
+  private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+  private final AtomicInteger calls = new AtomicInteger();
+  private final AtomicInteger failures = new AtomicInteger();
+  private volatile Operation probe = null;
+
+  /**
+   * @param nodeName           the name of the node to log
+   * @param failureRate        percentage of failed calls that opens the breaker
+   * @param slowCallNanos      latency in nanoseconds from which a call fails
+   * @param openNanos          time in nanoseconds the breaker stays open before a probe
+   * @param minCalls           number of calls a window needs before its failure rate counts
+   * @param continuousTimeouts number of continuous timeouts that opens the breaker
+   */
+  NodeCircuitBreaker(String nodeName, int failureRate, long slowCallNanos, long openNanos,
+                     int minCalls, int continuousTimeouts) {
+    this.nodeName = nodeName;
+    this.failureRate = failureRate;
+    this.slowCallNanos = slowCallNanos;
+    this.openNanos = openNanos;
+    this.minCalls = minCalls;
+    this.maxContinuousTimeouts = continuousTimeouts;
+  }
+
+  State getState() {
+    return status.get().state;
+  }
+
+  /**
+   * Check whether an operation may be sent to the node now, without changing
+   * the state of the breaker.
+   *
+   * @param continuousTimeouts the number of continuous timeouts of the node
+   */
+  boolean isAvailable(int continuousTimeouts) {
+    Status current = status.get();
+    switch (current.state) {
+      case CLOSED:
+        return continuousTimeouts < maxContinuousTimeouts;
+      case OPEN:
+        return System.nanoTime() - current.time >= openNanos;
+      default:
+        // the next acquire replaces a cancelled probe or fails an unanswered one.
+        return isAbandoned(probe) || System.nanoTime() - current.time >= slowCallNanos;
+    }
+  }
+
+  /**
+   * Ask whether the given operation may be sent to the node.
+   *
+   * @param op                 the operation to send
+   * @param continuousTimeouts the number of continuous timeouts of the node
+   */
+  Permit acquire(Operation op, int continuousTimeouts) {
+    Status current = status.get();
+    State s = current.state;
+    if (s == State.CLOSED) {
+      if (continuousTimeouts >= maxContinuousTimeouts) {
+        trip(State.CLOSED, continuousTimeouts + " continuous timeouts");
+        return Permit.REJECT;
+      }
+      return Permit.ALLOW;
+    }
+    long elapsed = System.nanoTime() - current.time;
+    if (s == State.OPEN) {
+      if (elapsed >= openNanos && change(State.OPEN, State.HALF_OPEN)) {
+        probe = op;
+        return Permit.PROBE;
+      }
+    } else if (isAbandoned(probe)) {
+      if (status.compareAndSet(current, new Status(State.HALF_OPEN, System.nanoTime()))) {
+        probe = op;
+        return Permit.PROBE;
+      }
+    } else if (elapsed >= slowCallNanos) {
+      trip(State.HALF_OPEN, "probe not answered in time");
+    }
+    return Permit.REJECT;
+  }
+
+  /**
+   * Give back the probe permit of an operation that is not sent to the node,
+   * so that the next operation is sent as the probe.
+   */
+  void release(Operation op) {
+    Status current = status.get();
+    if (current.state == State.HALF_OPEN && probe == op
+        && status.compareAndSet(current,
+            new Status(State.OPEN, System.nanoTime() - openNanos))) {
+      probe = null;
+    }
+  }
+
+  // A probe cancelled before its answer never records a result.
+  private static boolean isAbandoned(Operation op) {
+    return op != null && op.isCancelled() && !op.isTimedOut();
+  }
+
+  /**
+   * Record an operation answered or timed out by the node.
+   *
+   * @param op           the operation
+   * @param latencyNanos time from the creation of the operation to its completion
+   * @param timedOut     true if the operation timed out before it was answered
+   * @return true if the breaker is closed by the operation as its probe
+   */
+  boolean record(Operation op, long latencyNanos, boolean timedOut) {
+    State s = getState();
+    if (s == State.HALF_OPEN) {
+      return op == probe && probed(latencyNanos, !timedOut);
+    }
+    if (s == State.CLOSED) {
+      count(1, timedOut || latencyNanos >= slowCallNanos ? 1 : 0);
+    }
+    return false;
+  }
+
+  /**
+   * Record the loss of the connection to the node. The operations
+   * outstanding on the connection count as failed calls.
+   *
+   * @param lostCalls the number of operations outstanding on the connection
+   */
+  void recordLost(int lostCalls) {
+    State s = getState();
+    if (s == State.HALF_OPEN) {
+      trip(State.HALF_OPEN, "connection lost");
+    } else if (s == State.CLOSED && lostCalls > 0) {
+      count(lostCalls, lostCalls);
+    }
+  }
+
+  /**
+   * Record the result of the probe sent to the node.
+   *
+   * @return true if the breaker is closed by the probe
+   */
+  boolean probed(long latencyNanos, boolean success) {
+    if (success && latencyNanos < slowCallNanos) {
+      if (change(State.HALF_OPEN, State.CLOSED)) {
+        windowStart.set(System.nanoTime());
+        calls.set(0);
+        failures.set(0);
+        getLogger().info("Circuit breaker of %s is closed.", nodeName);
+        return true;
+      }
+      return false;
+    }
+    trip(State.HALF_OPEN, "probe failed");
+    return false;
+  }
+
+  private void count(int c, int f) {
+    long now = System.nanoTime();
+    long start = windowStart.get();
+    if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+      calls.set(0);
+      failures.set(0);
+    }
+    int totalCalls = calls.addAndGet(c);
+    if (f > 0) {
+      int totalFailures = failures.addAndGet(f);
+      if (totalCalls >= minCalls && totalFailures * 100L >= (long) failureRate * totalCalls) {
+        trip(State.CLOSED, totalFailures + " of " + totalCalls + " calls failed");
+      }
+    }
+  }
+
+  private void trip(State from, String cause) {
+    if (change(from, State.OPEN)) {
+      getLogger().warn("Circuit breaker of %s is open for %dms: %s", nodeName,
+          TimeUnit.NANOSECONDS.toMillis(openNanos), cause);
+    }
+  }
+
+  private boolean change(State from, State to) {
+    Status current = status.get();
+    if (current.state == from
+        && status.compareAndSet(current, new Status(to, System.nanoTime()))) {
+      if (from == State.HALF_OPEN) {
+        probe = null;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  // A state and the time it was entered, changed together.
+  private static final class Status {
+    private final State state;
+    private final long time;
+
+    private Status(State state, long time) {
+      this.state = state;
+      this.time = time;
+    }
+  }
+}
@@ -89,6 +89,7 @@ public interface NodeLocator {
 
   /**
    * Update(or reflect) the migratoin range in ketama hash ring.
+   * It may be called by any IO loop, so the locator changes the ring under its lock.
    */
   void updateMigration(Long spoint, Long epoint);
   /* ENABLE_MIGRATION end */
@@ -0,0 +1,101 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ops.APIType;
+
+/**
+ * Latencies of the operations of an API type completed by a node,
+ * from being added to the node until completed. Latencies are in microseconds.
+ */
+public final class OperationLatency {
+
+  private final String node;
+  private final APIType apiType;
+  private final long count;
+  private final long p50;
+  private final long p99;
+  private final long p999;
+  private final long max;
+  private final long elapsedNanos;
+
+  OperationLatency(String node, APIType apiType, long count,
+                   long p50, long p99, long p999, long max, long elapsedNanos) {
+    this.node = node;
+    this.apiType = apiType;
+    this.count = count;
+    this.p50 = p50;
+    this.p99 = p99;
+    this.p999 = p999;
+    this.max = max;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Get the socket address of the node.
+   */
+  public String getNode() {
+    return node;
+  }
+
+  public APIType getAPIType() {
+    return apiType;
+  }
+
+  /**
+   * Get the number of operations completed.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  public long getP50() {
+    return p50;
+  }
+
+  public long getP99() {
+    return p99;
+  }
+
+  public long getP999() {
+    return p999;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Get the number of operations completed per second
+   * since the latencies are started to be recorded or reset.
+   */
+  public double getThroughput() {
+    if (elapsedNanos <= 0) {
+      return 0;
+    }
+    return count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %s count=%d throughput=%.1f/s p50=%dus p99=%dus p999=%dus max=%dus",
+        node, apiType, count, getThroughput(), p50, p99, p999, max);
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.spy.memcached.ops.APIType;
+
+/**
+ * Latencies of operations from being added to a node until completed,
+ * counted in a histogram per node connection and API type.
+ *
+ * <p>Histograms are lock-free and of fixed size: latencies in microseconds
+ * are counted in buckets of powers of two, each split into linear
+ * sub-buckets, so a latency is recorded within about 3% by one atomic
+ * increment. Histograms are created when the first operation of their
+ * node and API type completes.</p>
+ */
+public final class OperationLatencyStats {
+
+  private static final APIType[] API_TYPES = APIType.values();
+
+  private final ConcurrentMap<MemcachedNode, AtomicReferenceArray<Histogram>> histograms =
+      new ConcurrentHashMap<>();
+  private volatile long startTime = System.nanoTime();
+
+  /**
+   * Record the latency of an operation handled by the given node.
+   *
+   * @param node    the node connection that handled the operation
+   * @param type    the API type of the operation
+   * @param latency latency in nanoseconds
+   */
+  public void record(MemcachedNode node, APIType type, long latency) {
+    AtomicReferenceArray<Histogram> byType = histograms.get(node);
+    if (byType == null) {
+      byType = histograms.computeIfAbsent(node,
+          k -> new AtomicReferenceArray<>(API_TYPES.length));
+    }
+    Histogram histogram = byType.get(type.ordinal());
+    if (histogram == null) {
+      byType.compareAndSet(type.ordinal(), null, new Histogram());
+      histogram = byType.get(type.ordinal());
+    }
+    histogram.record(TimeUnit.NANOSECONDS.toMicros(Math.max(0, latency)));
+  }
+
+  /**
+   * Drop the histograms of a node connection that is closed.
+   */
+  void remove(MemcachedNode node) {
+    histograms.remove(node);
+  }
+
+  /**
+   * Drop all latencies recorded so far.
+   */
+  public void reset() {
+    histograms.clear();
+    startTime = System.nanoTime();
+  }
+
+  /**
+   * Get the latencies recorded since the stats are created or reset,
+   * summed over the connections to each node.
+   *
+   * @return latencies sorted by node address and API type
+   */
+  public List<OperationLatency> snapshot() {
+    long elapsed = System.nanoTime() - startTime;
+    Map<String, Histogram[]> byNode = new TreeMap<>();
+    for (Map.Entry<MemcachedNode, AtomicReferenceArray<Histogram>> e : histograms.entrySet()) {
+      Histogram[] sums = byNode.computeIfAbsent(
+          e.getKey().getSocketAddress().toString(), k -> new Histogram[API_TYPES.length]);
+      AtomicReferenceArray<Histogram> byType = e.getValue();
+      for (int i = 0; i < sums.length; i++) {
+        Histogram histogram = byType.get(i);
+        if (histogram != null) {
+          if (sums[i] == null) {
+            sums[i] = new Histogram();
+          }
+          sums[i].add(histogram);
+        }
+      }
+    }
+
+    List<OperationLatency> latencies = new ArrayList<>();
+    for (Map.Entry<String, Histogram[]> e : byNode.entrySet()) {
+      Histogram[] sums = e.getValue();
+      for (int i = 0; i < sums.length; i++) {
+        if (sums[i] != null) {
+          latencies.add(sums[i].toLatency(e.getKey(), API_TYPES[i], elapsed));
+        }
+      }
+    }
+    return Collections.unmodifiableList(latencies);
+  }
+
+  static final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = Long.SIZE - SUB_BUCKET_BITS + 1;
+
+    private final AtomicLongArray counts =
+        new AtomicLongArray(SUB_BUCKET_COUNT + BUCKET_COUNT * SUB_BUCKET_HALF);
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+      counts.incrementAndGet(index(value));
+      long current = max.get();
+      while (value > current && !max.compareAndSet(current, value)) {
+        current = max.get();
+      }
+    }
+
+    void add(Histogram other) {
+      for (int i = 0; i < counts.length(); i++) {
+        long count = other.counts.get(i);
+        if (count != 0) {
+          counts.addAndGet(i, count);
+        }
+      }
+      long otherMax = other.max.get();
+      if (otherMax > max.get()) {
+        max.set(otherMax);
+      }
+    }
+
+    long getValueAtPercentile(double percentile) {
+      long[] snapshot = new long[counts.length()];
+      long total = 0;
+      for (int i = 0; i < snapshot.length; i++) {
+        snapshot[i] = counts.get(i);
+        total += snapshot[i];
+      }
+      return valueAtPercentile(snapshot, total, percentile, max.get());
+    }
+
+    long getTotalCount() {
+      long total = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        total += counts.get(i);
+      }
+      return total;
+    }
+
+    OperationLatency toLatency(String node, APIType type, long elapsedNanos) {
+      long[] snapshot = new long[counts.length()];
+      long total = 0;
+      for (int i = 0; i < snapshot.length; i++) {
+        snapshot[i] = counts.get(i);
+        total += snapshot[i];
+      }
+      long maxValue = max.get();
+      return new OperationLatency(node, type, total,
+          valueAtPercentile(snapshot, total, 50.0, maxValue),
+          valueAtPercentile(snapshot, total, 99.0, maxValue),
+          valueAtPercentile(snapshot, total, 99.9, maxValue),
+          maxValue, elapsedNanos);
+    }
+
+    private static long valueAtPercentile(long[] counts, long total,
+                                          double percentile, long max) {
+      long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+      long count = 0;
+      for (int i = 0; i < counts.length; i++) {
+        count += counts[i];
+        if (count >= countAtPercentile) {
+          return Math.min(highestEquivalentValue(i), max);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Values below {@code SUB_BUCKET_COUNT} have an index of their own. A larger
+     * value is shifted into {@code [SUB_BUCKET_HALF, SUB_BUCKET_COUNT)} and
+     * indexed in the upper half of the sub-buckets of its power of two.
+     */
+    static int index(long value) {
+      if (value < SUB_BUCKET_COUNT) {
+        return (int) value;
+      }
+      int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+      return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF
+          + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    static long highestEquivalentValue(int index) {
+      if (index < SUB_BUCKET_COUNT) {
+        return index;
+      }
+      int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+      long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+      long lowest = subBucket << shift;
+      long highest = lowest + (1L << shift) - 1;
+      return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+  }
+}
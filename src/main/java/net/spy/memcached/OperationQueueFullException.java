@@ -0,0 +1,35 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * Thrown when an operation is not admitted to a node because the node or
+ * the client has as many outstanding operations or bytes as allowed.
+ * Callers can catch it to slow down the rate of requests.
+ *
+ * @see ConnectionFactory#getMaxOutstandingOps()
+ * @see ConnectionFactory#getMaxOutstandingBytes()
+ */
+public class OperationQueueFullException extends IllegalStateException {
+
+  private static final long serialVersionUID = -4211326094271560783L;
+
+  public OperationQueueFullException(String message) {
+    super(message);
+  }
+}
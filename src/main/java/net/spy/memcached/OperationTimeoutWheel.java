@@ -0,0 +1,176 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import net.spy.memcached.compat.SpyThread;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+
+/**
+ * Hashed wheel timer that expires operations not completed by their deadline.
+ *
+ * <p>Operations are added from any thread and kept in a queue until the
+ * timer thread moves them into the bucket of the tick their deadline falls
+ * in. Each tick the thread walks one bucket, expires the operations that
+ * are still outstanding and drops the ones already completed, so adding an
+ * operation costs one queue insert and nothing needs to be removed when an
+ * operation completes.</p>
+ */
+final class OperationTimeoutWheel extends SpyThread {
+
+  static final long DEFAULT_TICK_MILLIS = 10;
+  private static final int MAX_WHEEL_SIZE = 4096;
+
+  private final long tickNanos;
+  private final Entry[] wheel;
+  private final int mask;
+  private final Consumer<Operation> expired;
+  private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+  private final long startTime = System.nanoTime();
+  private long tick = 0;
+  private volatile boolean running = true;
+
+  /**
+   * Create a wheel for operations of the given timeout.
+   * The wheel is sized so that one round covers the timeout.
+   *
+   * @param timeout    usual timeout of operations in milliseconds
+   * @param tickMillis time in milliseconds between ticks
+   */
+  OperationTimeoutWheel(long timeout, long tickMillis) {
+    this(timeout, tickMillis, op -> { });
+  }
+
+  /**
+   * Create a wheel for operations of the given timeout, telling the given
+   * consumer about each operation it expires.
+   *
+   * @param timeout    usual timeout of operations in milliseconds
+   * @param tickMillis time in milliseconds between ticks
+   * @param expired    consumer of the expired operations
+   */
+  OperationTimeoutWheel(long timeout, long tickMillis, Consumer<Operation> expired) {
+    this.expired = expired;
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    long ticks = Math.max(2, Math.min(MAX_WHEEL_SIZE, timeout / tickMillis + 1));
+    int size = Integer.highestOneBit((int) ticks - 1) << 1;
+    wheel = new Entry[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Expire the given operation if it has not completed within the timeout.
+   */
+  void add(Operation op, long timeoutMillis) {
+    added.offer(new Entry(op, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)));
+  }
+
+  void shutdown() {
+    running = false;
+    LockSupport.unpark(this);
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      long tickTime = startTime + (tick + 1) * tickNanos;
+      long now = System.nanoTime();
+      while (running && now < tickTime) {
+        LockSupport.parkNanos(this, tickTime - now);
+        now = System.nanoTime();
+      }
+      if (!running) {
+        break;
+      }
+      try {
+        scheduleAdded();
+        expireBucket(now);
+      } catch (RuntimeException e) {
+        getLogger().warn("Problem expiring operations", e);
+      }
+      tick++;
+    }
+  }
+
+  private void scheduleAdded() {
+    Entry e;
+    while ((e = added.poll()) != null) {
+      if (isDone(e.op)) {
+        continue;
+      }
+      // the first tick at or after the deadline, but not in the past.
+      long target = (e.deadline - startTime + tickNanos - 1) / tickNanos - 1;
+      if (target < tick) {
+        target = tick;
+      }
+      e.rounds = (target - tick) / wheel.length;
+      int index = (int) (target & mask);
+      e.next = wheel[index];
+      wheel[index] = e;
+    }
+  }
+
+  private void expireBucket(long now) {
+    int index = (int) (tick & mask);
+    Entry e = wheel[index];
+    Entry kept = null;
+    while (e != null) {
+      Entry next = e.next;
+      if (e.rounds > 0) {
+        e.rounds--;
+        e.next = kept;
+        kept = e;
+      } else if (!isDone(e.op)) {
+        expire(e.op, now - e.deadline);
+      }
+      e = next;
+    }
+    wheel[index] = kept;
+  }
+
+  private void expire(Operation op, long lateNanos) {
+    if (op.timeOut("deadline passed")) {
+      getLogger().debug("Expired %s, %d ms after its deadline.",
+          op, TimeUnit.NANOSECONDS.toMillis(lateNanos));
+      MemcachedConnection.opTimedOut(op);
+      expired.accept(op);
+    }
+  }
+
+  private static boolean isDone(Operation op) {
+    return op.getState() == OperationState.COMPLETE || op.isCancelled();
+  }
+
+  private static final class Entry {
+    private final Operation op;
+    private final long deadline;
+    private long rounds;
+    private Entry next;
+
+    private Entry(Operation op, long deadline) {
+      this.op = op;
+      this.deadline = deadline;
+    }
+  }
+}
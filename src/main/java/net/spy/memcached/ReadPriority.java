@@ -36,5 +36,11 @@ public enum ReadPriority {
    * Read RR(Round-robin) pattern.
    */
   RR,
+
+  /**
+   * Read on the less loaded of two random nodes of the replica group,
+   * by the moving average of their latencies and their outstanding operations.
+   */
+  LATENCY,
 }
 /* ENABLE_REPLICATION end */
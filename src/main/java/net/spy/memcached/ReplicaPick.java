@@ -36,6 +36,11 @@ enum ReplicaPick {
   /**
    * Pick any node RR(Round-robin) pattern.
    */
-  RR
+  RR,
+
+  /**
+   * Pick the less loaded of two random nodes.
+   */
+  LATENCY
 }
 /* ENABLE_REPLICATION end */
@@ -0,0 +1,120 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationTimestamp;
+
+/**
+ * Logs operations that took longer than a threshold from creation until
+ * completion, with the time spent in each step of their lifecycle and the
+ * queue status of their node.
+ *
+ * <p>At most a given number of operations are logged per second, so a slow
+ * node does not flood the log. The number of operations not logged is
+ * reported with the next one logged.</p>
+ */
+public final class SlowOperationLogger extends SpyObject {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final long thresholdNanos;
+  private final int maxLogsPerSecond;
+  private final AtomicLong currentSecond = new AtomicLong();
+  private final AtomicInteger loggedInSecond = new AtomicInteger();
+  private final AtomicLong suppressed = new AtomicLong();
+
+  /**
+   * @param thresholdNanos   time in nanoseconds after which an operation is slow
+   * @param maxLogsPerSecond maximum number of operations logged per second
+   */
+  SlowOperationLogger(long thresholdNanos, int maxLogsPerSecond) {
+    this.thresholdNanos = thresholdNanos;
+    this.maxLogsPerSecond = maxLogsPerSecond;
+  }
+
+  /**
+   * Log the given operation if it was slow.
+   *
+   * @return true if the operation is logged
+   */
+  public boolean completed(Operation op) {
+    long created = op.getTimestamp(OperationTimestamp.CREATED);
+    long completed = op.getTimestamp(OperationTimestamp.COMPLETED);
+    if (completed - created < thresholdNanos) {
+      return false;
+    }
+    if (!sample(completed)) {
+      suppressed.incrementAndGet();
+      return false;
+    }
+    long notLogged = suppressed.getAndSet(0);
+    getLogger().warn("Slow operation %s%s", format(op),
+        notLogged > 0 ? " (" + notLogged + " more slow operations not logged)" : "");
+    return true;
+  }
+
+  private boolean sample(long now) {
+    long second = now / SECOND;
+    long current = currentSecond.get();
+    if (second != current && currentSecond.compareAndSet(current, second)) {
+      loggedInSecond.set(0);
+    }
+    return loggedInSecond.incrementAndGet() <= maxLogsPerSecond;
+  }
+
+  /**
+   * Describe the time spent from each point of the lifecycle of the operation
+   * to the next one reached, in microseconds.
+   */
+  static String format(Operation op) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(op).append(' ').append(op.getAPIType());
+    long created = op.getTimestamp(OperationTimestamp.CREATED);
+    sb.append(" total=")
+        .append(micros(op.getTimestamp(OperationTimestamp.COMPLETED) - created)).append("us");
+    OperationTimestamp[] points = OperationTimestamp.values();
+    long last = created;
+    for (int i = 1; i < points.length; i++) {
+      long time = op.getTimestamp(points[i]);
+      sb.append(' ').append(points[i].name().toLowerCase(Locale.ROOT)).append('=');
+      if (time == 0) {
+        sb.append('-');
+      } else {
+        sb.append('+').append(micros(time - last)).append("us");
+        last = time;
+      }
+    }
+    MemcachedNode node = op.getHandlingNode();
+    if (node != null) {
+      sb.append(" node=").append(node.getNodeName())
+          .append(" [").append(node.getOpQueueStatus()).append(']');
+    }
+    return sb.toString();
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
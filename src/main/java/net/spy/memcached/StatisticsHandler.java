@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.ToIntFunction;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -29,6 +30,8 @@ import javax.management.AttributeNotFoundException;
 import javax.management.DynamicMBean;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
 
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.protocol.TCPMemcachedNodeImpl;
@@ -45,6 +48,11 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
   private static final String RECONN_CNT = "reconnectCount";
   private static final String CONT_TIMEOUT = "continuousTimeout";
   private static final String VERSION = "version";
+  private static final String LATENCY_P50 = "latencyP50";
+  private static final String LATENCY_P99 = "latencyP99";
+  private static final String LATENCY_MAX = "latencyMax";
+  private static final String THROUGHPUT = "throughput";
+  private static final String RESET_LATENCIES = "resetLatencies";
 
   private static final String DELIMETER = "-";
 
@@ -61,30 +69,39 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
       return client.getAddedQueueSize();
     }
 
-    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) getNode(attribute);
+    if (attribute.startsWith(LATENCY_P50) || attribute.startsWith(LATENCY_P99)
+        || attribute.startsWith(LATENCY_MAX) || attribute.startsWith(THROUGHPUT)) {
+      return getLatencyAttribute(attribute);
+    }
+
+    MemcachedNode node = getNode(attribute);
 
     if (node == null) {
       return null;
     }
 
     if (attribute.contains(RECONN_CNT)) {
-      return node.getReconnectCount();
+      return sumOverConnections(node, MemcachedNode::getReconnectCount);
     }
 
     if (attribute.contains(CONT_TIMEOUT)) {
-      return node.getContinuousTimeout();
+      int max = 0;
+      for (MemcachedNode conn : client.getMemcachedConnection().getNodeConnections(node)) {
+        max = Math.max(max, conn.getContinuousTimeout());
+      }
+      return max;
     }
 
     if (attribute.contains(INPUT_Q)) {
-      return node.getInputQueueSize();
+      return sumOverConnections(node, MemcachedNode::getInputQueueSize);
     }
 
     if (attribute.contains(READ_Q)) {
-      return node.getReadQueueSize();
+      return sumOverConnections(node, MemcachedNode::getReadQueueSize);
     }
 
     if (attribute.contains(WRITE_Q)) {
-      return node.getWriteQueueSize();
+      return sumOverConnections(node, MemcachedNode::getWriteQueueSize);
     }
 
     if (attribute.contains(VERSION)) {
@@ -95,6 +112,38 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
             + "' is not defined.");
   }
 
+  // Latency attributes are named "<attribute>-<API type>-<node address>".
+  private Object getLatencyAttribute(String attribute) {
+    String[] names = attribute.split(DELIMETER, 3);
+    if (names.length < 3) {
+      return null;
+    }
+    for (OperationLatency latency : client.getOperationLatencies()) {
+      if (latency.getAPIType().name().equals(names[1]) && latency.getNode().equals(names[2])) {
+        switch (names[0]) {
+          case LATENCY_P50:
+            return latency.getP50();
+          case LATENCY_P99:
+            return latency.getP99();
+          case LATENCY_MAX:
+            return latency.getMax();
+          default:
+            return latency.getThroughput();
+        }
+      }
+    }
+    return null;
+  }
+
+  // A node may have more than one connection.
+  private int sumOverConnections(MemcachedNode node, ToIntFunction<MemcachedNode> f) {
+    int sum = 0;
+    for (MemcachedNode conn : client.getMemcachedConnection().getNodeConnections(node)) {
+      sum += f.applyAsInt(conn);
+    }
+    return sum;
+  }
+
   private MemcachedNode getNode(String attribute) {
     if (attribute.contains(DELIMETER)) {
       MemcachedNode memcachedNode = nodes.get(attribute
@@ -171,15 +220,36 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
               "version", true, false, false));
     }
 
+    // latencies of operations on each node and API type
+    for (OperationLatency latency : client.getOperationLatencies()) {
+      String suffix = DELIMETER + latency.getAPIType().name() + DELIMETER + latency.getNode();
+      attributes.add(new MBeanAttributeInfo(LATENCY_P50 + suffix, "long",
+              "median latency in microseconds", true, false, false));
+      attributes.add(new MBeanAttributeInfo(LATENCY_P99 + suffix, "long",
+              "99th percentile latency in microseconds", true, false, false));
+      attributes.add(new MBeanAttributeInfo(LATENCY_MAX + suffix, "long",
+              "max latency in microseconds", true, false, false));
+      attributes.add(new MBeanAttributeInfo(THROUGHPUT + suffix, "double",
+              "operations completed per second", true, false, false));
+    }
+
+    MBeanOperationInfo[] operations = {
+        new MBeanOperationInfo(RESET_LATENCIES, "reset latencies of operations",
+            new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION)
+    };
+
     getLogger().debug("retrieve client statistics mbean informations.");
 
     return new MBeanInfo(this.getClass().getName(),
             "Arcus client statistics MBean",
-            attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+            attributes.toArray(new MBeanAttributeInfo[0]), null, operations, null);
   }
 
   @Override
   public Object invoke(String actionName, Object[] params, String[] signature) {
+    if (RESET_LATENCIES.equals(actionName)) {
+      client.resetOperationLatencies();
+    }
     return null;
   }
 
@@ -157,7 +157,24 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
         LoggerFactory.getLogger(getClass()).warn(e.getMessage());
       }
     } else {
-      MemcachedConnection.opsSucceeded(ops);
+      Collection<Operation> timedOutOps = new ArrayList<>();
+      for (Operation op : ops) {
+        if (op.isTimedOut()) {
+          timedOutOps.add(op);
+        } else {
+          MemcachedConnection.opSucceeded(op);
+        }
+      }
+      if (!timedOutOps.isEmpty()) {
+        // expired by the client before their responses arrived.
+        isTimeout.set(true);
+        long elapsed = System.currentTimeMillis() - beforeAwait;
+        TimeoutException e = new CheckedOperationTimeoutException(to, unit, elapsed, timedOutOps);
+        if (throwException) {
+          throw e;
+        }
+        LoggerFactory.getLogger(getClass()).warn(e.getMessage());
+      }
     }
 
     if (throwException) {
@@ -88,8 +88,20 @@ public class BulkOperationFuture<T> implements Future<Map<String, T>> {
         throw new CheckedOperationTimeoutException(duration, unit, elapsed, timedOutOps);
       }
     } else {
-      // continuous timeout counter will be reset
-      MemcachedConnection.opsSucceeded(ops);
+      Collection<Operation> timedOutOps = new ArrayList<>();
+      for (Operation op : ops) {
+        if (op.isTimedOut()) {
+          timedOutOps.add(op);
+        } else {
+          // continuous timeout counter will be reset
+          MemcachedConnection.opSucceeded(op);
+        }
+      }
+      if (!timedOutOps.isEmpty()) {
+        // expired by the client before their responses arrived.
+        long elapsed = System.currentTimeMillis() - beforeAwait;
+        throw new CheckedOperationTimeoutException(duration, unit, elapsed, timedOutOps);
+      }
     }
 
     List<Exception> exceptions = new ArrayList<>();
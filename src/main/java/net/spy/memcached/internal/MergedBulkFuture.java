@@ -0,0 +1,122 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.spy.memcached.OperationTimeoutException;
+
+/**
+ * Future merging the results of bulk gets sent by several clients.
+ *
+ * Not intended for general use.
+ *
+ * @param <T> types of objects returned from the GET
+ */
+public class MergedBulkFuture<T> implements BulkFuture<Map<String, T>> {
+  private final List<BulkFuture<Map<String, T>>> futures;
+  private final long timeout;
+
+  public MergedBulkFuture(List<BulkFuture<Map<String, T>>> futures, long timeout) {
+    this.futures = futures;
+    this.timeout = timeout;
+  }
+
+  @Override
+  public boolean cancel(boolean ign) {
+    boolean rv = false;
+    for (BulkFuture<Map<String, T>> f : futures) {
+      rv |= f.cancel(ign);
+    }
+    return rv;
+  }
+
+  @Override
+  public Map<String, T> get() throws InterruptedException, ExecutionException {
+    try {
+      return get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new OperationTimeoutException(e);
+    }
+  }
+
+  @Override
+  public Map<String, T> get(long duration, TimeUnit unit)
+          throws InterruptedException, ExecutionException, TimeoutException {
+    long deadline = System.nanoTime() + unit.toNanos(duration);
+    Map<String, T> rv = new HashMap<>();
+    for (BulkFuture<Map<String, T>> f : futures) {
+      rv.putAll(f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+    }
+    return rv;
+  }
+
+  @Override
+  public Map<String, T> getSome(long duration, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(duration);
+    Map<String, T> rv = new HashMap<>();
+    for (BulkFuture<Map<String, T>> f : futures) {
+      rv.putAll(f.getSome(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+    }
+    return rv;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    for (BulkFuture<Map<String, T>> f : futures) {
+      if (f.isCancelled()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isDone() {
+    for (BulkFuture<Map<String, T>> f : futures) {
+      if (!f.isDone()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isTimeout() {
+    for (BulkFuture<Map<String, T>> f : futures) {
+      if (f.isTimeout()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int getOpCount() {
+    int count = 0;
+    for (BulkFuture<Map<String, T>> f : futures) {
+      count += f.getOpCount();
+    }
+    return count;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future merging the results of collection bulk gets sent by several clients.
+ * The operations are held by the merged futures.
+ *
+ * Not intended for general use.
+ *
+ * @param <T> types of the results of each key
+ */
+public class MergedCollectionGetBulkFuture<T> extends CollectionGetBulkFuture<Map<String, T>> {
+  private final List<CollectionGetBulkFuture<Map<String, T>>> futures;
+
+  public MergedCollectionGetBulkFuture(List<CollectionGetBulkFuture<Map<String, T>>> futures,
+                                       long timeout) {
+    super(new CountDownLatch(0), Collections.emptyList(), null, timeout);
+    this.futures = futures;
+  }
+
+  @Override
+  public Map<String, T> get(long duration, TimeUnit unit)
+      throws InterruptedException, TimeoutException, ExecutionException {
+    long deadline = System.nanoTime() + unit.toNanos(duration);
+    Map<String, T> rv = new HashMap<>();
+    for (CollectionGetBulkFuture<Map<String, T>> f : futures) {
+      Map<String, T> result =
+          f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      if (result != null) {
+        rv.putAll(result);
+      }
+    }
+    return rv;
+  }
+
+  @Override
+  public boolean cancel(boolean ign) {
+    boolean rv = false;
+    for (CollectionGetBulkFuture<Map<String, T>> f : futures) {
+      rv |= f.cancel(ign);
+    }
+    return rv;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    for (CollectionGetBulkFuture<Map<String, T>> f : futures) {
+      if (f.isCancelled()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isDone() {
+    for (CollectionGetBulkFuture<Map<String, T>> f : futures) {
+      if (!f.isDone()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -80,6 +80,10 @@ public class OperationFuture<T> extends SpyObject implements Future<T> {
       // whenever timeout occurs, continuous timeout counter will increase by 1.
       MemcachedConnection.opTimedOut(op);
 
+      long elapsed = System.currentTimeMillis() - beforeAwait;
+      throw new CheckedOperationTimeoutException(duration, unit, elapsed, op);
+    } else if (op != null && op.isTimedOut()) {
+      // expired by the client before its response arrived.
       long elapsed = System.currentTimeMillis() - beforeAwait;
       throw new CheckedOperationTimeoutException(duration, unit, elapsed, op);
     } else {
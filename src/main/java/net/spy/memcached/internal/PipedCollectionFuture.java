@@ -86,6 +86,17 @@ public class PipedCollectionFuture<K, V>
         throw new CheckedOperationTimeoutException(duration, unit, elapsed, timedOutOps);
       }
     } else {
+      Collection<Operation> timedOutOps = new ArrayList<>();
+      for (Operation op : ops) {
+        if (op.isTimedOut()) {
+          timedOutOps.add(op);
+        }
+      }
+      if (!timedOutOps.isEmpty()) {
+        // expired by the client before their responses arrived.
+        long elapsed = System.currentTimeMillis() - beforeAwait;
+        throw new CheckedOperationTimeoutException(duration, unit, elapsed, timedOutOps);
+      }
       // continuous timeout counter will be reset only once in pipe
       MemcachedConnection.opSucceeded(ops.iterator().next());
     }
@@ -0,0 +1,254 @@
+package net.spy.memcached.ops;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free operation queue for many producers and a single consumer.
+ *
+ * <p>Operations are kept in a ring buffer. Producers claim a slot with a CAS
+ * on the tail and never take a lock. Only one thread may remove operations
+ * at a time, which is the IO thread handling the node that owns the queue.
+ * The blocking methods wait by parking for a short while and retrying.</p>
+ */
+public class MpscOperationQueue extends AbstractQueue<Operation>
+        implements BlockingQueue<Operation> {
+
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<Operation> buffer;
+  // sequence of each slot. equal to the tail when the slot is free,
+  // and to the head + 1 when the slot holds an operation to be consumed.
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  // written only by the consumer.
+  private volatile long head = 0;
+
+  /**
+   * Create a queue holding at least the given number of operations.
+   * The capacity is rounded up to a power of two, and is at least two
+   * so that a slot just published is not taken as free.
+   *
+   * @param cap minimum capacity of the queue
+   */
+  public MpscOperationQueue(int cap) {
+    if (cap <= 0 || cap > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid queue capacity : " + cap);
+    }
+    capacity = cap <= 2 ? 2 : Integer.highestOneBit(cap - 1) << 1;
+    mask = capacity - 1;
+    buffer = new AtomicReferenceArray<>(capacity);
+    sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.lazySet(i, i);
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  @Override
+  public boolean offer(Operation op) {
+    if (op == null) {
+      throw new NullPointerException();
+    }
+    long t = tail.get();
+    while (true) {
+      int index = (int) t & mask;
+      long seq = sequences.get(index);
+      if (seq == t) {
+        if (tail.compareAndSet(t, t + 1)) {
+          buffer.lazySet(index, op);
+          sequences.lazySet(index, t + 1);
+          return true;
+        }
+        t = tail.get();
+      } else if (seq < t) {
+        // the slot still holds an operation of the previous round.
+        return false;
+      } else {
+        t = tail.get();
+      }
+    }
+  }
+
+  @Override
+  public Operation poll() {
+    long h = head;
+    int index = (int) h & mask;
+    if (sequences.get(index) != h + 1) {
+      return null;
+    }
+    Operation op = buffer.get(index);
+    buffer.lazySet(index, null);
+    sequences.lazySet(index, h + capacity);
+    head = h + 1;
+    return op;
+  }
+
+  @Override
+  public Operation peek() {
+    long h = head;
+    int index = (int) h & mask;
+    if (sequences.get(index) != h + 1) {
+      return null;
+    }
+    return buffer.get(index);
+  }
+
+  @Override
+  public int size() {
+    while (true) {
+      long before = head;
+      long t = tail.get();
+      long after = head;
+      if (before == after) {
+        return (int) Math.max(0, Math.min(t - after, capacity));
+      }
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return head == tail.get();
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return capacity - size();
+  }
+
+  @Override
+  public void put(Operation op) throws InterruptedException {
+    while (!offer(op)) {
+      park();
+    }
+  }
+
+  @Override
+  public boolean offer(Operation op, long timeout, TimeUnit unit)
+          throws InterruptedException {
+    if (offer(op)) {
+      return true;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      park(Math.min(remaining, PARK_NANOS));
+      if (offer(op)) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public Operation take() throws InterruptedException {
+    Operation op;
+    while ((op = poll()) == null) {
+      park();
+    }
+    return op;
+  }
+
+  @Override
+  public Operation poll(long timeout, TimeUnit unit) throws InterruptedException {
+    Operation op = poll();
+    if (op != null) {
+      return op;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      park(Math.min(remaining, PARK_NANOS));
+      if ((op = poll()) != null) {
+        return op;
+      }
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super Operation> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super Operation> c, int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException("Cannot drain a queue to itself.");
+    }
+    int n = 0;
+    Operation op;
+    while (n < maxElements && (op = poll()) != null) {
+      c.add(op);
+      n++;
+    }
+    return n;
+  }
+
+  /**
+   * Returns a weakly consistent iterator that does not support removal.
+   */
+  @Override
+  public Iterator<Operation> iterator() {
+    return new Iterator<Operation>() {
+      private long cursor = head;
+      private final long end = tail.get();
+      private Operation next = advance();
+
+      private Operation advance() {
+        while (cursor < end) {
+          long c = cursor++;
+          int index = (int) c & mask;
+          Operation op = buffer.get(index);
+          if (op != null && sequences.get(index) == c + 1) {
+            return op;
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Operation next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Operation op = next;
+        next = advance();
+        return op;
+      }
+    };
+  }
+
+  private static void park() throws InterruptedException {
+    park(PARK_NANOS);
+  }
+
+  private static void park(long nanos) throws InterruptedException {
+    LockSupport.parkNanos(nanos);
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package net.spy.memcached.ops;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * OperationQueueFactory that creates bounded lock-free operation queues
+ * for many producers and a single consumer.
+ *
+ * @see MpscOperationQueue
+ */
+public class MpscOperationQueueFactory implements OperationQueueFactory {
+
+  private final int capacity;
+
+  /**
+   * Create an MpscOperationQueueFactory that creates queues with
+   * the given capacity, rounded up to a power of two.
+   *
+   * @param cap minimum size of a queue produced by this factory
+   */
+  public MpscOperationQueueFactory(int cap) {
+    super();
+    if (cap <= 0) {
+      throw new IllegalArgumentException("Queue capacity must be positive.");
+    }
+    capacity = cap;
+  }
+
+  public BlockingQueue<Operation> create() {
+    return new MpscOperationQueue(capacity);
+  }
+
+}
@@ -20,8 +20,11 @@ package net.spy.memcached.ops;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import net.spy.memcached.AdmissionControl;
 import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.OperationLatencyStats;
 import net.spy.memcached.RedirectHandler;
+import net.spy.memcached.SlowOperationLogger;
 
 
 /**
@@ -59,6 +62,29 @@ public interface Operation {
    */
   String getCancelCause();
 
+  /**
+   * Has this operation been expired because it did not complete in time?
+   * An expired operation is cancelled as well.
+   */
+  boolean isTimedOut();
+
+  /**
+   * Expire this operation because it did not complete in time.
+   *
+   * @return true if the operation was expired by this call,
+   * false if it had already completed or been cancelled.
+   */
+  boolean timeOut(String cause);
+
+  /**
+   * Mark this operation as answered by another operation sent for the same
+   * request. It is neither cancelled nor timed out afterwards, and its own
+   * results are ignored by its callback.
+   *
+   * @return true if the operation had not completed yet
+   */
+  boolean supersede();
+
   /**
    * Get the current state of this operation.
    */
@@ -134,4 +160,29 @@ public interface Operation {
   /* ENABLE_MIGRATION end */
 
   APIType getAPIType();
+
+  /**
+   * Record the latency of this operation to the given stats when it completes.
+   * The latency is measured from the first call, when the operation is added to a node.
+   */
+  void setLatencyStats(OperationLatencyStats stats);
+
+  /**
+   * Log this operation to the given logger if it is slow when it completes.
+   */
+  void setSlowOperationLogger(SlowOperationLogger logger);
+
+  /**
+   * Hold an admission of the given size until this operation completes,
+   * releasing the one held before, if any.
+   */
+  void setAdmission(AdmissionControl admission, int size);
+
+  /**
+   * Get the time of a point in the lifecycle of this operation in
+   * {@link System#nanoTime()}, or 0 if it is not reached yet.
+   * The times after {@link OperationTimestamp#CREATED} are recorded
+   * only if the latency of the operation is recorded or logged.
+   */
+  long getTimestamp(OperationTimestamp point);
 }
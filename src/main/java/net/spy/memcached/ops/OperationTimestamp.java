@@ -0,0 +1,48 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Points in the lifecycle of an operation whose time is recorded.
+ */
+public enum OperationTimestamp {
+  /**
+   * The operation is created.
+   */
+  CREATED,
+  /**
+   * The operation is added to the input queue of a node.
+   */
+  ADDED,
+  /**
+   * The first byte of the operation is about to be written to the socket.
+   */
+  WRITE_STARTED,
+  /**
+   * The last byte of the operation is written to the socket.
+   */
+  WRITE_COMPLETED,
+  /**
+   * The first byte of the response is read from the socket.
+   */
+  READ_STARTED,
+  /**
+   * The operation is completed or timed out.
+   */
+  COMPLETED
+}
@@ -0,0 +1,81 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.time.Duration;
+
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+
+/**
+ * Front cache based on ehcache, bounded by the number of values.
+ * The weight of values is ignored.
+ */
+public class EhcacheFrontCache implements FrontCache {
+
+  public static final FrontCacheFactory FACTORY = new FrontCacheFactory() {
+    @Override
+    public FrontCache create(String name, int maxElements, long maxBytes, int expireTime) {
+      return new EhcacheFrontCache(name, maxElements, expireTime);
+    }
+  };
+
+  private final CacheManager cacheManager;
+  private final Cache<String, Object> cache;
+
+  public EhcacheFrontCache(String name, int max, int exptime) {
+    this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder().build(true);
+
+    CacheConfiguration<String, Object> config =
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, Object.class,
+                            ResourcePoolsBuilder.heap(max))
+                    .withExpiry(ExpiryPolicyBuilder
+                            .timeToLiveExpiration(Duration.ofSeconds(exptime)))
+                    .build();
+    this.cache = cacheManager.createCache(name, config);
+  }
+
+  @Override
+  public Object get(String key) {
+    return cache.get(key);
+  }
+
+  @Override
+  public void put(String key, Object value, int weight) {
+    cache.put(key, value);
+  }
+
+  @Override
+  public void remove(String key) {
+    cache.remove(key);
+  }
+
+  @Override
+  public void close() {
+    cacheManager.close();
+  }
+
+  @Override
+  public String toString() {
+    return cache.toString();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+/**
+ * Local storage of a front cache.
+ *
+ * <p>Implementations must be thread-safe. Values are cached as they are
+ * returned to the application, and each of them has a weight that is the
+ * length of its {@code CachedData} when it is known, or 1 otherwise.</p>
+ *
+ * @see FrontCacheFactory
+ * @see LocalCacheManager
+ */
+public interface FrontCache {
+
+  /**
+   * Get the value cached for the key.
+   *
+   * @return the value, or null if it is not cached or has expired
+   */
+  Object get(String key);
+
+  /**
+   * Cache the value of the key, replacing the previous one.
+   *
+   * @param weight the length of the value's data, or 1 if it is unknown
+   */
+  void put(String key, Object value, int weight);
+
+  /**
+   * Remove the value of the key.
+   */
+  void remove(String key);
+
+  /**
+   * Release all cached values and resources of the cache.
+   */
+  void close();
+}
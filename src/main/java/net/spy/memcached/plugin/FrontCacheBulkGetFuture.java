@@ -1,5 +1,6 @@
 package net.spy.memcached.plugin;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -14,15 +15,25 @@ public class FrontCacheBulkGetFuture<T> extends BulkGetFuture<T> {
   private final LocalCacheManager localCacheManager;
 
   private final Map<String, T> localCachedData;
+  private final Map<String, WeighingTranscoder<T>> weighers;
 
   private Map<String, T> result = null;
 
   public FrontCacheBulkGetFuture(LocalCacheManager localCacheManager,
                                  BulkGetFuture<T> parentFuture,
                                  Map<String, T> localCachedData) {
+    this(localCacheManager, parentFuture, localCachedData,
+        Collections.<String, WeighingTranscoder<T>>emptyMap());
+  }
+
+  FrontCacheBulkGetFuture(LocalCacheManager localCacheManager,
+                          BulkGetFuture<T> parentFuture,
+                          Map<String, T> localCachedData,
+                          Map<String, WeighingTranscoder<T>> weighers) {
     super(parentFuture);
     this.localCacheManager = localCacheManager;
     this.localCachedData = localCachedData;
+    this.weighers = weighers;
   }
 
   @Override
@@ -68,7 +79,8 @@ public class FrontCacheBulkGetFuture<T> extends BulkGetFuture<T> {
       String key = entry.getKey();
       T value = entry.getValue();
       if (value != null) {
-        localCacheManager.put(key, value);
+        WeighingTranscoder<T> weigher = weighers.get(key);
+        localCacheManager.put(key, value, weigher == null ? 1 : weigher.getWeight());
       }
     }
   }
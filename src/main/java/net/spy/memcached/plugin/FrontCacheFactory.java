@@ -0,0 +1,37 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+/**
+ * Creates the {@link FrontCache} of a client.
+ *
+ * @see TinyLfuFrontCache#FACTORY
+ * @see EhcacheFrontCache#FACTORY
+ */
+public interface FrontCacheFactory {
+
+  /**
+   * Create a front cache.
+   *
+   * @param name        name of the cache
+   * @param maxElements maximum number of values
+   * @param maxBytes    maximum total weight of values, or 0 to bound the cache
+   *                    by the number of values only
+   * @param expireTime  time in seconds a value stays in the cache
+   */
+  FrontCache create(String name, int maxElements, long maxBytes, int expireTime);
+}
@@ -37,18 +37,25 @@ public class FrontCacheGetFuture<T> extends GetFuture<T> {
   private final GetFuture<T> parent;
   private final LocalCacheManager localCacheManager;
   private final String key;
+  private final WeighingTranscoder<T> weigher;
 
   public FrontCacheGetFuture(LocalCacheManager localCacheManager, String key, GetFuture<T> parent) {
+    this(localCacheManager, key, parent, null);
+  }
+
+  FrontCacheGetFuture(LocalCacheManager localCacheManager, String key, GetFuture<T> parent,
+                      WeighingTranscoder<T> weigher) {
     super(new CountDownLatch(0), DEFAULT_OPERATION_TIMEOUT);
     this.parent = parent;
     this.localCacheManager = localCacheManager;
     this.key = key;
+    this.weigher = weigher;
   }
 
   @Override
   public T get() throws InterruptedException, ExecutionException {
     T t = parent.get();
-    localCacheManager.put(key, t);
+    putLocalCache(t);
     return t;
   }
 
@@ -56,10 +63,14 @@ public class FrontCacheGetFuture<T> extends GetFuture<T> {
   public T get(long timeout, TimeUnit unit) throws InterruptedException,
           ExecutionException, TimeoutException {
     T t = parent.get(timeout, unit);
-    localCacheManager.put(key, t);
+    putLocalCache(t);
     return t;
   }
 
+  private void putLocalCache(T t) {
+    localCacheManager.put(key, t, weigher == null ? 1 : weigher.getWeight());
+  }
+
   @Override
   public OperationStatus getStatus() {
     return parent.getStatus();
@@ -18,6 +18,7 @@ package net.spy.memcached.plugin;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -41,7 +42,7 @@ import net.spy.memcached.transcoders.Transcoder;
  * A subsequent get operation first checks the cache.  If the key is found in the cache,
  * it is returned from the front cache.  If not, the get command goes to the server as usual.
  *
- * Cache parameters (name, size, expiration time) are from ConnectionFactory.
+ * Cache parameters (name, size, expiration time, cache factory) are from ConnectionFactory.
  *
  * @see net.spy.memcached.ConnectionFactoryBuilder
  * @see net.spy.memcached.plugin.LocalCacheManager
@@ -65,9 +66,11 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
     if (cf.getMaxFrontCacheElements() > 0) {
       String cacheName = cf.getFrontCacheName();
       int maxElements = cf.getMaxFrontCacheElements();
+      long maxBytes = cf.getMaxFrontCacheBytes();
       int timeToLiveSeconds = cf.getFrontCacheExpireTime();
 
-      localCacheManager = new LocalCacheManager(cacheName, maxElements, timeToLiveSeconds);
+      localCacheManager = new LocalCacheManager(cf.getFrontCacheFactory(),
+          cacheName, maxElements, maxBytes, timeToLiveSeconds);
     }
   }
 
@@ -114,8 +117,9 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
         }
       };
     }
-    GetFuture<T> parent = super.asyncGet(key, tc);
-    return new FrontCacheGetFuture<>(localCacheManager, key, parent);
+    WeighingTranscoder<T> weigher = new WeighingTranscoder<>(tc);
+    GetFuture<T> parent = super.asyncGet(key, weigher);
+    return new FrontCacheGetFuture<>(localCacheManager, key, parent, weigher);
   }
 
   /**
@@ -147,7 +151,7 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
     * 1. Check the local cache first.
     * */
     final Map<String, T> frontCacheHit = new HashMap<>();
-    final Map<String, Transcoder<T>> frontCacheMiss =
+    final Map<String, WeighingTranscoder<T>> frontCacheMiss =
             new HashMap<>();
 
     Iterator<String> keyIter = keys.iterator();
@@ -159,15 +163,18 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
         frontCacheHit.put(key, value);
         continue;
       }
-      frontCacheMiss.put(key, tc);
+      frontCacheMiss.put(key, new WeighingTranscoder<>(tc));
     }
     /*
     * 2. Send the cache miss keys to Arcus server.
     * */
+    Iterator<Transcoder<T>> missTcIter =
+            new ArrayList<Transcoder<T>>(frontCacheMiss.values()).iterator();
     BulkGetFuture<T> parent = (BulkGetFuture<T>) super.asyncGetBulk(
-            frontCacheMiss.keySet(), frontCacheMiss.values().iterator());
+            frontCacheMiss.keySet(), missTcIter);
 
-    return new FrontCacheBulkGetFuture<>(localCacheManager, parent, frontCacheHit);
+    return new FrontCacheBulkGetFuture<>(localCacheManager, parent, frontCacheHit,
+            frontCacheMiss);
   }
 
   /**
@@ -16,38 +16,26 @@
  */
 package net.spy.memcached.plugin;
 
-import java.time.Duration;
-
+import net.spy.memcached.DefaultConnectionFactory;
 import net.spy.memcached.compat.log.Logger;
 import net.spy.memcached.compat.log.LoggerFactory;
 
-import org.ehcache.Cache;
-import org.ehcache.CacheManager;
-import org.ehcache.config.CacheConfiguration;
-import org.ehcache.config.builders.CacheConfigurationBuilder;
-import org.ehcache.config.builders.CacheManagerBuilder;
-import org.ehcache.config.builders.ExpiryPolicyBuilder;
-import org.ehcache.config.builders.ResourcePoolsBuilder;
-
 /**
- * Local cache storage based on ehcache.
+ * Local cache storage of the front cache.
+ * Values are stored in a {@link FrontCache} created by a {@link FrontCacheFactory}.
  */
 public class LocalCacheManager {
 
   private final Logger logger = LoggerFactory.getLogger(getClass());
-  private final CacheManager cacheManager;
-  private final Cache<String, Object> cache;
+  private final FrontCache cache;
 
   public LocalCacheManager(String name, int max, int exptime) {
-    this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder().build(true);
+    this(DefaultConnectionFactory.DEFAULT_FRONT_CACHE_FACTORY, name, max, 0, exptime);
+  }
 
-    CacheConfiguration<String, Object> config =
-            CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, Object.class,
-                            ResourcePoolsBuilder.heap(max))
-                    .withExpiry(ExpiryPolicyBuilder
-                            .timeToLiveExpiration(Duration.ofSeconds(exptime)))
-                    .build();
-    this.cache = cacheManager.createCache(name, config);
+  public LocalCacheManager(FrontCacheFactory factory,
+                           String name, int max, long maxBytes, int exptime) {
+    this.cache = factory.create(name, max, maxBytes, exptime);
 
     logger.info("Arcus k/v local cache is enabled : %s", cache.toString());
   }
@@ -73,12 +61,19 @@ public class LocalCacheManager {
   }
 
   public <T> boolean put(String k, T v) {
+    return put(k, v, 1);
+  }
+
+  /**
+   * Put the value with its weight, the length of its data.
+   */
+  public <T> boolean put(String k, T v, int weight) {
     if (v == null) {
       return false;
     }
 
     try {
-      cache.put(k, v);
+      cache.put(k, v, weight);
       return true;
     } catch (Exception e) {
       logger.info("failed to put to the local cache : %s", e.getMessage());
@@ -95,7 +90,7 @@ public class LocalCacheManager {
   }
 
   public void close() {
-    cacheManager.close();
+    cache.close();
   }
 
   @Override
@@ -0,0 +1,537 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent front cache with the W-TinyLFU eviction policy.
+ *
+ * <p>New values enter a small LRU window. Values evicted from the window
+ * are admitted to the main space, a segmented LRU of probation and protected
+ * segments, only if a frequency sketch estimates they are accessed more often
+ * than the value they would evict. The cache is bounded by the total weight
+ * of values, which is the length of their data when a byte bound is given or
+ * 1 otherwise. Each value expires on its own deadline.</p>
+ *
+ * <p>Reads do not lock. A hit is recorded in one of several lossy ring
+ * buffers, striped by thread, and the buffers are applied to the policy
+ * under the eviction lock by writes or when a buffer becomes full.</p>
+ */
+public class TinyLfuFrontCache implements FrontCache {
+
+  public static final FrontCacheFactory FACTORY = new FrontCacheFactory() {
+    @Override
+    public FrontCache create(String name, int maxElements, long maxBytes, int expireTime) {
+      return new TinyLfuFrontCache(name, maxElements, maxBytes, expireTime);
+    }
+  };
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int DEAD = 3;
+
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int MAX_READ_BUFFERS = 64;
+
+  private final String name;
+  private final ConcurrentHashMap<String, Node> data;
+  private final boolean weighted;
+  private final long maximum;
+  private final long expireNanos;
+  private final ReadBuffer[] readBuffers;
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /* guarded by evictionLock */
+  private final FrequencySketch sketch;
+  private final long windowMaximum;
+  private final long protectedMaximum;
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedSegment = new AccessOrderDeque();
+  private final WriteOrderDeque writeOrder = new WriteOrderDeque();
+  private long windowWeight;
+  private long protectedWeight;
+  private long weightedSize;
+
+  /**
+   * @param name        name of the cache
+   * @param maxElements maximum number of values, used when maxBytes is 0
+   *                    and to size the frequency sketch
+   * @param maxBytes    maximum total length of values' data, or 0
+   * @param expireTime  time in seconds a value stays in the cache
+   */
+  public TinyLfuFrontCache(String name, int maxElements, long maxBytes, int expireTime) {
+    if (maxElements <= 0) {
+      throw new IllegalArgumentException("Max number of front cache elements must be positive.");
+    }
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Max bytes of front cache must not be negative.");
+    }
+    this.name = name;
+    this.data = new ConcurrentHashMap<>(Math.min(maxElements, 1 << 16));
+    this.weighted = maxBytes > 0;
+    this.maximum = weighted ? maxBytes : maxElements;
+    this.expireNanos = TimeUnit.SECONDS.toNanos(expireTime);
+    this.sketch = new FrequencySketch(maxElements);
+    this.windowMaximum = Math.max(1, maximum / 100);
+    this.protectedMaximum = (maximum - windowMaximum) * 4 / 5;
+
+    int stripes = Integer.highestOneBit(
+        Math.min(MAX_READ_BUFFERS, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+    readBuffers = new ReadBuffer[stripes];
+    for (int i = 0; i < stripes; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
+  }
+
+  @Override
+  public Object get(String key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    long now = System.nanoTime();
+    if (node.expireAt - now <= 0) {
+      if (evictionLock.tryLock()) {
+        try {
+          maintenance(now);
+        } finally {
+          evictionLock.unlock();
+        }
+      }
+      return null;
+    }
+    if (!readBufferFor().offer(node) && evictionLock.tryLock()) {
+      try {
+        maintenance(now);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return node.value;
+  }
+
+  @Override
+  public void put(String key, Object value, int weight) {
+    int w = weighted ? Math.max(1, weight) : 1;
+    if (w > maximum) {
+      remove(key);
+      return;
+    }
+    long now = System.nanoTime();
+    Node node = new Node(key, value, w, now + expireNanos);
+    evictionLock.lock();
+    try {
+      Node old = data.put(key, node);
+      if (old != null) {
+        unlink(old);
+      }
+      sketch.increment(key);
+      node.queue = WINDOW;
+      window.addLast(node);
+      writeOrder.addLast(node);
+      windowWeight += w;
+      weightedSize += w;
+      maintenance(now);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void remove(String key) {
+    if (!data.containsKey(key)) {
+      return;
+    }
+    evictionLock.lock();
+    try {
+      Node node = data.remove(key);
+      if (node != null) {
+        unlink(node);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    evictionLock.lock();
+    try {
+      for (Node node : data.values()) {
+        node.queue = DEAD;
+      }
+      data.clear();
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+      writeOrder.clear();
+      windowWeight = 0;
+      protectedWeight = 0;
+      weightedSize = 0;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Apply the pending reads and evict expired and overflowing values.
+   */
+  void cleanUp() {
+    evictionLock.lock();
+    try {
+      maintenance(System.nanoTime());
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  long weightedSize() {
+    evictionLock.lock();
+    try {
+      return weightedSize;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private ReadBuffer readBufferFor() {
+    int h = (int) Thread.currentThread().getId() * 0x9e3779b9;
+    return readBuffers[(h ^ (h >>> 16)) & (readBuffers.length - 1)];
+  }
+
+  private void maintenance(long now) {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drain(this);
+    }
+    expireEntries(now);
+    evictEntries();
+  }
+
+  private void onAccess(Node node) {
+    if (node.queue == DEAD) {
+      return;
+    }
+    sketch.increment(node.key);
+    switch (node.queue) {
+      case WINDOW:
+        window.moveToBack(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        node.queue = PROTECTED;
+        protectedSegment.addLast(node);
+        protectedWeight += node.weight;
+        // demote the least recently used protected values to make room.
+        while (protectedWeight > protectedMaximum) {
+          Node demoted = protectedSegment.pollFirst();
+          protectedWeight -= demoted.weight;
+          demoted.queue = PROBATION;
+          probation.addLast(demoted);
+        }
+        break;
+      default:
+        protectedSegment.moveToBack(node);
+        break;
+    }
+  }
+
+  private void expireEntries(long now) {
+    Node node;
+    while ((node = writeOrder.peekFirst()) != null && node.expireAt - now <= 0) {
+      evict(node);
+    }
+  }
+
+  private void evictEntries() {
+    // the overflow of the window moves to the probation tail as candidates
+    // that compete with the victims at the probation head.
+    Node candidate = null;
+    while (windowWeight > windowMaximum) {
+      Node node = window.pollFirst();
+      windowWeight -= node.weight;
+      node.queue = PROBATION;
+      probation.addLast(node);
+      if (candidate == null) {
+        candidate = node;
+      }
+    }
+
+    Node victim = probation.peekFirst();
+    while (weightedSize > maximum) {
+      if (candidate == null) {
+        Node node = probation.peekFirst();
+        if (node == null) {
+          node = protectedSegment.peekFirst();
+        }
+        if (node == null) {
+          node = window.peekFirst();
+        }
+        evict(node);
+      } else if (victim == null || victim == candidate) {
+        Node next = candidate.next;
+        evict(candidate);
+        candidate = next;
+        victim = probation.peekFirst();
+      } else if (admit(candidate, victim)) {
+        Node next = victim.next;
+        evict(victim);
+        victim = next;
+      } else {
+        Node next = candidate.next;
+        evict(candidate);
+        candidate = next;
+      }
+    }
+  }
+
+  private boolean admit(Node candidate, Node victim) {
+    int candidateFreq = sketch.frequency(candidate.key);
+    int victimFreq = sketch.frequency(victim.key);
+    if (candidateFreq > victimFreq) {
+      return true;
+    }
+    if (candidateFreq <= 5) {
+      return false;
+    }
+    // admit a warm candidate at random, so that an attacker can not keep
+    // a victim cached by raising its estimate with colliding keys.
+    return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+  }
+
+  private void evict(Node node) {
+    data.remove(node.key, node);
+    unlink(node);
+  }
+
+  private void unlink(Node node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.remove(node);
+        windowWeight -= node.weight;
+        break;
+      case PROBATION:
+        probation.remove(node);
+        break;
+      case PROTECTED:
+        protectedSegment.remove(node);
+        protectedWeight -= node.weight;
+        break;
+      default:
+        return;
+    }
+    writeOrder.remove(node);
+    weightedSize -= node.weight;
+    node.queue = DEAD;
+  }
+
+  @Override
+  public String toString() {
+    return "TinyLfuFrontCache{name=" + name + ", size=" + data.size()
+        + ", maximum=" + maximum + (weighted ? " bytes" : " elements") + "}";
+  }
+
+  private static final class Node {
+    private final String key;
+    private final Object value;
+    private final int weight;
+    private final long expireAt;
+
+    /* guarded by evictionLock */
+    private int queue;
+    private Node prev;
+    private Node next;
+    private Node prevInWriteOrder;
+    private Node nextInWriteOrder;
+
+    private Node(String key, Object value, int weight, long expireAt) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.expireAt = expireAt;
+    }
+  }
+
+  /**
+   * Bounded ring buffer of reads, filled without locks and drained
+   * under the eviction lock. Reads are dropped when it is full or contended.
+   */
+  private static final class ReadBuffer {
+    private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private volatile long readCounter;
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(Node node) {
+      long tail = writeCounter.get();
+      if (tail - readCounter >= READ_BUFFER_SIZE) {
+        return false;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & READ_BUFFER_MASK), node);
+      }
+      return true;
+    }
+
+    void drain(TinyLfuFrontCache cache) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      for (; head != tail; head++) {
+        int index = (int) (head & READ_BUFFER_MASK);
+        Node node = buffer.get(index);
+        if (node == null) {
+          // the read of a slot is not published yet.
+          break;
+        }
+        buffer.lazySet(index, null);
+        cache.onAccess(node);
+      }
+      readCounter = head;
+    }
+  }
+
+  private abstract static class LinkedDeque {
+    private Node first;
+    private Node last;
+
+    abstract Node prevOf(Node node);
+
+    abstract Node nextOf(Node node);
+
+    abstract void link(Node node, Node prev, Node next);
+
+    abstract void setPrev(Node node, Node prev);
+
+    abstract void setNext(Node node, Node next);
+
+    Node peekFirst() {
+      return first;
+    }
+
+    Node pollFirst() {
+      Node node = first;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+
+    void addLast(Node node) {
+      link(node, last, null);
+      if (last == null) {
+        first = node;
+      } else {
+        setNext(last, node);
+      }
+      last = node;
+    }
+
+    void remove(Node node) {
+      Node prev = prevOf(node);
+      Node next = nextOf(node);
+      if (prev == null) {
+        first = next;
+      } else {
+        setNext(prev, next);
+      }
+      if (next == null) {
+        last = prev;
+      } else {
+        setPrev(next, prev);
+      }
+      link(node, null, null);
+    }
+
+    void moveToBack(Node node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void clear() {
+      first = null;
+      last = null;
+    }
+  }
+
+  private static final class AccessOrderDeque extends LinkedDeque {
+    @Override
+    Node prevOf(Node node) {
+      return node.prev;
+    }
+
+    @Override
+    Node nextOf(Node node) {
+      return node.next;
+    }
+
+    @Override
+    void link(Node node, Node prev, Node next) {
+      node.prev = prev;
+      node.next = next;
+    }
+
+    @Override
+    void setPrev(Node node, Node prev) {
+      node.prev = prev;
+    }
+
+    @Override
+    void setNext(Node node, Node next) {
+      node.next = next;
+    }
+  }
+
+  private static final class WriteOrderDeque extends LinkedDeque {
+    @Override
+    Node prevOf(Node node) {
+      return node.prevInWriteOrder;
+    }
+
+    @Override
+    Node nextOf(Node node) {
+      return node.nextInWriteOrder;
+    }
+
+    @Override
+    void link(Node node, Node prev, Node next) {
+      node.prevInWriteOrder = prev;
+      node.nextInWriteOrder = next;
+    }
+
+    @Override
+    void setPrev(Node node, Node prev) {
+      node.prevInWriteOrder = prev;
+    }
+
+    @Override
+    void setNext(Node node, Node next) {
+      node.nextInWriteOrder = next;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Transcoder of a single get that remembers the length of the decoded data,
+ * so that the value can be weighed when it is put to the front cache.
+ */
+final class WeighingTranscoder<T> implements Transcoder<T> {
+
+  private final Transcoder<T> tc;
+  private volatile int weight = 1;
+
+  WeighingTranscoder(Transcoder<T> tc) {
+    this.tc = tc;
+  }
+
+  @Override
+  public CachedData encode(T o) {
+    return tc.encode(o);
+  }
+
+  @Override
+  public T decode(CachedData d) {
+    weight = d.getData().length;
+    return tc.decode(d);
+  }
+
+  @Override
+  public int getMaxSize() {
+    return tc.getMaxSize();
+  }
+
+  int getWeight() {
+    return weight;
+  }
+}
@@ -21,10 +21,14 @@ import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
+import net.spy.memcached.AdmissionControl;
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.MemcachedReplicaGroup;
+import net.spy.memcached.OperationLatencyStats;
 import net.spy.memcached.RedirectHandler;
+import net.spy.memcached.SlowOperationLogger;
 import net.spy.memcached.collection.CollectionResponse;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.ops.APIType;
@@ -36,6 +40,7 @@ import net.spy.memcached.ops.OperationErrorType;
 import net.spy.memcached.ops.OperationException;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.OperationTimestamp;
 import net.spy.memcached.ops.OperationType;
 import net.spy.memcached.ops.StatusCode;
 
@@ -50,13 +55,20 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
   public static final OperationStatus CANCELLED =
           new CancelledOperationStatus();
 
+  /**
+   * Status object for operations expired before completion.
+   */
+  public static final OperationStatus TIMED_OUT =
+          new OperationStatus(false, "timed out", StatusCode.TIMEDOUT);
+
   public static final CollectionOperationStatus COLLECTION_CANCELLED =
           new CollectionOperationStatus(false, "collection canceled",
                   CollectionResponse.CANCELED);
 
   private OperationState state = OperationState.WRITE_QUEUED;
   private ByteBuffer cmd = null;
-  private boolean cancelled = false;
+  private volatile boolean cancelled = false;
+  private volatile boolean timedOut = false;
   private final AtomicBoolean callbacked = new AtomicBoolean(false);
   private String cancelCause = null;
   protected OperationException exception = null;
@@ -65,6 +77,19 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
 
   private OperationType opType = OperationType.UNDEFINED;
   private APIType apiType = APIType.UNDEFINED;
+  private OperationLatencyStats latencyStats = null;
+  private SlowOperationLogger slowLog = null;
+  private final AtomicReference<AdmissionControl> admission = new AtomicReference<>();
+  private volatile int admittedSize = 0;
+
+  // Lifecycle timestamps. Those after creation are recorded only if traced.
+  private final long createdTime = System.nanoTime();
+  private boolean traced = false;
+  private long addedTime = 0;
+  private long writeStartTime = 0;
+  private long writeCompleteTime = 0;
+  private long readStartTime = 0;
+  private long completeTime = 0;
 
   /* ENABLE_MIGRATION if */
   private RedirectHandler redirectHandler = null;
@@ -92,6 +117,10 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     return cancelled;
   }
 
+  public final boolean isTimedOut() {
+    return timedOut;
+  }
+
   public final boolean hasErrored() {
     return exception != null;
   }
@@ -102,6 +131,7 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
 
   public final boolean cancel(String cause) {
     if (callbacked.compareAndSet(false, true)) {
+      releaseAdmission();
       cancelled = true;
       if (handlingNode != null) {
         cause += " @ " + handlingNode.getNodeName();
@@ -114,6 +144,31 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     return false;
   }
 
+  public final boolean timeOut(String cause) {
+    if (callbacked.compareAndSet(false, true)) {
+      releaseAdmission();
+      timedOut = true;
+      cancelled = true;
+      if (handlingNode != null) {
+        cause += " @ " + handlingNode.getNodeName();
+      }
+      cancelCause = "Timed out (" + cause + ")";
+      traceCompletion();
+      callback.receivedStatus(TIMED_OUT);
+      callback.complete();
+      return true;
+    }
+    return false;
+  }
+
+  public final boolean supersede() {
+    if (callbacked.compareAndSet(false, true)) {
+      releaseAdmission();
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Completes the operation by transitioning its state to COMPLETE and invoking the callback.
    *
@@ -124,6 +179,10 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
    */
   protected final void complete(OperationStatus status) {
     boolean needComplete = callbacked.compareAndSet(false, true);
+    if (needComplete) {
+      releaseAdmission();
+      traceCompletion();
+    }
     callback.receivedStatus(status);
     transitionState(OperationState.COMPLETE);
     if (needComplete) {
@@ -131,6 +190,91 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     }
   }
 
+  public final void setLatencyStats(OperationLatencyStats stats) {
+    if (latencyStats == null) {
+      latencyStats = stats;
+      startTrace();
+    }
+  }
+
+  public final void setSlowOperationLogger(SlowOperationLogger logger) {
+    if (slowLog == null) {
+      slowLog = logger;
+      startTrace();
+    }
+  }
+
+  public final void setAdmission(AdmissionControl ac, int size) {
+    AdmissionControl prev = admission.getAndSet(null);
+    if (prev != null) {
+      prev.release(admittedSize);
+    }
+    admittedSize = size;
+    admission.set(ac);
+    if (callbacked.get()) {
+      releaseAdmission();
+    }
+  }
+
+  // Released once, when the callback is called or the operation is superseded.
+  private void releaseAdmission() {
+    AdmissionControl ac = admission.getAndSet(null);
+    if (ac != null) {
+      ac.release(admittedSize);
+    }
+  }
+
+  // Operations are traced from the first time they are added to a node.
+  private void startTrace() {
+    if (!traced) {
+      traced = true;
+      addedTime = System.nanoTime();
+    }
+  }
+
+  // Timed out operations are recorded with the time they waited, cancelled ones are not.
+  private void traceCompletion() {
+    MemcachedNode node = handlingNode;
+    if (!traced || node == null) {
+      return;
+    }
+    completeTime = System.nanoTime();
+    if (latencyStats != null) {
+      latencyStats.record(node, apiType, completeTime - addedTime);
+    }
+    if (slowLog != null) {
+      slowLog.completed(this);
+    }
+  }
+
+  /**
+   * Record the time the first byte of the response is read.
+   */
+  protected final void readStarted() {
+    if (traced && readStartTime == 0) {
+      readStartTime = System.nanoTime();
+    }
+  }
+
+  public final long getTimestamp(OperationTimestamp point) {
+    switch (point) {
+      case CREATED:
+        return createdTime;
+      case ADDED:
+        return addedTime;
+      case WRITE_STARTED:
+        return writeStartTime;
+      case WRITE_COMPLETED:
+        return writeCompleteTime;
+      case READ_STARTED:
+        return readStartTime;
+      case COMPLETED:
+        return completeTime;
+      default:
+        return 0;
+    }
+  }
+
   public final String getCancelCause() {
     return cancelCause;
   }
@@ -145,6 +289,9 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
    */
   @SuppressWarnings("fallthrough")
   public final void reset() {
+    // the operation is written again
+    writeCompleteTime = 0;
+    readStartTime = 0;
     switch (getState()) {
       case WRITING:
         transitionState(OperationState.WRITE_QUEUED); // reset operation state
@@ -240,10 +387,16 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
   }
 
   public final void writing() {
+    if (traced) {
+      writeStartTime = System.nanoTime();
+    }
     transitionState(OperationState.WRITING);
   }
 
   public final void writeComplete() {
+    if (traced) {
+      writeCompleteTime = System.nanoTime();
+    }
     transitionState(OperationState.READING);
   }
 
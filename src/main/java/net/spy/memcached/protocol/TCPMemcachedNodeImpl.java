@@ -26,6 +26,7 @@ import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.StringTokenizer;
 import java.util.concurrent.BlockingQueue;
@@ -35,9 +36,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import net.spy.memcached.AddrUtil;
+import net.spy.memcached.AdmissionControl;
 import net.spy.memcached.ArcusReplNodeAddress;
+import net.spy.memcached.DirectBufferPool;
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.MemcachedReplicaGroup;
+import net.spy.memcached.OperationQueueFullException;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.internal.ReconnDelay;
 import net.spy.memcached.ops.Operation;
@@ -52,17 +56,29 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 
   private final String name;
   private SocketAddress socketAddress;
-  private final ByteBuffer rbuf;
+  private ByteBuffer rbuf;
+  private final int rbufSize;
+  // elastic read buffer state. If rbufPool is null, rbuf is fixed.
+  private DirectBufferPool rbufPool = null;
+  private int maxRbufSize = 0;
   private final ByteBuffer wbuf;
   protected final BlockingQueue<Operation> writeQ;
   private final BlockingQueue<Operation> readQ;
   private final BlockingQueue<Operation> inputQueue;
   private final long opQueueMaxBlockTime;
+  private volatile AdmissionControl admission = null;
   private final AtomicInteger reconnectAttempt = new AtomicInteger(1);
   private volatile ReconnDelay reconnDelay = ReconnDelay.IMMEDIATE;
   private SocketChannel channel;
   private int toWrite = 0;
   protected Operation optimizedOp = null;
+  // gathering write state. If writeBatchOps is null, operation buffers
+  // are copied into wbuf before being written to the channel.
+  private Operation[] writeBatchOps = null;
+  private ByteBuffer[] writeBatchBufs = null;
+  private int writeBatchStart = 0;
+  private int writeBatchEnd = 0;
+  private int maxWriteBatchBytes = 0;
   private volatile SelectionKey sk = null;
   private final boolean shouldAuth;
   private boolean authInProgress;
@@ -83,6 +99,14 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 
   /* ENABLE_REPLICATION if */
   private MemcachedReplicaGroup replicaGroup;
+  // Moving average of the latencies of the completed operations,
+  // each one weighing 1 / 2^LATENCY_EWMA_SHIFT. It halves every
+  // LATENCY_HALF_LIFE_NANOS without a completion, so that a node left
+  // for being slow is tried again after a while.
+  private static final int LATENCY_EWMA_SHIFT = 3;
+  private static final long LATENCY_HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private final AtomicLong latencyEwma = new AtomicLong(0);
+  private volatile long latencyRecordedAt = 0;
   /* ENABLE_REPLICATION end */
 
   public TCPMemcachedNodeImpl(String name,
@@ -101,6 +125,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     this.name = name;
     setSocketAddress(sa);
     rbuf = ByteBuffer.allocateDirect(bufSize);
+    rbufSize = bufSize;
     wbuf = ByteBuffer.allocateDirect(bufSize);
     ((Buffer) getWbuf()).clear();
     readQ = rq;
@@ -113,17 +138,47 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     authInProgress = false;
   }
 
+  /**
+   * Write the operation buffers directly to the channel
+   * with a gathering write instead of copying them into the write buffer.
+   *
+   * @param maxBuffers max number of operation buffers written at once
+   * @param maxBytes   stop adding operation buffers once this many bytes are pending
+   */
+  public final void setGatheringWrite(int maxBuffers, int maxBytes) {
+    assert maxBuffers > 0 : "Invalid number of buffers: " + maxBuffers;
+    assert maxBytes > 0 : "Invalid number of bytes: " + maxBytes;
+    writeBatchOps = new Operation[maxBuffers];
+    writeBatchBufs = new ByteBuffer[maxBuffers];
+    maxWriteBatchBytes = maxBytes;
+  }
+
+  /**
+   * Take the read buffer from the given pool while operations are read,
+   * growing it up to the given size while reads fill it.
+   *
+   * @param pool    the pool to take the read buffer from
+   * @param maxSize the maximum size of the read buffer
+   */
+  public final void setElasticReadBuffer(DirectBufferPool pool, int maxSize) {
+    assert maxSize >= rbufSize : "Invalid max read buffer size: " + maxSize;
+    rbufPool = pool;
+    maxRbufSize = maxSize;
+    pool.give(rbuf);
+    rbuf = null;
+  }
+
+  public final boolean isGatheringWrite() {
+    return writeBatchOps != null;
+  }
+
   public final void copyInputQueue() {
     if (authInProgress) {
       return;
     }
 
-    Collection<Operation> tmp = new ArrayList<>();
-
     // don't drain more than we have space to place
-    inputQueue.drainTo(tmp, writeQ.remainingCapacity());
-
-    writeQ.addAll(tmp);
+    inputQueue.drainTo(writeQ, writeQ.remainingCapacity());
   }
 
   public Collection<Operation> destroyInputQueue() {
@@ -145,7 +200,19 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public Collection<Operation> destroyWriteQueue(boolean resend) {
-    return destroyQueue(writeQ, resend);
+    // operations of the gathering write batch are not written yet.
+    List<Operation> batch = drainWriteBatch();
+    Collection<Operation> rv = destroyQueue(writeQ, resend);
+    if (batch.isEmpty()) {
+      return rv;
+    }
+    if (resend) {
+      for (Operation o : batch) {
+        o.reset();
+      }
+    }
+    batch.addAll(rv);
+    return batch;
   }
 
   public Collection<Operation> destroyReadQueue(boolean resend) {
@@ -153,6 +220,10 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public final void setupResend(String cause) {
+    // Operations of the gathering write batch not fully written are
+    // written again, like the current write op.
+    requeueWriteBatch();
+
     // First, reset the current write op, or cancel it if we should
     // be authenticating
     Operation op = getCurrentWriteOp();
@@ -177,10 +248,33 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     }
 
     ((Buffer) getWbuf()).clear();
-    ((Buffer) getRbuf()).clear();
+    if (rbuf != null) {
+      ((Buffer) rbuf).clear();
+    }
+    clearWriteBatch();
     toWrite = 0;
   }
 
+  private void requeueWriteBatch() {
+    List<Operation> ops = drainWriteBatch();
+    if (ops.isEmpty()) {
+      return;
+    }
+    for (Operation o : ops) {
+      o.reset();
+    }
+    if (optimizedOp != null) {
+      ops.add(optimizedOp);
+      optimizedOp = null;
+    }
+    writeQ.drainTo(ops);
+    for (Operation o : ops) {
+      if (!writeQ.offer(o)) {
+        o.cancel("write queue overflow");
+      }
+    }
+  }
+
   // Prepare the pending operations.  Return true if there are any pending
   // ops
   private void preparePending() {
@@ -197,6 +291,10 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public final void fillWriteBuffer(boolean shouldOptimize) {
+    if (writeBatchOps != null) {
+      fillWriteBatch(shouldOptimize);
+      return;
+    }
     if (toWrite == 0 && readQ.remainingCapacity() > 0) {
       ((Buffer) getWbuf()).clear();
       Operation o = getNextWritableOp();
@@ -243,6 +341,73 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     }
   }
 
+  // The operations of a gathering write are added to readQ once written,
+  // so readQ keeps room for all of them.
+  private void fillWriteBatch(boolean shouldOptimize) {
+    if (toWrite == 0 && readQ.remainingCapacity() > 0) {
+      clearWriteBatch();
+      Operation o = getNextWritableOp();
+      while (o != null) {
+        assert o.getState() == OperationState.WRITING;
+
+        ByteBuffer obuf = o.getBuffer();
+        assert obuf != null : "Didn't get a write buffer from " + o;
+        Operation op = removeCurrentWriteOp();
+        assert o == op;
+        if (obuf.hasRemaining() || writeBatchEnd > 0) {
+          writeBatchOps[writeBatchEnd] = o;
+          writeBatchBufs[writeBatchEnd] = obuf;
+          writeBatchEnd++;
+          toWrite += obuf.remaining();
+        } else {
+          readQ.add(o);
+          o.writeComplete();
+        }
+        if (writeBatchEnd == writeBatchOps.length || toWrite >= maxWriteBatchBytes) {
+          break;
+        }
+
+        preparePending();
+        if (shouldOptimize) {
+          optimize();
+        }
+
+        if (readQ.remainingCapacity() > writeBatchEnd) {
+          o = getNextWritableOp();
+        } else {
+          o = null;
+        }
+      }
+      getLogger().debug("Gathered %d operations, %d bytes to write",
+              writeBatchEnd, toWrite);
+    } else {
+      getLogger().debug("Buffer is full, skipping");
+    }
+  }
+
+  private List<Operation> drainWriteBatch() {
+    List<Operation> ops = new ArrayList<>();
+    if (writeBatchStart < writeBatchEnd) {
+      for (int i = writeBatchStart; i < writeBatchEnd; i++) {
+        ops.add(writeBatchOps[i]);
+      }
+      clearWriteBatch();
+      toWrite = 0;
+    }
+    return ops;
+  }
+
+  private void clearWriteBatch() {
+    if (writeBatchOps != null) {
+      for (int i = writeBatchStart; i < writeBatchEnd; i++) {
+        writeBatchOps[i] = null;
+        writeBatchBufs[i] = null;
+      }
+      writeBatchStart = 0;
+      writeBatchEnd = 0;
+    }
+  }
+
   protected abstract void optimize();
 
   public final Operation getCurrentReadOp() {
@@ -266,7 +431,10 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
         assert o == cancelledOp;
       } else {
         o.writing();
-        readQ.add(o);
+        // operations of a gathering write are added to readQ once written.
+        if (writeBatchOps == null) {
+          readQ.add(o);
+        }
         return o;
       }
       o = getCurrentWriteOp();
@@ -289,19 +457,15 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public final boolean hasWriteOp() {
-    return !(optimizedOp == null && writeQ.isEmpty());
+    return !(optimizedOp == null && writeQ.isEmpty()) || writeBatchStart < writeBatchEnd;
   }
 
   public final void addOpToInputQ(Operation op) {
-    op.setHandlingNode(this);
-    op.initialize();
     try {
-      if (!inputQueue.offer(op, opQueueMaxBlockTime,
-              TimeUnit.MILLISECONDS)) {
-        throw new IllegalStateException("Timed out waiting to add "
+      if (!addOpToInputQ(op, opQueueMaxBlockTime)) {
+        throw new OperationQueueFullException("Timed out waiting to add "
                 + op + "(max wait=" + opQueueMaxBlockTime + "ms)");
       }
-      addOpCount.incrementAndGet();
     } catch (InterruptedException e) {
       // Restore the interrupted status
       Thread.currentThread().interrupt();
@@ -310,6 +474,45 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     }
   }
 
+  public final boolean tryAddOpToInputQ(Operation op) {
+    try {
+      return addOpToInputQ(op, 0);
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private boolean addOpToInputQ(Operation op, long maxBlockTime)
+          throws InterruptedException {
+    op.setHandlingNode(this);
+    op.initialize();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBlockTime);
+    AdmissionControl ac = admission;
+    ByteBuffer buf = op.getBuffer();
+    int size = buf == null ? 0 : buf.remaining();
+    if (ac != null && !ac.acquire(size, maxBlockTime, TimeUnit.MILLISECONDS)) {
+      return false;
+    }
+    long remaining = Math.max(0, deadline - System.nanoTime());
+    if (!inputQueue.offer(op, remaining, TimeUnit.NANOSECONDS)) {
+      if (ac != null) {
+        ac.release(size);
+      }
+      return false;
+    }
+    if (ac != null) {
+      op.setAdmission(ac, size);
+    }
+    addOpCount.incrementAndGet();
+    return true;
+  }
+
+  public final void setAdmissionControl(AdmissionControl admission) {
+    this.admission = admission;
+  }
+
   public final boolean addOpToWriteQ(Operation op) {
     op.setHandlingNode(this);
     op.reset();
@@ -352,9 +555,28 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public final ByteBuffer getRbuf() {
+    if (rbuf == null) {
+      rbuf = rbufPool.acquire(rbufSize);
+    }
     return rbuf;
   }
 
+  public final ByteBuffer expandRbuf() {
+    if (rbufPool != null && rbuf.capacity() < maxRbufSize) {
+      ByteBuffer larger = rbufPool.acquire(Math.min(rbuf.capacity() * 2, maxRbufSize));
+      rbufPool.release(rbuf);
+      rbuf = larger;
+    }
+    return rbuf;
+  }
+
+  public final void releaseRbuf() {
+    if (rbufPool != null && rbuf != null && (rbuf.capacity() > rbufSize || !hasReadOp())) {
+      rbufPool.release(rbuf);
+      rbuf = null;
+    }
+  }
+
   public final ByteBuffer getWbuf() {
     return wbuf;
   }
@@ -500,6 +722,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public final int writeSome() throws IOException {
+    if (writeBatchOps != null) {
+      return writeBatch();
+    }
     int wrote = channel.write(wbuf);
     assert wrote >= 0 : "Wrote negative bytes?";
     toWrite -= wrote;
@@ -510,6 +735,28 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     return wrote;
   }
 
+  private int writeBatch() throws IOException {
+    int wrote = (int) channel.write(writeBatchBufs, writeBatchStart,
+            writeBatchEnd - writeBatchStart);
+    assert wrote >= 0 : "Wrote negative bytes?";
+    toWrite -= wrote;
+    assert toWrite >= 0
+            : "toWrite went negative after writing " + wrote
+            + " bytes for " + this;
+    while (writeBatchStart < writeBatchEnd
+            && !writeBatchBufs[writeBatchStart].hasRemaining()) {
+      Operation o = writeBatchOps[writeBatchStart];
+      writeBatchOps[writeBatchStart] = null;
+      writeBatchBufs[writeBatchStart] = null;
+      writeBatchStart++;
+      readQ.add(o);
+      o.writeComplete();
+      getLogger().debug("Finished writing %s", o);
+    }
+    getLogger().debug("Wrote %d bytes", wrote);
+    return wrote;
+  }
+
   public void setContinuousTimeout(boolean timedOut) {
     if (timedOut && isConnected()) {
       if (timeoutStartNanos.get() == 0) {
@@ -604,6 +851,11 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
       }
     } finally {
       channel = null;
+      // nothing is read until it reconnects, so the elastic read buffer goes back.
+      if (rbufPool != null && rbuf != null) {
+        rbufPool.release(rbuf);
+        rbuf = null;
+      }
     }
   }
 
@@ -611,14 +863,17 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     closeChannel();
   }
 
+  @Override
   public int getInputQueueSize() {
     return inputQueue.size();
   }
 
+  @Override
   public int getWriteQueueSize() {
     return writeQ.size() + (optimizedOp == null ? 0 : 1);
   }
 
+  @Override
   public int getReadQueueSize() {
     return readQ.size();
   }
@@ -642,9 +897,44 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     return replicaGroup;
   }
 
+  public void recordLatency(long latencyNanos) {
+    long current;
+    long next;
+    long now = System.nanoTime();
+    do {
+      current = latencyEwma.get();
+      long decayed = decayLatency(current, now - latencyRecordedAt);
+      next = decayed == 0
+          ? latencyNanos
+          : decayed + ((latencyNanos - decayed) >> LATENCY_EWMA_SHIFT);
+    } while (!latencyEwma.compareAndSet(current, next));
+    latencyRecordedAt = now;
+  }
+
+  public long getLatencyEwma() {
+    return decayLatency(latencyEwma.get(), System.nanoTime() - latencyRecordedAt);
+  }
+
+  static long decayLatency(long ewma, long elapsedNanos) {
+    if (elapsedNanos < LATENCY_HALF_LIFE_NANOS) {
+      return ewma;
+    }
+    long halves = elapsedNanos / LATENCY_HALF_LIFE_NANOS;
+    return halves >= Long.SIZE ? 0 : ewma >> halves;
+  }
+
+  public int getOutstandingOpCount() {
+    // the admission control of a node counts its operations from add to completion.
+    AdmissionControl ac = admission;
+    return ac == null ? 0 : ac.getOutstandingOps();
+  }
+
   private BlockingQueue<Operation> getAllOperations(boolean cancelNonIdempotent) {
     BlockingQueue<Operation> allOp = new LinkedBlockingQueue<>();
 
+    // operations of the gathering write batch are not written yet.
+    List<Operation> batch = drainWriteBatch();
+
     while (hasReadOp()) {
       Operation op = removeCurrentReadOp();
       if (op == getCurrentWriteOp()) {
@@ -658,6 +948,8 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
       }
     }
 
+    allOp.addAll(batch);
+
     if (optimizedOp != null) {
       allOp.add(optimizedOp);
       optimizedOp = null;
@@ -0,0 +1,288 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A response line read from a memcached server, kept as bytes.
+ *
+ * <p>Status tokens are compared and numeric fields are parsed directly on
+ * the bytes, so handling a line does not create a String unless one is
+ * asked for. An operation reuses one instance for every line it reads,
+ * so a line must not be kept after it has been handled.</p>
+ *
+ * <p>Fields are the parts of the line separated by one or more spaces.</p>
+ */
+final class AsciiLine {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int INITIAL_FIELDS = 8;
+
+  private byte[] bytes;
+  private int length = 0;
+  // start and end offsets of each field, parsed when a field is first asked for.
+  private int[] fields;
+  private int fieldCount = -1;
+  private String string;
+
+  AsciiLine() {
+  }
+
+  private AsciiLine(byte[] b) {
+    bytes = b;
+    length = b.length;
+  }
+
+  /**
+   * Create a line holding the given string.
+   */
+  static AsciiLine of(String line) {
+    return new AsciiLine(line.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Read bytes of a line from the given buffer, up to and including
+   * the terminating CRLF. The buffer is scanned in place and only the
+   * bytes of the line are copied into this line.
+   *
+   * @param data buffer read from the server
+   * @return true if the line is complete, false if more bytes are needed
+   */
+  boolean readFrom(ByteBuffer data) {
+    int start = data.position();
+    int limit = data.limit();
+    int lf = start;
+    while (lf < limit && data.get(lf) != '\n') {
+      lf++;
+    }
+    append(data, lf - start);
+    if (lf == limit) {
+      return false;
+    }
+    data.position(lf + 1);
+    assert length > 0 && bytes[length - 1] == '\r' : "got a \\n without a \\r";
+    length--;
+    assert indexOf((byte) '\r', 0) < 0 : "got a \\r without a \\n";
+    return true;
+  }
+
+  /**
+   * Forget the bytes of the handled line so that the next one can be read.
+   */
+  void clear() {
+    length = 0;
+    fieldCount = -1;
+    string = null;
+  }
+
+  private void append(ByteBuffer data, int n) {
+    if (n == 0) {
+      return;
+    }
+    if (bytes == null) {
+      bytes = new byte[Math.max(INITIAL_CAPACITY, n)];
+    } else if (length + n > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + n));
+    }
+    data.get(bytes, length, n);
+    length += n;
+  }
+
+  int length() {
+    return length;
+  }
+
+  /**
+   * Whether the whole line is the given token.
+   */
+  boolean is(String token) {
+    return length == token.length() && regionMatches(0, token);
+  }
+
+  boolean startsWith(String prefix) {
+    return length >= prefix.length() && regionMatches(0, prefix);
+  }
+
+  /**
+   * Whether the line is made only of decimal digits.
+   * An empty line is taken as digits as well.
+   */
+  boolean isDigits() {
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Number of fields in this line.
+   */
+  int fieldCount() {
+    if (fieldCount < 0) {
+      parseFields();
+    }
+    return fieldCount;
+  }
+
+  boolean fieldIs(int index, String token) {
+    int start = fieldStart(index);
+    return fieldEnd(index) - start == token.length() && regionMatches(start, token);
+  }
+
+  boolean fieldStartsWith(int index, String prefix) {
+    int start = fieldStart(index);
+    return fieldEnd(index) - start >= prefix.length() && regionMatches(start, prefix);
+  }
+
+  String field(int index) {
+    int start = fieldStart(index);
+    return new String(bytes, start, fieldEnd(index) - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The rest of the line from the given field, spaces included.
+   */
+  String fieldsFrom(int index) {
+    int start = fieldStart(index);
+    return new String(bytes, start, length - start, StandardCharsets.UTF_8);
+  }
+
+  int intField(int index) {
+    long value = parseLong(fieldStart(index), fieldEnd(index));
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Out of int range: " + field(index));
+    }
+    return (int) value;
+  }
+
+  long longField(int index) {
+    return parseLong(fieldStart(index), fieldEnd(index));
+  }
+
+  /**
+   * Parse the decimal number following the given prefix, as in "COUNT=10".
+   */
+  int intAfter(String prefix) {
+    assert startsWith(prefix) : "line does not start with " + prefix;
+    int start = prefix.length();
+    int end = start;
+    while (end < length && bytes[end] != ' ') {
+      end++;
+    }
+    long value = parseLong(start, end);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Out of int range: " + toString());
+    }
+    return (int) value;
+  }
+
+  private int fieldStart(int index) {
+    checkField(index);
+    return fields[index << 1];
+  }
+
+  private int fieldEnd(int index) {
+    return fields[(index << 1) + 1];
+  }
+
+  private void checkField(int index) {
+    if (index < 0 || index >= fieldCount()) {
+      throw new IndexOutOfBoundsException("No field " + index + " in line: " + toString());
+    }
+  }
+
+  private void parseFields() {
+    if (fields == null) {
+      fields = new int[INITIAL_FIELDS << 1];
+    }
+    int count = 0;
+    int i = 0;
+    while (i < length) {
+      while (i < length && bytes[i] == ' ') {
+        i++;
+      }
+      if (i == length) {
+        break;
+      }
+      int start = i;
+      while (i < length && bytes[i] != ' ') {
+        i++;
+      }
+      if ((count << 1) == fields.length) {
+        fields = Arrays.copyOf(fields, fields.length << 1);
+      }
+      fields[count << 1] = start;
+      fields[(count << 1) + 1] = i;
+      count++;
+    }
+    fieldCount = count;
+  }
+
+  private long parseLong(int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && bytes[i] == '-') {
+      negative = true;
+      i++;
+    }
+    if (i == end) {
+      throw new NumberFormatException("Not a number: "
+          + new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+        throw new NumberFormatException("Not a number: "
+            + new String(bytes, start, end - start, StandardCharsets.UTF_8));
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  private boolean regionMatches(int offset, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (bytes[offset + i] != (byte) s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int indexOf(byte b, int from) {
+    for (int i = from; i < length; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public String toString() {
+    if (string == null) {
+      string = length == 0 ? "" : new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    return string;
+  }
+}
@@ -67,12 +67,12 @@ public final class BTreeFindPositionOperationImpl extends OperationImpl implemen
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     getLogger().debug("Got line %s", line);
 
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -80,12 +80,8 @@ public final class BTreeFindPositionOperationImpl extends OperationImpl implemen
 
     OperationStatus status;
     if (line.startsWith("POSITION=")) {
-      String[] stuff = line.split("=");
-      assert stuff.length == 2;
-      assert "POSITION".equals(stuff[0]);
-
       // POSITION=<position>\r\n
-      int position = Integer.parseInt(stuff[1]);
+      int position = line.intAfter("POSITION=");
       BTreeFindPositionOperation.Callback cb =
               (BTreeFindPositionOperation.Callback) getCallback();
       cb.gotData(position);
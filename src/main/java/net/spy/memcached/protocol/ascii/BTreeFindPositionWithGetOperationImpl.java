@@ -86,12 +86,12 @@ public final class BTreeFindPositionWithGetOperationImpl extends OperationImpl i
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     getLogger().debug("Got line %s", line);
 
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -104,13 +104,12 @@ public final class BTreeFindPositionWithGetOperationImpl extends OperationImpl i
       END\r\n
      */
     if (line.startsWith("VALUE ")) {
-      String[] stuff = line.split(" ");
-      assert stuff.length == 5;
+      assert line.fieldCount() == 5;
 
-      position = Integer.parseInt(stuff[1]);
-      flags = Integer.parseInt(stuff[2]);
-      count = Integer.parseInt(stuff[3]);
-      index = Integer.parseInt(stuff[4]);
+      position = line.intField(1);
+      flags = line.intField(2);
+      count = line.intField(3);
+      index = line.intField(4);
 
       assert count > 0;
       // position counter
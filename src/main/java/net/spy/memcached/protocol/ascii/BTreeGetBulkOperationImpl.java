@@ -80,7 +80,7 @@ public final class BTreeGetBulkOperationImpl extends OperationImpl implements
     setOperationType(OperationType.READ);
   }
 
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     getLogger().debug("Got line %s", line);
 
     /*
@@ -90,23 +90,21 @@ public final class BTreeGetBulkOperationImpl extends OperationImpl implements
       END\r\n
     */
     if (line.startsWith("VALUE ")) {
-      String[] chunk = line.split(" ");
-
       /* ENABLE_MIGRATION if */
-      if (hasNotMyKey(chunk[2])) {
-        addRedirectMultiKeyOperation(getNotMyKey(line), chunk[1]);
+      if (line.fieldStartsWith(2, "NOT_MY_KEY")) {
+        addRedirectMultiKeyOperation(getNotMyKey(line.toString()), line.field(1));
         return;
       }
       /* ENABLE_MIGRATION end */
 
-      OperationStatus status = matchStatus(chunk[2], OK, TRIMMED, NOT_FOUND,
+      OperationStatus status = matchFieldStatus(line, 2, OK, TRIMMED, NOT_FOUND,
           NOT_FOUND_ELEMENT, OUT_OF_RANGE, TYPE_MISMATCH, BKEY_MISMATCH,
           UNREADABLE);
 
-      key = chunk[1];
-      if (chunk.length > 3) {
-        flags = Integer.parseInt(chunk[3]);
-        elementCount = Integer.parseInt(chunk[4]);
+      key = line.field(1);
+      if (line.fieldCount() > 3) {
+        flags = line.intField(3);
+        elementCount = line.intField(4);
       }
 
       BTreeGetBulkOperation.Callback cb = ((BTreeGetBulkOperation.Callback) getCallback());
@@ -83,12 +83,12 @@ public final class BTreeGetByPositionOperationImpl extends OperationImpl impleme
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     getLogger().debug("Got line %s", line);
 
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -101,12 +101,11 @@ public final class BTreeGetByPositionOperationImpl extends OperationImpl impleme
       END\r\n
      */
     if (line.startsWith("VALUE ")) {
-      String[] stuff = line.split(" ");
-      assert stuff.length == 3;
-      assert "VALUE".equals(stuff[0]);
+      assert line.fieldCount() == 3;
+      assert line.fieldIs(0, "VALUE");
 
-      flags = Integer.parseInt(stuff[1]);
-      count = Integer.parseInt(stuff[2]);
+      flags = line.intField(1);
+      count = line.intField(2);
 
       if (count > 0) {
         // position counter
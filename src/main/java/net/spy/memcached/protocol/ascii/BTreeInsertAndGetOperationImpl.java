@@ -111,18 +111,18 @@ public final class BTreeInsertAndGetOperationImpl extends OperationImpl implemen
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     getLogger().debug("Got line %s", line);
 
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -134,12 +134,11 @@ public final class BTreeInsertAndGetOperationImpl extends OperationImpl implemen
       TRIMMED\r\n
     */
     if (line.startsWith("VALUE ")) {
-      String[] stuff = line.split(" ");
-      assert stuff.length == 3;
-      assert "VALUE".equals(stuff[0]);
+      assert line.fieldCount() == 3;
+      assert line.fieldIs(0, "VALUE");
 
-      flags = Integer.parseInt(stuff[1]);
-      count = Integer.parseInt(stuff[2]);
+      flags = line.intField(1);
+      count = line.intField(2);
 
       if (count > 0) {
         // start to read actual data
@@ -85,7 +85,7 @@ public final class BTreeSortMergeGetOperationImpl extends OperationImpl implemen
     setOperationType(OperationType.READ);
   }
 
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     // Response header
     getLogger().debug("Got line %s", line);
 
@@ -104,19 +104,16 @@ public final class BTreeSortMergeGetOperationImpl extends OperationImpl implemen
     if (line.startsWith("ELEMENTS ") || line.startsWith("VALUE ")) {
       readState = ReadState.ELEMENTS;
 
-      String[] stuff = line.split(" ");
-      assert "ELEMENTS".equals(stuff[0]) || "VALUE".equals(stuff[0]);
+      assert line.fieldIs(0, "ELEMENTS") || line.fieldIs(0, "VALUE");
 
-      lineCount = Integer.parseInt(stuff[1]);
+      lineCount = line.intField(1);
       if (lineCount > 0) {
         setReadType(OperationReadType.DATA);
       }
     } else if (line.startsWith("MISSED_KEYS")) {
       readState = ReadState.MISSED_KEYS;
 
-      String[] stuff = line.split(" ");
-
-      lineCount = Integer.parseInt(stuff[1]);
+      lineCount = line.intField(1);
       if (lineCount > 0) {
         setReadType(OperationReadType.DATA);
       }
@@ -124,10 +121,9 @@ public final class BTreeSortMergeGetOperationImpl extends OperationImpl implemen
     } else if (line.startsWith("TRIMMED_KEYS")) {
       readState = ReadState.TRIMMED_KEYS;
 
-      String[] stuff = line.split(" ");
-      assert "TRIMMED_KEYS".equals(stuff[0]);
+      assert line.fieldIs(0, "TRIMMED_KEYS");
 
-      lineCount = Integer.parseInt(stuff[1]);
+      lineCount = line.intField(1);
       if (lineCount > 0) {
         setReadType(OperationReadType.DATA);
       }
@@ -80,7 +80,7 @@ abstract class BaseGetOpImpl extends OperationImpl {
   }
 
   @Override
-  public final void handleLine(String line) {
+  final void handleLine(AsciiLine line) {
     /*
       VALUE <key> <flags> <bytes> [<cas unique>]\r\n
       <data block>\r\n
@@ -89,11 +89,11 @@ abstract class BaseGetOpImpl extends OperationImpl {
     */
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
-    if (line.equals("END")) {
+    if (line.is("END")) {
       getLogger().debug("Get complete!");
       /* ENABLE_MIGRATION if */
       notMyKeyLine = null;
@@ -106,22 +106,21 @@ abstract class BaseGetOpImpl extends OperationImpl {
       data = null;
     } else if (line.startsWith("VALUE ")) {
       getLogger().debug("Got line %s", line);
-      String[] stuff = line.split(" ");
-      assert stuff[0].equals("VALUE");
-      currentKey = stuff[1];
-      currentFlags = Integer.parseInt(stuff[2]);
-      data = new byte[Integer.parseInt(stuff[3])];
-      if (stuff.length > 4) {
-        casValue = Long.parseLong(stuff[4]);
+      assert line.fieldIs(0, "VALUE");
+      currentKey = line.field(1);
+      currentFlags = line.intField(2);
+      data = new byte[line.intField(3)];
+      if (line.fieldCount() > 4) {
+        casValue = line.longField(4);
       }
       readOffset = 0;
       getLogger().debug("Set read type to data");
       setReadType(OperationReadType.DATA);
     /* ENABLE_MIGRATION if */
     } else if (hasNotMyKey(line)) {
-      notMyKeyLine = line;
+      notMyKeyLine = line.toString();
     } else if (notMyKeyLine != null) {
-      addRedirectMultiKeyOperation(notMyKeyLine, line.trim());
+      addRedirectMultiKeyOperation(notMyKeyLine, line.toString().trim());
     /* ENABLE_MIGRATION end */
     } else {
       complete(matchStatus(line));
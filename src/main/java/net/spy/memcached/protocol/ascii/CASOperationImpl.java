@@ -73,18 +73,18 @@ class CASOperationImpl extends OperationImpl implements CASOperation {
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     assert getState() == OperationState.READING
             : "Read ``" + line + "'' when in " + getState() + " state";
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -45,7 +45,7 @@ public final class CollectionBulkInsertOperationImpl extends MultiKeyPipeOperati
   }
 
   @Override
-  protected OperationStatus checkStatus(String line) {
+  OperationStatus checkStatus(AsciiLine line) {
     return matchStatus(line, STORED, CREATED_STORED,
             NOT_FOUND, ELEMENT_EXISTS, OVERFLOWED, OUT_OF_RANGE,
             TYPE_MISMATCH, BKEY_MISMATCH);
@@ -65,10 +65,10 @@ public final class CollectionCountOperationImpl extends OperationImpl implements
     setOperationType(OperationType.READ);
   }
 
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -79,9 +79,7 @@ public final class CollectionCountOperationImpl extends OperationImpl implements
       // COUNT=<count>\r\n
       getLogger().debug("Got line %s", line);
 
-      String[] stuff = line.split("=");
-      assert "COUNT".equals(stuff[0]);
-      count = Integer.parseInt(stuff[1]);
+      count = line.intAfter("COUNT=");
 
       status = new CollectionOperationStatus(true, String.valueOf(count), CollectionResponse.END);
     } else {
@@ -70,12 +70,12 @@ public final class CollectionExistOperationImpl extends OperationImpl
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     assert getState() == OperationState.READING
             : "Read ``" + line + "'' when in " + getState() + " state";
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -104,16 +104,16 @@ public final class CollectionGetOperationImpl extends OperationImpl
     }
   }
 
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -128,11 +128,10 @@ public final class CollectionGetOperationImpl extends OperationImpl
       // Response header
       getLogger().debug("Got line %s", line);
 
-      String[] stuff = line.split(" ");
-      assert "VALUE".equals(stuff[0]);
+      assert line.fieldIs(0, "VALUE");
 
-      flags = Integer.parseInt(stuff[1]);
-      count = Integer.parseInt(stuff[2]);
+      flags = line.intField(1);
+      count = line.intField(2);
 
       setReadType(OperationReadType.DATA);
     } else {
@@ -76,27 +76,27 @@ public final class CollectionMutateOperationImpl extends OperationImpl implement
     setOperationType(OperationType.WRITE);
   }
 
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
 
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
     /* ENABLE_MIGRATION end */
 
     // <result value>\r\n
-    boolean allDigit = line.chars().allMatch(Character::isDigit);
+    boolean allDigit = line.isDigits();
     OperationStatus status;
     if (allDigit) {
-      status = new CollectionOperationStatus(true, line, CollectionResponse.END);
+      status = new CollectionOperationStatus(true, line.toString(), CollectionResponse.END);
     } else {
       status = matchStatus(line, NOT_FOUND, NOT_FOUND_ELEMENT,
               UNREADABLE, OVERFLOWED, OUT_OF_RANGE,
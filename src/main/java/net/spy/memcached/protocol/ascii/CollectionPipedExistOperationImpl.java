@@ -35,7 +35,7 @@ public final class CollectionPipedExistOperationImpl extends SingleKeyPipeOperat
   }
 
   @Override
-  protected OperationStatus checkStatus(String line) {
+  OperationStatus checkStatus(AsciiLine line) {
     return matchStatus(line, EXIST, NOT_EXIST,
             NOT_FOUND, TYPE_MISMATCH, UNREADABLE);
   }
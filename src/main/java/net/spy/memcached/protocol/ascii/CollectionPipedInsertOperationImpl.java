@@ -48,7 +48,7 @@ public final class CollectionPipedInsertOperationImpl extends SingleKeyPipeOpera
   }
 
   @Override
-  protected OperationStatus checkStatus(String line) {
+  OperationStatus checkStatus(AsciiLine line) {
     return matchStatus(line, STORED, CREATED_STORED,
             NOT_FOUND, ELEMENT_EXISTS, OVERFLOWED, OUT_OF_RANGE,
             TYPE_MISMATCH, BKEY_MISMATCH);
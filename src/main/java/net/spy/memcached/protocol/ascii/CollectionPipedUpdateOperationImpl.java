@@ -44,7 +44,7 @@ public final class CollectionPipedUpdateOperationImpl extends SingleKeyPipeOpera
   }
 
   @Override
-  protected OperationStatus checkStatus(String line) {
+  OperationStatus checkStatus(AsciiLine line) {
     return matchStatus(line, UPDATED, NOT_FOUND,
             NOT_FOUND_ELEMENT, NOTHING_TO_UPDATE, TYPE_MISMATCH,
             BKEY_MISMATCH, EFLAG_MISMATCH);
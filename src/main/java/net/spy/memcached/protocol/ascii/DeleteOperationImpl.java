@@ -56,17 +56,17 @@ final class DeleteOperationImpl extends OperationImpl
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     getLogger().debug("Delete of %s returned %s", key, line);
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
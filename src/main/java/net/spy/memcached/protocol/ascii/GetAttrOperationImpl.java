@@ -58,10 +58,10 @@ class GetAttrOperationImpl extends OperationImpl implements GetAttrOperation {
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -76,12 +76,10 @@ class GetAttrOperationImpl extends OperationImpl implements GetAttrOperation {
     if (line.startsWith("ATTR ")) {
       getLogger().debug("Got line %s", line);
 
-      String[] stuff = line.split(" ");
+      assert line.fieldCount() == 2;
+      assert line.fieldIs(0, "ATTR");
 
-      assert stuff.length == 2;
-      assert stuff[0].equals("ATTR");
-
-      cb.gotAttribute(key, stuff[1]);
+      cb.gotAttribute(key, line.field(1));
     } else {
       OperationStatus status = matchStatus(line, END, NOT_FOUND, ATTR_ERROR_NOT_FOUND);
       getLogger().debug(status);
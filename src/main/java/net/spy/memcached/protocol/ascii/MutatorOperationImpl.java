@@ -70,26 +70,26 @@ final class MutatorOperationImpl extends OperationImpl
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
     /* ENABLE_MIGRATION end */
 
     // <result value>\r\n
-    boolean allDigit = line.chars().allMatch(Character::isDigit);
+    boolean allDigit = line.isDigits();
     OperationStatus status;
     if (allDigit) {
-      status = new OperationStatus(true, line, StatusCode.SUCCESS);
+      status = new OperationStatus(true, line.toString(), StatusCode.SUCCESS);
     } else {
       status = matchStatus(line, NOT_FOUND, TYPE_MISMATCH);
     }
@@ -18,9 +18,7 @@
 
 package net.spy.memcached.protocol.ascii;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 
 import net.spy.memcached.KeyUtil;
@@ -37,11 +35,9 @@ import net.spy.memcached.protocol.BaseOperationImpl;
 abstract class OperationImpl extends BaseOperationImpl {
 
   protected static final byte[] CRLF = {'\r', '\n'};
-  private static final String CHARSET = "UTF-8";
 
-  private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+  private final AsciiLine lineBuffer = new AsciiLine();
   private OperationReadType readType = OperationReadType.LINE;
-  private boolean foundCr = false;
 
   protected OperationImpl() {
     super();
@@ -76,6 +72,38 @@ abstract class OperationImpl extends BaseOperationImpl {
     return rv;
   }
 
+  /**
+   * Match the status line provided against one of the given
+   * OperationStatus objects without making a String of the line.
+   * If none match, return a failure status with the given line.
+   *
+   * @param line   the current line
+   * @param statii several status objects
+   * @return the appropriate status object
+   */
+  final OperationStatus matchStatus(AsciiLine line, OperationStatus... statii) {
+    for (int i = statii.length - 1; i >= 0; i--) {
+      if (line.is(statii[i].getMessage())) {
+        return statii[i];
+      }
+    }
+    return matchStatus(line.toString());
+  }
+
+  /**
+   * Match a field of the status line against one of the given
+   * OperationStatus objects, as {@link #matchStatus(AsciiLine, OperationStatus...)}.
+   */
+  final OperationStatus matchFieldStatus(AsciiLine line, int index,
+                                         OperationStatus... statii) {
+    for (int i = statii.length - 1; i >= 0; i--) {
+      if (line.fieldIs(index, statii[i].getMessage())) {
+        return statii[i];
+      }
+    }
+    return matchStatus(line.field(index));
+  }
+
   protected final OperationReadType getReadType() {
     return readType;
   }
@@ -104,31 +132,7 @@ abstract class OperationImpl extends BaseOperationImpl {
     bb.put(CRLF);
   }
 
-  private String getLineFromBuffer(ByteBuffer data) throws UnsupportedEncodingException {
-    boolean lineFound = false;
-    while (data.remaining() > 0) {
-      byte b = data.get();
-      if (b == '\r') {
-        foundCr = true;
-      } else if (b == '\n') {
-        assert foundCr : "got a \\n without a \\r";
-        foundCr = false;
-        lineFound = true;
-        break;
-      } else {
-        assert !foundCr : "got a \\r without a \\n";
-        byteBuffer.write(b);
-      }
-    }
-    if (lineFound) {
-      String line = byteBuffer.toString(CHARSET);
-      byteBuffer.reset();
-      return line;
-    }
-    return null;
-  }
-
-  private OperationErrorType classifyError(String line) {
+  private OperationErrorType classifyError(AsciiLine line) {
     OperationErrorType rv = null;
     if (line.startsWith("ERROR")) {
       rv = OperationErrorType.GENERAL;
@@ -142,6 +146,7 @@ abstract class OperationImpl extends BaseOperationImpl {
 
   @Override
   public void readFromBuffer(ByteBuffer data) throws IOException {
+    readStarted();
     // Loop while there's data remaining to get it all drained.
     while (data.remaining() > 0) {
       if (getState() == OperationState.COMPLETE ||
@@ -150,15 +155,18 @@ abstract class OperationImpl extends BaseOperationImpl {
         return;
       }
       if (readType == OperationReadType.LINE) {
-        String line = getLineFromBuffer(data);
-        if (line == null) {
+        if (!lineBuffer.readFrom(data)) {
           continue;
         }
-        OperationErrorType eType = classifyError(line);
-        if (eType != null) {
-          handleError(eType, line);
-        } else {
-          handleLine(line);
+        try {
+          OperationErrorType eType = classifyError(lineBuffer);
+          if (eType != null) {
+            handleError(eType, lineBuffer.toString());
+          } else {
+            handleLine(lineBuffer);
+          }
+        } finally {
+          lineBuffer.clear();
         }
       } else { // OperationReadType.DATA
         handleRead(data);
@@ -169,9 +177,20 @@ abstract class OperationImpl extends BaseOperationImpl {
     }
   }
 
-  public abstract void handleLine(String line);
+  /**
+   * Handle a line read from the server.
+   */
+  public void handleLine(String line) {
+    handleLine(AsciiLine.of(line));
+  }
+
+  /**
+   * Handle a line read from the server without making a String of it.
+   * The line is only valid until this method returns.
+   */
+  abstract void handleLine(AsciiLine line);
 
-  protected boolean hasSwitchedOver(String line) {
+  boolean hasSwitchedOver(AsciiLine line) {
     return line.startsWith("SWITCHOVER") || line.startsWith("REPL_SLAVE");
   }
 
@@ -180,6 +199,10 @@ abstract class OperationImpl extends BaseOperationImpl {
     return line.startsWith("NOT_MY_KEY");
   }
 
+  boolean hasNotMyKey(AsciiLine line) {
+    return line.startsWith("NOT_MY_KEY");
+  }
+
   protected String getNotMyKey(String line) {
     return line.substring(line.indexOf("NOT_MY_KEY"));
   }
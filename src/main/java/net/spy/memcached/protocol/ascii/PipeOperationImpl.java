@@ -70,14 +70,14 @@ abstract class PipeOperationImpl extends OperationImpl {
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     assert getState() == OperationState.READING
             : "Read ``" + line + "'' when in " + getState() + " state";
 
     /* ENABLE_REPLICATION if */
     if (isWriteOperation() && hasSwitchedOver(line)) {
       this.collectionPipe.setNextOpIndex(index);
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
@@ -85,7 +85,7 @@ abstract class PipeOperationImpl extends OperationImpl {
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
       if (isBulkOperation()) {
-        addRedirectMultiKeyOperation(line, getKey(index));
+        addRedirectMultiKeyOperation(line.toString(), getKey(index));
         if (collectionPipe.isNotPiped()) {
           transitionState(OperationState.REDIRECT);
         } else {
@@ -94,7 +94,7 @@ abstract class PipeOperationImpl extends OperationImpl {
       } else {
         // Only one NOT_MY_KEY is provided in response of
         // single key piped operation when redirection.
-        addRedirectSingleKeyOperation(line, getKey(0));
+        addRedirectSingleKeyOperation(line.toString(), getKey(0));
         if (collectionPipe.isNotPiped()) {
           transitionState(OperationState.REDIRECT);
         } else {
@@ -141,11 +141,8 @@ abstract class PipeOperationImpl extends OperationImpl {
       getLogger().debug("Got line %s", line);
 
       // TODO server should be fixed
-      line = line.replace("   ", " ");
-      line = line.replace("  ", " ");
-
-      String[] stuff = line.split(" ");
-      assert "RESPONSE".equals(stuff[0]);
+      // fields of the line may be separated by more than one space.
+      assert line.fieldIs(0, "RESPONSE");
       readUntilLastLine = true;
     } else {
       OperationStatus status = checkStatus(line);
@@ -182,7 +179,7 @@ abstract class PipeOperationImpl extends OperationImpl {
    * @param line line that is read from the server
    * @return status that is matched with the line
    */
-  protected abstract OperationStatus checkStatus(String line);
+  abstract OperationStatus checkStatus(AsciiLine line);
 
   @Override
   public void initialize() {
@@ -66,6 +66,12 @@ abstract class SASLBaseOperationImpl extends OperationImpl {
     setBuffer(b);
   }
 
+  // Authentication runs once per connection, so its lines are handled as Strings.
+  @Override
+  void handleLine(AsciiLine line) {
+    handleLine(line.toString());
+  }
+
   @Override
   public void handleLine(String line) {
     /**
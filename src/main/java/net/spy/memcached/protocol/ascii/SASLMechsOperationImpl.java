@@ -56,6 +56,12 @@ final class SASLMechsOperationImpl extends OperationImpl implements SASLMechsOpe
     setBuffer(ByteBuffer.wrap(MECHS_CMD));
   }
 
+  // Authentication runs once per connection, so its lines are handled as Strings.
+  @Override
+  void handleLine(AsciiLine line) {
+    handleLine(line.toString());
+  }
+
   @Override
   public void handleLine(String line) {
     /**
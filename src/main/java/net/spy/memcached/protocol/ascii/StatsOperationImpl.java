@@ -54,11 +54,10 @@ final class StatsOperationImpl extends OperationImpl
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     if (line.startsWith("STAT") || line.startsWith("PREFIX") || line.startsWith("ITEM")) {
-      String[] parts = line.split(" ", 3);
-      assert parts.length == 3;
-      cb.gotStat(parts[1], parts[2]);
+      assert line.fieldCount() >= 3;
+      cb.gotStat(line.field(1), line.fieldsFrom(2));
     } else if (line.startsWith("END")) {
       complete(END);
     } else {
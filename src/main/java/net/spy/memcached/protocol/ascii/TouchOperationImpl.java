@@ -55,16 +55,16 @@ final class TouchOperationImpl extends OperationImpl implements TouchOperation {
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     /* ENABLE_REPLICATION if */
     if (hasSwitchedOver(line)) {
-      prepareSwitchover(line);
+      prepareSwitchover(line.toString());
       return;
     }
     /* ENABLE_REPLICATION end */
     /* ENABLE_MIGRATION if */
     if (hasNotMyKey(line)) {
-      addRedirectSingleKeyOperation(line, key);
+      addRedirectSingleKeyOperation(line.toString(), key);
       transitionState(OperationState.REDIRECT);
       return;
     }
@@ -44,12 +44,13 @@ final class VersionOperationImpl extends OperationImpl
   }
 
   @Override
-  public void handleLine(String line) {
+  void handleLine(AsciiLine line) {
     OperationStatus status;
     if (line.startsWith("VERSION ")) {
-      status = new OperationStatus(true, line.substring("VERSION ".length()), StatusCode.SUCCESS);
+      status = new OperationStatus(true, line.fieldsFrom(1), StatusCode.SUCCESS);
     } else {
-      status = new OperationStatus(false, line, StatusCode.fromAsciiLine(line));
+      status = new OperationStatus(false, line.toString(),
+          StatusCode.fromAsciiLine(line.toString()));
     }
     complete(status);
   }
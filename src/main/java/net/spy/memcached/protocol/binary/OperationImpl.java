@@ -112,6 +112,7 @@ abstract class OperationImpl extends BaseOperationImpl {
 
   @Override
   public void readFromBuffer(ByteBuffer b) throws IOException {
+    readStarted();
     // First process headers if we haven't completed them yet
     if (headerOffset < MIN_RECV_PACKET) {
       int toRead = MIN_RECV_PACKET - headerOffset;
@@ -74,6 +74,16 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
     cu.setCompressionThreshold(threshold);
   }
 
+  /**
+   * Set the codec compressing values, {@link GzipCompressionCodec} by default.
+   * Values compressed by other codecs remain readable.
+   *
+   * @param codec the compression codec
+   */
+  public void setCompressionCodec(CompressionCodec codec) {
+    cu.setCompressionCodec(codec);
+  }
+
   public String getCharset() {
     return tu.getCharset();
   }
@@ -131,7 +141,14 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
   }
 
   /**
-   * Decompress the given array of bytes.
+   * Get the flags to add to a value compressed by {@link #compress(byte[])}.
+   */
+  protected int getCompressedFlags() {
+    return cu.getCompressedFlags();
+  }
+
+  /**
+   * Decompress the given array of bytes compressed by GZIP.
    *
    * @param in the compressed byte array, or null
    * @return the decompressed byte array, or null if input is null or decompression fails
@@ -140,6 +157,17 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
     return cu.decompress(in);
   }
 
+  /**
+   * Decompress the given array of bytes with the codec recorded in the given flags.
+   *
+   * @param in    the compressed byte array, or null
+   * @param flags the flags stored with the data
+   * @return the decompressed byte array, or null if input is null or decompression fails
+   */
+  protected byte[] decompress(byte[] in, int flags) {
+    return cu.decompress(in, flags);
+  }
+
   /**
    * Check if the data should be compressed based on its length and the compression threshold.
    *
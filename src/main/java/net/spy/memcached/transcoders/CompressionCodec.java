@@ -0,0 +1,56 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+
+/**
+ * Codec used by transcoders to compress values larger than the compression threshold.
+ *
+ * <p>The id of the codec is stored in the flags of a compressed value
+ * (see {@link TranscoderUtils#COMPRESSION_CODEC_MASK}), so a value is
+ * decompressed by the codec it was compressed with. Id 0 is GZIP, which was
+ * the only codec before codecs were recorded in the flags.</p>
+ *
+ * <p>Implementations must be thread safe.</p>
+ */
+public interface CompressionCodec {
+
+  int MAX_ID = TranscoderUtils.COMPRESSION_CODEC_MASK >>> TranscoderUtils.COMPRESSION_CODEC_SHIFT;
+
+  /**
+   * Get the id recorded in the flags of values compressed by this codec.
+   *
+   * @return the id between 0 and {@link #MAX_ID}
+   */
+  int getId();
+
+  /**
+   * Compress the given array of bytes.
+   *
+   * @throws NullPointerException if the input is null
+   */
+  byte[] compress(byte[] in);
+
+  /**
+   * Decompress the given array of bytes.
+   *
+   * @throws IOException if the input is not valid compressed data
+   */
+  byte[] decompress(byte[] in) throws IOException;
+}
@@ -1,22 +1,25 @@
 package net.spy.memcached.transcoders;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
-import net.spy.memcached.compat.CloseUtil;
 import net.spy.memcached.compat.SpyObject;
 
+import static net.spy.memcached.transcoders.TranscoderUtils.COMPRESSED;
+import static net.spy.memcached.transcoders.TranscoderUtils.COMPRESSION_CODEC_MASK;
+import static net.spy.memcached.transcoders.TranscoderUtils.COMPRESSION_CODEC_SHIFT;
+
 /**
  * Utility class for compression and decompression operations.
+ *
+ * <p>Values are compressed by the configured {@link CompressionCodec} and
+ * decompressed by the codec recorded in their flags.</p>
  */
 public class CompressionUtils extends SpyObject {
 
   public static final int DEFAULT_COMPRESSION_THRESHOLD = 16384;
 
   private int compressionThreshold;
+  private CompressionCodec codec = GzipCompressionCodec.INSTANCE;
 
   public CompressionUtils() {
     this(DEFAULT_COMPRESSION_THRESHOLD);
@@ -30,55 +33,89 @@ public class CompressionUtils extends SpyObject {
     this.compressionThreshold = compressionThreshold;
   }
 
+  /**
+   * Set the codec compressing values, GZIP by default.
+   */
+  public void setCompressionCodec(CompressionCodec codec) {
+    if (codec == null) {
+      throw new IllegalArgumentException("Compression codec must not be null.");
+    }
+    if (codec.getId() < 0 || codec.getId() > CompressionCodec.MAX_ID) {
+      throw new IllegalArgumentException("Compression codec id must be between 0 and "
+          + CompressionCodec.MAX_ID + ". id=" + codec.getId());
+    }
+    this.codec = codec;
+  }
+
+  public CompressionCodec getCompressionCodec() {
+    return codec;
+  }
+
   public boolean isCompressionCandidate(byte[] data) {
     return data != null && data.length > compressionThreshold;
   }
 
   /**
-   * Compress the given array of bytes.
+   * Compress the given array of bytes with the configured codec.
+   * The result must be stored with {@link #getCompressedFlags()}.
    */
   public byte[] compress(byte[] in) {
     if (in == null) {
       throw new NullPointerException("Can't compress null");
     }
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    GZIPOutputStream gz = null;
-    try {
-      gz = new GZIPOutputStream(bos);
-      gz.write(in);
-    } catch (IOException e) {
-      throw new RuntimeException("IO exception compressing data", e);
-    } finally {
-      CloseUtil.close(gz);
-      CloseUtil.close(bos);
-    }
-    byte[] rv = bos.toByteArray();
+    byte[] rv = codec.compress(in);
     getLogger().debug("Compressed %d bytes to %d", in.length, rv.length);
     return rv;
   }
 
   /**
-   * Decompress the given array of bytes.
+   * Get the flags to add to a value compressed by {@link #compress(byte[])}.
+   */
+  public int getCompressedFlags() {
+    return COMPRESSED | (codec.getId() << COMPRESSION_CODEC_SHIFT);
+  }
+
+  /**
+   * Decompress the given array of bytes compressed by GZIP.
    */
   public byte[] decompress(byte[] in) {
-    ByteArrayOutputStream bos = null;
-    if (in != null) {
-      ByteArrayInputStream bis = new ByteArrayInputStream(in);
-      bos = new ByteArrayOutputStream();
-      GZIPInputStream gis;
-      try {
-        gis = new GZIPInputStream(bis);
-
-        byte[] buf = new byte[8192];
-        int r;
-        while ((r = gis.read(buf)) > 0) {
-          bos.write(buf, 0, r);
-        }
-      } catch (IOException e) {
-        getLogger().warn("Failed to decompress data", e);
-        bos = null;
+    return decompress(in, COMPRESSED);
+  }
+
+  /**
+   * Decompress the given array of bytes with the codec recorded in the given flags.
+   *
+   * @return the decompressed data, or null if input is null or decompression fails
+   */
+  public byte[] decompress(byte[] in, int flags) {
+    if (in == null) {
+      return null;
+    }
+    int id = (flags & COMPRESSION_CODEC_MASK) >>> COMPRESSION_CODEC_SHIFT;
+    CompressionCodec c = codec;
+    if (c.getId() != id) {
+      c = builtinCodec(id);
+      if (c == null) {
+        getLogger().warn("Failed to decompress data: unknown compression codec %d", id);
+        return null;
       }
     }
-    return bos == null ? null : bos.toByteArray();
+    try {
+      return c.decompress(in);
+    } catch (IOException e) {
+      getLogger().warn("Failed to decompress data", e);
+      return null;
+    }
+  }
+
+  private static CompressionCodec builtinCodec(int id) {
+    switch (id) {
+      case GzipCompressionCodec.ID:
+        return GzipCompressionCodec.INSTANCE;
+      case Lz4CompressionCodec.ID:
+        return Lz4CompressionCodec.INSTANCE;
+      default:
+        return null;
+    }
   }
 }
@@ -92,6 +92,16 @@ public class GenericJsonSerializingTranscoder extends SpyObject implements Trans
     cu.setCompressionThreshold(threshold);
   }
 
+  /**
+   * Set the codec compressing values, {@link GzipCompressionCodec} by default.
+   * Values compressed by other codecs remain readable.
+   *
+   * @param codec the compression codec
+   */
+  public void setCompressionCodec(CompressionCodec codec) {
+    cu.setCompressionCodec(codec);
+  }
+
   /**
    * Set the character set for string value transcoding (defaults to UTF-8).
    */
@@ -111,7 +121,7 @@ public class GenericJsonSerializingTranscoder extends SpyObject implements Trans
     }
 
     if ((d.getFlags() & COMPRESSED) != 0) {
-      data = cu.decompress(data);
+      data = cu.decompress(data, d.getFlags());
     }
 
     Object rv = null;
@@ -199,7 +209,7 @@ public class GenericJsonSerializingTranscoder extends SpyObject implements Trans
         getLogger().debug("Compressed %s from %d to %d",
             o.getClass().getName(), b.length, compressed.length);
         b = compressed;
-        flags |= COMPRESSED;
+        flags |= cu.getCompressedFlags();
       } else {
         getLogger().info(
             "Compression increased the size of %s from %d to %d",
@@ -0,0 +1,188 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * GZIP codec, the default codec of transcoders.
+ *
+ * <p>Values are written in the GZIP format, so they stay readable by
+ * {@link GZIPInputStream} and by clients that do not record the codec
+ * in the flags. Each thread reuses its own {@link Deflater},
+ * {@link Inflater} and output buffer instead of creating streams per call,
+ * and decompression sizes its result from the length in the GZIP trailer.</p>
+ */
+public final class GzipCompressionCodec implements CompressionCodec {
+
+  public static final int ID = 0;
+  public static final GzipCompressionCodec INSTANCE = new GzipCompressionCodec();
+
+  private static final int HEADER_LENGTH = 10;
+  private static final int TRAILER_LENGTH = 8;
+  private static final byte[] HEADER = {
+      0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+  };
+  private static final int MAX_DEFLATE_RATIO = 1032;
+  private static final int INITIAL_BUFFER_SIZE = 8192;
+  private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+  private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+  private GzipCompressionCodec() {
+  }
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public byte[] compress(byte[] in) {
+    if (in == null) {
+      throw new NullPointerException("Can't compress null");
+    }
+    State state = STATE.get();
+    Deflater deflater = state.deflater;
+    deflater.reset();
+    deflater.setInput(in);
+    deflater.finish();
+
+    byte[] buf = state.buffer(HEADER_LENGTH + in.length + (in.length >>> 8) + 64);
+    System.arraycopy(HEADER, 0, buf, 0, HEADER_LENGTH);
+    int length = HEADER_LENGTH;
+    while (true) {
+      length += deflater.deflate(buf, length, buf.length - TRAILER_LENGTH - length);
+      if (deflater.finished()) {
+        break;
+      }
+      buf = state.grow(buf);
+    }
+
+    CRC32 crc = state.crc;
+    crc.reset();
+    crc.update(in, 0, in.length);
+    writeIntLE(buf, length, (int) crc.getValue());
+    writeIntLE(buf, length + 4, in.length);
+    return Arrays.copyOf(buf, length + TRAILER_LENGTH);
+  }
+
+  @Override
+  public byte[] decompress(byte[] in) throws IOException {
+    if (in.length < HEADER_LENGTH + TRAILER_LENGTH
+        || in[0] != HEADER[0] || in[1] != HEADER[1] || in[2] != HEADER[2]) {
+      throw new IOException("Not in GZIP format");
+    }
+    int size = readIntLE(in, in.length - 4);
+    if (in[3] != 0 || size < 0 || size > (long) in.length * MAX_DEFLATE_RATIO) {
+      // optional header fields or a size the trailer can't tell, written by other encoders.
+      return decompressStream(in);
+    }
+
+    State state = STATE.get();
+    Inflater inflater = state.inflater;
+    inflater.reset();
+    inflater.setInput(in, HEADER_LENGTH, in.length - HEADER_LENGTH);
+    byte[] out = new byte[size];
+    int length = 0;
+    try {
+      while (!inflater.finished()) {
+        if (length == out.length) {
+          out = Arrays.copyOf(out, Math.max(INITIAL_BUFFER_SIZE, out.length * 2));
+        }
+        int n = inflater.inflate(out, length, out.length - length);
+        if (n == 0 && inflater.needsInput()) {
+          throw new IOException("Unexpected end of GZIP data");
+        }
+        length += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Invalid GZIP data", e);
+    }
+    if (inflater.getRemaining() != TRAILER_LENGTH) {
+      // concatenated members
+      return decompressStream(in);
+    }
+
+    CRC32 crc = state.crc;
+    crc.reset();
+    crc.update(out, 0, length);
+    if (readIntLE(in, in.length - 8) != (int) crc.getValue() || length != size) {
+      throw new IOException("Corrupt GZIP trailer");
+    }
+    return length == out.length ? out : Arrays.copyOf(out, length);
+  }
+
+  private static byte[] decompressStream(byte[] in) throws IOException {
+    try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(in))) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      byte[] buf = new byte[INITIAL_BUFFER_SIZE];
+      int r;
+      while ((r = gis.read(buf)) > 0) {
+        bos.write(buf, 0, r);
+      }
+      return bos.toByteArray();
+    }
+  }
+
+  private static void writeIntLE(byte[] b, int off, int v) {
+    b[off] = (byte) v;
+    b[off + 1] = (byte) (v >>> 8);
+    b[off + 2] = (byte) (v >>> 16);
+    b[off + 3] = (byte) (v >>> 24);
+  }
+
+  private static int readIntLE(byte[] b, int off) {
+    return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8
+        | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+  }
+
+  private static final class State {
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private byte[] buffer(int size) {
+      if (buffer.length >= size) {
+        return buffer;
+      }
+      byte[] b = new byte[size];
+      if (size <= MAX_POOLED_BUFFER_SIZE) {
+        buffer = b;
+      }
+      return b;
+    }
+
+    private byte[] grow(byte[] b) {
+      byte[] grown = Arrays.copyOf(b, b.length * 2);
+      if (grown.length <= MAX_POOLED_BUFFER_SIZE) {
+        buffer = grown;
+      }
+      return grown;
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fast codec writing the LZ4 block format in pure Java.
+ *
+ * <p>A compressed value is the length of the original value as a big-endian
+ * int followed by a single LZ4 block. Matches are found through a hash
+ * table of 4-byte sequences, which trades some compression ratio against
+ * GZIP for much cheaper compression and decompression. Each thread reuses
+ * its own hash table and output buffer.</p>
+ */
+public final class Lz4CompressionCodec implements CompressionCodec {
+
+  public static final int ID = 1;
+  public static final Lz4CompressionCodec INSTANCE = new Lz4CompressionCodec();
+
+  private static final int LENGTH_BYTES = 4;
+  private static final int MIN_MATCH = 4;
+  private static final int LAST_LITERALS = 5;
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_DISTANCE = 65535;
+  private static final int ML_MASK = 0x0f;
+  private static final int RUN_MASK = 0x0f;
+  private static final int SKIP_TRIGGER = 6;
+  private static final int HASH_LOG = 12;
+  // each byte of a match length extension adds up to 255 bytes of output.
+  private static final int MAX_EXPANSION = 255;
+
+  private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+  private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+  private Lz4CompressionCodec() {
+  }
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public byte[] compress(byte[] in) {
+    if (in == null) {
+      throw new NullPointerException("Can't compress null");
+    }
+    int length = in.length;
+    State state = STATE.get();
+    byte[] out = state.buffer(LENGTH_BYTES + length + length / 255 + 16);
+    out[0] = (byte) (length >>> 24);
+    out[1] = (byte) (length >>> 16);
+    out[2] = (byte) (length >>> 8);
+    out[3] = (byte) length;
+    int op = LENGTH_BYTES;
+    int anchor = 0;
+
+    if (length > MF_LIMIT) {
+      int[] table = state.table;
+      Arrays.fill(table, -1);
+      int limit = length - MF_LIMIT;
+      int matchLimit = length - LAST_LITERALS;
+      int ip = 0;
+      int misses = 0;
+      while (ip <= limit) {
+        int sequence = readInt(in, ip);
+        int h = hash(sequence);
+        int ref = table[h];
+        table[h] = ip;
+        if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(in, ref) != sequence) {
+          ip += 1 + (misses++ >>> SKIP_TRIGGER);
+          continue;
+        }
+        misses = 0;
+
+        while (ip > anchor && ref > 0 && in[ip - 1] == in[ref - 1]) {
+          ip--;
+          ref--;
+        }
+        int end = ip + MIN_MATCH;
+        int r = ref + MIN_MATCH;
+        while (end < matchLimit && in[end] == in[r]) {
+          end++;
+          r++;
+        }
+
+        op = writeSequence(in, anchor, ip - anchor, out, op, ip - ref, end - ip - MIN_MATCH);
+        anchor = end;
+        ip = end;
+        if (ip - 2 <= limit) {
+          table[hash(readInt(in, ip - 2))] = ip - 2;
+        }
+      }
+    }
+
+    op = writeLiterals(in, anchor, length - anchor, out, op);
+    return Arrays.copyOf(out, op);
+  }
+
+  @Override
+  public byte[] decompress(byte[] in) throws IOException {
+    if (in.length < LENGTH_BYTES + 1) {
+      throw new IOException("Invalid LZ4 data: too short");
+    }
+    int length = (in[0] & 0xff) << 24 | (in[1] & 0xff) << 16
+        | (in[2] & 0xff) << 8 | (in[3] & 0xff);
+    if (length < 0 || length > (long) (in.length - LENGTH_BYTES) * MAX_EXPANSION) {
+      throw new IOException("Invalid LZ4 data: length " + length);
+    }
+    byte[] out = new byte[length];
+    int ip = LENGTH_BYTES;
+    int op = 0;
+    while (true) {
+      int token = in[ip++] & 0xff;
+
+      int literals = token >>> 4;
+      if (literals == RUN_MASK) {
+        int b;
+        do {
+          b = readByte(in, ip++);
+          literals += b;
+        } while (b == 255);
+      }
+      if (literals < 0 || literals > in.length - ip || literals > length - op) {
+        throw new IOException("Invalid LZ4 data: literals out of bounds");
+      }
+      System.arraycopy(in, ip, out, op, literals);
+      ip += literals;
+      op += literals;
+      if (ip == in.length) {
+        break;
+      }
+
+      if (ip + 2 >= in.length) {
+        throw new IOException("Invalid LZ4 data: truncated match");
+      }
+      int offset = (in[ip] & 0xff) | (in[ip + 1] & 0xff) << 8;
+      ip += 2;
+      if (offset == 0 || offset > op) {
+        throw new IOException("Invalid LZ4 data: offset out of bounds");
+      }
+      int matchLength = token & ML_MASK;
+      if (matchLength == ML_MASK) {
+        int b;
+        do {
+          b = readByte(in, ip++);
+          matchLength += b;
+        } while (b == 255);
+      }
+      matchLength += MIN_MATCH;
+      if (matchLength < 0 || matchLength > length - op) {
+        throw new IOException("Invalid LZ4 data: match out of bounds");
+      }
+      int ref = op - offset;
+      if (offset >= matchLength) {
+        System.arraycopy(out, ref, out, op, matchLength);
+        op += matchLength;
+      } else {
+        // overlapping match repeating the last offset bytes.
+        for (int i = 0; i < matchLength; i++) {
+          out[op++] = out[ref++];
+        }
+      }
+      if (ip >= in.length) {
+        throw new IOException("Invalid LZ4 data: missing last literals");
+      }
+    }
+    if (op != length) {
+      throw new IOException("Invalid LZ4 data: expected " + length + " bytes but got " + op);
+    }
+    return out;
+  }
+
+  private static int readByte(byte[] in, int ip) throws IOException {
+    if (ip >= in.length) {
+      throw new IOException("Invalid LZ4 data: truncated length");
+    }
+    return in[ip] & 0xff;
+  }
+
+  private static int writeSequence(byte[] in, int literalOffset, int literals,
+                                   byte[] out, int op, int offset, int matchLength) {
+    int tokenOffset = op++;
+    int token;
+    if (literals >= RUN_MASK) {
+      token = RUN_MASK << 4;
+      op = writeLength(out, op, literals - RUN_MASK);
+    } else {
+      token = literals << 4;
+    }
+    System.arraycopy(in, literalOffset, out, op, literals);
+    op += literals;
+
+    out[op++] = (byte) offset;
+    out[op++] = (byte) (offset >>> 8);
+    if (matchLength >= ML_MASK) {
+      token |= ML_MASK;
+      op = writeLength(out, op, matchLength - ML_MASK);
+    } else {
+      token |= matchLength;
+    }
+    out[tokenOffset] = (byte) token;
+    return op;
+  }
+
+  private static int writeLiterals(byte[] in, int literalOffset, int literals,
+                                   byte[] out, int op) {
+    if (literals >= RUN_MASK) {
+      out[op++] = (byte) (RUN_MASK << 4);
+      op = writeLength(out, op, literals - RUN_MASK);
+    } else {
+      out[op++] = (byte) (literals << 4);
+    }
+    System.arraycopy(in, literalOffset, out, op, literals);
+    return op + literals;
+  }
+
+  private static int writeLength(byte[] out, int op, int length) {
+    while (length >= 255) {
+      out[op++] = (byte) 255;
+      length -= 255;
+    }
+    out[op++] = (byte) length;
+    return op;
+  }
+
+  private static int readInt(byte[] b, int off) {
+    return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8
+        | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+  }
+
+  private static int hash(int sequence) {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+
+  private static final class State {
+    private final int[] table = new int[1 << HASH_LOG];
+    private byte[] buffer = new byte[0];
+
+    private byte[] buffer(int size) {
+      if (buffer.length >= size) {
+        return buffer;
+      }
+      byte[] b = new byte[size];
+      if (size <= MAX_POOLED_BUFFER_SIZE) {
+        buffer = b;
+      }
+      return b;
+    }
+  }
+}
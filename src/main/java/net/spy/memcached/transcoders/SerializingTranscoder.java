@@ -96,7 +96,7 @@ public class SerializingTranscoder extends BaseSerializingTranscoder
 
     // Skip decompression for collections
     if (!isCollection && (d.getFlags() & COMPRESSED) != 0) {
-      data = decompress(data);
+      data = decompress(data, d.getFlags());
     }
 
     Object rv = null;
@@ -185,7 +185,7 @@ public class SerializingTranscoder extends BaseSerializingTranscoder
         getLogger().debug("Compressed %s from %d to %d",
                 o.getClass().getName(), b.length, compressed.length);
         b = compressed;
-        flags |= COMPRESSED;
+        flags |= getCompressedFlags();
       } else {
         getLogger().info(
                 "Compression increased the size of %s from %d to %d",
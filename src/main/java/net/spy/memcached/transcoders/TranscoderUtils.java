@@ -14,6 +14,10 @@ public final class TranscoderUtils {
   public static final int SERIALIZED = 1;
   public static final int COMPRESSED = 2;
 
+  // Id of the codec of a COMPRESSED value, 0 for GZIP.
+  public static final int COMPRESSION_CODEC_MASK = 0xf0000;
+  public static final int COMPRESSION_CODEC_SHIFT = 16;
+
   // Special flags for specially handled types.
   public static final int SPECIAL_MASK = 0xff00;
   public static final int SPECIAL_BOOLEAN = (1 << 8);
@@ -50,12 +50,12 @@ public class WhalinTranscoder extends BaseSerializingTranscoder
     byte[] data = d.getData();
     Object rv = null;
     if ((d.getFlags() & COMPRESSED) != 0) {
-      data = decompress(d.getData());
+      data = decompress(d.getData(), d.getFlags());
     }
     if ((d.getFlags() & SERIALIZED) != 0) {
       rv = deserialize(data);
     } else {
-      int f = d.getFlags() & ~COMPRESSED;
+      int f = d.getFlags() & ~(COMPRESSED | TranscoderUtils.COMPRESSION_CODEC_MASK);
       switch (f) {
         case SPECIAL_BOOLEAN:
           rv = this.decodeBoolean(data);
@@ -156,7 +156,7 @@ public class WhalinTranscoder extends BaseSerializingTranscoder
         getLogger().debug("Compressed %s from %d to %d",
                 o.getClass().getName(), b.length, compressed.length);
         b = compressed;
-        flags |= COMPRESSED;
+        flags |= getCompressedFlags();
       } else {
         getLogger().info(
                 "Compression increased the size of %s from %d to %d",
@@ -20,8 +20,10 @@ package net.spy.memcached.v2;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
+import net.spy.memcached.OperationTimeoutException;
 import net.spy.memcached.internal.CompositeException;
 import net.spy.memcached.ops.Operation;
 
@@ -31,13 +33,24 @@ public class ArcusFutureImpl<T> extends CompletableFuture<T> implements ArcusFut
 
   private final ArcusResult<?> arcusResult;
   private final Function<Object, T> decoder;
+  private final Executor completionExecutor;
 
   /**
    * Use only when the result needs to be decoded.
    */
   public ArcusFutureImpl(ArcusResult<?> arcusResult, Function<Object, T> decoder) {
+    this(arcusResult, decoder, ArcusExecutors.COMPLETION_EXECUTOR);
+  }
+
+  /**
+   * Use only when the result needs to be decoded.
+   * The result is decoded on the given executor.
+   */
+  public ArcusFutureImpl(ArcusResult<?> arcusResult, Function<Object, T> decoder,
+                         Executor completionExecutor) {
     this.arcusResult = arcusResult;
     this.decoder = decoder;
+    this.completionExecutor = completionExecutor;
   }
 
   /**
@@ -46,12 +59,14 @@ public class ArcusFutureImpl<T> extends CompletableFuture<T> implements ArcusFut
   public ArcusFutureImpl(ArcusResult<?> arcusResult) {
     this.arcusResult = arcusResult;
     this.decoder = null;
+    this.completionExecutor = null;
   }
 
   /**
    * Called by the IO(Internal) Thread when all Operations are completed.
-   * Submits the decoding task to a dedicated thread pool and completes the future.
-   * If there is an error in the response, completes the CompletableFuture with an exception.
+   * Submits the decoding task to the completion executor and completes the future.
+   * If there is an error in the response or the operation was expired by its deadline,
+   * completes the CompletableFuture with an exception.
    */
   @Override
   public void complete() {
@@ -59,6 +74,11 @@ public class ArcusFutureImpl<T> extends CompletableFuture<T> implements ArcusFut
       return;
     }
 
+    if (op.isTimedOut()) {
+      this.completeExceptionally(new OperationTimeoutException(op.getCancelCause()));
+      return;
+    }
+
     Exception exception = getError();
     if (exception != null) {
       this.completeExceptionally(exception);
@@ -72,7 +92,7 @@ public class ArcusFutureImpl<T> extends CompletableFuture<T> implements ArcusFut
       return;
     }
 
-    ArcusExecutors.COMPLETION_EXECUTOR.execute(() -> {
+    completionExecutor.execute(() -> {
       try {
         T result = decoder.apply(this.arcusResult.get());
         this.complete(result);
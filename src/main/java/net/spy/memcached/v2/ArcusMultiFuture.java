@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
@@ -42,6 +43,14 @@ public final class ArcusMultiFuture<T> extends CompletableFuture<T> implements A
 
   public ArcusMultiFuture(Collection<CompletableFuture<?>> futures,
                           Supplier<T> combiner) {
+    this(futures, combiner, ArcusExecutors.COMPLETION_EXECUTOR);
+  }
+
+  /**
+   * The results are combined on the given executor.
+   */
+  public ArcusMultiFuture(Collection<CompletableFuture<?>> futures,
+                          Supplier<T> combiner, Executor completionExecutor) {
     this.futures = futures;
     CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
         .whenCompleteAsync((v, t) -> {
@@ -57,7 +66,7 @@ public final class ArcusMultiFuture<T> extends CompletableFuture<T> implements A
           } catch (Exception e) {
             this.completeExceptionally(e);
           }
-        }, ArcusExecutors.COMPLETION_EXECUTOR);
+        }, completionExecutor);
   }
 
   private void completeExceptionally() {
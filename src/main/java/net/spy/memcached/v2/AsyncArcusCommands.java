@@ -20,18 +20,22 @@ package net.spy.memcached.v2;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import net.spy.memcached.ArcusClient;
 import net.spy.memcached.CachedData;
+import net.spy.memcached.InFlightGets;
 import net.spy.memcached.KeyValidator;
 import net.spy.memcached.MemcachedClient;
 import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.OperationQueueFullException;
 import net.spy.memcached.collection.BKeyObject;
 import net.spy.memcached.collection.BTreeCreate;
 import net.spy.memcached.collection.BTreeGet;
@@ -71,17 +75,37 @@ import net.spy.memcached.v2.vo.SMGetElements;
 
 public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
 
+  /**
+   * Completes futures directly on the IO thread that received the response.
+   * Callbacks of such futures must not block.
+   */
+  public static final Executor DIRECT_COMPLETION = Runnable::run;
+
   private final Transcoder<T> tc;
   private final Transcoder<T> tcForCollection;
   private final KeyValidator keyValidator;
   private final Supplier<ArcusClient> arcusClientSupplier;
+  private final Executor completionExecutor;
 
-  @SuppressWarnings("unchecked")
   public AsyncArcusCommands(Supplier<ArcusClient> arcusClientSupplier) {
+    this(arcusClientSupplier, ArcusExecutors.COMPLETION_EXECUTOR);
+  }
+
+  /**
+   * @param completionExecutor executor that decodes and combines results,
+   *                           or {@link #DIRECT_COMPLETION} to do it on the IO thread
+   */
+  @SuppressWarnings("unchecked")
+  public AsyncArcusCommands(Supplier<ArcusClient> arcusClientSupplier,
+                            Executor completionExecutor) {
+    if (completionExecutor == null) {
+      throw new IllegalArgumentException("Completion executor must not be null.");
+    }
     this.tc = (Transcoder<T>) arcusClientSupplier.get().getTranscoder();
     this.tcForCollection = (Transcoder<T>) arcusClientSupplier.get().getCollectionTranscoder();
     this.keyValidator = arcusClientSupplier.get().getKeyValidator();
     this.arcusClientSupplier = arcusClientSupplier;
+    this.completionExecutor = completionExecutor;
   }
 
   public ArcusFuture<Boolean> set(String key, int exp, T value) {
@@ -131,7 +155,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     Operation op = client.getOpFact()
         .store(type, key, co.getFlags(), exp, co.getData(), cb);
     future.setOp(op);
-    client.addOp(key, op);
+    addOp(client, key, op, future);
 
     return future;
   }
@@ -175,13 +199,13 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
         }
       }
       return results;
-    });
+    }, completionExecutor);
   }
 
   public ArcusFuture<T> get(String key) {
     AbstractArcusResult<CachedData> result = new AbstractArcusResult<>(new AtomicReference<>());
     ArcusFutureImpl<T> future = new ArcusFutureImpl<>(result,
-        r -> r == null ? null : tc.decode((CachedData) r));
+        r -> r == null ? null : tc.decode((CachedData) r), completionExecutor);
     ArcusClient client = arcusClientSupplier.get();
 
     GetOperation.Callback cb = new GetOperation.Callback() {
@@ -208,21 +232,53 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
         future.complete();
       }
     };
-    Operation op = client.getOpFact().get(key, cb);
-    future.setOp(op);
-    client.addOp(key, op);
+    InFlightGets inFlightGets = client.getInFlightGets();
+    if (inFlightGets == null) {
+      Operation op = client.getOpFact().get(key, cb);
+      future.setOp(op);
+      addOp(client, key, op, future);
+      return future;
+    }
 
+    // attach to the get of the key in flight, if any.
+    InFlightGets.InFlightGet inFlight = inFlightGets.find(key);
+    if (inFlight != null && inFlight.attach(key, cb, future::setOp) != null) {
+      return future;
+    }
+    inFlightGets.start(Collections.singletonList(key), cb,
+        c -> client.getOpFact().get(key, c), (view, op) -> {
+          future.setOp(view);
+          addOp(client, key, op, future);
+        });
     return future;
   }
 
   public ArcusFuture<Map<String, T>> multiGet(List<String> keys) {
     ArcusClient client = arcusClientSupplier.get();
-    Collection<Map.Entry<MemcachedNode, List<String>>> arrangedKeys
-        = client.groupingKeys(keys, MemcachedClient.GET_BULK_CHUNK_SIZE, APIType.GET);
-
     Collection<CompletableFuture<?>> futures = new ArrayList<>();
     Map<CompletableFuture<Map<String, T>>, List<String>> futureToKeys = new HashMap<>();
 
+    // keys of gets in flight are got one by one, attaching to those gets.
+    List<String> keysToSend = keys;
+    InFlightGets inFlightGets = client.getInFlightGets();
+    if (inFlightGets != null) {
+      keysToSend = new ArrayList<>(keys.size());
+      for (String key : keys) {
+        if (inFlightGets.find(key) == null) {
+          keysToSend.add(key);
+          continue;
+        }
+        CompletableFuture<Map<String, T>> future = get(key).toCompletableFuture()
+            .thenApply(v -> v == null
+                ? Collections.<String, T>emptyMap() : Collections.singletonMap(key, v));
+        futureToKeys.put(future, Collections.singletonList(key));
+        futures.add(future);
+      }
+    }
+
+    Collection<Map.Entry<MemcachedNode, List<String>>> arrangedKeys
+        = client.groupingKeys(keysToSend, MemcachedClient.GET_BULK_CHUNK_SIZE, APIType.GET);
+
     for (Map.Entry<MemcachedNode, List<String>> entry : arrangedKeys) {
       MemcachedNode node = entry.getKey();
       List<String> keyList = entry.getValue();
@@ -252,7 +308,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
         }
       }
       return results;
-    });
+    }, completionExecutor);
   }
 
   /**
@@ -274,7 +330,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
             decodedMap.put(entry.getKey(), tc.decode(entry.getValue()));
           }
           return decodedMap;
-        });
+        }, completionExecutor);
 
     GetOperation.Callback cb = new GetOperation.Callback() {
       @Override
@@ -303,10 +359,18 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
         future.complete();
       }
     };
-    Operation op = client.getOpFact().get(keyList, cb, node.enabledMGetOp());
-    future.setOp(op);
-    client.addOp(node, op);
-
+    InFlightGets inFlightGets = client.getInFlightGets();
+    if (inFlightGets == null) {
+      Operation op = client.getOpFact().get(keyList, cb, node.enabledMGetOp());
+      future.setOp(op);
+      addOp(client, node, op, future);
+    } else {
+      inFlightGets.start(keyList, cb,
+          c -> client.getOpFact().get(keyList, c, node.enabledMGetOp()), (view, op) -> {
+            future.setOp(view);
+            addOp(client, node, op, future);
+          });
+    }
     return future;
   }
 
@@ -336,7 +400,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
         }
       }
       return true;
-    });
+    }, completionExecutor);
   }
 
   /**
@@ -369,7 +433,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
 
     Operation op = client.getOpFact().flush(delay, cb);
     future.setOp(op);
-    client.addOp(node, op);
+    addOp(client, node, op, future);
 
     return future;
   }
@@ -419,7 +483,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     CollectionCreateOperation op = client.getOpFact()
         .collectionCreate(key, collectionCreate, cb);
     future.setOp(op);
-    client.addOp(key, op);
+    addOp(client, key, op, future);
 
     return future;
   }
@@ -488,7 +552,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     CollectionInsertOperation op = client.getOpFact()
         .collectionInsert(key, internalKey, collectionInsert, co.getData(), cb);
     future.setOp(op);
-    client.addOp(key, op);
+    addOp(client, key, op, future);
 
     return future;
   }
@@ -560,7 +624,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     Operation op = client.getOpFact()
         .bopInsertAndGet(key, insertAndGet, co.getData(), cb);
     future.setOp(op);
-    client.addOp(key, op);
+    addOp(client, key, op, future);
 
     return future;
   }
@@ -620,7 +684,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     };
     Operation op = client.getOpFact().collectionGet(key, get, cb);
     future.setOp(op);
-    client.addOp(key, op);
+    addOp(client, key, op, future);
 
     return future;
   }
@@ -681,7 +745,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     };
     Operation op = client.getOpFact().collectionGet(key, get, cb);
     future.setOp(op);
-    client.addOp(key, op);
+    addOp(client, key, op, future);
 
     return future;
   }
@@ -746,7 +810,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
         }
       }
       return results;
-    });
+    }, completionExecutor);
   }
 
   private void verifyPositiveCountArg(BopGetArgs args, int maxCount) {
@@ -823,11 +887,40 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     };
     Operation op = client.getOpFact().bopGetBulk(getBulk, cb);
     future.setOp(op);
-    client.addOp(getBulk.getMemcachedNode(), op);
+    addOp(client, getBulk.getMemcachedNode(), op, future);
 
     return future;
   }
 
+  /**
+   * Add the operation, waiting for room in the queue of its node.
+   * If the client fails fast on a full queue, it does not wait and the future
+   * fails with {@link OperationQueueFullException} so that the caller can slow down.
+   */
+  private static void addOp(ArcusClient client, String key, Operation op,
+                            ArcusFutureImpl<?> future) {
+    if (!client.shouldFailFastOnFullQueue()) {
+      client.addOp(key, op);
+    } else if (!client.tryAddOp(key, op)) {
+      reject(op, future);
+    }
+  }
+
+  private static void addOp(ArcusClient client, MemcachedNode node, Operation op,
+                            ArcusFutureImpl<?> future) {
+    if (!client.shouldFailFastOnFullQueue()) {
+      client.addOp(node, op);
+    } else if (!client.tryAddOp(node, op)) {
+      reject(op, future);
+    }
+  }
+
+  private static void reject(Operation op, ArcusFutureImpl<?> future) {
+    future.completeExceptionally(
+        new OperationQueueFullException("Queue full to add " + op));
+    op.cancel("operation queue full");
+  }
+
   private static void verifyBKeyRange(BKey from, BKey to) {
     if (from.getType() != to.getType()) {
       throw new IllegalArgumentException("Two BKey types(from, to) must be the same.");
@@ -883,7 +976,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
       }
       return SMGetElements.mergeSMGetElements(results, from.compareTo(to) <= 0, unique,
           args.getCount());
-    });
+    }, completionExecutor);
   }
 
   /**
@@ -944,7 +1037,7 @@ public class AsyncArcusCommands<T> implements AsyncArcusCommandsIF<T> {
     };
     Operation op = client.getOpFact().bopsmget(smGet, cb);
     future.setOp(op);
-    client.addOp(smGet.getMemcachedNode(), op);
+    addOp(client, smGet.getMemcachedNode(), op, future);
 
     return future;
   }
@@ -0,0 +1,253 @@
+package net.spy.memcached;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+import net.spy.memcached.server.EmbeddedArcusServer;
+import net.spy.memcached.v2.AsyncArcusCommands;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+
+  @Test
+  void limitOps() {
+    AdmissionControl ac = new AdmissionControl(2, 0, null);
+    assertTrue(ac.tryAcquire(10));
+    assertTrue(ac.tryAcquire(10));
+    assertFalse(ac.tryAcquire(10));
+
+    ac.release(10);
+    assertTrue(ac.tryAcquire(10));
+    assertEquals(2, ac.getOutstandingOps());
+    assertEquals(20, ac.getOutstandingBytes());
+  }
+
+  @Test
+  void limitBytes() {
+    AdmissionControl ac = new AdmissionControl(0, 100, null);
+    assertTrue(ac.tryAcquire(60));
+    assertFalse(ac.tryAcquire(60));
+    assertTrue(ac.tryAcquire(40));
+
+    ac.release(60);
+    ac.release(40);
+    // an operation larger than the limit is admitted alone.
+    assertTrue(ac.tryAcquire(1000));
+    assertFalse(ac.tryAcquire(1));
+  }
+
+  @Test
+  void limitByParent() {
+    AdmissionControl client = new AdmissionControl(0, 100, null);
+    AdmissionControl node1 = new AdmissionControl(0, 80, client);
+    AdmissionControl node2 = new AdmissionControl(0, 80, client);
+    assertTrue(node1.tryAcquire(60));
+    assertFalse(node2.tryAcquire(60));
+    assertEquals(0, node2.getOutstandingBytes());
+    assertEquals(60, client.getOutstandingBytes());
+
+    node1.release(60);
+    assertTrue(node2.tryAcquire(60));
+    assertEquals(60, client.getOutstandingBytes());
+  }
+
+  @Test
+  void acquireWaitsForRelease() throws Exception {
+    AdmissionControl client = new AdmissionControl(1, 0, null);
+    AdmissionControl node = new AdmissionControl(0, 0, client);
+    assertTrue(node.tryAcquire(10));
+    assertFalse(node.acquire(10, 20, TimeUnit.MILLISECONDS));
+
+    CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return node.acquire(10, 5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(50);
+    assertFalse(waiting.isDone());
+    node.release(10);
+    assertTrue(waiting.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void countOutstandingOpsOfNode() throws Exception {
+    MemcachedNode node = new DefaultConnectionFactory().createMemcachedNode("node",
+        InetSocketAddress.createUnresolved("127.0.0.1", 11211), 4096);
+    AdmissionControl client = new AdmissionControl(0, 0, null);
+    node.setAdmissionControl(new AdmissionControl(0, 0, client));
+    assertEquals(0, node.getOutstandingOpCount());
+
+    Operation op = new AsciiOperationFactory().noop(new OperationCallback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+      }
+
+      @Override
+      public void complete() {
+      }
+    });
+    assertTrue(node.tryAddOpToInputQ(op));
+    assertEquals(1, node.getOutstandingOpCount());
+    assertEquals(1, client.getOutstandingOps());
+
+    op.cancel("by application.");
+    assertEquals(0, node.getOutstandingOpCount());
+    assertEquals(0, client.getOutstandingOps());
+  }
+
+  @Test
+  void rejectOperationsOverLimit() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+          .setMaxOutstandingBytes(0, 1024).setOpQueueMaxBlockTime(100)
+          .setFailFastOnFullQueue(true);
+      ArcusClient client = new ArcusClient(cfb.build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        AdmissionControl ac = client.getMemcachedConnection().getAdmissionControl();
+        assertTrue(client.set("warmup", 0, "value").get());
+        server.setLatency(500, TimeUnit.MILLISECONDS);
+
+        Future<Boolean> slow = client.set("large", 0, new byte[2048]);
+        assertEquals(1, ac.getOutstandingOps());
+        assertThrows(OperationQueueFullException.class, () -> client.set("key", 0, "value"));
+
+        AsyncArcusCommands<Object> async = client.asyncCommands();
+        long start = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class,
+            () -> async.set("key", 0, "value").get(1, TimeUnit.SECONDS));
+        assertInstanceOf(OperationQueueFullException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertTrue(slow.get(1, TimeUnit.SECONDS));
+        assertEquals(0, ac.getOutstandingOps());
+        assertEquals(0, ac.getOutstandingBytes());
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        assertTrue(async.set("key", 0, "value").get(1, TimeUnit.SECONDS));
+      } finally {
+        client.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void waitForRoomByDefault() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+          .setMaxOutstandingOps(0, 1).setOpQueueMaxBlockTime(100);
+      ArcusClient client = new ArcusClient(cfb.build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        assertTrue(client.set("warmup", 0, "value").get());
+        server.setLatency(500, TimeUnit.MILLISECONDS);
+
+        Future<Boolean> slow = client.set("key", 0, "value");
+        AsyncArcusCommands<Object> async = client.asyncCommands();
+        long start = System.nanoTime();
+        assertThrows(OperationQueueFullException.class, () -> async.set("key", 0, "value"));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(slow.get(1, TimeUnit.SECONDS));
+      } finally {
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        client.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void releaseRedistributedOperations() throws Exception {
+    InetSocketAddress closed;
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      closed = (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+    try (EmbeddedArcusServer live = new EmbeddedArcusServer().start()) {
+      ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+          .setMaxOutstandingOps(0, 1000).setMaxReconnectDelay(1)
+          .setFailureMode(FailureMode.Redistribute);
+      ArcusClient client = new ArcusClient(cfb.build(),
+          Arrays.asList(live.getAddress(), closed));
+      try {
+        AdmissionControl ac = client.getMemcachedConnection().getAdmissionControl();
+        MemcachedNode failed = null;
+        MemcachedNode connected = null;
+        for (MemcachedNode node : client.getAllNodes()) {
+          if (node.getSocketAddress().equals(closed)) {
+            failed = node;
+          } else {
+            connected = node;
+          }
+        }
+        while (!connected.isConnected() || failed.isActive()) {
+          Thread.sleep(10);
+        }
+        // a key of the live node, so that the clones are not redistributed again.
+        String key = null;
+        for (int i = 0; key == null; i++) {
+          if (client.getMemcachedConnection().getPrimaryNode("key" + i, APIType.GET) == connected) {
+            key = "key" + i;
+          }
+        }
+
+        // the gets queued to the failed node are cloned to the live one on its next reconnect.
+        AtomicInteger completed = new AtomicInteger();
+        long commands = live.getCommandCount();
+        for (int i = 0; i < 10; i++) {
+          client.getMemcachedConnection().addOperation(failed,
+              client.getOpFact().get(key, new GetOperation.Callback() {
+                @Override
+                public void gotData(String key, int flags, byte[] data) {
+                }
+
+                @Override
+                public void receivedStatus(OperationStatus status) {
+                }
+
+                @Override
+                public void complete() {
+                  completed.incrementAndGet();
+                }
+              }));
+        }
+        assertEquals(10, ac.getOutstandingOps());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((completed.get() < 10 || ac.getOutstandingOps() > 0)
+            && System.nanoTime() < deadline) {
+          // a clone takes the admission its original gives back.
+          assertTrue(ac.getOutstandingOps() <= 10, "outstanding " + ac.getOutstandingOps());
+          Thread.sleep(10);
+        }
+        assertEquals(0, ac.getOutstandingOps());
+        assertEquals(0, ac.getOutstandingBytes());
+        assertEquals(0, failed.getInputQueueSize());
+        assertEquals(10, completed.get());
+        // answered by the live node, besides the commands of the client itself.
+        assertTrue(live.getCommandCount() - commands >= 10);
+      } finally {
+        client.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.collection.BTreeGetResult;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.internal.BulkFuture;
+import net.spy.memcached.internal.CollectionGetBulkFuture;
+import net.spy.memcached.internal.MergedBulkFuture;
+import net.spy.memcached.internal.MergedCollectionGetBulkFuture;
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArcusClientPoolTest {
+
+  @Test
+  void fanOutBulkGets() throws Exception {
+    try (EmbeddedArcusServer server1 = new EmbeddedArcusServer().start();
+         EmbeddedArcusServer server2 = new EmbeddedArcusServer().start()) {
+      ArcusClient[] clients = new ArcusClient[3];
+      for (int i = 0; i < clients.length; i++) {
+        clients[i] = new ArcusClient(new ConnectionFactoryBuilder().build(),
+            Arrays.asList(server1.getAddress(), server2.getAddress()));
+      }
+      ArcusClientPool pool = new ArcusClientPool(clients.length, clients, 100,
+          ClientPick.RANDOM);
+      try {
+        List<String> keys = new ArrayList<>();
+        List<String> btreeKeys = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+          keys.add("key" + i);
+          btreeKeys.add("btree" + i);
+          assertTrue(pool.set("key" + i, 0, "value" + i).get());
+          assertTrue(pool.asyncBopInsert("btree" + i, i, null, "element" + i,
+              new CollectionAttributes()).get());
+        }
+
+        BulkFuture<Map<String, Object>> small = pool.asyncGetBulk(keys.subList(0, 50));
+        assertFalse(small instanceof MergedBulkFuture);
+        assertEquals(50, small.get(1, TimeUnit.SECONDS).size());
+
+        BulkFuture<Map<String, Object>> future = pool.asyncGetBulk(keys);
+        assertInstanceOf(MergedBulkFuture.class, future);
+        assertTrue(future.getOpCount() >= clients.length);
+        Map<String, Object> values = future.get(1, TimeUnit.SECONDS);
+        assertEquals(keys.size(), values.size());
+        for (int i = 0; i < keys.size(); i++) {
+          assertEquals("value" + i, values.get("key" + i));
+        }
+        assertEquals(keys.size(), pool.asyncGetsBulk(keys).get(1, TimeUnit.SECONDS).size());
+
+        CollectionGetBulkFuture<Map<String, BTreeGetResult<Long, Object>>> bop =
+            pool.asyncBopGetBulk(btreeKeys, 0, 1000, ElementFlagFilter.DO_NOT_FILTER, 0, 10);
+        assertInstanceOf(MergedCollectionGetBulkFuture.class, bop);
+        Map<String, BTreeGetResult<Long, Object>> results = bop.get(1, TimeUnit.SECONDS);
+        assertEquals(btreeKeys.size(), results.size());
+        for (int i = 0; i < btreeKeys.size(); i++) {
+          assertEquals("element" + i,
+              results.get("btree" + i).getElements().get((long) i).getValue());
+        }
+        assertTrue(bop.isDone());
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void pickLeastLoadedClient() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ArcusClient[] clients = new ArcusClient[2];
+      for (int i = 0; i < clients.length; i++) {
+        clients[i] = new ArcusClient(new ConnectionFactoryBuilder().build(),
+            Collections.singletonList(server.getAddress()));
+      }
+      ArcusClientPool pool = new ArcusClientPool(clients.length, clients,
+          ClientPick.LEAST_LOADED);
+      try {
+        server.setLatency(300, TimeUnit.MILLISECONDS);
+        List<Future<Boolean>> busy = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+          busy.add(clients[0].set("key" + i, 0, "value"));
+        }
+        assertEquals(10, clients[0].getMemcachedConnection().getOutstandingOps());
+        for (int i = 0; i < 20; i++) {
+          assertEquals(clients[1], pool.getClient());
+        }
+
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        for (Future<Boolean> f : busy) {
+          assertTrue(f.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, clients[0].getMemcachedConnection().getOutstandingOps());
+      } finally {
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        pool.shutdown();
+      }
+    }
+  }
+}
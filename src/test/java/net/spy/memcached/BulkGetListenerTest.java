@@ -0,0 +1,79 @@
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.internal.BulkFuture;
+import net.spy.memcached.internal.result.GetResult;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkGetListenerTest {
+
+  @Test
+  void valuesOfFastNodeArriveBeforeSlowNode() throws Exception {
+    try (EmbeddedArcusServer fast = new EmbeddedArcusServer().start();
+         EmbeddedArcusServer slow = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder().build(),
+          Arrays.asList(fast.getAddress(), slow.getAddress()));
+      try {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+          keys.add("key" + i);
+          assertTrue(client.set("key" + i, 0, "value" + i).get());
+        }
+        keys.add("missing");
+        slow.setLatency(500, TimeUnit.MILLISECONDS);
+
+        Map<String, Object> streamed = new ConcurrentHashMap<>();
+        Set<String> completedKeys = ConcurrentHashMap.newKeySet();
+        CountDownLatch firstNode = new CountDownLatch(1);
+        BulkFuture<Map<String, Object>> future = client.asyncGetBulk(keys,
+            new BulkGetListener<Object>() {
+              @Override
+              public void gotValue(String key, GetResult<Object> result) {
+                streamed.put(key, result.getDecodedValue());
+              }
+
+              @Override
+              public void nodeCompleted(MemcachedNode node, List<String> nodeKeys,
+                                        OperationStatus status) {
+                assertTrue(status.isSuccess());
+                completedKeys.addAll(nodeKeys);
+                firstNode.countDown();
+              }
+            });
+
+        assertTrue(firstNode.await(300, TimeUnit.MILLISECONDS));
+        assertFalse(future.isDone());
+        assertFalse(completedKeys.isEmpty());
+        for (String key : completedKeys) {
+          if (!key.equals("missing")) {
+            assertEquals("value" + key.substring(3), streamed.get(key));
+          }
+        }
+
+        Map<String, Object> values = future.get(2, TimeUnit.SECONDS);
+        assertEquals(20, values.size());
+        assertEquals(values, streamed);
+        assertEquals(new HashSet<>(keys), completedKeys);
+      } finally {
+        slow.setLatency(0, TimeUnit.MILLISECONDS);
+        client.shutdown();
+      }
+    }
+  }
+}
@@ -31,6 +31,8 @@ import net.spy.memcached.auth.PlainCallbackHandler;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
+import net.spy.memcached.plugin.EhcacheFrontCache;
+import net.spy.memcached.plugin.TinyLfuFrontCache;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryMemcachedNodeImpl;
@@ -96,11 +98,20 @@ class ConnectionFactoryBuilderTest {
 
     assertTrue(f.isDaemon());
     assertFalse(f.shouldOptimize());
+    assertFalse(f.shouldCoalesceGets());
     assertFalse(f.useNagleAlgorithm());
     assertFalse(f.getKeepAlive());
     assertTrue(f.getDnsCacheTtlCheck());
     assertEquals(DefaultConnectionFactory.DEFAULT_OP_QUEUE_MAX_BLOCK_TIME,
             f.getOpQueueMaxBlockTime());
+    assertEquals(DefaultConnectionFactory.DEFAULT_IO_LOOP_COUNT, f.getIOLoopCount());
+    assertEquals(DefaultConnectionFactory.DEFAULT_CONNECTIONS_PER_NODE,
+            f.getConnectionsPerNode());
+    assertEquals(DefaultConnectionFactory.DEFAULT_OPERATION_DEADLINE,
+            f.getOperationDeadline());
+    assertEquals(DefaultConnectionFactory.DEFAULT_MAX_FRONTCACHE_BYTES,
+            f.getMaxFrontCacheBytes());
+    assertSame(TinyLfuFrontCache.FACTORY, f.getFrontCacheFactory());
   }
 
   @Test
@@ -126,6 +137,7 @@ class ConnectionFactoryBuilderTest {
 
     ConnectionFactory f = b.setDaemon(true)
             .setShouldOptimize(false)
+            .setCoalesceGets(true)
             .setFailureMode(FailureMode.Redistribute)
             .setHashAlg(HashAlgorithm.KETAMA_HASH)
             .setInitialObservers(Collections.singleton(testObserver))
@@ -144,6 +156,11 @@ class ConnectionFactoryBuilderTest {
             .setLocatorType(Locator.CONSISTENT)
             .setOpQueueMaxBlockTime(19)
             .setAuthDescriptor(anAuthDescriptor)
+            .setIOLoopCount(4)
+            .setConnectionsPerNode(2)
+            .setOpDeadline(1500)
+            .setMaxFrontCacheBytes(1 << 20)
+            .setFrontCacheFactory(EhcacheFrontCache.FACTORY)
             .build();
 
     assertEquals(4225, f.getOperationTimeout());
@@ -161,11 +178,17 @@ class ConnectionFactoryBuilderTest {
     assertSame(wQueue, f.createWriteOperationQueue());
     assertTrue(f.isDaemon());
     assertFalse(f.shouldOptimize());
+    assertTrue(f.shouldCoalesceGets());
     assertTrue(f.useNagleAlgorithm());
     assertTrue(f.getKeepAlive());
     assertFalse(f.getDnsCacheTtlCheck());
     assertEquals(19, f.getOpQueueMaxBlockTime());
     assertSame(anAuthDescriptor, f.getAuthDescriptor());
+    assertEquals(4, f.getIOLoopCount());
+    assertEquals(2, f.getConnectionsPerNode());
+    assertEquals(1500, f.getOperationDeadline());
+    assertEquals(1 << 20, f.getMaxFrontCacheBytes());
+    assertSame(EhcacheFrontCache.FACTORY, f.getFrontCacheFactory());
 
     MemcachedNode n = new MockMemcachedNode(
             InetSocketAddress.createUnresolved("localhost", 11211));
@@ -221,6 +244,10 @@ class ConnectionFactoryBuilderTest {
             defaultConnectionFactory.getMaxFrontCacheElements());
     assertEquals(connectionFactory.getFrontCacheExpireTime(),
             defaultConnectionFactory.getFrontCacheExpireTime());
+    assertEquals(connectionFactory.getMaxFrontCacheBytes(),
+            defaultConnectionFactory.getMaxFrontCacheBytes());
+    assertSame(connectionFactory.getFrontCacheFactory(),
+            defaultConnectionFactory.getFrontCacheFactory());
     assertEquals(connectionFactory.getFrontCacheCopyOnRead(),
             defaultConnectionFactory.getFrontCacheCopyOnRead());
     assertEquals(connectionFactory.getFrontCacheCopyOnWrite(),
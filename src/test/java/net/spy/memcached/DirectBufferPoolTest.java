@@ -0,0 +1,85 @@
+package net.spy.memcached;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectBufferPoolTest {
+
+  @Test
+  void reuseBuffersOfSizeClass() {
+    DirectBufferPool pool = new DirectBufferPool(16, 1024 * 1024);
+    ByteBuffer buf = pool.acquire(5000);
+    assertTrue(buf.isDirect());
+    assertEquals(8192, buf.capacity());
+    assertEquals(8192, pool.getBorrowedBytes());
+
+    buf.put((byte) 1);
+    pool.release(buf);
+    assertEquals(0, pool.getBorrowedBytes());
+    assertEquals(8192, pool.getPooledBytes());
+
+    ByteBuffer again = pool.acquire(8000);
+    assertSame(buf, again);
+    assertEquals(0, again.position());
+    assertEquals(0, pool.getPooledBytes());
+    assertNotSame(again, pool.acquire(8000));
+    assertEquals(3, pool.getAcquireCount());
+    assertEquals(2, pool.getAllocateCount());
+  }
+
+  @Test
+  void limitPooledBytes() {
+    DirectBufferPool pool = new DirectBufferPool(16, 8192);
+    ByteBuffer first = pool.acquire(8192);
+    ByteBuffer second = pool.acquire(8192);
+    pool.release(first);
+    pool.release(second);
+    assertEquals(8192, pool.getPooledBytes());
+
+    // larger than the largest size class, not pooled.
+    ByteBuffer large = pool.acquire(100000);
+    assertEquals(100000, large.capacity());
+    pool.release(large);
+    assertEquals(8192, pool.getPooledBytes());
+    assertEquals(0, pool.getBorrowedBytes());
+  }
+
+  @Test
+  void readLargeValueWithElasticBuffer() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+          .setReadBufferSize(4096).setMaxReadBufferSize(64 * 1024);
+      ArcusClient client = new ArcusClient(cfb.build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        byte[] value = new byte[512 * 1024];
+        new Random(0).nextBytes(value);
+        assertTrue(client.set("large", 0, value).get(5, TimeUnit.SECONDS));
+
+        long acquired = DirectBufferPool.getShared().getAcquireCount();
+        assertArrayEquals(value, (byte[]) client.asyncGet("large").get(5, TimeUnit.SECONDS));
+        assertTrue(DirectBufferPool.getShared().getAcquireCount() > acquired);
+        assertEquals("small", setAndGet(client, "small"));
+      } finally {
+        client.shutdown();
+      }
+    }
+  }
+
+  private static Object setAndGet(ArcusClient client, String value) throws Exception {
+    assertTrue(client.set("key", 0, value).get(5, TimeUnit.SECONDS));
+    return client.asyncGet("key").get(5, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,111 @@
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgedReadsTest {
+
+  private EmbeddedArcusServer master;
+  private EmbeddedArcusServer slave;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    master = new EmbeddedArcusServer().start();
+    slave = new EmbeddedArcusServer().start();
+    seed(master, "master");
+    seed(slave, "slave");
+  }
+
+  @AfterEach
+  void tearDown() {
+    master.close();
+    slave.close();
+  }
+
+  private static void seed(EmbeddedArcusServer server, String value) throws Exception {
+    ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder().build(),
+        Collections.singletonList(server.getAddress()));
+    try {
+      assertTrue(client.set("key", 0, value).get());
+    } finally {
+      client.shutdown();
+    }
+  }
+
+  private ArcusClient newClient(double budget) throws Exception {
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setHedgedRead(true).setHedgedReadDelay(10).setHedgedReadBudget(budget);
+    cfb.setArcusReplEnabled(true);
+    List<InetSocketAddress> addrs = Arrays.asList(
+        ArcusReplNodeAddress.create("g0", true, "127.0.0.1:" + master.getPort()),
+        ArcusReplNodeAddress.create("g0", false, "127.0.0.1:" + slave.getPort()));
+    ArcusClient client = new ArcusClient(cfb.build(), addrs);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (client.getAvailableServers().size() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, client.getAvailableServers().size());
+    return client;
+  }
+
+  @Test
+  void slowReadsAreAnsweredByReplica() throws Exception {
+    ArcusClient client = newClient(1.0);
+    try {
+      HedgedReads hedgedReads = client.getMemcachedConnection().getHedgedReads();
+      master.setLatency(2, TimeUnit.SECONDS);
+
+      long start = System.nanoTime();
+      assertEquals("slave", client.asyncGet("key").get(1, TimeUnit.SECONDS));
+      assertEquals("slave", client.asyncGets("key").get(1, TimeUnit.SECONDS).getValue());
+      Map<String, Object> values = client.asyncGetBulk(Collections.singletonList("key"))
+          .get(1, TimeUnit.SECONDS);
+      assertEquals("slave", values.get("key"));
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+      assertEquals(3, hedgedReads.getHedgeCount());
+      assertEquals(3, hedgedReads.getHedgeWinCount());
+    } finally {
+      master.setLatency(0, TimeUnit.MILLISECONDS);
+      client.shutdown();
+    }
+  }
+
+  @Test
+  void hedgesAreLimitedByBudget() throws Exception {
+    ArcusClient client = newClient(0.5);
+    try {
+      HedgedReads hedgedReads = client.getMemcachedConnection().getHedgedReads();
+      master.setLatency(100, TimeUnit.MILLISECONDS);
+
+      int fromSlave = 0;
+      for (int i = 0; i < 6; i++) {
+        Object value = client.asyncGet("key").get(1, TimeUnit.SECONDS);
+        if ("slave".equals(value)) {
+          fromSlave++;
+        }
+      }
+      // each read earns half a hedge.
+      assertEquals(3, hedgedReads.getHedgeCount());
+      assertEquals(3, fromSlave);
+      assertFalse(hedgedReads.getHedgeWinCount() > hedgedReads.getHedgeCount());
+    } finally {
+      master.setLatency(0, TimeUnit.MILLISECONDS);
+      client.shutdown();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package net.spy.memcached;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IOLoopGroupTest {
+
+  @Test
+  void clientsShareLoops() throws Exception {
+    IOLoopGroup group = new IOLoopGroup(2);
+    try (EmbeddedArcusServer server1 = new EmbeddedArcusServer().start();
+         EmbeddedArcusServer server2 = new EmbeddedArcusServer().start()) {
+      ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder().setIOLoopGroup(group);
+      ArcusClient[] clients = new ArcusClient[3];
+      for (int i = 0; i < clients.length; i++) {
+        clients[i] = new ArcusClient(cfb.build(),
+            Arrays.asList(server1.getAddress(), server2.getAddress()));
+        assertFalse(clients[i].isAlive());
+      }
+
+      for (int i = 0; i < clients.length; i++) {
+        for (int k = 0; k < 20; k++) {
+          assertTrue(clients[i].set("key" + i + "-" + k, 0, "value" + k).get());
+        }
+      }
+      for (int i = 0; i < clients.length; i++) {
+        Map<String, Object> values = clients[i].asyncGetBulk(
+            Arrays.asList("key0-1", "key1-2", "key2-3")).get(1, TimeUnit.SECONDS);
+        assertEquals(3, values.size());
+        assertEquals("value2", values.get("key1-2"));
+      }
+
+      clients[0].shutdown();
+      clients[1].shutdown();
+      Thread.sleep(100);
+      for (MemcachedNode node : clients[0].getAllNodes()) {
+        assertFalse(node.isConnected());
+      }
+      assertTrue(clients[2].set("after", 0, "shutdown").get());
+      assertEquals("shutdown", clients[2].get("after"));
+      clients[2].shutdown();
+    } finally {
+      group.shutdown();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightGetsTest {
+
+  private static final OperationStatus END =
+      new OperationStatus(true, "END", StatusCode.SUCCESS);
+
+  private final OperationFactory opFact = new AsciiOperationFactory();
+  private final InFlightGets inFlightGets = new InFlightGets();
+
+  private static class Recorder implements GetOperation.Callback {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void gotData(String key, int flags, byte[] data) {
+      events.add("data " + key + " " + new String(data));
+    }
+
+    @Override
+    public void receivedStatus(OperationStatus status) {
+      events.add("status " + status.getStatusCode());
+    }
+
+    @Override
+    public void complete() {
+      events.add("complete");
+    }
+  }
+
+  private GetOperation.Callback start(List<String> keys, Recorder leader) {
+    AtomicReference<GetOperation.Callback> cb = new AtomicReference<>();
+    inFlightGets.start(keys, leader, c -> {
+      cb.set(c);
+      return opFact.get(keys, c, false);
+    }, (view, op) -> { });
+    return cb.get();
+  }
+
+  @Test
+  void attachToGetInFlight() {
+    Recorder leader = new Recorder();
+    Recorder waiter = new Recorder();
+    GetOperation.Callback server = start(Collections.singletonList("key"), leader);
+
+    InFlightGets.InFlightGet inFlight = inFlightGets.find("key");
+    assertNotNull(inFlight);
+    assertNotNull(inFlight.getOperation());
+    inFlight.attach("key", waiter);
+
+    server.gotData("key", 0, "value".getBytes());
+    server.receivedStatus(END);
+    server.complete();
+
+    List<String> expected = Arrays.asList("data key value", "status SUCCESS", "complete");
+    assertEquals(expected, leader.events);
+    assertEquals(expected, waiter.events);
+    assertNull(inFlightGets.find("key"));
+    assertEquals(0, inFlightGets.size());
+  }
+
+  @Test
+  void replayToLateWaiter() {
+    Recorder leader = new Recorder();
+    GetOperation.Callback server = start(Collections.singletonList("key"), leader);
+    InFlightGets.InFlightGet inFlight = inFlightGets.find("key");
+
+    Recorder early = new Recorder();
+    server.gotData("key", 0, "value".getBytes());
+    inFlight.attach("key", early);
+    server.receivedStatus(END);
+    server.complete();
+
+    Recorder late = new Recorder();
+    inFlight.attach("key", late);
+
+    List<String> expected = Arrays.asList("data key value", "status SUCCESS", "complete");
+    assertEquals(expected, early.events);
+    assertEquals(expected, late.events);
+  }
+
+  @Test
+  void attachToKeyOfMultiGet() {
+    Recorder leader = new Recorder();
+    Recorder waiter = new Recorder();
+    GetOperation.Callback server = start(Arrays.asList("a", "b", "a"), leader);
+
+    assertSame(inFlightGets.find("a"), inFlightGets.find("b"));
+    inFlightGets.find("b").attach("b", waiter);
+
+    server.gotData("a", 0, "1".getBytes());
+    server.gotData("b", 0, "2".getBytes());
+    server.receivedStatus(END);
+    server.complete();
+
+    assertEquals(Arrays.asList("data a 1", "data b 2", "status SUCCESS", "complete"),
+        leader.events);
+    assertEquals(Arrays.asList("data b 2", "status SUCCESS", "complete"), waiter.events);
+    assertEquals(0, inFlightGets.size());
+  }
+
+  @Test
+  void cancelGetNotAdded() {
+    Recorder leader = new Recorder();
+    final List<Operation> added = new ArrayList<>();
+    assertThrows(IllegalStateException.class, () ->
+        inFlightGets.start(Collections.singletonList("key"), leader,
+            c -> opFact.get("key", c), (view, op) -> {
+              added.add(op);
+              throw new IllegalStateException("queue full");
+            }));
+
+    assertTrue(added.get(0).isCancelled());
+    assertEquals(Arrays.asList("status CANCELLED", "complete"), leader.events);
+    assertNull(inFlightGets.find("key"));
+  }
+
+  @Test
+  void cancelOneOfCoalescedGets() {
+    Recorder leader = new Recorder();
+    Recorder waiter = new Recorder();
+    GetOperation.Callback server = start(Collections.singletonList("key"), leader);
+    InFlightGets.InFlightGet inFlight = inFlightGets.find("key");
+    Operation view = inFlight.attach("key", waiter);
+
+    assertTrue(view.cancel("by application."));
+    assertTrue(view.isCancelled());
+    assertFalse(inFlight.getOperation().isCancelled());
+    assertEquals(Arrays.asList("status CANCELLED", "complete"), waiter.events);
+
+    server.gotData("key", 0, "value".getBytes());
+    server.receivedStatus(END);
+    server.complete();
+
+    assertEquals(Arrays.asList("data key value", "status SUCCESS", "complete"), leader.events);
+    assertEquals(Arrays.asList("status CANCELLED", "complete"), waiter.events);
+    assertFalse(view.cancel("by application."));
+  }
+
+  @Test
+  void cancelSharedGetWhenLastCallerLeaves() {
+    Recorder leader = new Recorder();
+    Recorder waiter = new Recorder();
+    AtomicReference<Operation> leaderView = new AtomicReference<>();
+    inFlightGets.start(Collections.singletonList("key"), leader,
+        c -> opFact.get("key", c), (view, op) -> leaderView.set(view));
+    InFlightGets.InFlightGet inFlight = inFlightGets.find("key");
+    Operation waiterView = inFlight.attach("key", waiter);
+
+    assertTrue(leaderView.get().cancel("by application."));
+    assertFalse(inFlight.getOperation().isCancelled());
+    assertTrue(waiterView.cancel("by application."));
+    assertTrue(inFlight.getOperation().isCancelled());
+
+    assertEquals(Arrays.asList("status CANCELLED", "complete"), leader.events);
+    assertEquals(Arrays.asList("status CANCELLED", "complete"), waiter.events);
+    assertNull(inFlightGets.find("key"));
+    assertNull(inFlight.attach("key", new Recorder()));
+  }
+
+  @Test
+  void cancelCoalescedGetOfClient() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      MemcachedClient client = new MemcachedClient(
+          new ConnectionFactoryBuilder().setCoalesceGets(true).build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        assertTrue(client.set("key", 0, "value").get(1, TimeUnit.SECONDS));
+        server.setLatency(200, TimeUnit.MILLISECONDS);
+
+        GetFuture<Object> first = client.asyncGet("key");
+        GetFuture<Object> second = client.asyncGet("key");
+        assertNotNull(client.getInFlightGets().find("key"));
+        assertTrue(first.cancel(true));
+
+        assertTrue(first.isCancelled());
+        assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertFalse(second.isCancelled());
+        assertEquals("value", second.get(1, TimeUnit.SECONDS));
+      } finally {
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        client.shutdown();
+      }
+    }
+  }
+}
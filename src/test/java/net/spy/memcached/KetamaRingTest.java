@@ -0,0 +1,62 @@
+package net.spy.memcached;
+
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class KetamaRingTest {
+
+  private static void put(TreeMap<Long, SortedSet<String>> map, long point, String... owners) {
+    SortedSet<String> set = new TreeSet<>();
+    for (String owner : owners) {
+      set.add(owner);
+    }
+    map.put(point, set);
+  }
+
+  @Test
+  void emptyRing() {
+    KetamaRing<String> ring = KetamaRing.of(new TreeMap<Long, SortedSet<String>>());
+    assertEquals(0, ring.size());
+    assertNull(ring.get(0L));
+  }
+
+  @Test
+  void lookupMatchesTreeMap() {
+    TreeMap<Long, SortedSet<String>> map = new TreeMap<>();
+    put(map, 100L, "a");
+    put(map, 200L, "c", "b");
+    put(map, 0xFFFFFF00L, "d");
+    KetamaRing<String> ring = KetamaRing.of(map);
+
+    assertEquals(3, ring.size());
+    assertEquals("a", ring.get(0L));
+    assertEquals("a", ring.get(100L));
+    assertEquals("b", ring.get(101L));
+    assertEquals("b", ring.get(200L));
+    assertEquals("d", ring.get(201L));
+    assertEquals("a", ring.get(0xFFFFFF01L));
+    assertEquals("a", ring.get(0xFFFFFFFFL));
+
+    for (long hash = 0; hash <= 0xFFFFFFFFL; hash += 0x01000001L) {
+      Long key = map.ceilingKey(hash);
+      String expected = map.get(key == null ? map.firstKey() : key).first();
+      assertEquals(expected, ring.get(hash));
+    }
+  }
+
+  @Test
+  void snapshotIsNotAffectedByLaterChanges() {
+    TreeMap<Long, SortedSet<String>> map = new TreeMap<>();
+    put(map, 100L, "a");
+    KetamaRing<String> ring = KetamaRing.of(map);
+    put(map, 50L, "b");
+    assertEquals("a", ring.get(10L));
+    assertEquals("b", KetamaRing.of(map).get(10L));
+  }
+}
@@ -20,22 +20,30 @@ package net.spy.memcached;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.Selector;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
 
 import net.spy.memcached.internal.ReconnDelay;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.server.EmbeddedArcusServer;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -160,6 +168,124 @@ class MemcachedConnectionTest {
   void testAddOperations() throws Exception {
   }
 
+  @Test
+  void testConnectionsPerNode() throws Exception {
+    ConnectionFactory cf = new ConnectionFactoryBuilder()
+        .setConnectionsPerNode(3)
+        .setFailureMode(FailureMode.Retry)
+        .build();
+    MemcachedConnection stripedConn = new MemcachedConnection("striped connection test", cf,
+        new ArrayList<>(), cf.getInitialObservers(), cf.getFailureMode(),
+        cf.getOperationFactory());
+    try {
+      stripedConn.setCacheNodesChange(AddrUtil.getAddresses(
+          Arrays.asList("0.0.0.0:11211", "0.0.0.0:11212")));
+      stripedConn.handleCacheNodesChange();
+
+      // the locator holds one node per address.
+      assertEquals(2, stripedConn.getLocator().getAll().size());
+      MemcachedNode node = stripedConn.getLocator().getAll().iterator().next();
+      List<MemcachedNode> connections = stripedConn.getNodeConnections(node);
+      assertEquals(3, connections.size());
+      assertSame(node, connections.get(0));
+
+      // operations are spread over the connections of the node by key.
+      GetOperation.Callback cb = new GetOperation.Callback() {
+        @Override
+        public void receivedStatus(OperationStatus status) {
+        }
+
+        @Override
+        public void gotData(String key, int flags, byte[] data) {
+        }
+
+        @Override
+        public void complete() {
+        }
+      };
+      for (int i = 0; i < 6; i++) {
+        stripedConn.addOperation(node, cf.getOperationFactory().get("key" + i, cb));
+      }
+      for (MemcachedNode conn : connections) {
+        assertEquals(2, conn.getInputQueueSize());
+      }
+
+      // operations on the same key are sent over the same connection.
+      for (int i = 0; i < 3; i++) {
+        stripedConn.addOperation(node, cf.getOperationFactory().get("key0", cb));
+      }
+      int[] sizes = new int[connections.size()];
+      for (int i = 0; i < sizes.length; i++) {
+        sizes[i] = connections.get(i).getInputQueueSize();
+      }
+      int[] sorted = sizes.clone();
+      Arrays.sort(sorted);
+      assertArrayEquals(new int[]{2, 2, 5}, sorted);
+
+      // operations on many keys are spread in round-robin order.
+      for (int i = 0; i < 3; i++) {
+        stripedConn.addOperation(node, cf.getOperationFactory().get(
+            Arrays.asList("key0", "key1"), cb, false));
+      }
+      for (int i = 0; i < sizes.length; i++) {
+        assertEquals(sizes[i] + 1, connections.get(i).getInputQueueSize());
+      }
+    } finally {
+      stripedConn.shutdown();
+    }
+  }
+
+  @Test
+  void testNodesSpreadOverIOLoops() throws Exception {
+    ConnectionFactory cf = new ConnectionFactoryBuilder().setIOLoopCount(2).build();
+    MemcachedConnection loopConn = new MemcachedConnection("io loop test", cf,
+        new ArrayList<>(), cf.getInitialObservers(), cf.getFailureMode(),
+        cf.getOperationFactory());
+    try {
+      loopConn.setCacheNodesChange(AddrUtil.getAddresses(Arrays.asList(
+          "0.0.0.0:11211", "0.0.0.0:11212", "0.0.0.0:11213", "0.0.0.0:11214")));
+      loopConn.handleCacheNodesChange();
+
+      Map<Selector, Integer> nodesBySelector = new HashMap<>();
+      for (MemcachedNode node : loopConn.getLocator().getAll()) {
+        nodesBySelector.merge(node.getSk().selector(), 1, Integer::sum);
+      }
+      assertEquals(2, nodesBySelector.size());
+      for (int count : nodesBySelector.values()) {
+        assertEquals(2, count);
+      }
+    } finally {
+      loopConn.shutdown();
+    }
+  }
+
+  @Test
+  void testNodesRegisteredByTheirIOLoops() throws Exception {
+    ConnectionFactory cf = new ConnectionFactoryBuilder().setIOLoopCount(2).build();
+    MemcachedConnection loopConn = new MemcachedConnection("io loop test", cf,
+        new ArrayList<>(), cf.getInitialObservers(), cf.getFailureMode(),
+        cf.getOperationFactory());
+    try (EmbeddedArcusServer server1 = new EmbeddedArcusServer().start();
+         EmbeddedArcusServer server2 = new EmbeddedArcusServer().start()) {
+      // the other loop is selecting while the nodes are added.
+      loopConn.startIOLoops("io loop test", true);
+      loopConn.setCacheNodesChange(Arrays.asList(server1.getAddress(), server2.getAddress()));
+      loopConn.handleIO();
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+      Map<Selector, Integer> nodesBySelector = new HashMap<>();
+      for (MemcachedNode node : loopConn.getLocator().getAll()) {
+        while (node.getSk() == null && System.nanoTime() < deadline) {
+          Thread.sleep(10);
+        }
+        nodesBySelector.merge(node.getSk().selector(), 1, Integer::sum);
+      }
+      assertEquals(2, nodesBySelector.size());
+    } finally {
+      loopConn.shutdown();
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   void testReconnectQueue_delayReconnect() throws Exception {
@@ -82,6 +82,8 @@ class MemcachedNodeROImplTest {
     for (Class<?> c : parameterTypes) {
       if (c == Boolean.TYPE) {
         args[i++] = false;
+      } else if (c == Long.TYPE) {
+        args[i++] = 0L;
       } else {
         args[i++] = null;
       }
@@ -30,6 +30,8 @@ import net.spy.memcached.ops.Operation;
 
 public class MockMemcachedNode implements MemcachedNode {
   private final InetSocketAddress socketAddress;
+  private volatile long latencyEwma = 0;
+  private volatile int outstandingOpCount = 0;
 
   public SocketAddress getSocketAddress() {
     return socketAddress;
@@ -104,6 +106,15 @@ public class MockMemcachedNode implements MemcachedNode {
     // noop
   }
 
+  public boolean tryAddOpToInputQ(Operation op) {
+    // noop
+    return true;
+  }
+
+  public void setAdmissionControl(AdmissionControl admission) {
+    // noop
+  }
+
   public boolean addOpToWriteQ(Operation op) {
     // noop
     return false;
@@ -126,6 +137,14 @@ public class MockMemcachedNode implements MemcachedNode {
     return null;
   }
 
+  public ByteBuffer expandRbuf() {
+    return null;
+  }
+
+  public void releaseRbuf() {
+    // noop
+  }
+
   public ByteBuffer getWbuf() {
     return null;
   }
@@ -253,6 +272,22 @@ public class MockMemcachedNode implements MemcachedNode {
   public String getOpQueueStatus() {
     return "MOCK_STATE";
   }
+
+  @Override
+  public int getInputQueueSize() {
+    return 0;
+  }
+
+  @Override
+  public int getWriteQueueSize() {
+    return 0;
+  }
+
+  @Override
+  public int getReadQueueSize() {
+    return 0;
+  }
+
   /* ENABLE_REPLICATION if */
 
   @Override
@@ -277,5 +312,24 @@ public class MockMemcachedNode implements MemcachedNode {
     // noop
     return false;
   }
+
+  @Override
+  public void recordLatency(long latencyNanos) {
+    this.latencyEwma = latencyNanos;
+  }
+
+  @Override
+  public long getLatencyEwma() {
+    return latencyEwma;
+  }
+
+  @Override
+  public int getOutstandingOpCount() {
+    return outstandingOpCount;
+  }
+
+  public void setOutstandingOpCount(int count) {
+    this.outstandingOpCount = count;
+  }
   /* ENABLE_REPLICATION end */
 }
@@ -0,0 +1,353 @@
+package net.spy.memcached;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.NodeCircuitBreaker.Permit;
+import net.spy.memcached.NodeCircuitBreaker.State;
+import net.spy.memcached.internal.CheckedOperationTimeoutException;
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class NodeCircuitBreakerTest {
+
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long OPEN = TimeUnit.MILLISECONDS.toNanos(50);
+  private static final int MIN_CALLS = 20;
+  private static final int CONTINUOUS_TIMEOUTS = 5;
+
+  private final OperationFactory opFact = new AsciiOperationFactory();
+
+  private NodeCircuitBreaker newBreaker() {
+    return new NodeCircuitBreaker("node", 50, SLOW, OPEN, MIN_CALLS, CONTINUOUS_TIMEOUTS);
+  }
+
+  private Operation newOp() {
+    return opFact.noop(new OperationCallback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+      }
+
+      @Override
+      public void complete() {
+      }
+    });
+  }
+
+  @Test
+  void openOnFailureRate() {
+    NodeCircuitBreaker breaker = newBreaker();
+    for (int i = 0; i < MIN_CALLS - 1; i++) {
+      breaker.record(newOp(), i % 2 == 0 ? SLOW : 0, false);
+    }
+    assertEquals(State.CLOSED, breaker.getState());
+    assertEquals(Permit.ALLOW, breaker.acquire(newOp(), 0));
+
+    breaker.record(newOp(), 0, true);
+    assertEquals(State.OPEN, breaker.getState());
+    assertEquals(Permit.REJECT, breaker.acquire(newOp(), 0));
+  }
+
+  @Test
+  void openOnContinuousTimeouts() {
+    NodeCircuitBreaker breaker = newBreaker();
+    assertEquals(Permit.ALLOW, breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS - 1));
+    assertEquals(Permit.REJECT, breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS));
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  void openOnLostConnection() throws Exception {
+    NodeCircuitBreaker breaker = newBreaker();
+    breaker.recordLost(MIN_CALLS - 1);
+    assertEquals(State.CLOSED, breaker.getState());
+    breaker.recordLost(1);
+    assertEquals(State.OPEN, breaker.getState());
+
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    assertEquals(Permit.PROBE, breaker.acquire(newOp(), 0));
+    // the connection of the probe is lost.
+    breaker.recordLost(0);
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  void checkAvailabilityWithoutChange() throws Exception {
+    NodeCircuitBreaker breaker = newBreaker();
+    assertTrue(breaker.isAvailable(0));
+    assertFalse(breaker.isAvailable(CONTINUOUS_TIMEOUTS));
+    assertEquals(State.CLOSED, breaker.getState());
+
+    breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS);
+    assertFalse(breaker.isAvailable(0));
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    // nodes are chosen as often as needed without taking the probe.
+    for (int i = 0; i < 3; i++) {
+      assertTrue(breaker.isAvailable(0));
+      assertEquals(State.OPEN, breaker.getState());
+    }
+    assertEquals(Permit.PROBE, breaker.acquire(newOp(), 0));
+    assertFalse(breaker.isAvailable(0));
+  }
+
+  @Test
+  void probeAfterOpenDuration() throws Exception {
+    NodeCircuitBreaker breaker = newBreaker();
+    breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS);
+
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    Operation probe = newOp();
+    assertEquals(Permit.PROBE, breaker.acquire(probe, 0));
+    assertEquals(Permit.REJECT, breaker.acquire(newOp(), 0));
+    // operations other than the probe do not close it.
+    assertFalse(breaker.record(newOp(), 0, false));
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    assertFalse(breaker.record(probe, SLOW, false));
+    assertEquals(State.OPEN, breaker.getState());
+
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    probe = newOp();
+    assertEquals(Permit.PROBE, breaker.acquire(probe, 0));
+    assertTrue(breaker.record(probe, 0, false));
+    assertEquals(State.CLOSED, breaker.getState());
+    assertEquals(Permit.ALLOW, breaker.acquire(newOp(), 0));
+  }
+
+  @Test
+  void reopenOnProbeTimeout() throws Exception {
+    NodeCircuitBreaker breaker = newBreaker();
+    breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS);
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    Operation probe = newOp();
+    assertEquals(Permit.PROBE, breaker.acquire(probe, 0));
+    assertFalse(breaker.record(probe, 0, true));
+    assertEquals(State.OPEN, breaker.getState());
+
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    probe = newOp();
+    assertEquals(Permit.PROBE, breaker.acquire(probe, 0));
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(SLOW) + 10);
+    assertEquals(Permit.REJECT, breaker.acquire(newOp(), 0));
+    assertEquals(State.OPEN, breaker.getState());
+    // the late answer of the probe does not close it.
+    assertFalse(breaker.record(probe, 0, false));
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  void reprobeAfterCancelledProbe() throws Exception {
+    NodeCircuitBreaker breaker = newBreaker();
+    breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS);
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    Operation probe = newOp();
+    assertEquals(Permit.PROBE, breaker.acquire(probe, 0));
+    assertFalse(breaker.isAvailable(0));
+
+    // the cancelled probe never records a result, so the next operation probes.
+    probe.cancel("by application.");
+    assertTrue(breaker.isAvailable(0));
+    probe = newOp();
+    assertEquals(Permit.PROBE, breaker.acquire(probe, 0));
+    assertEquals(Permit.REJECT, breaker.acquire(newOp(), 0));
+    assertTrue(breaker.record(probe, 0, false));
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  void releaseUnsentProbe() throws Exception {
+    NodeCircuitBreaker breaker = newBreaker();
+    breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS);
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    Operation probe = newOp();
+    assertEquals(Permit.PROBE, breaker.acquire(probe, 0));
+
+    // only the probe gives the permit back.
+    breaker.release(newOp());
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    breaker.release(probe);
+    assertEquals(State.OPEN, breaker.getState());
+    assertTrue(breaker.isAvailable(0));
+    assertEquals(Permit.PROBE, breaker.acquire(newOp(), 0));
+  }
+
+  @Test
+  void availableAfterUnansweredProbe() throws Exception {
+    NodeCircuitBreaker breaker = newBreaker();
+    breaker.acquire(newOp(), CONTINUOUS_TIMEOUTS);
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(OPEN) + 10);
+    assertEquals(Permit.PROBE, breaker.acquire(newOp(), 0));
+    assertFalse(breaker.isAvailable(0));
+
+    // chosen again so that the next acquire opens it.
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(SLOW) + 10);
+    assertTrue(breaker.isAvailable(0));
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    assertEquals(Permit.REJECT, breaker.acquire(newOp(), 0));
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  void openOnExpiredOperations() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+          .setCircuitBreaker(true)
+          .setCircuitBreakerCallThresholds(4, 1000)
+          .setOpDeadline(50)
+          .setFailureMode(FailureMode.Cancel).build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        assertTrue(client.set("key", 0, "value").get());
+        server.setLatency(2, TimeUnit.SECONDS);
+        // opened by the expired operations before any of them is answered.
+        long start = System.nanoTime();
+        int expired = 0;
+        while (true) {
+          try {
+            client.asyncGet("key").get(1, TimeUnit.SECONDS);
+            fail("answered in time");
+          } catch (CheckedOperationTimeoutException e) {
+            expired++;
+          } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("circuit breaker open"), e.toString());
+            break;
+          }
+        }
+        assertTrue(expired >= 2, "expired " + expired);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+      } finally {
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        client.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void failFastWhileOpen() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+          .setCircuitBreaker(true)
+          .setCircuitBreakerThresholds(50, 10)
+          .setCircuitBreakerOpenDuration(200)
+          .setCircuitBreakerCallThresholds(MIN_CALLS, CONTINUOUS_TIMEOUTS)
+          .setFailureMode(FailureMode.Cancel).build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        assertTrue(client.set("key", 0, "value").get());
+        server.setLatency(20, TimeUnit.MILLISECONDS);
+        int answered = 0;
+        while (answered <= MIN_CALLS) {
+          try {
+            assertEquals("value", client.asyncGet("key").get());
+            answered++;
+          } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("circuit breaker open"), e.toString());
+            break;
+          }
+        }
+        // opened once the minimum number of calls, including the set, is reached.
+        assertTrue(answered < MIN_CALLS, "answered " + answered);
+
+        long start = System.nanoTime();
+        assertThrows(ExecutionException.class, () -> client.asyncGet("key").get());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(20));
+
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        Thread.sleep(250);
+        // the first get after the open duration is sent as the probe.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Object value = null;
+        while (value == null && System.nanoTime() < deadline) {
+          Thread.sleep(10);
+          try {
+            value = client.asyncGet("key").get();
+          } catch (ExecutionException ignored) {
+            // rejected until the probe is answered.
+          }
+        }
+        assertEquals("value", value);
+      } finally {
+        client.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void reprobeAfterCancelledProbeOnRedistribute() throws Exception {
+    try (EmbeddedArcusServer slow = new EmbeddedArcusServer().start();
+         EmbeddedArcusServer other = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+          .setCircuitBreaker(true)
+          .setCircuitBreakerThresholds(50, 100)
+          .setCircuitBreakerOpenDuration(200)
+          .setCircuitBreakerCallThresholds(4, 1000)
+          .setFailureMode(FailureMode.Redistribute).build(),
+          Arrays.asList(slow.getAddress(), other.getAddress()));
+      try {
+        MemcachedConnection conn = client.getMemcachedConnection();
+        String key = null;
+        for (int i = 0; key == null; i++) {
+          if (slow.getAddress().equals(
+              conn.getPrimaryNode("key" + i, APIType.GET).getSocketAddress())) {
+            key = "key" + i;
+          }
+        }
+        assertTrue(client.set(key, 0, "value").get());
+        slow.setLatency(150, TimeUnit.MILLISECONDS);
+        // redistributed to the other node, which has no value, once opened.
+        int answered = 0;
+        boolean opened = false;
+        while (!opened) {
+          assertTrue(++answered < 20, "answered " + answered);
+          try {
+            opened = client.asyncGet(key).get() == null;
+          } catch (ExecutionException e) {
+            // opened by the last answer after it is chosen.
+            assertTrue(e.getCause().getMessage().contains("circuit breaker open"), e.toString());
+            opened = true;
+          }
+        }
+        slow.setLatency(0, TimeUnit.MILLISECONDS);
+        Thread.sleep(250);
+
+        // the first operation after the open duration is the probe,
+        // cancelled by the application before it is written.
+        Operation probe = client.getOpFact().get(key, new GetOperation.Callback() {
+          @Override
+          public void receivedStatus(OperationStatus status) {
+          }
+
+          @Override
+          public void gotData(String k, int flags, byte[] data) {
+          }
+
+          @Override
+          public void complete() {
+          }
+        });
+        probe.cancel("by application.");
+        conn.addOperation(key, probe);
+        assertEquals(slow.getAddress(), probe.getHandlingNode().getSocketAddress());
+
+        // the next operation probes the node instead of being redistributed.
+        assertEquals("value", client.asyncGet(key).get());
+      } finally {
+        client.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.OperationLatencyStats.Histogram;
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationLatencyStatsTest {
+
+  private final MemcachedNode node1 =
+      new MockMemcachedNode(new InetSocketAddress("10.0.0.1", 11211));
+  private final MemcachedNode node2 =
+      new MockMemcachedNode(new InetSocketAddress("10.0.0.2", 11211));
+
+  @Test
+  void indexesAreMonotonicAndBounded() {
+    int last = -1;
+    for (long value = 0; value < 10_000_000; value += 13) {
+      int index = Histogram.index(value);
+      assertTrue(index >= last);
+      long highest = Histogram.highestEquivalentValue(index);
+      assertTrue(highest >= value);
+      assertTrue(highest - value <= Math.max(1, value / 32), "value " + value);
+      last = index;
+    }
+    assertEquals(Long.MAX_VALUE, Histogram.highestEquivalentValue(Histogram.index(Long.MAX_VALUE)));
+  }
+
+  @Test
+  void percentilesPerNodeAndApiType() {
+    OperationLatencyStats stats = new OperationLatencyStats();
+    for (long micros = 1; micros <= 1000; micros++) {
+      stats.record(node1, APIType.GET, TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+    stats.record(node1, APIType.SET, TimeUnit.MILLISECONDS.toNanos(5));
+    stats.record(node2, APIType.GET, TimeUnit.MILLISECONDS.toNanos(1));
+
+    List<OperationLatency> latencies = stats.snapshot();
+    assertEquals(3, latencies.size());
+    OperationLatency set = latencies.get(0);
+    assertEquals(APIType.SET, set.getAPIType());
+    assertEquals(1, set.getCount());
+    assertWithin(5000, set.getP50());
+
+    OperationLatency get = latencies.get(1);
+    assertEquals(node1.getSocketAddress().toString(), get.getNode());
+    assertEquals(APIType.GET, get.getAPIType());
+    assertEquals(1000, get.getCount());
+    assertWithin(500, get.getP50());
+    assertWithin(990, get.getP99());
+    assertEquals(1000, get.getMax());
+    assertTrue(get.getThroughput() > 0);
+
+
+    assertEquals(node2.getSocketAddress().toString(), latencies.get(2).getNode());
+
+    stats.remove(node1);
+    assertEquals(1, stats.snapshot().size());
+    stats.reset();
+    assertTrue(stats.snapshot().isEmpty());
+  }
+
+  @Test
+  void concurrentRecords() throws InterruptedException {
+    OperationLatencyStats stats = new OperationLatencyStats();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          stats.record(i % 2 == 0 ? node1 : node2, APIType.GET, i);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    List<OperationLatency> latencies = stats.snapshot();
+    assertEquals(2, latencies.size());
+    for (OperationLatency latency : latencies) {
+      assertEquals(200_000, latency.getCount());
+      assertEquals(99, latency.getMax());
+    }
+  }
+
+  @Test
+  void recordedByClient() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+          .setLatencyStats(true).setConnectionsPerNode(2).build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        server.setLatency(2, TimeUnit.MILLISECONDS);
+        client.set("key", 0, "value").get();
+        for (int i = 0; i < 10; i++) {
+          assertEquals("value", client.asyncGet("key").get());
+        }
+
+        List<OperationLatency> latencies = client.getOperationLatencies();
+        assertEquals(2, latencies.size());
+        assertEquals(APIType.SET, latencies.get(0).getAPIType());
+        OperationLatency get = latencies.get(1);
+        assertEquals(APIType.GET, get.getAPIType());
+        assertEquals(10, get.getCount());
+        assertTrue(get.getP50() >= 2000, get.toString());
+
+        StatisticsHandler handler = new StatisticsHandler(client);
+        String suffix = "-GET-" + get.getNode();
+        assertTrue((Long) handler.getAttribute("latencyMax" + suffix) >= 2000);
+        handler.invoke("resetLatencies", null, null);
+        assertTrue(client.getOperationLatencies().isEmpty());
+      } finally {
+        client.shutdown();
+      }
+    }
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected / 32,
+        "expected " + expected + " but was " + actual);
+  }
+}
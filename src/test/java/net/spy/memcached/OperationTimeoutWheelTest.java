@@ -0,0 +1,101 @@
+package net.spy.memcached;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationTimeoutWheelTest {
+
+  private final OperationFactory opFactory = new AsciiOperationFactory();
+  private OperationTimeoutWheel wheel;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    if (wheel != null) {
+      wheel.shutdown();
+      wheel.join();
+    }
+  }
+
+  private Operation newOp(final AtomicReference<OperationStatus> status,
+                          final CountDownLatch latch) {
+    return opFactory.noop(new OperationCallback() {
+      @Override
+      public void receivedStatus(OperationStatus s) {
+        status.set(s);
+      }
+
+      @Override
+      public void complete() {
+        latch.countDown();
+      }
+    });
+  }
+
+  @Test
+  void expireOutstandingOperation() throws InterruptedException {
+    wheel = new OperationTimeoutWheel(50, 5);
+    wheel.start();
+
+    AtomicReference<OperationStatus> status = new AtomicReference<>();
+    CountDownLatch latch = new CountDownLatch(1);
+    Operation op = newOp(status, latch);
+    long start = System.nanoTime();
+    wheel.add(op, 50);
+
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertTrue(op.isTimedOut());
+    assertTrue(op.isCancelled());
+    assertEquals(StatusCode.TIMEDOUT, status.get().getStatusCode());
+    assertFalse(op.cancel("by application."));
+  }
+
+  @Test
+  void expireAfterMoreThanOneRound() throws InterruptedException {
+    // a wheel of 4 ticks expiring an operation after 10 ticks.
+    wheel = new OperationTimeoutWheel(15, 5);
+    wheel.start();
+
+    AtomicReference<OperationStatus> status = new AtomicReference<>();
+    CountDownLatch latch = new CountDownLatch(1);
+    Operation op = newOp(status, latch);
+    long start = System.nanoTime();
+    wheel.add(op, 50);
+
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertTrue(op.isTimedOut());
+  }
+
+  @Test
+  void skipCancelledOperation() throws InterruptedException {
+    wheel = new OperationTimeoutWheel(20, 5);
+    wheel.start();
+
+    AtomicReference<OperationStatus> status = new AtomicReference<>();
+    CountDownLatch latch = new CountDownLatch(1);
+    Operation op = newOp(status, latch);
+    wheel.add(op, 20);
+    assertTrue(op.cancel("by application."));
+    status.set(null);
+
+    Thread.sleep(100);
+    assertFalse(op.isTimedOut());
+    assertNull(status.get());
+  }
+}
@@ -0,0 +1,73 @@
+package net.spy.memcached;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaPickTest {
+
+  private static final class ReplicaNode extends MockMemcachedNode {
+    private volatile boolean active = true;
+
+    ReplicaNode(boolean master, int port) {
+      super(ArcusReplNodeAddress.create("g0", master, "127.0.0.1:" + port));
+    }
+
+    @Override
+    public boolean isActive() {
+      return active;
+    }
+  }
+
+  private final ReplicaNode master = new ReplicaNode(true, 11211);
+  private final ReplicaNode slave1 = new ReplicaNode(false, 11212);
+  private final ReplicaNode slave2 = new ReplicaNode(false, 11213);
+
+  private MemcachedReplicaGroup newGroup() {
+    MemcachedReplicaGroup group = new MemcachedReplicaGroupImpl(master);
+    group.setMemcachedNode(slave1);
+    group.setMemcachedNode(slave2);
+    return group;
+  }
+
+  private static Map<MemcachedNode, Integer> pick(MemcachedReplicaGroup group, int times) {
+    Map<MemcachedNode, Integer> counts = new HashMap<>();
+    for (int i = 0; i < times; i++) {
+      counts.merge(group.getNodeByReplicaPick(ReplicaPick.LATENCY), 1, Integer::sum);
+    }
+    return counts;
+  }
+
+  @Test
+  void pickLessLoadedNode() {
+    MemcachedReplicaGroup group = newGroup();
+    master.recordLatency(1_000_000);
+    slave1.recordLatency(10_000_000);
+    slave2.recordLatency(1_000_000);
+    slave2.setOutstandingOpCount(20);
+
+    Map<MemcachedNode, Integer> counts = pick(group, 3000);
+    // the most loaded node loses every comparison.
+    assertEquals(null, counts.get(slave2));
+    assertTrue(counts.get(master) > counts.get(slave1), counts.toString());
+    assertTrue(counts.get(slave1) > 500, counts.toString());
+  }
+
+  @Test
+  void pickActiveNodesOnly() {
+    MemcachedReplicaGroup group = newGroup();
+    slave2.recordLatency(1_000_000);
+    master.active = false;
+    slave1.active = false;
+    assertEquals(1, pick(group, 100).size());
+    assertSame(slave2, group.getNodeByReplicaPick(ReplicaPick.LATENCY));
+
+    slave2.active = false;
+    assertSame(master, group.getNodeByReplicaPick(ReplicaPick.LATENCY));
+  }
+}
@@ -0,0 +1,94 @@
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.OperationTimestamp;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlowOperationLoggerTest {
+
+  private final OperationFactory opFactory = new AsciiOperationFactory();
+  private final MemcachedNode node =
+      new MockMemcachedNode(new InetSocketAddress("10.0.0.1", 11211));
+
+  private Operation newOp() {
+    return opFactory.noop(new OperationCallback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+      }
+
+      @Override
+      public void complete() {
+      }
+    });
+  }
+
+  private static void complete(Operation op) throws Exception {
+    op.writing();
+    op.writeComplete();
+    op.readFromBuffer(ByteBuffer.wrap("VERSION 1.0\r\n".getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(OperationState.COMPLETE, op.getState());
+  }
+
+  @Test
+  void recordLifecycleTimestamps() throws Exception {
+    Operation op = newOp();
+    op.setSlowOperationLogger(new SlowOperationLogger(TimeUnit.SECONDS.toNanos(1), 10));
+    op.setHandlingNode(node);
+    op.initialize();
+    complete(op);
+
+    long last = 0;
+    for (OperationTimestamp point : OperationTimestamp.values()) {
+      long time = op.getTimestamp(point);
+      assertTrue(time != 0 && time - last >= 0, point + " is not recorded in order");
+      last = time;
+    }
+
+    String log = SlowOperationLogger.format(op);
+    assertTrue(log.contains(" read_started=+"), log);
+    assertTrue(log.contains(" completed=+"), log);
+    assertTrue(log.contains("[MOCK_STATE]"), log);
+  }
+
+  @Test
+  void untracedOperationRecordsCreationOnly() throws Exception {
+    Operation op = newOp();
+    op.setHandlingNode(node);
+    op.initialize();
+    complete(op);
+
+    assertTrue(op.getTimestamp(OperationTimestamp.CREATED) != 0);
+    assertEquals(0, op.getTimestamp(OperationTimestamp.WRITE_STARTED));
+    assertEquals(0, op.getTimestamp(OperationTimestamp.COMPLETED));
+  }
+
+  @Test
+  void logSlowOperationsAtLimitedRate() throws Exception {
+    SlowOperationLogger logger = new SlowOperationLogger(0, 2);
+    Operation op = newOp();
+    op.setSlowOperationLogger(logger);
+    op.setHandlingNode(node);
+    op.initialize();
+    complete(op); // logged on completion
+
+    assertTrue(logger.completed(op));
+    assertFalse(logger.completed(op));
+
+    SlowOperationLogger slowOnly = new SlowOperationLogger(TimeUnit.SECONDS.toNanos(1), 2);
+    assertFalse(slowOnly.completed(op));
+  }
+}
@@ -0,0 +1,153 @@
+package net.spy.memcached.internal;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.MemcachedConnection;
+import net.spy.memcached.MockMemcachedNode;
+import net.spy.memcached.internal.result.SMGetResult;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimedOutOperationFutureTest {
+
+  private final TimeoutCountingNode expiredNode = new TimeoutCountingNode(11211);
+  private final TimeoutCountingNode answeredNode = new TimeoutCountingNode(11212);
+
+  /**
+   * An operation expired by the timeout wheel and another one that was answered,
+   * both already completed, so the future's latch is released.
+   */
+  private Collection<Operation> completedOps() {
+    Operation expired = newOp(expiredNode);
+    assertTrue(expired.timeOut("deadline passed"));
+    MemcachedConnection.opTimedOut(expired);
+    answeredNode.setContinuousTimeout(true);
+    return Arrays.asList(expired, newOp(answeredNode));
+  }
+
+  private void assertExpiredNodeNotReset() {
+    assertEquals(1, expiredNode.getContinuousTimeout());
+    assertEquals(0, answeredNode.getContinuousTimeout());
+  }
+
+  @Test
+  void bulkGetFuture() throws Exception {
+    BulkGetFuture<Object> future = new BulkGetFuture<>(new HashMap<>(), completedOps(),
+        new CountDownLatch(0), 100L);
+
+    assertThrows(CheckedOperationTimeoutException.class,
+        () -> future.get(100, TimeUnit.MILLISECONDS));
+    assertExpiredNodeNotReset();
+
+    Map<String, Object> some = future.getSome(100, TimeUnit.MILLISECONDS);
+    assertTrue(some.isEmpty());
+    assertExpiredNodeNotReset();
+  }
+
+  @Test
+  void smGetFuture() {
+    SMGetFuture<List<Object>> future = new SMGetFuture<>(completedOps(),
+        new SMGetResult<>(10, false, false), new CountDownLatch(0), 100L);
+
+    assertThrows(CheckedOperationTimeoutException.class,
+        () -> future.get(100, TimeUnit.MILLISECONDS));
+    assertExpiredNodeNotReset();
+  }
+
+  @Test
+  void pipedCollectionFuture() {
+    PipedCollectionFuture<Integer, Object> future =
+        new PipedCollectionFuture<>(new CountDownLatch(0), 100L);
+    Operation expired = newOp(expiredNode);
+    assertTrue(expired.timeOut("deadline passed"));
+    MemcachedConnection.opTimedOut(expired);
+    future.addOperations(Arrays.asList(newOp(expiredNode), expired));
+
+    assertThrows(CheckedOperationTimeoutException.class,
+        () -> future.get(100, TimeUnit.MILLISECONDS));
+    assertEquals(1, expiredNode.getContinuousTimeout());
+  }
+
+  @Test
+  void collectionGetBulkFuture() {
+    CollectionGetBulkFuture<Object> future = new CollectionGetBulkFuture<>(
+        new CountDownLatch(0), completedOps(), () -> null, 100L);
+
+    assertThrows(CheckedOperationTimeoutException.class,
+        () -> future.get(100, TimeUnit.MILLISECONDS));
+    assertExpiredNodeNotReset();
+  }
+
+  @Test
+  void bulkOperationFuture() {
+    BulkOperationFuture<Object> future = new BulkOperationFuture<>(new CountDownLatch(0), 100L);
+    future.addOperations(completedOps());
+
+    assertThrows(CheckedOperationTimeoutException.class,
+        () -> future.get(100, TimeUnit.MILLISECONDS));
+    assertExpiredNodeNotReset();
+  }
+
+  @Test
+  void broadcastFuture() {
+    BroadcastFuture<Object> future = new BroadcastFuture<>(100L, null, 0);
+    future.addOperations(completedOps());
+
+    assertThrows(CheckedOperationTimeoutException.class,
+        () -> future.get(100, TimeUnit.MILLISECONDS));
+    assertExpiredNodeNotReset();
+  }
+
+  private static Operation newOp(TimeoutCountingNode node) {
+    CallbackOperation op = new CallbackOperation();
+    op.setHandlingNode(node);
+    return op;
+  }
+
+  private static final class CallbackOperation
+      extends CheckedOperationTimeoutExceptionTest.TestOperation {
+    private CallbackOperation() {
+      setCallback(new OperationCallback() {
+        @Override
+        public void receivedStatus(OperationStatus status) {
+        }
+
+        @Override
+        public void complete() {
+        }
+      });
+    }
+  }
+
+  private static final class TimeoutCountingNode extends MockMemcachedNode {
+    private int continuousTimeout = 0;
+
+    private TimeoutCountingNode(int port) {
+      super(InetSocketAddress.createUnresolved("localhost", port));
+    }
+
+    @Override
+    public int getContinuousTimeout() {
+      return continuousTimeout;
+    }
+
+    @Override
+    public void setContinuousTimeout(boolean timedOut) {
+      continuousTimeout = timedOut ? continuousTimeout + 1 : 0;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package net.spy.memcached.ops;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.OperationFactory;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscOperationQueueTest {
+
+  private final OperationFactory opFactory = new AsciiOperationFactory();
+
+  private Operation newOp() {
+    return opFactory.noop(new OperationCallback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+      }
+
+      @Override
+      public void complete() {
+      }
+    });
+  }
+
+  @Test
+  void capacityIsRoundedUpToPowerOfTwo() {
+    assertEquals(2, new MpscOperationQueue(1).capacity());
+    assertEquals(8, new MpscOperationQueue(5).capacity());
+    assertEquals(16384, new MpscOperationQueue(16384).capacity());
+    assertThrows(IllegalArgumentException.class, () -> new MpscOperationQueue(0));
+  }
+
+  @Test
+  void offerAndPollInOrder() {
+    MpscOperationQueue queue = new MpscOperationQueue(4);
+    List<Operation> ops = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Operation op = newOp();
+      ops.add(op);
+      assertTrue(queue.offer(op));
+    }
+    assertFalse(queue.offer(newOp()));
+    assertEquals(4, queue.size());
+    assertEquals(0, queue.remainingCapacity());
+
+    Iterator<Operation> iter = queue.iterator();
+    for (Operation op : ops) {
+      assertSame(op, iter.next());
+    }
+    assertFalse(iter.hasNext());
+
+    assertSame(ops.get(0), queue.peek());
+    assertSame(ops.get(0), queue.poll());
+    assertTrue(queue.offer(newOp()));
+
+    List<Operation> drained = new ArrayList<>();
+    assertEquals(2, queue.drainTo(drained, 2));
+    assertSame(ops.get(1), drained.get(0));
+    assertSame(ops.get(2), drained.get(1));
+    assertEquals(2, queue.size());
+    queue.clear();
+    assertTrue(queue.isEmpty());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  void offerTimesOutWhenFull() throws InterruptedException {
+    MpscOperationQueue queue = new MpscOperationQueue(2);
+    assertTrue(queue.offer(newOp(), 10, TimeUnit.MILLISECONDS));
+    assertTrue(queue.offer(newOp(), 10, TimeUnit.MILLISECONDS));
+    long start = System.nanoTime();
+    assertFalse(queue.offer(newOp(), 10, TimeUnit.MILLISECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+    assertNull(new MpscOperationQueue(1).poll(1, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void manyProducersSingleConsumer() throws Exception {
+    final int producers = 8;
+    final int opsPerProducer = 5000;
+    final MpscOperationQueue queue = new MpscOperationQueue(64);
+    final Map<Operation, Integer> producerOf = new HashMap<>();
+    final List<List<Operation>> produced = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      List<Operation> ops = new ArrayList<>();
+      for (int i = 0; i < opsPerProducer; i++) {
+        Operation op = newOp();
+        ops.add(op);
+        producerOf.put(op, p);
+      }
+      produced.add(ops);
+    }
+
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (final List<Operation> ops : produced) {
+      Thread t = new Thread(() -> {
+        try {
+          start.await();
+          for (Operation op : ops) {
+            queue.put(op);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      t.start();
+      threads.add(t);
+    }
+    start.countDown();
+
+    int[] nextIndex = new int[producers];
+    int consumed = 0;
+    while (consumed < producers * opsPerProducer) {
+      Operation op = queue.poll(1, TimeUnit.SECONDS);
+      assertTrue(op != null, "queue stalled after " + consumed + " operations");
+      int p = producerOf.get(op);
+      // operations of a producer are consumed in the order they were added.
+      assertSame(produced.get(p).get(nextIndex[p]++), op);
+      consumed++;
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertTrue(queue.isEmpty());
+  }
+}
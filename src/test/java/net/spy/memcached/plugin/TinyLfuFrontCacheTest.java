@@ -0,0 +1,122 @@
+package net.spy.memcached.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TinyLfuFrontCacheTest {
+
+  @Test
+  void putGetAndRemove() {
+    TinyLfuFrontCache cache = new TinyLfuFrontCache("test", 10, 0, 60);
+    Object value = new Object();
+    cache.put("key", value, 100);
+    assertSame(value, cache.get("key"));
+    assertEquals(1, cache.weightedSize());
+
+    Object newValue = new Object();
+    cache.put("key", newValue, 100);
+    assertSame(newValue, cache.get("key"));
+    assertEquals(1, cache.weightedSize());
+
+    cache.remove("key");
+    assertNull(cache.get("key"));
+    assertEquals(0, cache.weightedSize());
+  }
+
+  @Test
+  void boundedByNumberOfElements() {
+    TinyLfuFrontCache cache = new TinyLfuFrontCache("test", 100, 0, 60);
+    for (int i = 0; i < 1000; i++) {
+      cache.put("key" + i, i, 1000);
+    }
+    cache.cleanUp();
+    assertEquals(100, cache.weightedSize());
+  }
+
+  @Test
+  void boundedByWeight() {
+    TinyLfuFrontCache cache = new TinyLfuFrontCache("test", 100, 1000, 60);
+    for (int i = 0; i < 100; i++) {
+      cache.put("key" + i, i, 100);
+    }
+    cache.cleanUp();
+    assertEquals(1000, cache.weightedSize());
+
+    // a value heavier than the cache is never cached.
+    cache.put("large", "large", 1001);
+    assertNull(cache.get("large"));
+    assertEquals(1000, cache.weightedSize());
+  }
+
+  @Test
+  void keepFrequentlyUsedValuesOverScan() {
+    TinyLfuFrontCache cache = new TinyLfuFrontCache("test", 100, 0, 60);
+    for (int i = 0; i < 100; i++) {
+      cache.put("hot" + i, i, 1);
+    }
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 100; i++) {
+        cache.get("hot" + i);
+      }
+      cache.cleanUp();
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      cache.put("scan" + i, i, 1);
+    }
+
+    int hits = 0;
+    for (int i = 0; i < 100; i++) {
+      if (cache.get("hot" + i) != null) {
+        hits++;
+      }
+    }
+    assertTrue(hits >= 95, "hot values kept : " + hits);
+  }
+
+  @Test
+  void expireValues() {
+    TinyLfuFrontCache cache = new TinyLfuFrontCache("test", 10, 0, 0);
+    cache.put("key", "value", 1);
+    assertNull(cache.get("key"));
+    cache.cleanUp();
+    assertEquals(0, cache.weightedSize());
+  }
+
+  @Test
+  void concurrentAccess() throws InterruptedException {
+    final TinyLfuFrontCache cache = new TinyLfuFrontCache("test", 100, 10000, 60);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100000; i++) {
+          String key = "key" + random.nextInt(500);
+          if (cache.get(key) == null) {
+            cache.put(key, key, random.nextInt(1, 300));
+          } else if (random.nextInt(100) == 0) {
+            cache.remove(key);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    cache.cleanUp();
+    assertTrue(cache.weightedSize() <= 10000);
+    cache.close();
+    assertEquals(0, cache.weightedSize());
+  }
+}
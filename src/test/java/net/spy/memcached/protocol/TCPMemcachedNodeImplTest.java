@@ -17,22 +17,43 @@
  */
 package net.spy.memcached.protocol;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import net.spy.memcached.ConnectionFactory;
+import net.spy.memcached.ConnectionFactoryBuilder;
 import net.spy.memcached.DefaultConnectionFactory;
+import net.spy.memcached.DirectBufferPool;
 import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.MpscOperationQueueFactory;
+import net.spy.memcached.ops.Mutator;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -126,5 +147,437 @@ class TCPMemcachedNodeImplTest {
       assertFalse(op.isCancelled());
     }
   }
-  
+
+  @Test
+  void testLatencyEwma() throws Exception {
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) new DefaultConnectionFactory()
+        .createMemcachedNode("tcp node impl test node",
+            InetSocketAddress.createUnresolved("127.0.0.1", 11211), 4096);
+    assertEquals(0, node.getLatencyEwma());
+    assertEquals(0, node.getOutstandingOpCount());
+
+    node.recordLatency(1000);
+    assertEquals(1000, node.getLatencyEwma());
+    for (int i = 0; i < 100; i++) {
+      node.recordLatency(9000);
+    }
+    assertTrue(Math.abs(node.getLatencyEwma() - 9000) < 10, "ewma " + node.getLatencyEwma());
+  }
+
+  @Test
+  void testLatencyEwmaDecay() {
+    long second = TimeUnit.SECONDS.toNanos(1);
+    assertEquals(8000, TCPMemcachedNodeImpl.decayLatency(8000, second / 2));
+    assertEquals(4000, TCPMemcachedNodeImpl.decayLatency(8000, second));
+    assertEquals(1000, TCPMemcachedNodeImpl.decayLatency(8000, 3 * second + second / 2));
+    assertEquals(0, TCPMemcachedNodeImpl.decayLatency(8000, 100 * second));
+    assertEquals(8000, TCPMemcachedNodeImpl.decayLatency(8000, -second));
+  }
+
+  @Test
+  void testElasticReadBuffer() throws Exception {
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) new ConnectionFactoryBuilder()
+        .setMaxReadBufferSize(16384).build()
+        .createMemcachedNode("tcp node impl test node",
+            InetSocketAddress.createUnresolved("127.0.0.1", 11211), 4096);
+    assertEquals(4096, node.getRbuf().capacity());
+
+    ((Buffer) node.getRbuf()).clear();
+    assertEquals(8192, node.expandRbuf().capacity());
+    assertEquals(16384, node.expandRbuf().capacity());
+    assertEquals(16384, node.expandRbuf().capacity());
+    assertSame(node.expandRbuf(), node.getRbuf());
+
+    // the expanded buffer is given back and the base size is taken again.
+    node.releaseRbuf();
+    assertEquals(4096, node.getRbuf().capacity());
+
+    // a closed node gives its buffer back until it reconnects.
+    long borrowed = DirectBufferPool.getShared().getBorrowedBytes();
+    node.closeChannel();
+    assertEquals(borrowed - 4096, DirectBufferPool.getShared().getBorrowedBytes());
+  }
+
+  @Test
+  void testGatheringWrite() throws Exception {
+    // given
+    final int opCount = 10;
+    final ConnectionFactory factory = new ConnectionFactoryBuilder()
+        .setGatheringWrite(true)
+        .setGatheringWriteLimits(4, 1024 * 1024)
+        .build();
+
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) factory.createMemcachedNode(
+        "tcp node impl test node",
+        InetSocketAddress.createUnresolved("127.0.0.1", 11211),
+        4096
+    );
+    assertTrue(node.isGatheringWrite());
+
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < opCount; i++) {
+      Operation op = factory.getOperationFactory().get(
+          "cacheKey=" + i,
+          new GetOperation.Callback() {
+            @Override
+            public void receivedStatus(OperationStatus status) {
+            }
+
+            @Override
+            public void gotData(String key, int flags, byte[] data) {
+            }
+
+            @Override
+            public void complete() {
+            }
+          });
+      node.addOpToInputQ(op);
+      expected.append("get cacheKey=").append(i).append("\r\n");
+    }
+    node.copyInputQueue();
+
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress("127.0.0.1", 0));
+      SocketChannel client = SocketChannel.open(server.getLocalAddress());
+      node.setChannel(client);
+      try (SocketChannel peer = server.accept()) {
+        // when
+        int written = 0;
+        node.fillWriteBuffer(false);
+        while (node.getBytesRemainingToWrite() > 0) {
+          written += node.writeSome();
+          node.fillWriteBuffer(false);
+        }
+
+        // then
+        assertEquals(expected.length(), written);
+        assertEquals(0, node.getWriteQueueSize());
+        assertEquals(opCount, node.getReadQueueSize());
+        assertNull(node.getCurrentWriteOp());
+        for (int i = 0; i < opCount; i++) {
+          Operation op = node.removeCurrentReadOp();
+          assertSame(OperationState.READING, op.getState());
+        }
+
+        ByteBuffer received = ByteBuffer.allocate(written);
+        while (received.hasRemaining()) {
+          peer.read(received);
+        }
+        ((Buffer) received).flip();
+        byte[] bytes = new byte[received.remaining()];
+        received.get(bytes);
+        assertEquals(expected.toString(), new String(bytes));
+      } finally {
+        node.closeChannel();
+      }
+    }
+  }
+
+  @Test
+  void testPartialGatheringWriteAndResend() throws Exception {
+    // given
+    final int opCount = 6;
+    final ConnectionFactory factory = new ConnectionFactoryBuilder()
+        .setGatheringWrite(true)
+        .setGatheringWriteLimits(4, 1024 * 1024)
+        .build();
+
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) factory.createMemcachedNode(
+        "tcp node impl test node",
+        InetSocketAddress.createUnresolved("127.0.0.1", 11211),
+        4096
+    );
+
+    List<Operation> ops = new ArrayList<>();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < opCount; i++) {
+      Operation op = factory.getOperationFactory().get(
+          "cacheKey=" + i,
+          new GetOperation.Callback() {
+            @Override
+            public void receivedStatus(OperationStatus status) {
+            }
+
+            @Override
+            public void gotData(String key, int flags, byte[] data) {
+            }
+
+            @Override
+            public void complete() {
+            }
+          });
+      node.addOpToInputQ(op);
+      ops.add(op);
+      expected.append("get cacheKey=").append(i).append("\r\n");
+    }
+    node.copyInputQueue();
+
+    // when: 20 bytes are written, op 0 fully and op 1 partially.
+    TrickleChannel channel = new TrickleChannel(5);
+    node.setChannel(channel);
+    node.fillWriteBuffer(false);
+    for (int i = 0; i < 4; i++) {
+      assertEquals(5, node.writeSome());
+    }
+
+    // then
+    assertEquals(expected.substring(0, 20), channel.written());
+    assertSame(OperationState.READING, ops.get(0).getState());
+    assertSame(OperationState.WRITING, ops.get(1).getState());
+
+    // when: the connection is lost and set up for resend.
+    node.closeChannel();
+    node.setupResend("test");
+
+    // then: op 0 waited for its response, the others are written again in order.
+    assertTrue(ops.get(0).isCancelled());
+    assertEquals(0, node.getReadQueueSize());
+    assertEquals(0, node.getBytesRemainingToWrite());
+    assertEquals(opCount - 1, node.getWriteQueueSize());
+    assertSame(ops.get(1), node.getCurrentWriteOp());
+    for (int i = 1; i < opCount; i++) {
+      assertFalse(ops.get(i).isCancelled());
+      assertSame(OperationState.WRITE_QUEUED, ops.get(i).getState());
+    }
+
+    TrickleChannel reconnected = new TrickleChannel(3);
+    assertNotSame(channel, reconnected);
+    node.setChannel(reconnected);
+    node.fillWriteBuffer(false);
+    while (node.getBytesRemainingToWrite() > 0) {
+      node.writeSome();
+      node.fillWriteBuffer(false);
+    }
+    assertEquals(expected.substring(16), reconnected.written());
+    assertEquals(opCount - 1, node.getReadQueueSize());
+    node.closeChannel();
+  }
+
+  @Test
+  void testPartialGatheringWriteWithMpscReadQueue() throws Exception {
+    // given
+    final int opCount = 4;
+    final ConnectionFactory factory = new ConnectionFactoryBuilder()
+        .setGatheringWrite(true)
+        .setGatheringWriteLimits(4, 1024 * 1024)
+        .setReadOpQueueFactory(new MpscOperationQueueFactory(16))
+        .build();
+
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) factory.createMemcachedNode(
+        "tcp node impl test node",
+        InetSocketAddress.createUnresolved("127.0.0.1", 11211),
+        4096
+    );
+
+    List<Operation> ops = new ArrayList<>();
+    for (int i = 0; i < opCount; i++) {
+      Operation op = factory.getOperationFactory().get("cacheKey=" + i, newCallback());
+      node.addOpToInputQ(op);
+      ops.add(op);
+    }
+    node.copyInputQueue();
+
+    // when: op 0 is written fully and op 1 partially.
+    TrickleChannel channel = new TrickleChannel(5);
+    node.setChannel(channel);
+    node.fillWriteBuffer(false);
+    for (int i = 0; i < 4; i++) {
+      node.writeSome();
+    }
+    assertEquals(1, node.getReadQueueSize());
+    node.closeChannel();
+    node.setupResend("test");
+
+    // then: only the written op is in the read queue and cancelled.
+    assertTrue(ops.get(0).isCancelled());
+    assertEquals(0, node.getReadQueueSize());
+    assertEquals(opCount - 1, node.getWriteQueueSize());
+    for (int i = 1; i < opCount; i++) {
+      assertFalse(ops.get(i).isCancelled());
+      assertSame(OperationState.WRITE_QUEUED, ops.get(i).getState());
+    }
+  }
+
+  @Test
+  void testMoveUnwrittenGatheringWriteOps() throws Exception {
+    // given
+    final int opCount = 4;
+    final ConnectionFactory factory = new ConnectionFactoryBuilder()
+        .setGatheringWrite(true)
+        .setGatheringWriteLimits(4, 1024 * 1024)
+        .build();
+
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) factory.createMemcachedNode(
+        "tcp node impl test node",
+        InetSocketAddress.createUnresolved("127.0.0.1", 11211),
+        4096
+    );
+    TCPMemcachedNodeImpl toNode = (TCPMemcachedNodeImpl) factory.createMemcachedNode(
+        "tcp node impl test node",
+        InetSocketAddress.createUnresolved("127.0.0.1", 11212),
+        4096
+    );
+
+    List<Operation> ops = new ArrayList<>();
+    for (int i = 0; i < opCount; i++) {
+      Operation op = factory.getOperationFactory().mutate(Mutator.incr,
+          "cacheKey=" + i, 1, 0, 0, newCallback());
+      node.addOpToInputQ(op);
+      ops.add(op);
+    }
+    node.copyInputQueue();
+
+    // when: op 0 is written fully and op 1 partially.
+    TrickleChannel channel = new TrickleChannel(ops.get(0).getBuffer().remaining() + 1);
+    node.setChannel(channel);
+    node.fillWriteBuffer(false);
+    node.writeSome();
+
+    // then: the unwritten ops are moved, not cancelled as in-flight.
+    assertEquals(1, node.getReadQueueSize());
+    assertTrue(node.hasNonIdempotentOperationInReadQ());
+    assertEquals(opCount - 1, node.moveOperations(toNode, true));
+    assertTrue(ops.get(0).isCancelled());
+    assertEquals(0, node.getBytesRemainingToWrite());
+    assertFalse(node.hasWriteOp());
+    assertEquals(opCount - 1, toNode.getWriteQueueSize());
+    for (int i = 1; i < opCount; i++) {
+      assertFalse(ops.get(i).isCancelled());
+      assertSame(ops.get(i), toNode.removeCurrentWriteOp());
+    }
+    node.closeChannel();
+  }
+
+  private static GetOperation.Callback newCallback() {
+    return new GetOperation.Callback() {
+      @Override
+      public void receivedStatus(OperationStatus status) {
+      }
+
+      @Override
+      public void gotData(String key, int flags, byte[] data) {
+      }
+
+      @Override
+      public void complete() {
+      }
+    };
+  }
+
+  /**
+   * A channel accepting at most the given number of bytes per write.
+   */
+  private static final class TrickleChannel extends SocketChannel {
+    private final int maxBytesPerWrite;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private TrickleChannel(int maxBytesPerWrite) {
+      super(SelectorProvider.provider());
+      this.maxBytesPerWrite = maxBytesPerWrite;
+    }
+
+    private String written() {
+      return new String(out.toByteArray());
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      int wrote = 0;
+      for (int i = offset; i < offset + length && wrote < maxBytesPerWrite; i++) {
+        while (srcs[i].hasRemaining() && wrote < maxBytesPerWrite) {
+          out.write(srcs[i].get());
+          wrote++;
+        }
+      }
+      return wrote;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      return (int) write(new ByteBuffer[]{src}, 0, 1);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+      return 0;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) {
+      return 0;
+    }
+
+    @Override
+    public SocketChannel bind(SocketAddress local) {
+      return this;
+    }
+
+    @Override
+    public <T> SocketChannel setOption(SocketOption<T> name, T value) {
+      return this;
+    }
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) {
+      return null;
+    }
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public SocketChannel shutdownInput() {
+      return this;
+    }
+
+    @Override
+    public SocketChannel shutdownOutput() {
+      return this;
+    }
+
+    @Override
+    public Socket socket() {
+      return null;
+    }
+
+    @Override
+    public boolean isConnected() {
+      return isOpen();
+    }
+
+    @Override
+    public boolean isConnectionPending() {
+      return false;
+    }
+
+    @Override
+    public boolean connect(SocketAddress remote) {
+      return true;
+    }
+
+    @Override
+    public boolean finishConnect() {
+      return true;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+      return null;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+      return null;
+    }
+
+    @Override
+    protected void implCloseSelectableChannel() {
+    }
+
+    @Override
+    protected void implConfigureBlocking(boolean block) {
+    }
+  }
 }
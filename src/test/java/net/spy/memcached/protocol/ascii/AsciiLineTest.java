@@ -0,0 +1,141 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsciiLineTest {
+
+  private static ByteBuffer direct(String s) {
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer bb = ByteBuffer.allocateDirect(b.length);
+    bb.put(b);
+    bb.flip();
+    return bb;
+  }
+
+  @Test
+  void readLinesInPlace() {
+    ByteBuffer bb = direct("VALUE key 12 3 -7\r\nEND\r\n");
+    AsciiLine line = new AsciiLine();
+
+    assertTrue(line.readFrom(bb));
+    assertTrue(line.startsWith("VALUE "));
+    assertFalse(line.is("VALUE"));
+    assertEquals(5, line.fieldCount());
+    assertTrue(line.fieldIs(0, "VALUE"));
+    assertEquals("key", line.field(1));
+    assertEquals(12, line.intField(2));
+    assertEquals(3L, line.longField(3));
+    assertEquals(-7, line.intField(4));
+    assertEquals("12 3 -7", line.fieldsFrom(2));
+    assertEquals("VALUE key 12 3 -7", line.toString());
+    assertEquals(19, bb.position());
+
+    line.clear();
+    assertTrue(line.readFrom(bb));
+    assertTrue(line.is("END"));
+    assertEquals(1, line.fieldCount());
+    assertFalse(bb.hasRemaining());
+  }
+
+  @Test
+  void readLineSplitAcrossBuffers() {
+    AsciiLine line = new AsciiLine();
+    assertFalse(line.readFrom(direct("COUNT=12")));
+    assertFalse(line.readFrom(direct("34\r")));
+    assertTrue(line.readFrom(direct("\n")));
+    assertEquals(1234, line.intAfter("COUNT="));
+    assertEquals("COUNT=1234", line.toString());
+  }
+
+  @Test
+  void fieldsSkipRepeatedSpaces() {
+    AsciiLine line = AsciiLine.of("RESPONSE   2");
+    assertEquals(2, line.fieldCount());
+    assertEquals(2, line.intField(1));
+    assertTrue(AsciiLine.of("12345").isDigits());
+    assertFalse(AsciiLine.of("NOT_FOUND").isDigits());
+  }
+
+  @Test
+  void invalidNumbers() {
+    AsciiLine line = AsciiLine.of("VALUE key x 99999999999 -");
+    assertThrows(NumberFormatException.class, () -> line.intField(2));
+    assertThrows(NumberFormatException.class, () -> line.intField(3));
+    assertEquals(99999999999L, line.longField(3));
+    assertThrows(NumberFormatException.class, () -> line.intField(4));
+    assertThrows(IndexOutOfBoundsException.class, () -> line.field(5));
+  }
+
+  @Test
+  void parseMultiGetResponse() throws Exception {
+    final List<String> keys = new ArrayList<>();
+    final List<byte[]> values = new ArrayList<>();
+    final List<OperationStatus> statuses = new ArrayList<>();
+    GetOperation.Callback cb = new GetOperation.Callback() {
+      @Override
+      public void gotData(String key, int flags, byte[] data) {
+        keys.add(key + ":" + flags);
+        values.add(data);
+      }
+
+      @Override
+      public void receivedStatus(OperationStatus status) {
+        statuses.add(status);
+      }
+
+      @Override
+      public void complete() {
+      }
+    };
+    GetOperationImpl op = new GetOperationImpl(Arrays.asList("a", "b"), cb, false);
+    LinkedBlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    op.setHandlingNode(new AsciiMemcachedNodeImpl("testnode", new InetSocketAddress(11211),
+            60, queue, queue, queue, 0L, false));
+    op.writeComplete();
+
+    op.readFromBuffer(direct("VALUE a 1 3\r\nabc\r\nVALUE b 2 2\r"));
+    op.readFromBuffer(direct("\nxy\r\nEN"));
+    op.readFromBuffer(direct("D\r\n"));
+
+    assertEquals(Arrays.asList("a:1", "b:2"), keys);
+    assertArrayEquals("abc".getBytes(), values.get(0));
+    assertArrayEquals("xy".getBytes(), values.get(1));
+    assertEquals(1, statuses.size());
+    assertTrue(statuses.get(0).isSuccess());
+    assertEquals("END", statuses.get(0).getMessage());
+  }
+}
@@ -203,6 +203,11 @@ class BaseOpTest {
       return currentBytes;
     }
 
+    @Override
+    void handleLine(AsciiLine line) {
+      handleLine(line.toString());
+    }
+
     @Override
     public void handleLine(String line) {
       assert getReadType() == OperationReadType.LINE;
@@ -15,4 +15,12 @@ public abstract class ExtensibleOperationImpl extends OperationImpl {
     super(cb);
   }
 
+  @Override
+  final void handleLine(AsciiLine line) {
+    handleLine(line.toString());
+  }
+
+  @Override
+  public abstract void handleLine(String line);
+
 }
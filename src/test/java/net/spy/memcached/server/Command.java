@@ -0,0 +1,247 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.server;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ASCII command read from a connection: the tokens of its command line
+ * and the data block following it, if the command has one.
+ */
+final class Command {
+
+  static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  private final String[] tokens;
+  private final byte[] data;
+
+  private Command(String[] tokens, byte[] data) {
+    this.tokens = tokens;
+    this.data = data;
+  }
+
+  /**
+   * Reads a command from the buffer.
+   *
+   * @return the command, or null if the buffer doesn't hold all of it yet,
+   * in which case nothing is consumed.
+   * @throws IllegalArgumentException if the command line is too long or the data
+   *                                  block isn't terminated by CRLF.
+   */
+  static Command read(ByteBuffer in) {
+    int start = in.position();
+    int eol = -1;
+    for (int i = start; i < in.limit() - 1; i++) {
+      if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+        eol = i;
+        break;
+      }
+    }
+    if (eol < 0) {
+      if (in.remaining() > MAX_LINE_LENGTH) {
+        throw new IllegalArgumentException("line too long");
+      }
+      return null;
+    }
+
+    byte[] line = new byte[eol - start];
+    in.get(line);
+    String[] tokens = tokenize(new String(line, StandardCharsets.UTF_8));
+    int length = dataLength(tokens);
+    if (length < 0) {
+      ((Buffer) in).position(eol + 2);
+      return new Command(tokens, null);
+    }
+    if (in.limit() - (eol + 2) < length + 2) {
+      ((Buffer) in).position(start);
+      return null;
+    }
+    ((Buffer) in).position(eol + 2);
+    byte[] data = new byte[length];
+    in.get(data);
+    if (in.get() != '\r' || in.get() != '\n') {
+      throw new IllegalArgumentException("bad data chunk");
+    }
+    return new Command(tokens, data);
+  }
+
+  static String[] tokenize(String line) {
+    List<String> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < line.length()) {
+      int next = line.indexOf(' ', i);
+      if (next < 0) {
+        next = line.length();
+      }
+      if (next > i) {
+        tokens.add(line.substring(i, next));
+      }
+      i = next + 1;
+    }
+    return tokens.toArray(new String[0]);
+  }
+
+  /**
+   * Length of the data block of the command, or -1 if it has none.
+   */
+  private static int dataLength(String[] t) {
+    if (t.length < 2) {
+      return -1;
+    }
+    switch (t[0]) {
+      case "set":
+      case "add":
+      case "replace":
+      case "append":
+      case "prepend":
+      case "cas":
+        return intAt(t, 4);
+      case "mget":
+      case "mgets":
+        return intAt(t, 1);
+      case "lop":
+        return "insert".equals(t[1]) ? intAt(t, 4) : -1;
+      case "sop":
+        switch (t[1]) {
+          case "insert":
+          case "delete":
+          case "exist":
+            return intAt(t, 3);
+          default:
+            return -1;
+        }
+      case "mop":
+        switch (t[1]) {
+          case "insert":
+          case "upsert":
+          case "update":
+            return intAt(t, 4);
+          case "get":
+          case "delete":
+            return intAt(t, 4) > 0 ? intAt(t, 3) : -1;
+          default:
+            return -1;
+        }
+      case "bop":
+        switch (t[1]) {
+          case "insert":
+          case "upsert":
+            return intAt(t, t.length > 4 && t[4].startsWith("0x") ? 5 : 4);
+          case "update":
+            return intAt(t, t.length - (isRequestMode(t[t.length - 1]) ? 2 : 1));
+          case "mget":
+          case "smget":
+            return intAt(t, 2);
+          default:
+            return -1;
+        }
+      default:
+        return -1;
+    }
+  }
+
+  private static int intAt(String[] t, int index) {
+    if (index < 0 || index >= t.length) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(t[index]);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  static boolean isRequestMode(String token) {
+    return "noreply".equals(token) || "pipe".equals(token) || "getrim".equals(token);
+  }
+
+  String[] getTokens() {
+    return tokens;
+  }
+
+  /**
+   * The data block, or null if the command has none.
+   */
+  byte[] getData() {
+    return data;
+  }
+
+  /**
+   * The command name, e.g. {@code get} or {@code bop insert}.
+   */
+  String name() {
+    if (tokens.length > 1 && tokens[0].length() == 3 && tokens[0].endsWith("op")) {
+      return tokens[0] + " " + tokens[1];
+    }
+    return tokens.length > 0 ? tokens[0] : "";
+  }
+
+  boolean isNoreply() {
+    return tokens.length > 0 && "noreply".equals(tokens[tokens.length - 1]);
+  }
+
+  boolean isPiped() {
+    return tokens.length > 0 && "pipe".equals(tokens[tokens.length - 1]);
+  }
+
+  /**
+   * Number of tokens without the trailing request mode.
+   */
+  int argCount() {
+    return tokens.length > 0 && isRequestMode(tokens[tokens.length - 1])
+        ? tokens.length - 1 : tokens.length;
+  }
+
+  /**
+   * The key of a single key command, or null.
+   */
+  String key() {
+    String name = name();
+    if (name.contains(" ")) {
+      if ("bop mget".equals(name) || "bop smget".equals(name)) {
+        return null;
+      }
+      return tokens.length > 2 ? tokens[2] : null;
+    }
+    switch (name) {
+      case "get":
+      case "gets":
+      case "mget":
+      case "mgets":
+      case "gat":
+      case "gats":
+      case "flush_all":
+      case "flush_prefix":
+      case "version":
+      case "stats":
+      case "quit":
+        return null;
+      default:
+        return tokens.length > 1 ? tokens[1] : null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.join(" ", tokens);
+  }
+}
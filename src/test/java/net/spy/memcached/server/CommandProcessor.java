@@ -0,0 +1,1686 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import net.spy.memcached.util.BTreeUtil;
+
+/**
+ * Executes the ASCII commands of an {@link EmbeddedArcusServer} against
+ * its in-memory items.
+ *
+ * <p>Only the server thread calls the processor, so nothing is synchronized.
+ * The responses follow the formats the client parses, not every detail of
+ * an Arcus server: there is no memory limit, and b+trees are never trimmed
+ * by their {@code maxbkeyrange}.</p>
+ */
+final class CommandProcessor {
+
+  static final String VERSION = "1.14.0";
+
+  static final long DEFAULT_MAXCOUNT = 4000;
+  static final long MAX_MAXCOUNT = 50000;
+
+  private static final int REALTIME_MAXDELTA = 60 * 60 * 24 * 30;
+  private static final String NON_NUMERIC =
+      "CLIENT_ERROR cannot increment or decrement non-numeric value";
+
+  private final EmbeddedArcusServer server;
+  private final Map<String, Item> items = new HashMap<>();
+  private long lastCas = 0;
+
+  CommandProcessor(EmbeddedArcusServer server) {
+    this.server = server;
+  }
+
+  /**
+   * Pipe state of a connection.
+   */
+  static final class Session {
+    private final List<String> pipeResponses = new ArrayList<>();
+    private final Map<String, String> pipeInjections = new HashMap<>();
+  }
+
+  /**
+   * Executes a command and writes its response, if it has one.
+   * The responses of piped commands are written with the last command of the pipe.
+   */
+  void process(Command cmd, Session session, Response out) {
+    boolean piped = cmd.isPiped();
+    int mark = out.size();
+    if (!piped && session.pipeResponses.isEmpty()) {
+      execute(cmd, session, false, out);
+      if (cmd.isNoreply()) {
+        out.truncate(mark);
+      }
+      return;
+    }
+
+    execute(cmd, session, true, out);
+    session.pipeResponses.add(out.lastLine());
+    out.truncate(mark);
+    if (!piped) {
+      out.line("RESPONSE " + session.pipeResponses.size());
+      for (String line : session.pipeResponses) {
+        out.line(line);
+      }
+      out.line("END");
+      session.pipeResponses.clear();
+      session.pipeInjections.clear();
+    }
+  }
+
+  void flush() {
+    items.clear();
+  }
+
+  private void execute(Command cmd, Session session, boolean piped, Response out) {
+    String[] t = cmd.getTokens();
+    if (t.length == 0) {
+      out.line("ERROR");
+      return;
+    }
+    String key = cmd.key();
+    if (key != null) {
+      String injected = injection(key, session, piped);
+      if (injected != null) {
+        out.line(injected);
+        return;
+      }
+    }
+    try {
+      dispatch(cmd, out);
+    } catch (RuntimeException e) {
+      // NumberFormatException, ArrayIndexOutOfBoundsException and such
+      out.line("CLIENT_ERROR bad command line format");
+    }
+  }
+
+  private String injection(String key, Session session, boolean piped) {
+    if (!piped) {
+      return server.pollInjection(key, false);
+    }
+    // all commands of a key in a pipe get the same response, as a server
+    // stops owning a key for the whole pipe, but the response has no owner.
+    if (!session.pipeInjections.containsKey(key)) {
+      String injected = server.pollInjection(key, false);
+      if (injected != null && injected.startsWith("NOT_MY_KEY")) {
+        String[] t = Command.tokenize(injected);
+        injected = t[0] + " " + t[1] + " " + t[2];
+      }
+      session.pipeInjections.put(key, injected);
+    }
+    return session.pipeInjections.get(key);
+  }
+
+  private void dispatch(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    switch (cmd.name()) {
+      case "get":
+      case "gets":
+        get(Arrays.asList(t).subList(1, t.length), "gets".equals(t[0]), null, out);
+        break;
+      case "gat":
+      case "gats":
+        get(Arrays.asList(t).subList(2, t.length), "gats".equals(t[0]),
+            Integer.parseInt(t[1]), out);
+        break;
+      case "mget":
+      case "mgets":
+        get(keys(cmd.getData(), Integer.parseInt(t[2])), "mgets".equals(t[0]), null, out);
+        break;
+      case "set":
+      case "add":
+      case "replace":
+      case "append":
+      case "prepend":
+      case "cas":
+        store(cmd, out);
+        break;
+      case "incr":
+      case "decr":
+        mutate(cmd, out);
+        break;
+      case "delete":
+        out.line(remove(t[1]) ? "DELETED" : "NOT_FOUND");
+        break;
+      case "touch":
+        touch(t, out);
+        break;
+      case "flush_all":
+        items.clear();
+        out.line("OK");
+        break;
+      case "flush_prefix":
+        out.line(flushPrefix(t[1]) ? "OK" : "NOT_FOUND");
+        break;
+      case "getattr":
+        getAttr(cmd, out);
+        break;
+      case "setattr":
+        setAttr(cmd, out);
+        break;
+      case "version":
+        out.line("VERSION " + VERSION);
+        break;
+      case "stats":
+        out.line("END");
+        break;
+      case "lop create":
+      case "sop create":
+      case "mop create":
+      case "bop create":
+        create(cmd, out);
+        break;
+      case "lop insert":
+        lopInsert(cmd, out);
+        break;
+      case "lop delete":
+        lopDelete(cmd, out);
+        break;
+      case "lop get":
+        lopGet(cmd, out);
+        break;
+      case "sop insert":
+        sopInsert(cmd, out);
+        break;
+      case "sop delete":
+        sopDelete(cmd, out);
+        break;
+      case "sop exist":
+        sopExist(cmd, out);
+        break;
+      case "sop get":
+        sopGet(cmd, out);
+        break;
+      case "mop insert":
+      case "mop upsert":
+        mopInsert(cmd, out);
+        break;
+      case "mop update":
+        mopUpdate(cmd, out);
+        break;
+      case "mop delete":
+        mopDelete(cmd, out);
+        break;
+      case "mop get":
+        mopGet(cmd, out);
+        break;
+      case "bop insert":
+      case "bop upsert":
+        bopInsert(cmd, out);
+        break;
+      case "bop update":
+        bopUpdate(cmd, out);
+        break;
+      case "bop delete":
+        bopDelete(cmd, out);
+        break;
+      case "bop get":
+        bopGet(cmd, out);
+        break;
+      case "bop count":
+        bopCount(cmd, out);
+        break;
+      case "bop incr":
+      case "bop decr":
+        bopMutate(cmd, out);
+        break;
+      case "bop position":
+        bopPosition(cmd, out);
+        break;
+      case "bop gbp":
+        bopGetByPosition(cmd, out);
+        break;
+      case "bop pwg":
+        bopPositionWithGet(cmd, out);
+        break;
+      case "bop mget":
+        bopMget(cmd, out);
+        break;
+      case "bop smget":
+        bopSmget(cmd, out);
+        break;
+      default:
+        out.line("ERROR unknown command");
+    }
+  }
+
+  /* items */
+
+  private Item item(String key) {
+    Item item = items.get(key);
+    if (item != null && item.isExpired()) {
+      items.remove(key);
+      return null;
+    }
+    return item;
+  }
+
+  private void put(String key, Item item) {
+    item.cas = ++lastCas;
+    items.put(key, item);
+  }
+
+  private boolean remove(String key) {
+    return item(key) != null && items.remove(key) != null;
+  }
+
+  /**
+   * Removes the items of a prefix, the part of a key before the first ':'.
+   * {@code "<null>"} is the prefix of the keys that have none.
+   */
+  private boolean flushPrefix(String prefix) {
+    boolean found = false;
+    Iterator<String> keys = items.keySet().iterator();
+    while (keys.hasNext()) {
+      String key = keys.next();
+      int sep = key.indexOf(':');
+      if ((sep < 0 ? "<null>" : key.substring(0, sep)).equals(prefix)) {
+        keys.remove();
+        found = true;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Looks up a collection, writing the error response if it's missing or
+   * of another type.
+   */
+  private Item collection(String key, Type type, boolean read, Response out) {
+    Item item = item(key);
+    if (item == null) {
+      out.line("NOT_FOUND");
+      return null;
+    }
+    if (item.type != type) {
+      out.line("TYPE_MISMATCH");
+      return null;
+    }
+    if (read && !item.readable) {
+      out.line("UNREADABLE");
+      return null;
+    }
+    return item;
+  }
+
+  private static List<String> keys(byte[] data, int count) {
+    String s = new String(data, StandardCharsets.UTF_8);
+    String[] keys = Command.tokenize(s);
+    if (keys.length < count) {
+      keys = s.split(",");
+    }
+    return Arrays.asList(keys);
+  }
+
+  /* key-value commands */
+
+  private void get(List<String> keys, boolean withCas, Integer exptime, Response out) {
+    Map<String, List<String>> redirects = new LinkedHashMap<>();
+    for (String key : keys) {
+      String notMyKey = server.pollInjection(key, true);
+      if (notMyKey != null) {
+        redirects.computeIfAbsent(notMyKey, k -> new ArrayList<>()).add(key);
+        continue;
+      }
+      Item item = item(key);
+      if (item == null || item.type != Type.KV) {
+        continue;
+      }
+      if (exptime != null) {
+        item.setExptime(exptime);
+      }
+      out.data("VALUE " + key + " " + item.flags + " " + item.value.length
+          + (withCas ? " " + item.cas : "") + "\r\n", item.value);
+    }
+    for (Map.Entry<String, List<String>> entry : redirects.entrySet()) {
+      out.line(entry.getKey());
+      for (String key : entry.getValue()) {
+        out.line(key);
+      }
+    }
+    out.line("END");
+  }
+
+  private void store(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    String key = t[1];
+    Item item = Item.kv(Integer.parseInt(t[2]), Integer.parseInt(t[3]), cmd.getData());
+    Item old = item(key);
+    switch (t[0]) {
+      case "add":
+        if (old != null) {
+          out.line("NOT_STORED");
+          return;
+        }
+        break;
+      case "replace":
+        if (old == null) {
+          out.line("NOT_STORED");
+          return;
+        }
+        break;
+      case "append":
+      case "prepend":
+        if (old == null) {
+          out.line("NOT_STORED");
+          return;
+        }
+        if (old.type != Type.KV) {
+          out.line("TYPE_MISMATCH");
+          return;
+        }
+        byte[] first = "append".equals(t[0]) ? old.value : cmd.getData();
+        byte[] second = "append".equals(t[0]) ? cmd.getData() : old.value;
+        old.value = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, old.value, first.length, second.length);
+        old.cas = ++lastCas;
+        out.line("STORED");
+        return;
+      case "cas":
+        if (old == null) {
+          out.line("NOT_FOUND");
+          return;
+        }
+        if (old.cas != Long.parseLong(t[5])) {
+          out.line("EXISTS");
+          return;
+        }
+        break;
+      default:
+        break;
+    }
+    put(key, item);
+    out.line("STORED");
+  }
+
+  private void mutate(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    long delta = Long.parseUnsignedLong(t[2]);
+    Item item = item(t[1]);
+    if (item == null) {
+      if (cmd.argCount() >= 6) {
+        long initial = Long.parseUnsignedLong(t[5]);
+        put(t[1], Item.kv(Integer.parseInt(t[3]), Integer.parseInt(t[4]),
+            Long.toUnsignedString(initial).getBytes(StandardCharsets.US_ASCII)));
+        out.line(Long.toUnsignedString(initial));
+      } else {
+        out.line("NOT_FOUND");
+      }
+      return;
+    }
+    if (item.type != Type.KV) {
+      out.line("TYPE_MISMATCH");
+      return;
+    }
+    byte[] value = mutate(item.value, "incr".equals(t[0]), delta);
+    if (value == null) {
+      out.line(NON_NUMERIC);
+      return;
+    }
+    item.value = value;
+    item.cas = ++lastCas;
+    out.line(new String(value, StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Adds to or subtracts from a decimal value, returning null if it isn't a number.
+   * A decrement stops at 0 and an increment wraps around as unsigned 64-bit.
+   */
+  private static byte[] mutate(byte[] value, boolean incr, long delta) {
+    long current;
+    try {
+      current = Long.parseUnsignedLong(new String(value, StandardCharsets.US_ASCII).trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    long result;
+    if (incr) {
+      result = current + delta;
+    } else {
+      result = Long.compareUnsigned(current, delta) < 0 ? 0 : current - delta;
+    }
+    return Long.toUnsignedString(result).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private void touch(String[] t, Response out) {
+    Item item = item(t[1]);
+    if (item == null) {
+      out.line("NOT_FOUND");
+      return;
+    }
+    item.setExptime(Integer.parseInt(t[2]));
+    out.line("TOUCHED");
+  }
+
+  private void getAttr(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = item(t[1]);
+    if (item == null) {
+      out.line("NOT_FOUND");
+      return;
+    }
+    List<String> names = t.length > 2
+        ? Arrays.asList(t).subList(2, t.length) : item.attributeNames();
+    int mark = out.size();
+    for (String name : names) {
+      String value = item.attribute(name);
+      if (value == null) {
+        out.truncate(mark);
+        out.line("ATTR_ERROR not found");
+        return;
+      }
+      out.line("ATTR " + name + "=" + value);
+    }
+    out.line("END");
+  }
+
+  private void setAttr(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = item(t[1]);
+    if (item == null) {
+      out.line("NOT_FOUND");
+      return;
+    }
+    for (int i = 2; i < cmd.argCount(); i++) {
+      String[] attr = t[i].split("=", 2);
+      if (attr.length != 2) {
+        out.line("ATTR_ERROR bad value");
+        return;
+      }
+      switch (attr[0]) {
+        case "expiretime":
+          item.setExptime(Integer.parseInt(attr[1]));
+          break;
+        case "maxcount":
+          item.maxCount = maxCount(Long.parseLong(attr[1]));
+          break;
+        case "overflowaction":
+          item.overflowAction = attr[1];
+          break;
+        case "readable":
+          item.readable = "on".equals(attr[1]);
+          break;
+        default:
+          out.line("ATTR_ERROR not found");
+          return;
+      }
+    }
+    out.line("OK");
+  }
+
+  /* collection commands */
+
+  private void create(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    if (item(t[2]) != null) {
+      out.line("EXISTS");
+      return;
+    }
+    put(t[2], newCollection(Type.of(t[0]), t, 3, cmd.argCount()));
+    out.line("CREATED");
+  }
+
+  /**
+   * Creates a collection from {@code <flags> <exptime> <maxcount> [<ovflaction>]
+   * [unreadable]} in tokens {@code from} to {@code to}.
+   */
+  private static Item newCollection(Type type, String[] t, int from, int to) {
+    Item item = new Item(type, Integer.parseInt(t[from]), Integer.parseInt(t[from + 1]));
+    item.maxCount = maxCount(Long.parseLong(t[from + 2]));
+    item.overflowAction = type == Type.LIST ? "tail_trim"
+        : type == Type.BTREE ? "smallest_trim" : "error";
+    for (int i = from + 3; i < to; i++) {
+      if ("unreadable".equals(t[i])) {
+        item.readable = false;
+      } else {
+        item.overflowAction = t[i];
+      }
+    }
+    return item;
+  }
+
+  private static long maxCount(long maxCount) {
+    if (maxCount == 0) {
+      return DEFAULT_MAXCOUNT;
+    }
+    return maxCount < 0 || maxCount > MAX_MAXCOUNT ? MAX_MAXCOUNT : maxCount;
+  }
+
+  /**
+   * Looks up the collection to insert to, creating a new one that isn't stored yet
+   * if it's missing and the command has a create clause at {@code createAt}.
+   */
+  private Item insertTarget(Command cmd, Type type, int createAt, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = item(t[2]);
+    if (item == null) {
+      if (createAt < cmd.argCount() && "create".equals(t[createAt])) {
+        return newCollection(type, t, createAt + 1, cmd.argCount());
+      }
+      out.line("NOT_FOUND");
+      return null;
+    }
+    if (item.type != type) {
+      out.line("TYPE_MISMATCH");
+      return null;
+    }
+    return item;
+  }
+
+  /**
+   * Stores a collection created by an insert and writes the insert response.
+   */
+  private void inserted(String key, Item item, String status, Response out) {
+    if (item(key) != item) {
+      put(key, item);
+      out.line("CREATED_STORED");
+    } else {
+      out.line(status);
+    }
+  }
+
+  private void deleted(String key, Item item, boolean drop, Response out) {
+    if (drop && item.count() == 0) {
+      items.remove(key);
+      out.line("DELETED_DROPPED");
+    } else {
+      out.line("DELETED");
+    }
+  }
+
+  /* list */
+
+  private void lopInsert(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = insertTarget(cmd, Type.LIST, 5, out);
+    if (item == null) {
+      return;
+    }
+    List<byte[]> list = item.list;
+    int index = Integer.parseInt(t[3]);
+    int pos = index < 0 ? list.size() + index + 1 : index;
+    if (pos < 0 || pos > list.size()) {
+      out.line("OUT_OF_RANGE");
+      return;
+    }
+    if (list.size() >= item.maxCount) {
+      if ("head_trim".equals(item.overflowAction) && pos > 0) {
+        list.remove(0);
+        pos--;
+      } else if ("tail_trim".equals(item.overflowAction) && pos < list.size()) {
+        list.remove(list.size() - 1);
+      } else {
+        out.line("OVERFLOWED");
+        return;
+      }
+    }
+    list.add(pos, cmd.getData());
+    inserted(t[2], item, "STORED", out);
+  }
+
+  /**
+   * Indexes of a list range, in the order its elements are returned.
+   */
+  private static List<Integer> listRange(String range, int size) {
+    String[] bounds = range.split("\\.\\.");
+    int from = Integer.parseInt(bounds[0]);
+    int to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : from;
+    from = from < 0 ? from + size : from;
+    to = to < 0 ? to + size : to;
+    int lo = Math.max(Math.min(from, to), 0);
+    int hi = Math.min(Math.max(from, to), size - 1);
+    List<Integer> indexes = new ArrayList<>();
+    for (int i = lo; i <= hi; i++) {
+      indexes.add(i);
+    }
+    if (from > to) {
+      Collections.reverse(indexes);
+    }
+    return indexes;
+  }
+
+  private static void removeIndexes(List<byte[]> list, List<Integer> indexes) {
+    List<Integer> sorted = new ArrayList<>(indexes);
+    Collections.sort(sorted, Collections.reverseOrder());
+    for (int i : sorted) {
+      list.remove(i);
+    }
+  }
+
+  private void lopDelete(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.LIST, false, out);
+    if (item == null) {
+      return;
+    }
+    List<Integer> indexes = listRange(t[3], item.list.size());
+    if (indexes.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    removeIndexes(item.list, indexes);
+    deleted(t[2], item, cmd.argCount() > 4 && "drop".equals(t[4]), out);
+  }
+
+  private void lopGet(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.LIST, true, out);
+    if (item == null) {
+      return;
+    }
+    List<Integer> indexes = listRange(t[3], item.list.size());
+    if (indexes.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    out.line("VALUE " + item.flags + " " + indexes.size());
+    for (int i : indexes) {
+      byte[] value = item.list.get(i);
+      out.data(value.length + " ", value);
+    }
+    String mode = cmd.argCount() > 4 ? t[4] : null;
+    if (mode == null) {
+      out.line("END");
+    } else {
+      removeIndexes(item.list, indexes);
+      deleted(t[2], item, "drop".equals(mode), out);
+    }
+  }
+
+  /* set */
+
+  private void sopInsert(Command cmd, Response out) {
+    Item item = insertTarget(cmd, Type.SET, 4, out);
+    if (item == null) {
+      return;
+    }
+    ByteBuffer value = ByteBuffer.wrap(cmd.getData());
+    if (item.set.contains(value)) {
+      out.line("ELEMENT_EXISTS");
+    } else if (item.set.size() >= item.maxCount) {
+      out.line("OVERFLOWED");
+    } else {
+      item.set.add(value);
+      inserted(cmd.getTokens()[2], item, "STORED", out);
+    }
+  }
+
+  private void sopDelete(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.SET, false, out);
+    if (item == null) {
+      return;
+    }
+    if (!item.set.remove(ByteBuffer.wrap(cmd.getData()))) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    deleted(t[2], item, cmd.argCount() > 4 && "drop".equals(t[4]), out);
+  }
+
+  private void sopExist(Command cmd, Response out) {
+    Item item = collection(cmd.getTokens()[2], Type.SET, true, out);
+    if (item != null) {
+      out.line(item.set.contains(ByteBuffer.wrap(cmd.getData())) ? "EXIST" : "NOT_EXIST");
+    }
+  }
+
+  private void sopGet(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.SET, true, out);
+    if (item == null) {
+      return;
+    }
+    int count = Integer.parseInt(t[3]);
+    if (item.set.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    List<ByteBuffer> values = new ArrayList<>();
+    for (ByteBuffer value : item.set) {
+      if (count > 0 && values.size() == count) {
+        break;
+      }
+      values.add(value);
+    }
+    out.line("VALUE " + item.flags + " " + values.size());
+    for (ByteBuffer value : values) {
+      out.data(value.remaining() + " ", value.array());
+    }
+    String mode = cmd.argCount() > 4 ? t[4] : null;
+    if (mode == null) {
+      out.line("END");
+    } else {
+      item.set.removeAll(values);
+      deleted(t[2], item, "drop".equals(mode), out);
+    }
+  }
+
+  /* map */
+
+  private void mopInsert(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = insertTarget(cmd, Type.MAP, 5, out);
+    if (item == null) {
+      return;
+    }
+    boolean exists = item.map.containsKey(t[3]);
+    if (exists && "insert".equals(t[1])) {
+      out.line("ELEMENT_EXISTS");
+    } else if (!exists && item.map.size() >= item.maxCount) {
+      out.line("OVERFLOWED");
+    } else {
+      item.map.put(t[3], cmd.getData());
+      inserted(t[2], item, exists ? "REPLACED" : "STORED", out);
+    }
+  }
+
+  private void mopUpdate(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.MAP, false, out);
+    if (item == null) {
+      return;
+    }
+    if (item.map.containsKey(t[3])) {
+      item.map.put(t[3], cmd.getData());
+      out.line("UPDATED");
+    } else {
+      out.line("NOT_FOUND_ELEMENT");
+    }
+  }
+
+  /**
+   * Fields of a map command, or all fields of the map if the command has none.
+   */
+  private static List<String> fields(Command cmd, Item item) {
+    int count = Integer.parseInt(cmd.getTokens()[4]);
+    if (count == 0) {
+      return new ArrayList<>(item.map.keySet());
+    }
+    List<String> fields = new ArrayList<>();
+    for (String field : keys(cmd.getData(), count)) {
+      if (item.map.containsKey(field)) {
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  private void mopDelete(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.MAP, false, out);
+    if (item == null) {
+      return;
+    }
+    List<String> fields = fields(cmd, item);
+    if (fields.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    item.map.keySet().removeAll(fields);
+    deleted(t[2], item, cmd.argCount() > 5 && "drop".equals(t[5]), out);
+  }
+
+  private void mopGet(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.MAP, true, out);
+    if (item == null) {
+      return;
+    }
+    List<String> fields = fields(cmd, item);
+    if (fields.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    out.line("VALUE " + item.flags + " " + fields.size());
+    for (String field : fields) {
+      byte[] value = item.map.get(field);
+      out.data(field + " " + value.length + " ", value);
+    }
+    String mode = cmd.argCount() > 5 ? t[5] : null;
+    if (mode == null) {
+      out.line("END");
+    } else {
+      item.map.keySet().removeAll(fields);
+      deleted(t[2], item, "drop".equals(mode), out);
+    }
+  }
+
+  /* b+tree */
+
+  private static boolean bkeyMismatch(Item item, BKey bkey) {
+    Boolean bytes = item.hasByteBkeys();
+    return bytes != null && bytes != bkey.isBytes();
+  }
+
+  private static String header(Element e) {
+    return e.bkey + (e.eflag != null ? " " + BTreeUtil.toHex(e.eflag) : "")
+        + " " + e.value.length + " ";
+  }
+
+  private void bopInsert(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    boolean hasEflag = t[4].startsWith("0x");
+    Item item = insertTarget(cmd, Type.BTREE, hasEflag ? 6 : 5, out);
+    if (item == null) {
+      return;
+    }
+    BKey bkey = BKey.parse(t[3]);
+    if (bkeyMismatch(item, bkey)) {
+      out.line("BKEY_MISMATCH");
+      return;
+    }
+    Element element = new Element(bkey,
+        hasEflag ? BTreeUtil.hexStringToByteArrays(t[4]) : null, cmd.getData());
+    TreeMap<BKey, Element> btree = item.btree;
+    if (btree.containsKey(bkey)) {
+      if ("insert".equals(t[1])) {
+        out.line("ELEMENT_EXISTS");
+      } else {
+        btree.put(bkey, element);
+        out.line("REPLACED");
+      }
+      return;
+    }
+
+    Element trimmed = null;
+    if (btree.size() >= item.maxCount) {
+      String action = item.overflowAction;
+      if (action.startsWith("smallest")) {
+        if (bkey.compareTo(btree.firstKey()) < 0) {
+          out.line("OUT_OF_RANGE");
+          return;
+        }
+        trimmed = btree.pollFirstEntry().getValue();
+      } else if (action.startsWith("largest")) {
+        if (bkey.compareTo(btree.lastKey()) > 0) {
+          out.line("OUT_OF_RANGE");
+          return;
+        }
+        trimmed = btree.pollLastEntry().getValue();
+      } else {
+        out.line("OVERFLOWED");
+        return;
+      }
+    }
+    btree.put(bkey, element);
+    if (trimmed != null && "getrim".equals(t[t.length - 1])) {
+      out.line("VALUE " + item.flags + " 1");
+      out.data(header(trimmed), trimmed.value);
+      out.line("TRIMMED");
+      return;
+    }
+    inserted(t[2], item, "STORED", out);
+  }
+
+  private void bopUpdate(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, false, out);
+    if (item == null) {
+      return;
+    }
+    BKey bkey = BKey.parse(t[3]);
+    if (bkeyMismatch(item, bkey)) {
+      out.line("BKEY_MISMATCH");
+      return;
+    }
+    Element element = item.btree.get(bkey);
+    if (element == null) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    // bop update <key> <bkey> [[<fwhere> <bitwop>] <fvalue>] <bytes>
+    int bytesAt = cmd.argCount() - 1;
+    if (bytesAt == 4 && cmd.getData() == null) {
+      out.line("NOTHING_TO_UPDATE");
+      return;
+    }
+    if (bytesAt == 5) {
+      element.eflag = "0".equals(t[4]) ? null : BTreeUtil.hexStringToByteArrays(t[4]);
+    } else if (bytesAt == 7) {
+      int offset = Integer.parseInt(t[4]);
+      byte[] operand = BTreeUtil.hexStringToByteArrays(t[6]);
+      if (element.eflag == null || element.eflag.length < offset + operand.length) {
+        out.line("EFLAG_MISMATCH");
+        return;
+      }
+      for (int i = 0; i < operand.length; i++) {
+        element.eflag[offset + i] = bitwise(t[5], element.eflag[offset + i], operand[i]);
+      }
+    }
+    if (cmd.getData() != null) {
+      element.value = cmd.getData();
+    }
+    out.line("UPDATED");
+  }
+
+  private static byte bitwise(String op, byte a, byte b) {
+    switch (op) {
+      case "&":
+        return (byte) (a & b);
+      case "|":
+        return (byte) (a | b);
+      case "^":
+        return (byte) (a ^ b);
+      default:
+        throw new IllegalArgumentException(op);
+    }
+  }
+
+  /**
+   * Selects the elements of a b+tree in a bkey range, in range order.
+   */
+  private static List<Element> select(Item item, Query query, int offset, int count) {
+    NavigableMap<BKey, Element> range;
+    if (query.from.compareTo(query.to) <= 0) {
+      range = item.btree.subMap(query.from, true, query.to, true);
+    } else {
+      range = item.btree.subMap(query.to, true, query.from, true).descendingMap();
+    }
+    List<Element> elements = new ArrayList<>();
+    int skip = offset;
+    for (Element e : range.values()) {
+      if (count > 0 && elements.size() == count) {
+        break;
+      }
+      if (query.filter != null && !query.filter.matches(e.eflag)) {
+        continue;
+      }
+      if (skip > 0) {
+        skip--;
+        continue;
+      }
+      elements.add(e);
+    }
+    return elements;
+  }
+
+  /**
+   * Checks the bkey type of a query, writing the error response if it's of
+   * another type than the b+tree.
+   */
+  private static boolean matchesBkey(Item item, Query query, Response out) {
+    if (bkeyMismatch(item, query.from)) {
+      out.line("BKEY_MISMATCH");
+      return false;
+    }
+    return true;
+  }
+
+  private void bopDelete(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, false, out);
+    if (item == null) {
+      return;
+    }
+    Query query = Query.parse(t, 3, cmd.argCount());
+    if (!matchesBkey(item, query, out)) {
+      return;
+    }
+    // the only number of a delete is its count.
+    List<Element> elements = select(item, query, 0, query.offset + query.count);
+    if (elements.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    for (Element e : elements) {
+      item.btree.remove(e.bkey);
+    }
+    deleted(t[2], item, "drop".equals(query.mode), out);
+  }
+
+  private void bopGet(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, true, out);
+    if (item == null) {
+      return;
+    }
+    Query query = Query.parse(t, 3, cmd.argCount());
+    if (!matchesBkey(item, query, out)) {
+      return;
+    }
+    List<Element> elements = select(item, query, query.offset, query.count);
+    if (elements.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    out.line("VALUE " + item.flags + " " + elements.size());
+    for (Element e : elements) {
+      out.data(header(e), e.value);
+    }
+    if (query.mode == null) {
+      out.line("END");
+    } else {
+      for (Element e : elements) {
+        item.btree.remove(e.bkey);
+      }
+      deleted(t[2], item, "drop".equals(query.mode), out);
+    }
+  }
+
+  private void bopCount(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, true, out);
+    if (item == null) {
+      return;
+    }
+    Query query = Query.parse(t, 3, cmd.argCount());
+    if (matchesBkey(item, query, out)) {
+      out.line("COUNT=" + select(item, query, 0, 0).size());
+    }
+  }
+
+  private void bopMutate(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, false, out);
+    if (item == null) {
+      return;
+    }
+    BKey bkey = BKey.parse(t[3]);
+    if (bkeyMismatch(item, bkey)) {
+      out.line("BKEY_MISMATCH");
+      return;
+    }
+    Element element = item.btree.get(bkey);
+    if (element == null) {
+      // bop incr <key> <bkey> <delta> [<initial> [<eflag>]]
+      if (cmd.argCount() < 6) {
+        out.line("NOT_FOUND_ELEMENT");
+      } else if (item.btree.size() >= item.maxCount) {
+        out.line("OVERFLOWED");
+      } else {
+        byte[] initial = Long.toUnsignedString(Long.parseUnsignedLong(t[5]))
+            .getBytes(StandardCharsets.US_ASCII);
+        byte[] eflag = cmd.argCount() > 6 ? BTreeUtil.hexStringToByteArrays(t[6]) : null;
+        item.btree.put(bkey, new Element(bkey, eflag, initial));
+        out.line(new String(initial, StandardCharsets.US_ASCII));
+      }
+      return;
+    }
+    byte[] value = mutate(element.value, "incr".equals(t[1]), Long.parseUnsignedLong(t[4]));
+    if (value == null) {
+      out.line(NON_NUMERIC);
+      return;
+    }
+    element.value = value;
+    out.line(new String(value, StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Elements of a b+tree in the order of {@code asc} or {@code desc}.
+   */
+  private static List<Element> ordered(Item item, String order) {
+    List<Element> elements = new ArrayList<>(item.btree.values());
+    if ("desc".equals(order)) {
+      Collections.reverse(elements);
+    }
+    return elements;
+  }
+
+  private static int position(Item item, BKey bkey, String order) {
+    if (!item.btree.containsKey(bkey)) {
+      return -1;
+    }
+    return "desc".equals(order)
+        ? item.btree.tailMap(bkey, false).size() : item.btree.headMap(bkey, false).size();
+  }
+
+  private void bopPosition(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, true, out);
+    if (item == null) {
+      return;
+    }
+    BKey bkey = BKey.parse(t[3]);
+    if (bkeyMismatch(item, bkey)) {
+      out.line("BKEY_MISMATCH");
+      return;
+    }
+    int position = position(item, bkey, t[4]);
+    out.line(position < 0 ? "NOT_FOUND_ELEMENT" : "POSITION=" + position);
+  }
+
+  private void bopGetByPosition(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, true, out);
+    if (item == null) {
+      return;
+    }
+    List<Element> elements = ordered(item, t[3]);
+    String[] bounds = t[4].split("\\.\\.");
+    int from = Integer.parseInt(bounds[0]);
+    int to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : from;
+    List<Element> selected = new ArrayList<>();
+    for (int i = Math.min(from, to); i <= Math.max(from, to) && i < elements.size(); i++) {
+      selected.add(elements.get(i));
+    }
+    if (selected.isEmpty()) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    if (from > to) {
+      Collections.reverse(selected);
+    }
+    out.line("VALUE " + item.flags + " " + selected.size());
+    for (Element e : selected) {
+      out.data(header(e), e.value);
+    }
+    out.line("END");
+  }
+
+  private void bopPositionWithGet(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    Item item = collection(t[2], Type.BTREE, true, out);
+    if (item == null) {
+      return;
+    }
+    BKey bkey = BKey.parse(t[3]);
+    if (bkeyMismatch(item, bkey)) {
+      out.line("BKEY_MISMATCH");
+      return;
+    }
+    int position = position(item, bkey, t[4]);
+    if (position < 0) {
+      out.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    // bop pwg <key> <bkey> <order> [<count>]
+    int count = cmd.argCount() > 5 ? Integer.parseInt(t[5]) : 0;
+    List<Element> elements = ordered(item, t[4]);
+    int from = Math.max(0, position - count);
+    int to = Math.min(elements.size() - 1, position + count);
+    out.line("VALUE " + position + " " + item.flags + " " + (to - from + 1)
+        + " " + (position - from));
+    for (Element e : elements.subList(from, to + 1)) {
+      out.data(header(e), e.value);
+    }
+    out.line("END");
+  }
+
+  private void bopMget(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    // bop mget <lenkeys> <numkeys> <range> [<filter>] [<offset>] <count>
+    Query query = Query.parse(t, 4, cmd.argCount());
+    for (String key : keys(cmd.getData(), Integer.parseInt(t[3]))) {
+      String notMyKey = server.pollInjection(key, true);
+      if (notMyKey != null) {
+        out.line("VALUE " + key + " " + notMyKey);
+        continue;
+      }
+      Item item = item(key);
+      String status = null;
+      List<Element> elements = null;
+      if (item == null) {
+        status = "NOT_FOUND";
+      } else if (item.type != Type.BTREE) {
+        status = "TYPE_MISMATCH";
+      } else if (!item.readable) {
+        status = "UNREADABLE";
+      } else if (bkeyMismatch(item, query.from)) {
+        status = "BKEY_MISMATCH";
+      } else {
+        elements = select(item, query, query.offset, query.count);
+        if (elements.isEmpty()) {
+          status = "NOT_FOUND_ELEMENT";
+        }
+      }
+      if (status != null) {
+        out.line("VALUE " + key + " " + status);
+        continue;
+      }
+      out.line("VALUE " + key + " OK " + item.flags + " " + elements.size());
+      for (Element e : elements) {
+        out.data("ELEMENT " + header(e), e.value);
+      }
+    }
+    out.line("END");
+  }
+
+  private void bopSmget(Command cmd, Response out) {
+    String[] t = cmd.getTokens();
+    // bop smget <lenkeys> <numkeys> <range> [<filter>] <count> <smgmode>
+    Query query = Query.parse(t, 4, cmd.argCount());
+    List<String> missed = new ArrayList<>();
+    List<Object[]> merged = new ArrayList<>();
+    Boolean bytes = null;
+    for (String key : keys(cmd.getData(), Integer.parseInt(t[3]))) {
+      String notMyKey = server.pollInjection(key, true);
+      if (notMyKey != null) {
+        missed.add(key + " " + notMyKey);
+        continue;
+      }
+      Item item = item(key);
+      if (item == null) {
+        missed.add(key + " NOT_FOUND");
+        continue;
+      }
+      if (item.type != Type.BTREE) {
+        out.line("TYPE_MISMATCH");
+        return;
+      }
+      if (!item.readable) {
+        missed.add(key + " UNREADABLE");
+        continue;
+      }
+      Boolean itemBytes = item.hasByteBkeys();
+      if (itemBytes == null) {
+        continue;
+      }
+      if ((bytes != null && !bytes.equals(itemBytes)) || bkeyMismatch(item, query.from)) {
+        out.line("BKEY_MISMATCH");
+        return;
+      }
+      bytes = itemBytes;
+      for (Element e : select(item, query, 0, query.offset + query.count)) {
+        merged.add(new Object[]{key, item.flags, e});
+      }
+    }
+
+    final boolean desc = query.from.compareTo(query.to) > 0;
+    Collections.sort(merged, new Comparator<Object[]>() {
+      @Override
+      public int compare(Object[] a, Object[] b) {
+        int c = ((Element) a[2]).bkey.compareTo(((Element) b[2]).bkey);
+        if (c != 0) {
+          return desc ? -c : c;
+        }
+        return ((String) a[0]).compareTo((String) b[0]);
+      }
+    });
+    boolean duplicated = false;
+    List<Object[]> selected = new ArrayList<>();
+    BKey last = null;
+    for (Object[] entry : merged) {
+      BKey bkey = ((Element) entry[2]).bkey;
+      if (bkey.equals(last)) {
+        duplicated = true;
+        if ("unique".equals(query.mode)) {
+          continue;
+        }
+      }
+      last = bkey;
+      selected.add(entry);
+    }
+    selected = selected.subList(Math.min(query.offset, selected.size()),
+        Math.min(query.offset + query.count, selected.size()));
+
+    out.line("ELEMENTS " + selected.size());
+    for (Object[] entry : selected) {
+      Element e = (Element) entry[2];
+      out.data(entry[0] + " " + entry[1] + " " + header(e), e.value);
+    }
+    out.line("MISSED_KEYS " + missed.size());
+    for (String line : missed) {
+      out.line(line);
+    }
+    out.line("TRIMMED_KEYS 0");
+    out.line(duplicated && !"unique".equals(query.mode) ? "DUPLICATED" : "END");
+  }
+
+  /* data */
+
+  enum Type {
+    KV("kv"), LIST("list"), SET("set"), MAP("map"), BTREE("b+tree");
+
+    private final String name;
+
+    Type(String name) {
+      this.name = name;
+    }
+
+    static Type of(String op) {
+      switch (op) {
+        case "lop":
+          return LIST;
+        case "sop":
+          return SET;
+        case "mop":
+          return MAP;
+        case "bop":
+          return BTREE;
+        default:
+          throw new IllegalArgumentException(op);
+      }
+    }
+  }
+
+  private static final class Item {
+    private final Type type;
+    private final int flags;
+    private long cas;
+    private byte[] value;
+
+    private long maxCount;
+    private String overflowAction;
+    private boolean readable = true;
+    private final List<byte[]> list;
+    private final LinkedHashSet<ByteBuffer> set;
+    private final LinkedHashMap<String, byte[]> map;
+    private final TreeMap<BKey, Element> btree;
+
+    private int exptime;
+    private long expireAt;
+
+    private Item(Type type, int flags, int exptime) {
+      this.type = type;
+      this.flags = flags;
+      this.list = type == Type.LIST ? new ArrayList<byte[]>() : null;
+      this.set = type == Type.SET ? new LinkedHashSet<ByteBuffer>() : null;
+      this.map = type == Type.MAP ? new LinkedHashMap<String, byte[]>() : null;
+      this.btree = type == Type.BTREE ? new TreeMap<BKey, Element>() : null;
+      setExptime(exptime);
+    }
+
+    private static Item kv(int flags, int exptime, byte[] value) {
+      Item item = new Item(Type.KV, flags, exptime);
+      item.value = value;
+      return item;
+    }
+
+    /**
+     * Sets the expiration as memcached does: 0 never expires, -1 is sticky,
+     * more than 30 days is a unix time and anything else is relative.
+     */
+    private void setExptime(int exptime) {
+      this.exptime = exptime;
+      if (exptime <= 0) {
+        expireAt = 0;
+      } else if (exptime > REALTIME_MAXDELTA) {
+        expireAt = exptime * 1000L;
+      } else {
+        expireAt = System.currentTimeMillis() + exptime * 1000L;
+      }
+    }
+
+    private boolean isExpired() {
+      return expireAt != 0 && expireAt <= System.currentTimeMillis();
+    }
+
+    private int count() {
+      switch (type) {
+        case LIST:
+          return list.size();
+        case SET:
+          return set.size();
+        case MAP:
+          return map.size();
+        case BTREE:
+          return btree.size();
+        default:
+          return 0;
+      }
+    }
+
+    /**
+     * Whether the bkeys of a b+tree are byte arrays, null if it has no element.
+     */
+    private Boolean hasByteBkeys() {
+      return btree.isEmpty() ? null : btree.firstKey().isBytes();
+    }
+
+    private List<String> attributeNames() {
+      List<String> names = new ArrayList<>(Arrays.asList("flags", "expiretime", "type"));
+      if (type != Type.KV) {
+        names.addAll(Arrays.asList("count", "maxcount", "overflowaction", "readable"));
+      }
+      if (type == Type.BTREE) {
+        names.addAll(Arrays.asList("maxbkeyrange", "minbkey", "maxbkey", "trimmed"));
+      }
+      return names;
+    }
+
+    private String attribute(String name) {
+      switch (name) {
+        case "flags":
+          return String.valueOf(flags);
+        case "expiretime":
+          if (expireAt == 0) {
+            return exptime < 0 ? "-1" : "0";
+          }
+          return String.valueOf(Math.max(1, (expireAt - System.currentTimeMillis()) / 1000));
+        case "type":
+          return type.name;
+        default:
+          break;
+      }
+      if (type == Type.KV) {
+        return null;
+      }
+      switch (name) {
+        case "count":
+          return String.valueOf(count());
+        case "maxcount":
+          return String.valueOf(maxCount);
+        case "overflowaction":
+          return overflowAction;
+        case "readable":
+          return readable ? "on" : "off";
+        default:
+          break;
+      }
+      if (type != Type.BTREE) {
+        return null;
+      }
+      switch (name) {
+        case "maxbkeyrange":
+        case "trimmed":
+          return "0";
+        case "minbkey":
+          return btree.isEmpty() ? "-1" : btree.firstKey().toString();
+        case "maxbkey":
+          return btree.isEmpty() ? "-1" : btree.lastKey().toString();
+        default:
+          return null;
+      }
+    }
+  }
+
+  /**
+   * A b+tree element key, an unsigned long or a byte array.
+   */
+  private static final class BKey implements Comparable<BKey> {
+    private final long longKey;
+    private final byte[] bytes;
+
+    private BKey(long longKey, byte[] bytes) {
+      this.longKey = longKey;
+      this.bytes = bytes;
+    }
+
+    private static BKey parse(String s) {
+      if (s.startsWith("0x")) {
+        return new BKey(0, BTreeUtil.hexStringToByteArrays(s));
+      }
+      return new BKey(Long.parseUnsignedLong(s), null);
+    }
+
+    private boolean isBytes() {
+      return bytes != null;
+    }
+
+    @Override
+    public int compareTo(BKey o) {
+      if (bytes != null && o.bytes != null) {
+        return BTreeUtil.compareByteArraysInLexOrder(bytes, o.bytes);
+      }
+      if (bytes == null && o.bytes == null) {
+        return Long.compareUnsigned(longKey, o.longKey);
+      }
+      return bytes == null ? -1 : 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof BKey && compareTo((BKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return bytes != null ? Arrays.hashCode(bytes) : Long.hashCode(longKey);
+    }
+
+    @Override
+    public String toString() {
+      return bytes != null ? BTreeUtil.toHex(bytes) : Long.toUnsignedString(longKey);
+    }
+  }
+
+  private static final class Element {
+    private final BKey bkey;
+    private byte[] eflag;
+    private byte[] value;
+
+    private Element(BKey bkey, byte[] eflag, byte[] value) {
+      this.bkey = bkey;
+      this.eflag = eflag;
+      this.value = value;
+    }
+  }
+
+  /**
+   * The arguments following the key of b+tree commands that select elements:
+   * {@code <bkey or range> [<eflag filter>] [[<offset>] <count>] [<mode>]}.
+   */
+  private static final class Query {
+    private BKey from;
+    private BKey to;
+    private Filter filter;
+    private int offset;
+    private int count;
+    private String mode;
+
+    private static Query parse(String[] t, int at, int end) {
+      Query query = new Query();
+      String[] range = t[at].split("\\.\\.");
+      query.from = BKey.parse(range[0]);
+      query.to = range.length > 1 ? BKey.parse(range[1]) : query.from;
+      int i = at + 1;
+      if (Filter.startsAt(t, i, end)) {
+        query.filter = new Filter();
+        i = query.filter.parse(t, i);
+      }
+      List<Integer> numbers = new ArrayList<>();
+      while (i < end && isDigits(t[i])) {
+        numbers.add(Integer.parseInt(t[i++]));
+      }
+      if (numbers.size() == 1) {
+        query.count = numbers.get(0);
+      } else if (numbers.size() == 2) {
+        query.offset = numbers.get(0);
+        query.count = numbers.get(1);
+      }
+      query.mode = i < end ? t[i] : null;
+      return query;
+    }
+  }
+
+  /**
+   * An element flag filter:
+   * {@code <fwhere> [<bitwop> <foperand>] <compop> <fvalue>[,<fvalue>...]}.
+   */
+  private static final class Filter {
+    private int offset;
+    private String bitOp;
+    private byte[] operand;
+    private String compOp;
+    private final List<byte[]> values = new ArrayList<>();
+
+    private static boolean startsAt(String[] t, int i, int end) {
+      return i + 1 < end && isDigits(t[i])
+          && (isBitOp(t[i + 1]) || t[i + 1].matches("EQ|NE|LT|LE|GT|GE"));
+    }
+
+    private static boolean isBitOp(String token) {
+      return "&".equals(token) || "|".equals(token) || "^".equals(token);
+    }
+
+    private int parse(String[] t, int i) {
+      offset = Integer.parseInt(t[i++]);
+      if (isBitOp(t[i])) {
+        bitOp = t[i++];
+        operand = BTreeUtil.hexStringToByteArrays(t[i++]);
+      }
+      compOp = t[i++];
+      for (String value : t[i++].split(",")) {
+        values.add(BTreeUtil.hexStringToByteArrays(value));
+      }
+      return i;
+    }
+
+    private boolean matches(byte[] eflag) {
+      int length = values.get(0).length;
+      if (eflag == null || eflag.length < offset + length
+          || (operand != null && operand.length != length)) {
+        return false;
+      }
+      byte[] field = Arrays.copyOfRange(eflag, offset, offset + length);
+      if (bitOp != null) {
+        for (int i = 0; i < length; i++) {
+          field[i] = bitwise(bitOp, field[i], operand[i]);
+        }
+      }
+      switch (compOp) {
+        case "EQ":
+        case "NE":
+          boolean equal = false;
+          for (byte[] value : values) {
+            equal |= Arrays.equals(field, value);
+          }
+          return equal == "EQ".equals(compOp);
+        case "LT":
+          return BTreeUtil.compareByteArraysInLexOrder(field, values.get(0)) < 0;
+        case "LE":
+          return BTreeUtil.compareByteArraysInLexOrder(field, values.get(0)) <= 0;
+        case "GT":
+          return BTreeUtil.compareByteArraysInLexOrder(field, values.get(0)) > 0;
+        case "GE":
+          return BTreeUtil.compareByteArraysInLexOrder(field, values.get(0)) >= 0;
+        default:
+          return false;
+      }
+    }
+  }
+
+  private static boolean isDigits(String s) {
+    if (s.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (!Character.isDigit(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,465 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.HashAlgorithm;
+
+/**
+ * An in-process server speaking the ASCII protocol of Arcus, for running
+ * the client without a cache cloud.
+ *
+ * <p>It keeps key-value items and list, set, map and b+tree collections in
+ * memory and answers the commands the client sends, including pipes,
+ * bulk gets, {@code bop mget} and {@code bop smget}. A single thread serves
+ * all connections, so the server itself is rarely the bottleneck of a
+ * client benchmark, and a latency can be injected before each response to
+ * look like a remote server.</p>
+ *
+ * <p>{@link #injectNotMyKey(String, String, int)} and
+ * {@link #injectSwitchover(String, String, int)} make the server answer
+ * the commands of a key as a server under migration or failover would.</p>
+ *
+ * <pre>{@code
+ * try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+ *   ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder().build(),
+ *       Collections.singletonList(server.getAddress()));
+ *   ...
+ * }
+ * }</pre>
+ *
+ * <p>It also runs standalone, for load runs from another process:
+ * {@code EmbeddedArcusServer [port] [latency in microseconds]}.</p>
+ */
+public final class EmbeddedArcusServer implements Closeable {
+
+  private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+  private final CommandProcessor processor = new CommandProcessor(this);
+  private final ConcurrentHashMap<String, Injection> injections = new ConcurrentHashMap<>();
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final AtomicLong commandCount = new AtomicLong();
+
+  private volatile long minLatencyNanos = 0;
+  private volatile long maxLatencyNanos = 0;
+
+  private int port;
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private Thread thread;
+  private volatile boolean running = false;
+
+  /**
+   * Creates a server listening to an ephemeral port once started.
+   */
+  public EmbeddedArcusServer() {
+    this(0);
+  }
+
+  public EmbeddedArcusServer(int port) {
+    this.port = port;
+  }
+
+  /**
+   * Starts the server. A stopped server restarts on the same port with its items.
+   */
+  public synchronized EmbeddedArcusServer start() throws IOException {
+    if (running) {
+      throw new IllegalStateException("Server is already running.");
+    }
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    port = serverChannel.socket().getLocalPort();
+
+    running = true;
+    thread = new Thread(this::run, "EmbeddedArcusServer-" + port);
+    thread.setDaemon(true);
+    thread.start();
+    return this;
+  }
+
+  /**
+   * Stops the server, closing all connections.
+   */
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void close() {
+    stop();
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public InetSocketAddress getAddress() {
+    return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+  }
+
+  /**
+   * Number of commands the server has executed, including piped ones.
+   */
+  public long getCommandCount() {
+    return commandCount.get();
+  }
+
+  /**
+   * Delays each response by {@code latency}.
+   */
+  public void setLatency(long latency, TimeUnit unit) {
+    setLatency(latency, latency, unit);
+  }
+
+  /**
+   * Delays each response by a random latency from {@code min} to {@code max}.
+   * Responses of a connection are still sent in order, so a response waits
+   * for the ones before it.
+   */
+  public void setLatency(long min, long max, TimeUnit unit) {
+    if (min < 0 || max < min) {
+      throw new IllegalArgumentException("Invalid latency range: " + min + " to " + max);
+    }
+    minLatencyNanos = unit.toNanos(min);
+    maxLatencyNanos = unit.toNanos(max);
+  }
+
+  /**
+   * Answers the next {@code times} commands of the key with
+   * {@code NOT_MY_KEY <hash> <hash> <owner>}, as a server that has migrated
+   * the key to {@code owner}. A piped command gets no owner, as from a server.
+   */
+  public void injectNotMyKey(String key, String owner, int times) {
+    long hash = HashAlgorithm.KETAMA_HASH.hash(key);
+    injections.put(key, new Injection("NOT_MY_KEY " + hash + " " + hash + " " + owner, times));
+  }
+
+  /**
+   * Answers the next {@code times} commands of the key with
+   * {@code SWITCHOVER <master>}, as a master that has become a slave of
+   * {@code master}, or with {@code SWITCHOVER} if {@code master} is null.
+   */
+  public void injectSwitchover(String key, String master, int times) {
+    injections.put(key,
+        new Injection(master == null ? "SWITCHOVER" : "SWITCHOVER " + master, times));
+  }
+
+  public void clearInjections() {
+    injections.clear();
+  }
+
+  /**
+   * Removes all items.
+   */
+  public void flush() {
+    tasks.add(processor::flush);
+    wakeup();
+  }
+
+  /**
+   * Closes the connections of all clients, keeping the server running.
+   */
+  public void disconnectClients() {
+    tasks.add(() -> {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof Connection) {
+          closeQuietly(key);
+        }
+      }
+    });
+    wakeup();
+  }
+
+  private synchronized void wakeup() {
+    if (running) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Consumes an injected response of the key.
+   *
+   * @param notMyKeyOnly whether only a {@code NOT_MY_KEY} response is consumed,
+   *                     for the multi key commands that can't answer anything else
+   *                     for a key.
+   * @return the response, or null if the key has none.
+   */
+  String pollInjection(String key, boolean notMyKeyOnly) {
+    Injection injection = injections.get(key);
+    if (injection == null || (notMyKeyOnly && !injection.response.startsWith("NOT_MY_KEY"))) {
+      return null;
+    }
+    int remaining = injection.remaining.decrementAndGet();
+    if (remaining <= 0) {
+      injections.remove(key, injection);
+      if (remaining < 0) {
+        return null;
+      }
+    }
+    return injection.response;
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        long due = writeDueNanos();
+        long timeout = due - System.nanoTime();
+        if (due == Long.MAX_VALUE) {
+          selector.select();
+        } else if (timeout >= TimeUnit.MILLISECONDS.toNanos(1)) {
+          selector.select(TimeUnit.NANOSECONDS.toMillis(timeout));
+        } else {
+          selector.selectNow();
+        }
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+        for (SelectionKey key : selector.selectedKeys()) {
+          handle(key);
+        }
+        selector.selectedKeys().clear();
+        writeDue();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Server failed.", e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        closeQuietly(key);
+      }
+      closeQuietly(selector);
+      tasks.clear();
+    }
+  }
+
+  private void handle(SelectionKey key) {
+    if (!key.isValid()) {
+      return;
+    }
+    try {
+      if (key.isAcceptable()) {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+          channel.configureBlocking(false);
+          channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+          channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+        return;
+      }
+      if (key.isReadable()) {
+        read(key);
+      }
+      if (key.isValid() && key.isWritable()) {
+        write(key);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      closeQuietly(key);
+    }
+  }
+
+  private void read(SelectionKey key) throws IOException {
+    Connection conn = (Connection) key.attachment();
+    SocketChannel channel = (SocketChannel) key.channel();
+    if (!conn.in.hasRemaining()) {
+      ByteBuffer larger = ByteBuffer.allocate(conn.in.capacity() * 2);
+      ((Buffer) conn.in).flip();
+      larger.put(conn.in);
+      conn.in = larger;
+    }
+    if (channel.read(conn.in) < 0) {
+      closeQuietly(key);
+      return;
+    }
+
+    ((Buffer) conn.in).flip();
+    Response out = new Response();
+    Command cmd;
+    boolean quit = false;
+    while (!quit && (cmd = Command.read(conn.in)) != null) {
+      quit = "quit".equals(cmd.name());
+      if (!quit) {
+        commandCount.incrementAndGet();
+        processor.process(cmd, conn.session, out);
+      }
+    }
+    conn.in.compact();
+
+    if (out.size() > 0) {
+      conn.queue(ByteBuffer.wrap(out.toByteArray()), System.nanoTime() + latencyNanos());
+      write(key);
+    }
+    if (quit) {
+      closeQuietly(key);
+    }
+  }
+
+  private long latencyNanos() {
+    long min = minLatencyNanos;
+    long max = maxLatencyNanos;
+    return min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+  }
+
+  /**
+   * Writes the due responses of a connection, waiting for the channel to be
+   * writable if it can't take all of them.
+   */
+  private void write(SelectionKey key) throws IOException {
+    Connection conn = (Connection) key.attachment();
+    SocketChannel channel = (SocketChannel) key.channel();
+    long now = System.nanoTime();
+    Pending pending;
+    while ((pending = conn.pending.peek()) != null && pending.dueNanos - now <= 0) {
+      channel.write(pending.data);
+      if (pending.data.hasRemaining()) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return;
+      }
+      conn.pending.poll();
+    }
+    key.interestOps(SelectionKey.OP_READ);
+  }
+
+  private void writeDue() {
+    for (SelectionKey key : new ArrayList<>(selector.keys())) {
+      if (key.isValid() && key.attachment() instanceof Connection
+          && (key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+        try {
+          write(key);
+        } catch (IOException e) {
+          closeQuietly(key);
+        }
+      }
+    }
+  }
+
+  private long writeDueNanos() {
+    long due = Long.MAX_VALUE;
+    for (SelectionKey key : selector.keys()) {
+      if (key.isValid() && key.attachment() instanceof Connection) {
+        Pending pending = ((Connection) key.attachment()).pending.peek();
+        if (pending != null && (due == Long.MAX_VALUE || pending.dueNanos - due < 0)) {
+          due = pending.dueNanos;
+        }
+      }
+    }
+    return due;
+  }
+
+  private static void closeQuietly(SelectionKey key) {
+    key.cancel();
+    closeQuietly(key.channel());
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  private static final class Injection {
+    private final String response;
+    private final AtomicInteger remaining;
+
+    private Injection(String response, int times) {
+      this.response = response;
+      this.remaining = new AtomicInteger(times);
+    }
+  }
+
+  private static final class Pending {
+    private final ByteBuffer data;
+    private final long dueNanos;
+
+    private Pending(ByteBuffer data, long dueNanos) {
+      this.data = data;
+      this.dueNanos = dueNanos;
+    }
+  }
+
+  private static final class Connection {
+    private final CommandProcessor.Session session = new CommandProcessor.Session();
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    /**
+     * Queues a response, not before the responses queued before it.
+     */
+    private void queue(ByteBuffer data, long dueNanos) {
+      Pending last = pending.peekLast();
+      boolean afterLast = last != null && last.dueNanos - dueNanos > 0;
+      pending.add(new Pending(data, afterLast ? last.dueNanos : dueNanos));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 11211;
+    EmbeddedArcusServer server = new EmbeddedArcusServer(port);
+    if (args.length > 1) {
+      server.setLatency(Long.parseLong(args[1]), TimeUnit.MICROSECONDS);
+    }
+    server.start();
+    System.out.println("Listening on " + server.getAddress());
+    long last = 0;
+    while (server.isRunning()) {
+      TimeUnit.SECONDS.sleep(10);
+      long count = server.getCommandCount();
+      System.out.println("Commands per second: " + (count - last) / 10);
+      last = count;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package net.spy.memcached.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.CASResponse;
+import net.spy.memcached.CASValue;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.BTreeGetResult;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.CollectionResponse;
+import net.spy.memcached.collection.Element;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.collection.SMGetElement;
+import net.spy.memcached.internal.SMGetFuture;
+import net.spy.memcached.ops.CollectionOperationStatus;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedArcusServerTest {
+
+  private EmbeddedArcusServer server;
+  private ArcusClient client;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = new EmbeddedArcusServer().start();
+    client = new ArcusClient(new ConnectionFactoryBuilder().build(),
+        Collections.singletonList(server.getAddress()));
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.shutdown();
+    server.stop();
+  }
+
+  @Test
+  void keyValueCommands() throws Exception {
+    assertTrue(client.set("kv", 0, "value").get());
+    assertEquals("value", client.get("kv"));
+    assertFalse(client.add("kv", 0, "other").get());
+
+    CASValue<Object> casValue = client.gets("kv");
+    assertEquals(CASResponse.OK, client.cas("kv", casValue.getCas(), "new"));
+    assertEquals(CASResponse.EXISTS, client.cas("kv", casValue.getCas(), "stale"));
+    assertEquals("new", client.get("kv"));
+
+    assertEquals(10, client.incr("counter", 1, 10));
+    assertEquals(11, client.incr("counter", 1, 10));
+    assertEquals(6, client.decr("counter", 5, 10));
+
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      keys.add("bulk" + i);
+      client.set("bulk" + i, 0, i);
+    }
+    keys.add("missing");
+    Map<String, Object> values = client.getBulk(keys);
+    assertEquals(100, values.size());
+    assertEquals(42, values.get("bulk42"));
+
+    assertTrue(client.delete("kv").get());
+    assertNull(client.get("kv"));
+  }
+
+  @Test
+  void listSetAndMapCommands() throws Exception {
+    CollectionAttributes attrs = new CollectionAttributes();
+    assertTrue(client.asyncLopInsert("list", -1, "a", attrs).get());
+    assertTrue(client.asyncLopInsert("list", -1, "b", attrs).get());
+    assertTrue(client.asyncLopInsert("list", 0, "c", attrs).get());
+    assertEquals(Arrays.asList("c", "a", "b"),
+        client.asyncLopGet("list", 0, -1, false, false).get());
+
+    assertTrue(client.asyncSopInsert("set", "a", attrs).get());
+    assertFalse(client.asyncSopInsert("set", "a", attrs).get());
+    assertTrue(client.asyncSopExist("set", "a").get());
+    assertFalse(client.asyncSopExist("set", "b").get());
+
+    assertTrue(client.asyncMopInsert("map", "f1", "v1", attrs).get());
+    assertTrue(client.asyncMopInsert("map", "f2", "v2", attrs).get());
+    assertTrue(client.asyncMopUpdate("map", "f1", "v3").get());
+    Map<String, Object> map = client.asyncMopGet("map", false, false).get();
+    assertEquals(2, map.size());
+    assertEquals("v3", map.get("f1"));
+  }
+
+  @Test
+  void btreeCommands() throws Exception {
+    CollectionAttributes attrs = new CollectionAttributes();
+    for (long bkey = 0; bkey < 10; bkey++) {
+      assertTrue(client.asyncBopInsert("btree", bkey, new byte[]{(byte) bkey},
+          "v" + bkey, attrs).get());
+    }
+    Map<Long, Element<Object>> elements = client.asyncBopGet("btree", 8, 2,
+        new ElementFlagFilter(ElementFlagFilter.CompOperands.GreaterOrEqual, new byte[]{5}),
+        0, 10, false, false).get();
+    assertEquals(Arrays.asList(8L, 7L, 6L, 5L), new ArrayList<>(elements.keySet()));
+    assertEquals("v6", elements.get(6L).getValue());
+
+    assertTrue(client.asyncBopDelete("btree", 0, 4, ElementFlagFilter.DO_NOT_FILTER,
+        0, false).get());
+    assertEquals(5, client.asyncBopGetItemCount("btree", 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER).get().intValue());
+
+    for (long bkey = 0; bkey < 10; bkey++) {
+      client.asyncBopInsert("btree2", bkey * 2 + 1, null, "w" + bkey, attrs).get();
+    }
+    SMGetFuture<List<SMGetElement<Object>>> smget = client.asyncBopSortMergeGet(
+        Arrays.asList("btree", "btree2", "missing"), 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, 4, true);
+    List<SMGetElement<Object>> merged = smget.get();
+    assertEquals(Arrays.asList(1L, 3L, 5L, 6L),
+        Arrays.asList(merged.get(0).getBkey(), merged.get(1).getBkey(),
+            merged.get(2).getBkey(), merged.get(3).getBkey()));
+    assertEquals(Collections.singletonList("missing"), smget.getMissedKeyList());
+
+    Map<String, BTreeGetResult<Long, Object>> bulk = client.asyncBopGetBulk(
+        Arrays.asList("btree", "btree2", "missing"), 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, 0, 3).get();
+    assertEquals(3, bulk.get("btree2").getElements().size());
+    assertEquals(CollectionResponse.NOT_FOUND,
+        bulk.get("missing").getCollectionResponse().getResponse());
+  }
+
+  @Test
+  void pipedInsert() throws Exception {
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add("value" + i);
+    }
+    Map<Integer, CollectionOperationStatus> failed = client.asyncLopPipedInsertBulk(
+        "list", -1, values, new CollectionAttributes()).get();
+    assertTrue(failed.isEmpty());
+    assertEquals(1000, client.asyncLopGet("list", 0, -1, false, false).get().size());
+  }
+
+  @Test
+  void redirectPipeOnNotMyKey() throws Exception {
+    server.injectNotMyKey("list", "127.0.0.1:1", 1);
+    Map<Integer, CollectionOperationStatus> failed = client.asyncLopPipedInsertBulk("list",
+        -1, Arrays.<Object>asList("a", "b", "c"), new CollectionAttributes()).get();
+    assertTrue(failed.isEmpty());
+    assertEquals(3, client.asyncLopGet("list", 0, -1, false, false).get().size());
+  }
+
+  @Test
+  void notMyKeyAndSwitchoverResponses() throws Exception {
+    try (Socket socket = new Socket(server.getAddress().getAddress(), server.getPort())) {
+      BufferedReader in = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      OutputStream out = socket.getOutputStream();
+
+      server.injectSwitchover("key", "127.0.0.1:11212", 1);
+      send(out, "set key 0 0 1\r\na\r\n");
+      assertEquals("SWITCHOVER 127.0.0.1:11212", in.readLine());
+      send(out, "set key 0 0 1\r\na\r\n");
+      assertEquals("STORED", in.readLine());
+
+      server.injectNotMyKey("key", "127.0.0.1:11213", 1);
+      send(out, "get key other\r\n");
+      assertTrue(in.readLine().matches("NOT_MY_KEY \\d+ \\d+ 127.0.0.1:11213"));
+      assertEquals("key", in.readLine());
+      assertEquals("END", in.readLine());
+
+      server.injectNotMyKey("list", "127.0.0.1:11213", 1);
+      send(out, "lop insert list -1 1 create 0 0 0 pipe\r\na\r\n"
+          + "lop insert list -1 1 create 0 0 0\r\nb\r\n");
+      assertEquals("RESPONSE 2", in.readLine());
+      assertTrue(in.readLine().matches("NOT_MY_KEY \\d+ \\d+"));
+      assertTrue(in.readLine().matches("NOT_MY_KEY \\d+ \\d+"));
+      assertEquals("END", in.readLine());
+    }
+  }
+
+  @Test
+  void injectedLatency() throws Exception {
+    client.set("key", 0, "value").get();
+    server.setLatency(50, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    assertEquals("value", client.get("key"));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  void reconnectAfterDisconnect() throws Exception {
+    client.set("key", 0, "value").get();
+    server.disconnectClients();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    Object value = null;
+    while (value == null && System.nanoTime() < deadline) {
+      try {
+        value = client.asyncGet("key").get(1, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        TimeUnit.MILLISECONDS.sleep(100);
+      }
+    }
+    assertEquals("value", value);
+  }
+
+  private static void send(OutputStream out, String commands) throws IOException {
+    out.write(commands.getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response bytes of the commands of a connection.
+ */
+final class Response extends ByteArrayOutputStream {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  Response() {
+    super(256);
+  }
+
+  Response line(String line) {
+    byte[] b = line.getBytes(StandardCharsets.UTF_8);
+    write(b, 0, b.length);
+    write(CRLF, 0, CRLF.length);
+    return this;
+  }
+
+  /**
+   * Writes the header of a data block, its data and the terminating CRLF.
+   */
+  Response data(String header, byte[] data) {
+    byte[] b = header.getBytes(StandardCharsets.UTF_8);
+    write(b, 0, b.length);
+    write(data, 0, data.length);
+    write(CRLF, 0, CRLF.length);
+    return this;
+  }
+
+  /**
+   * Text of the response without the last CRLF, for single line responses.
+   */
+  String lastLine() {
+    int end = count >= 2 && buf[count - 2] == '\r' ? count - 2 : count;
+    int start = end;
+    while (start > 0 && buf[start - 1] != '\n') {
+      start--;
+    }
+    return new String(buf, start, end - start, StandardCharsets.UTF_8);
+  }
+
+  void truncate(int size) {
+    count = size;
+  }
+}
@@ -0,0 +1,128 @@
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.spy.memcached.CachedData;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionCodecTest {
+
+  private static final CompressionCodec[] CODECS = {
+      GzipCompressionCodec.INSTANCE, Lz4CompressionCodec.INSTANCE
+  };
+
+  private static byte[][] samples() {
+    Random random = new Random(42);
+    byte[] randomBytes = new byte[70000];
+    random.nextBytes(randomBytes);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      text.append("{\"id\":").append(random.nextInt(1000)).append(",\"name\":\"user")
+          .append(i % 37).append("\"}");
+    }
+    byte[] repeated = new byte[100000];
+    Arrays.fill(repeated, (byte) 'a');
+    return new byte[][]{
+        new byte[0],
+        "a".getBytes(StandardCharsets.UTF_8),
+        "abcdefghijklm".getBytes(StandardCharsets.UTF_8),
+        "abcabcabcabcabcabcabcabcabc".getBytes(StandardCharsets.UTF_8),
+        text.toString().getBytes(StandardCharsets.UTF_8),
+        randomBytes,
+        repeated
+    };
+  }
+
+  @Test
+  void roundTrip() throws IOException {
+    for (CompressionCodec codec : CODECS) {
+      for (byte[] sample : samples()) {
+        byte[] compressed = codec.compress(sample);
+        assertArrayEquals(sample, codec.decompress(compressed),
+            codec.getClass().getSimpleName() + " " + sample.length);
+      }
+    }
+  }
+
+  @Test
+  void compressRepetitiveData() {
+    byte[] repeated = samples()[6];
+    for (CompressionCodec codec : CODECS) {
+      assertTrue(codec.compress(repeated).length < repeated.length / 100);
+    }
+  }
+
+  @Test
+  void gzipCompatibleWithStreams() throws IOException {
+    byte[] sample = samples()[4];
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+      gz.write(sample);
+    }
+    assertArrayEquals(sample, GzipCompressionCodec.INSTANCE.decompress(bos.toByteArray()));
+
+    byte[] compressed = GzipCompressionCodec.INSTANCE.compress(sample);
+    try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[4096];
+      int r;
+      while ((r = gis.read(buf)) > 0) {
+        out.write(buf, 0, r);
+      }
+      assertArrayEquals(sample, out.toByteArray());
+    }
+  }
+
+  @Test
+  void rejectCorruptData() {
+    byte[] sample = samples()[4];
+    for (CompressionCodec codec : CODECS) {
+      byte[] truncated = Arrays.copyOf(codec.compress(sample), 100);
+      assertThrows(IOException.class, () -> codec.decompress(truncated));
+      byte[] garbage = "invalid compressed data".getBytes(StandardCharsets.UTF_8);
+      assertThrows(IOException.class, () -> codec.decompress(garbage));
+    }
+  }
+
+  @Test
+  void decodeByCodecInFlags() {
+    String value = new String(samples()[4], StandardCharsets.UTF_8);
+    SerializingTranscoder lz4 = SerializingTranscoder.forKV().build();
+    lz4.setCompressionThreshold(8);
+    lz4.setCompressionCodec(Lz4CompressionCodec.INSTANCE);
+    SerializingTranscoder gzip = SerializingTranscoder.forKV().build();
+    gzip.setCompressionThreshold(8);
+
+    CachedData lz4Data = lz4.encode(value);
+    assertEquals(TranscoderUtils.COMPRESSED
+        | Lz4CompressionCodec.ID << TranscoderUtils.COMPRESSION_CODEC_SHIFT, lz4Data.getFlags());
+    CachedData gzipData = gzip.encode(value);
+    assertEquals(TranscoderUtils.COMPRESSED, gzipData.getFlags());
+
+    assertEquals(value, gzip.decode(lz4Data));
+    assertEquals(value, lz4.decode(gzipData));
+  }
+
+  @Test
+  void unknownCodecInFlags() {
+    CompressionUtils cu = new CompressionUtils();
+    int flags = TranscoderUtils.COMPRESSED | 0xf << TranscoderUtils.COMPRESSION_CODEC_SHIFT;
+    assertNull(cu.decompress(cu.compress(samples()[4]), flags));
+    assertThrows(IllegalArgumentException.class, () -> cu.setCompressionCodec(null));
+  }
+}
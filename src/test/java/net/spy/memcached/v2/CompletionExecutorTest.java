@@ -0,0 +1,95 @@
+package net.spy.memcached.v2;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.server.EmbeddedArcusServer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompletionExecutorTest {
+
+  @Test
+  void completeOnGivenExecutor() throws Exception {
+    ExecutorService pool = Executors.newSingleThreadExecutor(r -> new Thread(r, "custom"));
+    AtomicInteger executed = new AtomicInteger();
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder().build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        AsyncArcusCommands<Object> async = client.asyncCommands(r -> {
+          executed.incrementAndGet();
+          pool.execute(r);
+        });
+        assertTrue(async.set("key", 0, "value").get(1, TimeUnit.SECONDS));
+        assertEquals(0, executed.get());
+
+        server.setLatency(100, TimeUnit.MILLISECONDS);
+        CompletableFuture<String> thread = async.get("key").toCompletableFuture()
+            .thenApply(v -> Thread.currentThread().getName());
+        assertEquals("custom", thread.get(1, TimeUnit.SECONDS));
+        assertEquals(1, executed.get());
+
+        Map<String, Object> values = async.multiGet(Arrays.asList("key", "missing"))
+            .get(1, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonMap("key", "value"), values);
+        assertTrue(executed.get() > 1);
+      } finally {
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        client.shutdown();
+        pool.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void completeOnIOThread() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder().build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        AsyncArcusCommands<Object> async =
+            client.asyncCommands(AsyncArcusCommands.DIRECT_COMPLETION);
+        assertTrue(async.set("key", 0, "value").get(1, TimeUnit.SECONDS));
+
+        server.setLatency(100, TimeUnit.MILLISECONDS);
+        CompletableFuture<String> thread = async.get("key").toCompletableFuture()
+            .thenApply(v -> v + " " + Thread.currentThread().getName());
+        assertTrue(thread.get(1, TimeUnit.SECONDS).startsWith("value Memcached IO over"));
+
+        CompletableFuture<String> multi = async.multiGet(Arrays.asList("key", "missing"))
+            .toCompletableFuture()
+            .thenApply(v -> v + " " + Thread.currentThread().getName());
+        assertTrue(multi.get(1, TimeUnit.SECONDS).startsWith("{key=value} Memcached IO over"));
+      } finally {
+        server.setLatency(0, TimeUnit.MILLISECONDS);
+        client.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void rejectNullExecutor() throws Exception {
+    try (EmbeddedArcusServer server = new EmbeddedArcusServer().start()) {
+      ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder().build(),
+          Collections.singletonList(server.getAddress()));
+      try {
+        assertThrows(IllegalArgumentException.class, () -> client.asyncCommands(null));
+      } finally {
+        client.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+/**
+ * A histogram of latencies in the layout of an HDR histogram: values are
+ * counted in buckets of powers of two, each split into linear sub-buckets,
+ * so any value is recorded within 1/256 of its magnitude in constant time
+ * and memory.
+ *
+ * <p>{@link #recordValueWithExpectedInterval(long, long)} corrects the
+ * coordinated omission of a caller that waits for each response before
+ * sending the next request, by also recording the latencies of the requests
+ * it would have sent while it was waiting.</p>
+ *
+ * <p>Not thread-safe. Record to a histogram per thread and {@link #add} them.</p>
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 8;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+  private static final int BUCKET_COUNT = Long.SIZE - SUB_BUCKET_BITS + 1;
+
+  private final long[] counts = new long[SUB_BUCKET_COUNT + BUCKET_COUNT * SUB_BUCKET_HALF];
+  private long totalCount = 0;
+  private long min = Long.MAX_VALUE;
+  private long max = 0;
+  private double sum = 0;
+
+  void recordValue(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value: " + value);
+    }
+    counts[index(value)]++;
+    totalCount++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    sum += value;
+  }
+
+  /**
+   * Records a value and, if it's longer than the expected interval between
+   * requests, the values of the requests that would have been waiting for it.
+   */
+  void recordValueWithExpectedInterval(long value, long expectedInterval) {
+    recordValue(value);
+    if (expectedInterval <= 0) {
+      return;
+    }
+    for (long missed = value - expectedInterval; missed >= expectedInterval;
+         missed -= expectedInterval) {
+      recordValue(missed);
+    }
+  }
+
+  void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    totalCount += other.totalCount;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    sum += other.sum;
+  }
+
+  long getTotalCount() {
+    return totalCount;
+  }
+
+  long getMinValue() {
+    return totalCount == 0 ? 0 : min;
+  }
+
+  long getMaxValue() {
+    return max;
+  }
+
+  double getMean() {
+    return totalCount == 0 ? 0 : sum / totalCount;
+  }
+
+  /**
+   * The highest value that is equivalent to the value at the percentile,
+   * at most the maximum recorded value.
+   */
+  long getValueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    long countAtPercentile = Math.max(1,
+        (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+    long count = 0;
+    for (int i = 0; i < counts.length; i++) {
+      count += counts[i];
+      if (count >= countAtPercentile) {
+        return Math.min(highestEquivalentValue(i), max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Values below {@code SUB_BUCKET_COUNT} have an index of their own. A larger
+   * value is shifted into {@code [SUB_BUCKET_HALF, SUB_BUCKET_COUNT)} and
+   * indexed in the upper half of the sub-buckets of its power of two.
+   */
+  static int index(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF
+        + (int) (value >>> shift) - SUB_BUCKET_HALF;
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+    long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+    long lowest = subBucket << shift;
+    long highest = lowest + (1L << shift) - 1;
+    return highest < 0 ? Long.MAX_VALUE : highest;
+  }
+}
@@ -0,0 +1,72 @@
+package net.spy.memcached.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+  @Test
+  void indexesAreMonotonicAndBounded() {
+    int last = -1;
+    for (long value = 0; value < 1_000_000; value += 7) {
+      int index = LatencyHistogram.index(value);
+      assertTrue(index >= last);
+      long highest = LatencyHistogram.highestEquivalentValue(index);
+      assertTrue(highest >= value);
+      assertTrue(highest - value <= Math.max(1, value / 128), "value " + value);
+      last = index;
+    }
+    int maxIndex = LatencyHistogram.index(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.highestEquivalentValue(maxIndex));
+  }
+
+  @Test
+  void percentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 10000; value++) {
+      histogram.recordValue(value * 1000);
+    }
+    assertEquals(10000, histogram.getTotalCount());
+    assertEquals(1000, histogram.getMinValue());
+    assertEquals(10_000_000, histogram.getMaxValue());
+    assertWithin(5_000_000, histogram.getValueAtPercentile(50));
+    assertWithin(9_900_000, histogram.getValueAtPercentile(99));
+    assertWithin(9_990_000, histogram.getValueAtPercentile(99.9));
+    assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    assertEquals(5_000_500, histogram.getMean(), 1);
+  }
+
+  @Test
+  void correctCoordinatedOmission() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.recordValueWithExpectedInterval(1000, 1000);
+    }
+    // a stall of 100 intervals hides the 99 requests that would have been sent
+    histogram.recordValueWithExpectedInterval(100_000, 1000);
+    assertEquals(199, histogram.getTotalCount());
+    assertWithin(1000, histogram.getValueAtPercentile(50));
+    assertWithin(51_000, histogram.getValueAtPercentile(75));
+    assertEquals(100_000, histogram.getMaxValue());
+  }
+
+  @Test
+  void add() {
+    LatencyHistogram a = new LatencyHistogram();
+    LatencyHistogram b = new LatencyHistogram();
+    a.recordValue(10);
+    b.recordValue(30);
+    a.add(b);
+    assertEquals(2, a.getTotalCount());
+    assertEquals(10, a.getMinValue());
+    assertEquals(30, a.getMaxValue());
+    assertEquals(20, a.getMean(), 0);
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected / 128,
+        "expected " + expected + " but was " + actual);
+  }
+}
@@ -0,0 +1,708 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ * Copyright 2014-present JaM2in Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ArcusClientIF;
+import net.spy.memcached.ArcusClientPool;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.CollectionOverflowAction;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.server.EmbeddedArcusServer;
+import net.spy.memcached.v2.AsyncArcusCommands;
+import net.spy.memcached.v2.vo.BKey;
+import net.spy.memcached.v2.vo.BTreeElement;
+import net.spy.memcached.v2.vo.BopGetArgs;
+
+/**
+ * Pushes a mix of key-value and collection operations through the client
+ * and reports the latency percentiles of each {@link APIType}.
+ *
+ * <p>Each caller thread sends one request at a time. In the closed loop
+ * (the default) a thread sends the next request once the previous one
+ * completes, and latencies are corrected for coordinated omission with the
+ * expected interval between requests, the mean latency of the thread if
+ * not given. With {@code --rate} the loop is open: requests are scheduled
+ * at a fixed rate and each latency is measured from its scheduled time,
+ * so a stalled response also counts for the requests queued behind it.</p>
+ *
+ * <pre>
+ * LoadGenerator [--option value ...]
+ *   --servers host:port,...   servers to connect to directly (default: embedded server)
+ *   --zk host:port,...        ZooKeeper addresses of a cluster, with --service
+ *   --service code            service code of the cluster
+ *   --server-latency-us n     latency of the embedded server (default 0)
+ *   --api v1|v2               ArcusClient API or the v2 AsyncArcusCommands (default v1)
+ *   --pool n                  clients in an ArcusClientPool, 1 for a single client (default 1)
+ *   --threads n               caller threads (default 16)
+ *   --rate n                  requests per second of all threads, 0 for the closed loop
+ *   --expected-interval-us n  coordinated omission correction of the closed loop
+ *   --duration s              measured seconds (default 30)
+ *   --warmup s                unmeasured seconds before (default 5)
+ *   --mix api:weight,...      operations by APIType (default GET:80,SET:20)
+ *   --keys n                  keys of each item type (default 100000)
+ *   --distribution d          uniform or zipfian (default uniform)
+ *   --value-size n            value bytes (default 100)
+ *   --timeout-ms n            request timeout (default 1000)
+ * </pre>
+ *
+ * <p>Supported operations are SET, GET, GETS, INCR, DELETE, LOP_INSERT,
+ * LOP_GET, SOP_INSERT, SOP_EXIST, MOP_UPSERT, MOP_GET, BOP_UPSERT, BOP_GET and
+ * BOP_SMGET, of which the v2 API has SET, GET, BOP_UPSERT, BOP_GET and
+ * BOP_SMGET.</p>
+ */
+public final class LoadGenerator {
+
+  private static final String KEY_PREFIX = "load:";
+  private static final int EXPIRE_TIME = 3600;
+  private static final int ELEMENTS = 100;
+  private static final int SMGET_KEYS = 10;
+  private static final int READ_COUNT = 10;
+
+  private final Options options;
+  private final Driver driver;
+  private final KeyChooser keyChooser;
+  private final APIType[] apis;
+  private final int[] cumulativeWeights;
+  private final byte[] value;
+
+  private LoadGenerator(Options options, Driver driver) {
+    this.options = options;
+    this.driver = driver;
+    this.keyChooser = "zipfian".equals(options.distribution)
+        ? new ZipfianKeyChooser(options.keys) : new UniformKeyChooser(options.keys);
+    this.apis = options.mix.keySet().toArray(new APIType[0]);
+    this.cumulativeWeights = new int[apis.length];
+    int sum = 0;
+    for (int i = 0; i < apis.length; i++) {
+      sum += options.mix.get(apis[i]);
+      cumulativeWeights[i] = sum;
+    }
+    this.value = new byte[options.valueSize];
+    ThreadLocalRandom.current().nextBytes(value);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = Options.parse(args);
+    EmbeddedArcusServer server = null;
+    List<InetSocketAddress> addrs = null;
+    if (options.zk == null) {
+      if (options.servers == null) {
+        server = new EmbeddedArcusServer().start();
+        server.setLatency(options.serverLatencyUs, TimeUnit.MICROSECONDS);
+        addrs = Collections.singletonList(server.getAddress());
+      } else {
+        addrs = AddrUtil.getAddresses(Arrays.asList(options.servers.split(",")));
+      }
+    }
+
+    ArcusClientIF client = createClient(options, addrs);
+    try {
+      Driver driver = "v2".equals(options.api)
+          ? new V2Driver(client) : new V1Driver(client);
+      for (APIType api : options.mix.keySet()) {
+        if (!driver.supports(api)) {
+          throw new IllegalArgumentException(api + " is not supported by the "
+              + options.api + " API.");
+        }
+      }
+      LoadGenerator generator = new LoadGenerator(options, driver);
+      generator.preload();
+      generator.run().print(System.out, options);
+    } finally {
+      client.shutdown();
+      if (server != null) {
+        server.stop();
+      }
+    }
+  }
+
+  private static ArcusClientIF createClient(Options options, List<InetSocketAddress> addrs)
+      throws Exception {
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setOpTimeout(options.timeoutMs);
+    if (options.zk != null) {
+      if (options.pool > 1) {
+        return ArcusClient.createArcusClientPool(options.zk, options.service, cfb, options.pool);
+      }
+      return ArcusClient.createArcusClient(options.zk, options.service, cfb);
+    }
+    if (options.pool == 1) {
+      return new ArcusClient(cfb.build(), addrs);
+    }
+    ArcusClient[] clients = new ArcusClient[options.pool];
+    for (int i = 0; i < clients.length; i++) {
+      clients[i] = new ArcusClient(cfb.build(), addrs);
+    }
+    return new ArcusClientPool(options.pool, clients);
+  }
+
+  /**
+   * Stores an item for each key the mix reads, so reads don't miss.
+   */
+  private void preload() throws Exception {
+    List<Future<?>> window = new ArrayList<>();
+    for (APIType api : apis) {
+      APIType write = preloadWrite(api);
+      if (write == null) {
+        continue;
+      }
+      for (int i = 0; i < options.keys; i++) {
+        window.add(driver.execute(write, i, value));
+        if (window.size() == 1000) {
+          for (Future<?> f : window) {
+            f.get();
+          }
+          window.clear();
+        }
+      }
+    }
+    for (Future<?> f : window) {
+      f.get();
+    }
+  }
+
+  private static APIType preloadWrite(APIType read) {
+    switch (read) {
+      case GET:
+      case GETS:
+        return APIType.SET;
+      case LOP_GET:
+        return APIType.LOP_INSERT;
+      case SOP_EXIST:
+        return APIType.SOP_INSERT;
+      case MOP_GET:
+        return APIType.MOP_UPSERT;
+      case BOP_GET:
+      case BOP_SMGET:
+        return APIType.BOP_UPSERT;
+      default:
+        return null;
+    }
+  }
+
+  private Result run() throws InterruptedException {
+    long warmupNanos = TimeUnit.SECONDS.toNanos(options.warmup);
+    long start = System.nanoTime();
+    long measureStart = start + warmupNanos;
+    long end = measureStart + TimeUnit.SECONDS.toNanos(options.duration);
+
+    Worker[] workers = new Worker[options.threads];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Worker(start, measureStart, end);
+      workers[i].start();
+    }
+    Result result = new Result(TimeUnit.SECONDS.toNanos(options.duration));
+    for (Worker worker : workers) {
+      worker.join();
+      result.add(worker);
+    }
+    return result;
+  }
+
+  private APIType nextApi(ThreadLocalRandom random) {
+    int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < apis.length; i++) {
+      if (r < cumulativeWeights[i]) {
+        return apis[i];
+      }
+    }
+    return apis[apis.length - 1];
+  }
+
+  private final class Worker extends Thread {
+    private final long start;
+    private final long measureStart;
+    private final long end;
+    private final Map<APIType, LatencyHistogram> histograms = new EnumMap<>(APIType.class);
+    private final Map<APIType, Long> errors = new EnumMap<>(APIType.class);
+
+    private Worker(long start, long measureStart, long end) {
+      super("LoadGenerator-worker");
+      this.start = start;
+      this.measureStart = measureStart;
+      this.end = end;
+    }
+
+    @Override
+    public void run() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(options.timeoutMs);
+      long interval = options.rate > 0
+          ? TimeUnit.SECONDS.toNanos(options.threads) / options.rate : 0;
+      long expectedInterval = TimeUnit.MICROSECONDS.toNanos(options.expectedIntervalUs);
+      long latencySum = 0;
+      long count = 0;
+      boolean measuring = false;
+
+      long scheduled = start + (interval > 0 ? random.nextLong(interval) : 0);
+      while (true) {
+        long now = System.nanoTime();
+        if (interval > 0) {
+          if (scheduled - now > 0) {
+            LockSupport.parkNanos(scheduled - now);
+          }
+        } else {
+          scheduled = now;
+        }
+        if (scheduled - end >= 0) {
+          break;
+        }
+        if (!measuring && scheduled - measureStart >= 0) {
+          histograms.clear();
+          errors.clear();
+          measuring = true;
+        }
+
+        APIType api = nextApi(random);
+        boolean failed = false;
+        try {
+          Future<?> f = driver.execute(api, keyChooser.next(random), value);
+          try {
+            f.get(timeoutNanos, TimeUnit.NANOSECONDS);
+          } catch (TimeoutException e) {
+            f.cancel(true);
+            failed = true;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Exception e) {
+          failed = true;
+        }
+        long latency = System.nanoTime() - scheduled;
+
+        LatencyHistogram histogram = histograms.computeIfAbsent(api,
+            a -> new LatencyHistogram());
+        if (interval > 0) {
+          histogram.recordValue(latency);
+          scheduled += interval;
+        } else {
+          latencySum += latency;
+          count++;
+          histogram.recordValueWithExpectedInterval(latency,
+              expectedInterval > 0 ? expectedInterval : latencySum / count);
+        }
+        if (failed) {
+          errors.merge(api, 1L, Long::sum);
+        }
+      }
+    }
+  }
+
+  private static final class Result {
+    private final long durationNanos;
+    private final Map<APIType, LatencyHistogram> histograms = new EnumMap<>(APIType.class);
+    private final Map<APIType, Long> errors = new EnumMap<>(APIType.class);
+    private long requests = 0;
+
+    private Result(long durationNanos) {
+      this.durationNanos = durationNanos;
+    }
+
+    private void add(Worker worker) {
+      for (Map.Entry<APIType, LatencyHistogram> e : worker.histograms.entrySet()) {
+        histograms.computeIfAbsent(e.getKey(), a -> new LatencyHistogram()).add(e.getValue());
+      }
+      for (Map.Entry<APIType, Long> e : worker.errors.entrySet()) {
+        errors.merge(e.getKey(), e.getValue(), Long::sum);
+      }
+    }
+
+    private void print(PrintStream out, Options options) {
+      out.printf("api=%s, pool=%d, threads=%d, %s, distribution=%s, keys=%d, value=%dB%n",
+          options.api, options.pool, options.threads,
+          options.rate > 0 ? "open loop at " + options.rate + "/s" : "closed loop",
+          options.distribution, options.keys, options.valueSize);
+      out.printf("%-12s %10s %8s %10s %10s %10s %10s %10s%n", "api", "count", "errors",
+          "ops/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+      LatencyHistogram total = new LatencyHistogram();
+      long totalErrors = 0;
+      for (Map.Entry<APIType, LatencyHistogram> e : histograms.entrySet()) {
+        long errorCount = errors.getOrDefault(e.getKey(), 0L);
+        print(out, e.getKey().name(), e.getValue(), errorCount);
+        total.add(e.getValue());
+        totalErrors += errorCount;
+      }
+      print(out, "TOTAL", total, totalErrors);
+    }
+
+    private void print(PrintStream out, String name, LatencyHistogram h, long errorCount) {
+      out.printf("%-12s %10d %8d %10d %10.1f %10.1f %10.1f %10.1f%n", name,
+          h.getTotalCount(), errorCount,
+          h.getTotalCount() * TimeUnit.SECONDS.toNanos(1) / durationNanos,
+          h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0,
+          h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0);
+    }
+  }
+
+  /**
+   * Sends an operation of an {@link APIType} to the item of a key index.
+   * Counters and the items of each collection type have keys of their own.
+   */
+  private interface Driver {
+    boolean supports(APIType api);
+
+    Future<?> execute(APIType api, int keyIndex, byte[] value);
+  }
+
+  private static String key(APIType api, int keyIndex) {
+    String name = api.name();
+    int sep = name.indexOf('_');
+    String type = api == APIType.INCR ? "counter" : sep < 0 ? "kv" : name.substring(0, sep);
+    return KEY_PREFIX + type.toLowerCase() + keyIndex;
+  }
+
+  private static CollectionAttributes createAttributes(CollectionOverflowAction action) {
+    CollectionAttributes attrs = new CollectionAttributes();
+    attrs.setExpireTime(EXPIRE_TIME);
+    attrs.setMaxCount(ELEMENTS);
+    attrs.setOverflowAction(action);
+    return attrs;
+  }
+
+  private static final class V1Driver implements Driver {
+    private final ArcusClientIF client;
+    private final CollectionAttributes listAttrs =
+        createAttributes(CollectionOverflowAction.head_trim);
+    private final CollectionAttributes setAttrs = createAttributes(CollectionOverflowAction.error);
+    private final CollectionAttributes mapAttrs = createAttributes(CollectionOverflowAction.error);
+    private final CollectionAttributes btreeAttrs =
+        createAttributes(CollectionOverflowAction.smallest_trim);
+
+    private V1Driver(ArcusClientIF client) {
+      this.client = client;
+    }
+
+    @Override
+    public boolean supports(APIType api) {
+      switch (api) {
+        case SET:
+        case GET:
+        case GETS:
+        case INCR:
+        case DELETE:
+        case LOP_INSERT:
+        case LOP_GET:
+        case SOP_INSERT:
+        case SOP_EXIST:
+        case MOP_UPSERT:
+        case MOP_GET:
+        case BOP_UPSERT:
+        case BOP_GET:
+        case BOP_SMGET:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    @Override
+    public Future<?> execute(APIType api, int keyIndex, byte[] value) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      String key = key(api, keyIndex);
+      switch (api) {
+        case SET:
+          return client.set(key, EXPIRE_TIME, value);
+        case GET:
+          return client.asyncGet(key);
+        case GETS:
+          return client.asyncGets(key);
+        case INCR:
+          return client.asyncIncr(key, 1, 0, EXPIRE_TIME);
+        case DELETE:
+          return client.delete(key);
+        case LOP_INSERT:
+          return client.asyncLopInsert(key, -1, value, listAttrs);
+        case LOP_GET:
+          return client.asyncLopGet(key, 0, READ_COUNT - 1, false, false);
+        case SOP_INSERT:
+          return client.asyncSopInsert(key, element(random), setAttrs);
+        case SOP_EXIST:
+          return client.asyncSopExist(key, element(random));
+        case MOP_UPSERT:
+          return client.asyncMopUpsert(key, field(random), value, mapAttrs);
+        case MOP_GET:
+          return client.asyncMopGet(key, field(random), false, false);
+        case BOP_UPSERT:
+          return client.asyncBopUpsert(key, random.nextInt(ELEMENTS), null, value, btreeAttrs);
+        case BOP_GET:
+          return client.asyncBopGet(key, ELEMENTS, 0, ElementFlagFilter.DO_NOT_FILTER,
+              0, READ_COUNT, false, false);
+        case BOP_SMGET:
+          return client.asyncBopSortMergeGet(smgetKeys(keyIndex), ELEMENTS, 0,
+              ElementFlagFilter.DO_NOT_FILTER, READ_COUNT, true);
+        default:
+          throw new IllegalArgumentException(api.name());
+      }
+    }
+  }
+
+  private static final class V2Driver implements Driver {
+    private final AsyncArcusCommands<Object> commands;
+    private final CollectionAttributes btreeAttrs =
+        createAttributes(CollectionOverflowAction.smallest_trim);
+    private final BopGetArgs getArgs = new BopGetArgs.Builder().count(READ_COUNT).build();
+
+    private V2Driver(ArcusClientIF client) {
+      this.commands = client instanceof ArcusClientPool
+          ? ((ArcusClientPool) client).asyncCommands()
+          : ((ArcusClient) client).asyncCommands();
+    }
+
+    @Override
+    public boolean supports(APIType api) {
+      switch (api) {
+        case SET:
+        case GET:
+        case BOP_UPSERT:
+        case BOP_GET:
+        case BOP_SMGET:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    @Override
+    public Future<?> execute(APIType api, int keyIndex, byte[] value) {
+      String key = key(api, keyIndex);
+      switch (api) {
+        case SET:
+          return commands.set(key, EXPIRE_TIME, value);
+        case GET:
+          return commands.get(key);
+        case BOP_UPSERT:
+          return commands.bopUpsert(key, new BTreeElement<Object>(
+              BKey.of((long) ThreadLocalRandom.current().nextInt(ELEMENTS)), value, null),
+              btreeAttrs);
+        case BOP_GET:
+          return commands.bopGet(key, BKey.of((long) ELEMENTS), BKey.of(0L), getArgs);
+        case BOP_SMGET:
+          return commands.bopSortMergeGet(smgetKeys(keyIndex), BKey.of((long) ELEMENTS),
+              BKey.of(0L), true, getArgs);
+        default:
+          throw new IllegalArgumentException(api.name());
+      }
+    }
+  }
+
+  private static String element(ThreadLocalRandom random) {
+    return "element" + random.nextInt(ELEMENTS);
+  }
+
+  private static String field(ThreadLocalRandom random) {
+    return "field" + random.nextInt(ELEMENTS);
+  }
+
+  /**
+   * Keys of the b+trees following a key index, as a sort-merge get of
+   * neighbouring items.
+   */
+  private static List<String> smgetKeys(int keyIndex) {
+    List<String> keys = new ArrayList<>(SMGET_KEYS);
+    for (int i = 0; i < SMGET_KEYS; i++) {
+      keys.add(key(APIType.BOP_GET, keyIndex + i));
+    }
+    return keys;
+  }
+
+  private interface KeyChooser {
+    int next(ThreadLocalRandom random);
+  }
+
+  private static final class UniformKeyChooser implements KeyChooser {
+    private final int keys;
+
+    private UniformKeyChooser(int keys) {
+      this.keys = keys;
+    }
+
+    @Override
+    public int next(ThreadLocalRandom random) {
+      return random.nextInt(keys);
+    }
+  }
+
+  /**
+   * Chooses key indexes with a Zipfian distribution, the lower the more often,
+   * as the generator of YCSB from "Quickly Generating Billion-Record Synthetic
+   * Databases" by Gray et al.
+   */
+  private static final class ZipfianKeyChooser implements KeyChooser {
+    private static final double THETA = 0.99;
+
+    private final int keys;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    private ZipfianKeyChooser(int keys) {
+      this.keys = keys;
+      this.zetaN = zeta(keys);
+      this.alpha = 1.0 / (1.0 - THETA);
+      this.eta = (1 - Math.pow(2.0 / keys, 1 - THETA)) / (1 - zeta(2) / zetaN);
+    }
+
+    private static double zeta(int n) {
+      double sum = 0;
+      for (int i = 1; i <= n; i++) {
+        sum += 1 / Math.pow(i, THETA);
+      }
+      return sum;
+    }
+
+    @Override
+    public int next(ThreadLocalRandom random) {
+      double u = random.nextDouble();
+      double uz = u * zetaN;
+      if (uz < 1.0) {
+        return 0;
+      }
+      if (uz < 1.0 + Math.pow(0.5, THETA)) {
+        return 1;
+      }
+      return Math.min(keys - 1, (int) (keys * Math.pow(eta * u - eta + 1, alpha)));
+    }
+  }
+
+  private static final class Options {
+    private String servers;
+    private String zk;
+    private String service;
+    private long serverLatencyUs = 0;
+    private String api = "v1";
+    private int pool = 1;
+    private int threads = 16;
+    private long rate = 0;
+    private long expectedIntervalUs = 0;
+    private long duration = 30;
+    private long warmup = 5;
+    private Map<APIType, Integer> mix = parseMix("GET:80,SET:20");
+    private int keys = 100000;
+    private String distribution = "uniform";
+    private int valueSize = 100;
+    private long timeoutMs = 1000;
+
+    private static Options parse(String[] args) {
+      Map<String, String> values = new HashMap<>();
+      for (int i = 0; i < args.length; i++) {
+        if (!args[i].startsWith("--") || i + 1 == args.length) {
+          throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+        }
+        values.put(args[i].substring(2), args[++i]);
+      }
+
+      Options o = new Options();
+      for (Map.Entry<String, String> e : values.entrySet()) {
+        String v = e.getValue();
+        switch (e.getKey()) {
+          case "servers":
+            o.servers = v;
+            break;
+          case "zk":
+            o.zk = v;
+            break;
+          case "service":
+            o.service = v;
+            break;
+          case "server-latency-us":
+            o.serverLatencyUs = Long.parseLong(v);
+            break;
+          case "api":
+            o.api = v;
+            break;
+          case "pool":
+            o.pool = Integer.parseInt(v);
+            break;
+          case "threads":
+            o.threads = Integer.parseInt(v);
+            break;
+          case "rate":
+            o.rate = Long.parseLong(v);
+            break;
+          case "expected-interval-us":
+            o.expectedIntervalUs = Long.parseLong(v);
+            break;
+          case "duration":
+            o.duration = Long.parseLong(v);
+            break;
+          case "warmup":
+            o.warmup = Long.parseLong(v);
+            break;
+          case "mix":
+            o.mix = parseMix(v);
+            break;
+          case "keys":
+            o.keys = Integer.parseInt(v);
+            break;
+          case "distribution":
+            o.distribution = v;
+            break;
+          case "value-size":
+            o.valueSize = Integer.parseInt(v);
+            break;
+          case "timeout-ms":
+            o.timeoutMs = Long.parseLong(v);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option: --" + e.getKey());
+        }
+      }
+      if (o.zk != null && o.service == null) {
+        throw new IllegalArgumentException("--zk needs --service.");
+      }
+      if (!"v1".equals(o.api) && !"v2".equals(o.api)) {
+        throw new IllegalArgumentException("Unknown api: " + o.api);
+      }
+      if (!"uniform".equals(o.distribution) && !"zipfian".equals(o.distribution)) {
+        throw new IllegalArgumentException("Unknown distribution: " + o.distribution);
+      }
+      return o;
+    }
+
+    private static Map<APIType, Integer> parseMix(String mix) {
+      Map<APIType, Integer> weights = new LinkedHashMap<>();
+      for (String entry : mix.split(",")) {
+        String[] apiWeight = entry.split(":");
+        weights.put(APIType.valueOf(apiWeight[0].trim().toUpperCase()),
+            apiWeight.length > 1 ? Integer.parseInt(apiWeight[1].trim()) : 1);
+      }
+      return weights;
+    }
+  }
+}